@@ -0,0 +1,52 @@
+package com.example.garage.benchmark;
+
+import com.example.garage.events.ParkingEventPublisher;
+import com.example.garage.metrics.GarageMetrics;
+import com.example.garage.model.ParkingSpot;
+import com.example.garage.model.ParkingStatus;
+import com.example.garage.model.VehicleSize;
+import com.example.garage.persistence.GarageJournal;
+import com.example.garage.pricing.PricingEngine;
+import com.example.garage.pricing.Tariff;
+import com.example.garage.repository.ArrayParkingSpotRepository;
+import com.example.garage.repository.CarRepository;
+import com.example.garage.repository.DefaultGarageLayout;
+import com.example.garage.repository.MapParkingSpotRepository;
+import com.example.garage.repository.ParkingSpotRepository;
+import com.example.garage.service.ParkingService;
+import io.micrometer.prometheusmetrics.PrometheusConfig;
+import io.micrometer.prometheusmetrics.PrometheusMeterRegistry;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.util.List;
+
+final class BenchmarkGarage {
+
+    private static final int SEEDED_SPOTS = 10;
+    private static final int SPOTS_PER_LEVEL = 500;
+
+    private BenchmarkGarage() {
+    }
+
+    static ParkingSpotRepository repositoryWithSpots(int totalSpots) {
+        return repositoryWithSpots("map", totalSpots);
+    }
+
+    // The default ten-spot layout topped up with compact spots on levels 4 and above, in the given garage.spot-store
+    static ParkingSpotRepository repositoryWithSpots(String store, int totalSpots) {
+        ParkingSpotRepository repository = store.equals("arrays") ? new ArrayParkingSpotRepository() : new MapParkingSpotRepository();
+        DefaultGarageLayout.spots().forEach(repository::save);
+        for (int i = 0; i < totalSpots - SEEDED_SPOTS; i++) {
+            int level = 4 + i / SPOTS_PER_LEVEL;
+            int number = i % SPOTS_PER_LEVEL + 1;
+            repository.save(new ParkingSpot("X" + i, level, number, ParkingStatus.AVAILABLE, VehicleSize.COMPACT, List.of()));
+        }
+        return repository;
+    }
+
+    static ParkingService service(ParkingSpotRepository repository, Clock clock) {
+        PricingEngine pricing = new PricingEngine(Tariff.flat(new BigDecimal("5.00"), new BigDecimal("7.50")), clock.getZone());
+        return new ParkingService(repository, new CarRepository(repository), GarageJournal.NONE, ParkingEventPublisher.NONE, new GarageMetrics(new PrometheusMeterRegistry(PrometheusConfig.DEFAULT)), pricing, clock);
+    }
+}
@@ -0,0 +1,79 @@
+package com.example.garage.benchmark;
+
+import com.example.garage.model.VehicleSize;
+import com.example.garage.service.ParkingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class CheckInCheckOutBenchmark {
+
+    // Enough free spots that every thread always finds one, so we measure allocation rather than rejection
+    private static final int SPOTS = 10_000;
+
+    @Param({"map", "arrays"})
+    private String store;
+
+    private ParkingService parkingService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        parkingService = BenchmarkGarage.service(BenchmarkGarage.repositoryWithSpots(store, SPOTS), Clock.systemUTC());
+    }
+
+    @State(Scope.Thread)
+    public static class Driver {
+        private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+        final String licensePlate = "BENCH-" + SEQUENCE.incrementAndGet();
+    }
+
+    @Benchmark
+    @Threads(1)
+    public double checkInCheckOut_1Thread(Driver driver) {
+        return cycle(driver);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public double checkInCheckOut_4Threads(Driver driver) {
+        return cycle(driver);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public double checkInCheckOut_16Threads(Driver driver) {
+        return cycle(driver);
+    }
+
+    @Benchmark
+    @Threads(64)
+    public double checkInCheckOut_64Threads(Driver driver) {
+        return cycle(driver);
+    }
+
+    private double cycle(Driver driver) {
+        parkingService.checkIn(driver.licensePlate, VehicleSize.COMPACT);
+        return parkingService.checkOut(driver.licensePlate);
+    }
+}
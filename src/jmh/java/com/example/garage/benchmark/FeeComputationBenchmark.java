@@ -0,0 +1,47 @@
+package com.example.garage.benchmark;
+
+import com.example.garage.model.VehicleSize;
+import com.example.garage.service.ParkingService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+
+// End-to-end billed stay: check-in, then check-out with fee calculation. OVERSIZED lands on the EV spot C1.
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class FeeComputationBenchmark {
+
+    @Param({"COMPACT", "OVERSIZED"})
+    private VehicleSize size;
+
+    private ParkingService parkingService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SteppingClock clock = new SteppingClock(Instant.parse("2025-07-09T12:00:00Z"), Duration.ofMinutes(97));
+        parkingService = BenchmarkGarage.service(BenchmarkGarage.repositoryWithSpots(10), clock);
+    }
+
+    @Benchmark
+    public double checkInAndBill() {
+        parkingService.checkIn("FEE-1", size);
+        return parkingService.checkOut("FEE-1");
+    }
+}
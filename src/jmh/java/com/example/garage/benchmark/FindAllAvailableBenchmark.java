@@ -0,0 +1,46 @@
+package com.example.garage.benchmark;
+
+import com.example.garage.model.ParkingSpot;
+import com.example.garage.repository.ParkingSpotRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Collection;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class FindAllAvailableBenchmark {
+
+    @Param({"10", "10000", "1000000"})
+    private int spots;
+
+    @Param({"map", "arrays"})
+    private String store;
+
+    private ParkingSpotRepository repository;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        repository = BenchmarkGarage.repositoryWithSpots(store, spots);
+    }
+
+    @Benchmark
+    public Collection<ParkingSpot> findAllAvailable() {
+        return repository.findAllAvailable();
+    }
+}
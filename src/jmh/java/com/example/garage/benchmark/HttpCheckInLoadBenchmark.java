@@ -0,0 +1,91 @@
+package com.example.garage.benchmark;
+
+import com.example.garage.GarageApplication;
+import com.example.garage.model.ParkingSpot;
+import com.example.garage.model.ParkingStatus;
+import com.example.garage.model.VehicleSize;
+import com.example.garage.repository.ParkingSpotRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Gate-burst load test over real HTTP: compare scores and p0.99 between the two execution modes.
+// The virtual-threads mode needs Java 21: mvn -P benchmarks,java21 -DskipTests verify -Djmh.include=HttpCheckInLoad
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 3, time = 5)
+@Fork(1)
+@Threads(400)
+@State(Scope.Benchmark)
+public class HttpCheckInLoadBenchmark {
+
+    private static final int SPOTS = 10_000;
+
+    @Param({"platform", "virtual-threads"})
+    private String execution;
+
+    private ServletWebServerApplicationContext context;
+    private HttpClient client;
+    private String baseUrl;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = (ServletWebServerApplicationContext) new SpringApplicationBuilder(GarageApplication.class)
+                .properties("server.port=0", "garage.execution=" + execution, "logging.level.root=warn")
+                .run();
+        ParkingSpotRepository repository = context.getBean(ParkingSpotRepository.class);
+        for (int i = 0; i < SPOTS; i++) {
+            repository.save(new ParkingSpot("L" + i, 4 + i / 500, i % 500 + 1, ParkingStatus.AVAILABLE, VehicleSize.COMPACT, List.of()));
+        }
+        baseUrl = "http://localhost:" + context.getWebServer().getPort() + "/api/v1/cars/";
+        client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @State(Scope.Thread)
+    public static class Gate {
+        private static final AtomicInteger SEQUENCE = new AtomicInteger();
+
+        final String body = "{\"licensePlate\":\"GATE-" + SEQUENCE.incrementAndGet() + "\",\"size\":\"COMPACT\"}";
+    }
+
+    @Benchmark
+    public int checkInCheckOut(Gate gate) throws IOException, InterruptedException {
+        return post("check-in", gate.body) + post("check-out", gate.body);
+    }
+
+    private int post(String path, String body) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.garage.benchmark;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+
+// Advances by a fixed step on every read so each check-in/check-out pair bills a non-zero stay
+final class SteppingClock extends Clock {
+
+    private final long stepMillis;
+    private long nowMillis;
+
+    SteppingClock(Instant start, Duration step) {
+        this.nowMillis = start.toEpochMilli();
+        this.stepMillis = step.toMillis();
+    }
+
+    @Override
+    public ZoneId getZone() {
+        return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public Instant instant() {
+        nowMillis += stepMillis;
+        return Instant.ofEpochMilli(nowMillis);
+    }
+}
@@ -0,0 +1,156 @@
+package com.example.garage.analytics;
+
+import com.example.garage.events.ParkingEvent;
+import com.example.garage.events.ParkingEventHandler;
+import com.example.garage.model.ParkingSpot;
+import com.example.garage.model.ParkingStatus;
+import com.example.garage.model.RollupSeries;
+import com.example.garage.service.GarageShards;
+import com.example.garage.service.ParkingService;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+// Check-ins, check-outs, revenue and occupancy per level, spot size and feature, plus a total, kept up to date from the
+// event bus at minute, hour and day resolution, so a query reads buckets instead of replaying stays. Every dimension
+// value has fixed rings of buckets, so memory grows with the garages, levels, sizes and features seen here, never with
+// traffic. Days are UTC days. A garage is tracked from its first event, starting from the spots occupied at that moment.
+@Component
+public class AnalyticsRollups implements ParkingEventHandler {
+
+    public enum Dimension {
+        TOTAL, LEVEL, SIZE, FEATURE
+    }
+
+    // Stands in for the deployment's own garage, whose id is null
+    private static final String OWN_GARAGE = "";
+
+    // The total has the empty value
+    private record Key(Dimension dimension, String value) {
+    }
+
+    private final ObjectProvider<ParkingService> parkingService;
+    private final ObjectProvider<GarageShards> garageShards;
+    private final Clock clock;
+    // Garage, then dimension, then value
+    private final Map<String, Map<Dimension, Map<String, Rollup>>> garages = new ConcurrentHashMap<>();
+
+    // The services publish to the event bus that this is a handler of, so they are looked up only once events flow
+    public AnalyticsRollups(ObjectProvider<ParkingService> parkingService, ObjectProvider<GarageShards> garageShards, Clock clock) {
+        this.parkingService = parkingService;
+        this.garageShards = garageShards;
+        this.clock = clock;
+    }
+
+    @Override
+    public String name() {
+        return "analytics";
+    }
+
+    @Override
+    public void onEvent(String garageId, ParkingEvent event, long sequence, boolean endOfBatch) {
+        long at = event.at().toEpochMilli();
+        Map<Dimension, Map<String, Rollup>> garage = garages.get(key(garageId));
+        if (garage == null) {
+            garage = track(garageId, event, at);
+        }
+        for (Rollup rollup : rollups(garage, event.spot(), at)) {
+            if (event instanceof ParkingEvent.CarLeft left) {
+                rollup.left(at, left.feeCents());
+            } else {
+                rollup.parked(at);
+            }
+        }
+    }
+
+    // Values in natural order, levels numerically; buckets from the one holding from up to the one holding to,
+    // clipped to what is kept and to the current bucket. Without bounds, the most recent few buckets.
+    public List<RollupSeries> series(String garageId, Dimension dimension, Resolution resolution, Instant from, Instant to) {
+        if (from != null && to != null && !from.isBefore(to)) {
+            throw new IllegalArgumentException("Range start must be before its end");
+        }
+        long now = clock.millis();
+        long width = resolution.widthMillis();
+        long current = now / width;
+        long toBucket = to == null ? current + 1 : Math.min(current + 1, Math.floorDiv(to.toEpochMilli() - 1, width) + 1);
+        long fromBucket = Math.max(current - resolution.retained() + 1,
+                from == null ? toBucket - resolution.defaultBuckets() : Math.floorDiv(from.toEpochMilli(), width));
+
+        Map<Dimension, Map<String, Rollup>> garage = garages.get(key(garageId));
+        if (garage == null || !garage.containsKey(dimension)) {
+            return List.of();
+        }
+        Comparator<String> order = dimension == Dimension.LEVEL ? Comparator.comparingInt(Integer::parseInt) : Comparator.naturalOrder();
+        return garage.get(dimension).entrySet().stream()
+                .sorted(Map.Entry.comparingByKey(order))
+                .map(entry -> new RollupSeries(dimension == Dimension.TOTAL ? null : entry.getKey(),
+                        fromBucket < toBucket ? entry.getValue().read(resolution, fromBucket, toBucket, now) : List.of()))
+                .toList();
+    }
+
+    // Seeded with the spots occupied now, less the car this event parked or plus the one it let go, so applying the
+    // event brings it to the present. Events published just before the seed was taken and not yet handled are counted
+    // twice; there are no more of those than the bus lag at that moment.
+    private Map<Dimension, Map<String, Rollup>> track(String garageId, ParkingEvent event, long at) {
+        Map<Key, Integer> seed = new HashMap<>();
+        for (ParkingSpot spot : occupiedSpots(garageId)) {
+            for (Key key : keys(spot)) {
+                seed.merge(key, 1, Integer::sum);
+            }
+        }
+        int adjustment = event instanceof ParkingEvent.CarParked ? -1 : 1;
+        for (Key key : keys(event.spot())) {
+            seed.merge(key, adjustment, Integer::sum);
+        }
+        Map<Dimension, Map<String, Rollup>> garage = new ConcurrentHashMap<>();
+        seed.forEach((key, occupied) -> garage.computeIfAbsent(key.dimension(), d -> new ConcurrentHashMap<>())
+                .put(key.value(), new Rollup(Math.max(0, occupied), at)));
+        garages.put(key(garageId), garage);
+        return garage;
+    }
+
+    private List<ParkingSpot> occupiedSpots(String garageId) {
+        Function<ParkingService, List<ParkingSpot>> occupied = service -> service.getAllSpots().stream()
+                .filter(spot -> spot.status() == ParkingStatus.OCCUPIED)
+                .toList();
+        if (garageId == null) {
+            return occupied.apply(parkingService.getObject());
+        }
+        // Never reloads a shard on the bus thread: one evicted, moved or gone since it published is counted from zero
+        return garageShards.getObject().callIfLoaded(garageId, occupied).orElse(List.of());
+    }
+
+    private List<Rollup> rollups(Map<Dimension, Map<String, Rollup>> garage, ParkingSpot spot, long at) {
+        List<Rollup> rollups = new ArrayList<>();
+        for (Key key : keys(spot)) {
+            rollups.add(garage.computeIfAbsent(key.dimension(), d -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(key.value(), v -> new Rollup(0, at)));
+        }
+        return rollups;
+    }
+
+    // Every dimension value a spot counts towards
+    private static List<Key> keys(ParkingSpot spot) {
+        List<Key> keys = new ArrayList<>();
+        keys.add(new Key(Dimension.TOTAL, ""));
+        keys.add(new Key(Dimension.LEVEL, Integer.toString(spot.level())));
+        keys.add(new Key(Dimension.SIZE, spot.size().name()));
+        if (spot.features() != null) {
+            spot.features().forEach(feature -> keys.add(new Key(Dimension.FEATURE, feature)));
+        }
+        return keys;
+    }
+
+    private static String key(String garageId) {
+        return garageId == null ? OWN_GARAGE : garageId;
+    }
+}
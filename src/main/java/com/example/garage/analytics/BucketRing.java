@@ -0,0 +1,86 @@
+package com.example.garage.analytics;
+
+import com.example.garage.model.RollupBucket;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.Arrays;
+
+// The buckets of one resolution for one dimension value, in a ring indexed by bucket number (epoch millis / width).
+// Each slot is stamped with the bucket it holds; one stamped with an older bucket is reset when reused and reads as empty.
+final class BucketRing {
+
+    private final long width;
+    private final long[] stamps;
+    private final int[] checkIns;
+    private final int[] checkOuts;
+    private final int[] peaks;
+    private final long[] revenueCents;
+    // Sum over the bucket of cars parked times milliseconds they stayed parked
+    private final long[] occupiedMillis;
+
+    BucketRing(Resolution resolution) {
+        int size = resolution.retained();
+        this.width = resolution.widthMillis();
+        this.stamps = new long[size];
+        this.checkIns = new int[size];
+        this.checkOuts = new int[size];
+        this.peaks = new int[size];
+        this.revenueCents = new long[size];
+        this.occupiedMillis = new long[size];
+        Arrays.fill(stamps, Long.MIN_VALUE);
+    }
+
+    // Adds occupied cars held over [start, end), touching at most one lap of the ring however long the span
+    void accrue(long start, long end, int occupied) {
+        if (end <= start || occupied == 0) {
+            return;
+        }
+        long last = (end - 1) / width;
+        for (long bucket = Math.max(start / width, last - stamps.length + 1); bucket <= last; bucket++) {
+            long overlap = Math.min(end, (bucket + 1) * width) - Math.max(start, bucket * width);
+            int slot = slot(bucket);
+            occupiedMillis[slot] += occupied * overlap;
+            peaks[slot] = Math.max(peaks[slot], occupied);
+        }
+    }
+
+    void record(long at, int occupiedAfter, int checkedIn, int checkedOut, long feeCents) {
+        int slot = slot(at / width);
+        checkIns[slot] += checkedIn;
+        checkOuts[slot] += checkedOut;
+        revenueCents[slot] += feeCents;
+        peaks[slot] = Math.max(peaks[slot], occupiedAfter);
+    }
+
+    // Occupancy from lastChange on has not been accrued yet; it is added here up to now without being stored
+    RollupBucket read(long bucket, long lastChange, int occupied, long now) {
+        int slot = (int) Math.floorMod(bucket, (long) stamps.length);
+        boolean held = stamps[slot] == bucket;
+        long start = bucket * width;
+        long end = Math.min(now, start + width);
+        long occupancy = held ? occupiedMillis[slot] : 0;
+        int peak = held ? peaks[slot] : 0;
+        long open = end - Math.max(lastChange, start);
+        if (open > 0 && occupied > 0) {
+            occupancy += occupied * open;
+            peak = Math.max(peak, occupied);
+        }
+        double average = end > start ? (double) occupancy / (end - start) : 0;
+        return new RollupBucket(Instant.ofEpochMilli(start), held ? checkIns[slot] : 0, held ? checkOuts[slot] : 0,
+                BigDecimal.valueOf(held ? revenueCents[slot] : 0, 2), average, peak);
+    }
+
+    private int slot(long bucket) {
+        int slot = (int) Math.floorMod(bucket, (long) stamps.length);
+        if (stamps[slot] != bucket) {
+            stamps[slot] = bucket;
+            checkIns[slot] = 0;
+            checkOuts[slot] = 0;
+            peaks[slot] = 0;
+            revenueCents[slot] = 0;
+            occupiedMillis[slot] = 0;
+        }
+        return slot;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.garage.analytics;
+
+import java.time.Duration;
+
+// Bucket width, how many buckets are kept, and how many a query returns by default
+public enum Resolution {
+    MINUTE(Duration.ofMinutes(1), 24 * 60, 60),
+    HOUR(Duration.ofHours(1), 31 * 24, 24),
+    DAY(Duration.ofDays(1), 366, 30);
+
+    private final long widthMillis;
+    private final int retained;
+    private final int defaultBuckets;
+
+    Resolution(Duration width, int retained, int defaultBuckets) {
+        this.widthMillis = width.toMillis();
+        this.retained = retained;
+        this.defaultBuckets = defaultBuckets;
+    }
+
+    long widthMillis() {
+        return widthMillis;
+    }
+
+    int retained() {
+        return retained;
+    }
+
+    int defaultBuckets() {
+        return defaultBuckets;
+    }
+}
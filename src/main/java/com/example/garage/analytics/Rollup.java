@@ -0,0 +1,62 @@
+package com.example.garage.analytics;
+
+import com.example.garage.model.RollupBucket;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Check-ins, check-outs, revenue and occupancy of one dimension value, e.g. level 2, at every resolution. Written by
+// the event-bus thread and read by requests, hence synchronized; each event costs a few array writes per resolution.
+final class Rollup {
+
+    private static final Resolution[] RESOLUTIONS = Resolution.values();
+
+    private final BucketRing[] rings = new BucketRing[RESOLUTIONS.length];
+    private int occupied;
+    // Occupancy is accrued into the rings up to here
+    private long lastChange;
+
+    Rollup(int occupied, long since) {
+        for (Resolution resolution : RESOLUTIONS) {
+            rings[resolution.ordinal()] = new BucketRing(resolution);
+        }
+        this.occupied = occupied;
+        this.lastChange = since;
+    }
+
+    synchronized void parked(long at) {
+        long t = advance(at);
+        occupied++;
+        for (BucketRing ring : rings) {
+            ring.record(t, occupied, 1, 0, 0);
+        }
+    }
+
+    synchronized void left(long at, long feeCents) {
+        long t = advance(at);
+        // Never below zero, should a car parked before the garage was first seen leave uncounted
+        occupied = Math.max(0, occupied - 1);
+        for (BucketRing ring : rings) {
+            ring.record(t, occupied, 0, 1, feeCents);
+        }
+    }
+
+    synchronized List<RollupBucket> read(Resolution resolution, long fromBucket, long toBucket, long now) {
+        BucketRing ring = rings[resolution.ordinal()];
+        List<RollupBucket> buckets = new ArrayList<>((int) (toBucket - fromBucket));
+        for (long bucket = fromBucket; bucket < toBucket; bucket++) {
+            buckets.add(ring.read(bucket, lastChange, occupied, now));
+        }
+        return buckets;
+    }
+
+    // Concurrent check-outs may publish a few milliseconds out of order; such an event counts at lastChange
+    private long advance(long at) {
+        long t = Math.max(at, lastChange);
+        for (BucketRing ring : rings) {
+            ring.accrue(lastChange, t, occupied);
+        }
+        lastChange = t;
+        return t;
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.garage.cluster;
+
+import com.example.garage.service.GarageCommand;
+import com.example.garage.service.ShardState;
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+
+import java.util.List;
+
+// The calls nodes make on each other
+@JsonTypeInfo(use = JsonTypeInfo.Id.NAME, property = "type")
+@JsonSubTypes({
+        @JsonSubTypes.Type(value = ClusterMessage.Join.class, name = "join"),
+        @JsonSubTypes.Type(value = ClusterMessage.Members.class, name = "members"),
+        @JsonSubTypes.Type(value = ClusterMessage.Take.class, name = "take"),
+        @JsonSubTypes.Type(value = ClusterMessage.Give.class, name = "give"),
+        @JsonSubTypes.Type(value = ClusterMessage.Forward.class, name = "forward")
+})
+sealed interface ClusterMessage {
+
+    // Sent to a seed; answered with the new Members
+    record Join(String node) implements ClusterMessage {
+    }
+
+    // The membership after one change, with the few before it, newest first, so every node knows where garages that
+    // have not been used since may still live
+    record Members(long epoch, List<String> nodes, List<List<String>> history) implements ClusterMessage {
+    }
+
+    // The new owner pulls a garage from its previous owner; answered with its state, or null if it held none
+    record Take(String garageId, String node) implements ClusterMessage {
+    }
+
+    // A leaving node pushes a garage to its new owner
+    record Give(String garageId, ShardState state) implements ClusterMessage {
+    }
+
+    // A request that arrived at a node that does not own the garage; answered with the command's result
+    record Forward(String garageId, int hops, GarageCommand<?> command) implements ClusterMessage {
+    }
+}
@@ -0,0 +1,362 @@
+package com.example.garage.cluster;
+
+import com.example.garage.controller.GlobalExceptionHandler;
+import com.example.garage.controller.dto.ErrorResponse;
+import com.example.garage.exception.ClusterUnavailableException;
+import com.example.garage.exception.GarageMovedException;
+import com.example.garage.service.GarageCommand;
+import com.example.garage.service.GarageDirectory;
+import com.example.garage.service.GarageShards;
+import com.example.garage.service.ShardState;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Primary;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+// Spreads garages over several processes with a consistent-hash ring. Any node takes any request: one for a garage
+// owned elsewhere is forwarded to its owner over RPC and the answer relayed back. A node joins through any member
+// named in garage.cluster.seeds and leaves on shutdown. Membership changes one node at a time; each change moves only
+// the garages whose owner changed. A new owner pulls a garage from the node that held it last on first use, and a leaving
+// node pushes what it holds to the new owners, so cars, spots and reservations move with their garage. Only peers that
+// hold garage.cluster.secret are answered, and only current members may change the ring or pull a garage away.
+@Component
+@Primary
+@ConditionalOnProperty(name = "garage.cluster.enabled", havingValue = "true")
+public class ClusterNode implements GarageDirectory, InitializingBean, DisposableBean {
+
+    // Forwards and retries one request may take while the membership settles
+    private static final int MAX_HOPS = 3;
+    // Earlier memberships searched for a garage's last holder; one untouched through more changes starts from its layout
+    private static final int HISTORY = 8;
+
+    private record View(long epoch, HashRing ring, List<HashRing> history) {
+
+        ClusterMessage.Members next(List<String> nodes) {
+            List<List<String>> earlier = new ArrayList<>();
+            earlier.add(ring.members());
+            history.stream().limit(HISTORY - 1).map(HashRing::members).forEach(earlier::add);
+            return new ClusterMessage.Members(epoch + 1, nodes, earlier);
+        }
+    }
+
+    private final GarageShards shards;
+    private final RemoteErrors errors;
+    private final ObjectMapper mapper;
+    private final List<String> seeds;
+    private final int virtualNodes;
+    private final Duration joinTimeout;
+    private final RpcClient client;
+    private final RpcServer server;
+    private final String self;
+    private final Object membership = new Object();
+    private final Map<String, Object> handoffLocks = new ConcurrentHashMap<>();
+    // Where garages held here were handed to, until they come back
+    private final Map<String, String> handedTo = new ConcurrentHashMap<>();
+    private final CountDownLatch joined = new CountDownLatch(1);
+    private volatile View view;
+
+    public ClusterNode(GarageShards shards, GlobalExceptionHandler errorHandler, ObjectMapper objectMapper,
+                       @Value("${garage.cluster.port:7400}") int port,
+                       @Value("${garage.cluster.bind-address:}") String bindAddress,
+                       @Value("${garage.cluster.advertised-host:localhost}") String advertisedHost,
+                       @Value("${garage.cluster.secret:}") String secret,
+                       @Value("${garage.cluster.seeds:}") List<String> seeds,
+                       @Value("${garage.cluster.virtual-nodes:128}") int virtualNodes,
+                       @Value("${garage.cluster.rpc-timeout:PT5S}") Duration rpcTimeout) {
+        this.shards = shards;
+        this.errors = new RemoteErrors(errorHandler);
+        this.mapper = objectMapper.copy()
+                .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+                .disable(SerializationFeature.FAIL_ON_EMPTY_BEANS)
+                .registerModule(errors.module());
+        this.virtualNodes = virtualNodes;
+        this.joinTimeout = rpcTimeout.multipliedBy(2);
+        this.view = new View(0, ring(List.of()), List.of());
+        PeerHandshake handshake = new PeerHandshake(secret);
+        // Listens only where peers are told to connect unless told otherwise
+        String host = bindAddress == null || bindAddress.isBlank() ? advertisedHost : bindAddress;
+        this.server = new RpcServer(host, port, handshake, rpcTimeout, this::handle);
+        this.self = advertisedHost + ":" + server.port();
+        this.client = new RpcClient(rpcTimeout, self, handshake);
+        this.seeds = seeds.stream().map(String::trim).filter(seed -> !seed.isEmpty() && !seed.equals(self)).toList();
+    }
+
+    // Without seeds this node starts a cluster of its own
+    @Override
+    public void afterPropertiesSet() {
+        if (seeds.isEmpty()) {
+            adopt(new ClusterMessage.Members(1, List.of(self), List.of()));
+            joined.countDown();
+            return;
+        }
+        ClusterUnavailableException lastFailure = null;
+        for (String seed : seeds) {
+            try {
+                adopt(call(seed, new ClusterMessage.Join(self), ClusterMessage.Members.class));
+                joined.countDown();
+                return;
+            } catch (ClusterUnavailableException e) {
+                lastFailure = e;
+            }
+        }
+        server.close();
+        throw new IllegalStateException("No seed of " + seeds + " answered", lastFailure);
+    }
+
+    @Override
+    public void destroy() {
+        leave();
+        server.close();
+        client.close();
+    }
+
+    public String address() {
+        return self;
+    }
+
+    public List<String> members() {
+        return view.ring.members();
+    }
+
+    public String ownerOf(String garageId) {
+        return view.ring.owner(garageId);
+    }
+
+    @Override
+    public <T> T run(String garageId, GarageCommand<T> command) {
+        return route(garageId, command, 0);
+    }
+
+    // Announces the smaller ring, then pushes every garage still held here to its new owner. Garages the new owners
+    // already pulled in between are skipped, since export() hands each one over exactly once.
+    public void leave() {
+        synchronized (membership) {
+            View current = view;
+            if (!current.ring.contains(self) || current.ring.members().size() == 1) {
+                return;
+            }
+            List<String> remaining = current.ring.members().stream().filter(node -> !node.equals(self)).toList();
+            ClusterMessage.Members next = current.next(remaining);
+            adopt(next);
+            announce(next, self);
+        }
+        for (String garageId : shards.heldIds()) {
+            String owner = view.ring.owner(garageId);
+            ShardState state = shards.export(garageId);
+            handedTo.put(garageId, owner);
+            if (state == null) {
+                continue;
+            }
+            try {
+                call(owner, new ClusterMessage.Give(garageId, state), Void.class);
+            } catch (ClusterUnavailableException e) {
+                // Kept here, and persisted if persistence is on, rather than lost
+                shards.install(garageId, state);
+                handedTo.remove(garageId);
+            }
+        }
+    }
+
+    private <T> T route(String garageId, GarageCommand<T> command, int hops) {
+        GarageShards.requireGarageId(garageId);
+        awaitJoined();
+        String target = view.ring.owner(garageId);
+        for (; hops <= MAX_HOPS; hops++) {
+            try {
+                if (!self.equals(target)) {
+                    return call(target, new ClusterMessage.Forward(garageId, hops + 1, command),
+                            command.resultType(mapper.getTypeFactory()));
+                }
+                pullIfHeldElsewhere(garageId);
+                return shards.run(garageId, command);
+            } catch (GarageMovedException e) {
+                // Handed away while the request was on its way in
+                target = handedTo.getOrDefault(garageId, view.ring.owner(garageId));
+            }
+        }
+        throw new ClusterUnavailableException("Garage " + garageId + " is moving between nodes; try again");
+    }
+
+    // A garage this node owns but has not loaded may still be on the node it was handed to from here, or on whichever
+    // node owned it last: not necessarily the previous owner, when it went unused through several changes. Only one
+    // node ever holds a garage, since export() hands it over exactly once, so the first state found is the latest.
+    private void pullIfHeldElsewhere(String garageId) {
+        if (shards.isLoaded(garageId)) {
+            return;
+        }
+        synchronized (handoffLocks.computeIfAbsent(garageId, id -> new Object())) {
+            if (shards.isLoaded(garageId)) {
+                return;
+            }
+            View current = view;
+            List<String> holders = new ArrayList<>();
+            if (handedTo.containsKey(garageId)) {
+                holders.add(handedTo.get(garageId));
+            }
+            current.history.stream().map(ring -> ring.owner(garageId))
+                    .filter(owner -> owner != null && !owner.equals(self) && !holders.contains(owner))
+                    .forEach(holders::add);
+            ShardState state = null;
+            for (String holder : holders) {
+                try {
+                    state = call(holder, new ClusterMessage.Take(garageId, self), ShardState.class);
+                } catch (ClusterUnavailableException e) {
+                    // A node that has left pushed everything it held before it went
+                    if (current.ring.contains(holder)) {
+                        throw e;
+                    }
+                }
+                if (state != null) {
+                    break;
+                }
+            }
+            if (state != null) {
+                shards.install(garageId, state);
+            } else {
+                shards.reclaim(garageId);
+            }
+            handedTo.remove(garageId);
+        }
+    }
+
+    private RpcServer.Reply handle(String peer, byte[] body) {
+        try {
+            ClusterMessage message = mapper.readValue(body, ClusterMessage.class);
+            return RpcServer.Reply.result(mapper.writeValueAsBytes(answer(peer, message)));
+        } catch (IOException e) {
+            return RpcServer.Reply.failure("INVALID_INPUT", e.getMessage());
+        } catch (RuntimeException e) {
+            ErrorResponse error = errors.describe(e);
+            return RpcServer.Reply.failure(error.code(), error.message());
+        }
+    }
+
+    // A node that has left still gives away what it held, so Give is taken from any peer that passed the handshake
+    private Object answer(String peer, ClusterMessage message) {
+        if (message instanceof ClusterMessage.Members members) {
+            requireMember(peer);
+            adopt(members);
+            return null;
+        }
+        awaitJoined();
+        if (message instanceof ClusterMessage.Join join) {
+            if (!join.node().equals(peer)) {
+                throw new IllegalArgumentException("Node " + peer + " cannot join as " + join.node());
+            }
+            return admit(join.node());
+        }
+        if (message instanceof ClusterMessage.Take take) {
+            requireMember(peer);
+            if (!take.node().equals(peer)) {
+                throw new IllegalArgumentException("Node " + peer + " cannot take garage " + take.garageId() + " for " + take.node());
+            }
+            ShardState state = shards.export(take.garageId());
+            handedTo.put(take.garageId(), take.node());
+            return state;
+        }
+        if (message instanceof ClusterMessage.Give give) {
+            shards.install(give.garageId(), give.state());
+            handedTo.remove(give.garageId());
+            return null;
+        }
+        ClusterMessage.Forward forward = (ClusterMessage.Forward) message;
+        return route(forward.garageId(), forward.command(), forward.hops());
+    }
+
+    // Every other member hears of the new node before it is told it has joined, so nothing reaches it by an old ring
+    private ClusterMessage.Members admit(String node) {
+        synchronized (membership) {
+            View current = view;
+            if (current.ring.contains(node)) {
+                return new ClusterMessage.Members(current.epoch, current.ring.members(),
+                        current.history.stream().map(HashRing::members).toList());
+            }
+            List<String> nodes = new ArrayList<>(current.ring.members());
+            nodes.add(node);
+            ClusterMessage.Members next = current.next(nodes);
+            adopt(next);
+            announce(next, node);
+            return next;
+        }
+    }
+
+    // A member that misses the announcement keeps forwarding by its old ring, which still reaches an owner that
+    // knows better within a few hops
+    private void announce(ClusterMessage.Members members, String skip) {
+        for (String node : members.nodes()) {
+            if (node.equals(self) || node.equals(skip)) {
+                continue;
+            }
+            try {
+                call(node, members, Void.class);
+            } catch (ClusterUnavailableException e) {
+                // Unreachable for now
+            }
+        }
+    }
+
+    private void adopt(ClusterMessage.Members members) {
+        synchronized (membership) {
+            if (members.epoch() > view.epoch) {
+                view = new View(members.epoch(), ring(members.nodes()), members.history().stream().map(this::ring).toList());
+            }
+        }
+    }
+
+    private void requireMember(String peer) {
+        if (!view.ring.contains(peer)) {
+            throw new IllegalArgumentException("Node " + peer + " is not a member of the cluster");
+        }
+    }
+
+    private void awaitJoined() {
+        try {
+            if (!joined.await(joinTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                throw new ClusterUnavailableException("Node " + self + " has not joined the cluster yet");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ClusterUnavailableException("Interrupted waiting to join the cluster");
+        }
+    }
+
+    private HashRing ring(List<String> nodes) {
+        return new HashRing(nodes, virtualNodes);
+    }
+
+    private <T> T call(String node, ClusterMessage message, Class<T> resultType) {
+        return call(node, message, mapper.constructType(resultType));
+    }
+
+    private <T> T call(String node, ClusterMessage message, JavaType resultType) {
+        byte[] result;
+        try {
+            result = client.call(node, mapper.writeValueAsBytes(message));
+        } catch (RpcClient.RemoteFailure e) {
+            throw errors.rebuild(e.code(), e.getMessage());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            return mapper.readValue(result, resultType);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Malformed answer from node " + node, e);
+        }
+    }
+}
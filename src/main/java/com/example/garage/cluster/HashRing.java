@@ -0,0 +1,56 @@
+package com.example.garage.cluster;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+// Consistent-hash ring of cluster nodes. Each node owns many points on the ring, so garages spread evenly, and
+// adding or removing a node only moves the garages between it and its neighbours: about 1/n of them.
+final class HashRing {
+
+    private final List<String> members;
+    private final NavigableMap<Long, String> points = new TreeMap<>();
+
+    HashRing(List<String> members, int virtualNodes) {
+        this.members = members.stream().distinct().sorted().toList();
+        for (String member : this.members) {
+            for (int i = 0; i < virtualNodes; i++) {
+                points.put(hash(member + "#" + i), member);
+            }
+        }
+    }
+
+    // Null only for an empty ring
+    String owner(String key) {
+        if (points.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, String> point = points.ceilingEntry(hash(key));
+        return (point == null ? points.firstEntry() : point).getValue();
+    }
+
+    List<String> members() {
+        return members;
+    }
+
+    boolean contains(String member) {
+        return members.contains(member);
+    }
+
+    // FNV-1a, then MurmurHash3's finalizer so that similar ids land far apart
+    static long hash(String key) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : key.getBytes(StandardCharsets.UTF_8)) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+}
@@ -0,0 +1,70 @@
+package com.example.garage.cluster;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+
+// Opens every connection before any frame is read: the server sends a random challenge, the client answers with its
+// node address and an HMAC-SHA256 of both under garage.cluster.secret, and the server accepts with one byte or hangs up.
+// The secret never crosses the wire and an answer is good for one challenge only.
+final class PeerHandshake {
+
+    private static final int CHALLENGE_BYTES = 32;
+    private static final byte ACCEPTED = 1;
+    private static final SecureRandom RANDOM = new SecureRandom();
+
+    private final SecretKeySpec key;
+
+    PeerHandshake(String secret) {
+        if (secret == null || secret.isBlank()) {
+            throw new IllegalArgumentException("garage.cluster.secret must be set when clustering is enabled");
+        }
+        this.key = new SecretKeySpec(secret.getBytes(StandardCharsets.UTF_8), "HmacSHA256");
+    }
+
+    // Server side; the node address the peer proved it holds the secret for
+    String accept(DataInputStream in, DataOutputStream out) throws IOException {
+        byte[] challenge = new byte[CHALLENGE_BYTES];
+        RANDOM.nextBytes(challenge);
+        out.write(challenge);
+        out.flush();
+        String node = in.readUTF();
+        byte[] proof = new byte[CHALLENGE_BYTES];
+        in.readFully(proof);
+        if (!MessageDigest.isEqual(proof, sign(challenge, node))) {
+            throw new IOException("Peer claiming to be " + node + " failed the handshake");
+        }
+        out.writeByte(ACCEPTED);
+        out.flush();
+        return node;
+    }
+
+    // Client side
+    void offer(String node, DataInputStream in, DataOutputStream out) throws IOException {
+        byte[] challenge = new byte[CHALLENGE_BYTES];
+        in.readFully(challenge);
+        out.writeUTF(node);
+        out.write(sign(challenge, node));
+        out.flush();
+        if (in.readByte() != ACCEPTED) {
+            throw new IOException("Handshake rejected");
+        }
+    }
+
+    private byte[] sign(byte[] challenge, String node) {
+        try {
+            Mac mac = Mac.getInstance("HmacSHA256");
+            mac.init(key);
+            mac.update(challenge);
+            return mac.doFinal(node.getBytes(StandardCharsets.UTF_8));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,86 @@
+package com.example.garage.cluster;
+
+import com.example.garage.controller.GlobalExceptionHandler;
+import com.example.garage.controller.dto.ErrorResponse;
+import com.example.garage.exception.CarAlreadyParkedException;
+import com.example.garage.exception.CarNotFoundException;
+import com.example.garage.exception.ClusterUnavailableException;
+import com.example.garage.exception.GarageFullException;
+import com.example.garage.exception.GarageMovedException;
+import com.example.garage.exception.GarageNotFoundException;
+import com.example.garage.exception.NoCompatibleSpotFoundException;
+import com.example.garage.exception.PlateAlreadyReservedException;
+import com.example.garage.exception.ReservationNotFoundException;
+import com.example.garage.exception.SpotAlreadyExistsException;
+import com.example.garage.exception.SpotNotFoundException;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+
+import java.io.IOException;
+
+// Errors cross nodes as the API's error codes and come out on the other side as the exception that maps back to the
+// same code, so a forwarded request fails exactly as it would have on the owner
+final class RemoteErrors {
+
+    private static final String GARAGE_MOVED = "GARAGE_MOVED";
+
+    private final GlobalExceptionHandler errors;
+
+    RemoteErrors(GlobalExceptionHandler errors) {
+        this.errors = errors;
+    }
+
+    ErrorResponse describe(RuntimeException ex) {
+        if (ex instanceof GarageMovedException) {
+            return new ErrorResponse(GARAGE_MOVED, ex.getMessage());
+        }
+        return errors.toErrorResponse(ex);
+    }
+
+    RuntimeException rebuild(String code, String message) {
+        return switch (code) {
+            case "GARAGE_FULL" -> new GarageFullException(message);
+            case "CAR_NOT_FOUND" -> new CarNotFoundException(message);
+            case "SPOT_NOT_FOUND" -> new SpotNotFoundException(message);
+            case "GARAGE_NOT_FOUND" -> new GarageNotFoundException(message);
+            case "NO_COMPATIBLE_SPOT_FOUND" -> new NoCompatibleSpotFoundException(message);
+            case "SPOT_ALREADY_EXISTS" -> new SpotAlreadyExistsException(message);
+            case "CAR_ALREADY_PARKED" -> new CarAlreadyParkedException(message);
+            case "PLATE_ALREADY_RESERVED" -> new PlateAlreadyReservedException(message);
+            case "RESERVATION_NOT_FOUND" -> new ReservationNotFoundException(message);
+            case "CLUSTER_UNAVAILABLE" -> new ClusterUnavailableException(message);
+            case "INVALID_INPUT" -> new IllegalArgumentException(message);
+            case GARAGE_MOVED -> new GarageMovedException(message);
+            default -> new IllegalStateException(message);
+        };
+    }
+
+    // Batch results carry per-item exceptions
+    SimpleModule module() {
+        SimpleModule module = new SimpleModule("garage-remote-errors");
+        module.addSerializer(RuntimeException.class, new JsonSerializer<>() {
+            @Override
+            public void serialize(RuntimeException value, JsonGenerator out, SerializerProvider provider) throws IOException {
+                ErrorResponse error = describe(value);
+                out.writeStartObject();
+                out.writeStringField("code", error.code());
+                out.writeStringField("message", error.message());
+                out.writeEndObject();
+            }
+        });
+        module.addDeserializer(RuntimeException.class, new JsonDeserializer<>() {
+            @Override
+            public RuntimeException deserialize(JsonParser in, DeserializationContext context) throws IOException {
+                JsonNode error = in.readValueAsTree();
+                return rebuild(error.path("code").asText(), error.path("message").asText(null));
+            }
+        });
+        return module;
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.garage.cluster;
+
+import com.example.garage.exception.ClusterUnavailableException;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Calls other nodes over one persistent connection per peer, opened on first use and again after it breaks.
+// Calls are pipelined: each waits on its own future, which the connection's reader completes when the reply arrives.
+final class RpcClient implements Closeable {
+
+    // The peer answered with an error; code and message are what the peer's API would have answered
+    static final class RemoteFailure extends RuntimeException {
+        private final String code;
+
+        RemoteFailure(String code, String message) {
+            super(message);
+            this.code = code;
+        }
+
+        String code() {
+            return code;
+        }
+    }
+
+    private final Duration timeout;
+    // This node's address, proven to each peer in the handshake
+    private final String self;
+    private final PeerHandshake handshake;
+    private final Map<String, Connection> connections = new ConcurrentHashMap<>();
+    private final AtomicLong callIds = new AtomicLong();
+
+    RpcClient(Duration timeout, String self, PeerHandshake handshake) {
+        this.timeout = timeout;
+        this.self = self;
+        this.handshake = handshake;
+    }
+
+    // Node addresses are host:port
+    byte[] call(String node, byte[] body) {
+        Connection connection = connections.compute(node,
+                (address, open) -> open == null || open.isClosed() ? Connection.open(address, self, handshake, timeout) : open);
+        long callId = callIds.incrementAndGet();
+        CompletableFuture<RpcFrame> reply = connection.send(callId, body);
+        try {
+            RpcFrame frame = reply.get(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            if (frame.type() == RpcFrame.FAILURE) {
+                throw failure(frame.body());
+            }
+            return frame.body();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ClusterUnavailableException("Interrupted calling node " + node);
+        } catch (TimeoutException e) {
+            connection.pending.remove(callId);
+            throw new ClusterUnavailableException("Node " + node + " did not answer within " + timeout);
+        } catch (ExecutionException e) {
+            connections.remove(node, connection);
+            throw new ClusterUnavailableException("Lost connection to node " + node + ": " + e.getCause().getMessage());
+        }
+    }
+
+    @Override
+    public void close() {
+        connections.values().forEach(Connection::close);
+        connections.clear();
+    }
+
+    private static RemoteFailure failure(byte[] body) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(body))) {
+            return new RemoteFailure(in.readUTF(), in.readUTF());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static final class Connection implements Closeable {
+        private final Socket socket;
+        private final DataOutputStream out;
+        private final Map<Long, CompletableFuture<RpcFrame>> pending = new ConcurrentHashMap<>();
+
+        private Connection(Socket socket, DataInputStream in, DataOutputStream out) {
+            this.socket = socket;
+            this.out = out;
+            RpcServer.daemon("garage-rpc-client").newThread(() -> readLoop(in)).start();
+        }
+
+        static Connection open(String node, String self, PeerHandshake handshake, Duration timeout) {
+            int colon = node.lastIndexOf(':');
+            if (colon < 1) {
+                throw new IllegalArgumentException("Node address must be host:port, got " + node);
+            }
+            Socket socket = new Socket();
+            try {
+                socket.connect(new InetSocketAddress(node.substring(0, colon), Integer.parseInt(node.substring(colon + 1))),
+                        (int) Duration.ofSeconds(5).toMillis());
+                socket.setTcpNoDelay(true);
+                DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+                DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+                socket.setSoTimeout((int) timeout.toMillis());
+                handshake.offer(self, in, out);
+                socket.setSoTimeout(0);
+                return new Connection(socket, in, out);
+            } catch (IOException e) {
+                try {
+                    socket.close();
+                } catch (IOException ignored) {
+                    // Already broken
+                }
+                throw new ClusterUnavailableException("Cannot connect to node " + node + ": " + e.getMessage());
+            }
+        }
+
+        CompletableFuture<RpcFrame> send(long callId, byte[] body) {
+            CompletableFuture<RpcFrame> reply = new CompletableFuture<>();
+            pending.put(callId, reply);
+            try {
+                synchronized (out) {
+                    new RpcFrame(RpcFrame.CALL, callId, body).write(out);
+                }
+            } catch (IOException e) {
+                pending.remove(callId);
+                reply.completeExceptionally(e);
+                close();
+            }
+            return reply;
+        }
+
+        private void readLoop(DataInputStream in) {
+            try {
+                while (true) {
+                    RpcFrame frame = RpcFrame.read(in);
+                    CompletableFuture<RpcFrame> reply = pending.remove(frame.callId());
+                    // A reply to a call that already timed out has nobody waiting for it
+                    if (reply != null) {
+                        reply.complete(frame);
+                    }
+                }
+            } catch (IOException e) {
+                close();
+                pending.values().forEach(reply -> reply.completeExceptionally(e));
+                pending.clear();
+            }
+        }
+
+        boolean isClosed() {
+            return socket.isClosed();
+        }
+
+        @Override
+        public void close() {
+            try {
+                socket.close();
+            } catch (IOException ignored) {
+                // Already broken
+            }
+        }
+    }
+}
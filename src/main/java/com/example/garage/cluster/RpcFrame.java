@@ -0,0 +1,46 @@
+package com.example.garage.cluster;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+
+// Frame layout: [int length of the rest][byte type][long call id][body]. Calls and replies share one connection;
+// the call id pairs each reply with its call, so many calls can be in flight on it at once.
+record RpcFrame(byte type, long callId, byte[] body) {
+
+    static final byte CALL = 1;
+    static final byte RESULT = 2;
+    static final byte FAILURE = 3;
+
+    private static final int HEADER_BYTES = 1 + 8;
+    // The largest message is a whole garage's state on handoff, some 200 bytes of JSON per occupied spot
+    private static final int MAX_BODY_BYTES = 8 << 20;
+
+    static RpcFrame read(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < HEADER_BYTES || length - HEADER_BYTES > MAX_BODY_BYTES) {
+            throw new IOException("Malformed frame of " + length + " bytes");
+        }
+        byte type = in.readByte();
+        long callId = in.readLong();
+        // Read in chunks as they arrive, so a length prefix alone allocates nothing
+        byte[] body = in.readNBytes(length - HEADER_BYTES);
+        if (body.length < length - HEADER_BYTES) {
+            throw new EOFException("Frame cut short after " + body.length + " of " + (length - HEADER_BYTES) + " bytes");
+        }
+        return new RpcFrame(type, callId, body);
+    }
+
+    // Callers serialize writes to the stream; the frame goes out in one flush
+    void write(DataOutputStream out) throws IOException {
+        if (body.length > MAX_BODY_BYTES) {
+            throw new IOException("Frame body of " + body.length + " bytes exceeds " + MAX_BODY_BYTES);
+        }
+        out.writeInt(HEADER_BYTES + body.length);
+        out.writeByte(type);
+        out.writeLong(callId);
+        out.write(body);
+        out.flush();
+    }
+}
@@ -0,0 +1,175 @@
+package com.example.garage.cluster;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+// Accepts peer connections and answers their calls. Each connection has a thread reading frames; calls run on a
+// shared pool, because answering one may mean calling another node, and replies go back in whatever order they finish.
+// No frame is read from a connection before its peer passes the handshake, and calls are answered knowing who sent them.
+final class RpcServer implements Closeable {
+
+    record Reply(byte type, byte[] body) {
+
+        static Reply result(byte[] body) {
+            return new Reply(RpcFrame.RESULT, body);
+        }
+
+        static Reply failure(String code, String message) {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            try (DataOutputStream out = new DataOutputStream(bytes)) {
+                out.writeUTF(code);
+                out.writeUTF(message == null ? "" : message);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+            return new Reply(RpcFrame.FAILURE, bytes.toByteArray());
+        }
+    }
+
+    // Each peer holds one connection; more than this is not a cluster
+    private static final int MAX_CONNECTIONS = 64;
+    private static final int WORKERS = 64;
+    private static final int QUEUED_CALLS = 1024;
+
+    private final ServerSocket serverSocket;
+    // Peer node address and call body
+    private final BiFunction<String, byte[], Reply> handler;
+    private final PeerHandshake handshake;
+    private final int handshakeTimeoutMillis;
+    // Bounded both ways; a call that finds it full is answered at once as unavailable, and the caller may retry
+    private final ThreadPoolExecutor workers = new ThreadPoolExecutor(WORKERS, WORKERS, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(QUEUED_CALLS), daemon("garage-rpc-worker"), new ThreadPoolExecutor.AbortPolicy());
+    private final Set<Socket> connections = ConcurrentHashMap.newKeySet();
+    private volatile boolean closed;
+
+    // Port 0 binds any free port
+    RpcServer(String host, int port, PeerHandshake handshake, Duration handshakeTimeout, BiFunction<String, byte[], Reply> handler) {
+        this.handler = handler;
+        this.handshake = handshake;
+        this.handshakeTimeoutMillis = (int) handshakeTimeout.toMillis();
+        workers.allowCoreThreadTimeOut(true);
+        try {
+            this.serverSocket = new ServerSocket();
+            serverSocket.setReuseAddress(true);
+            serverSocket.bind(new InetSocketAddress(host, port));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot listen on " + host + ":" + port, e);
+        }
+        daemon("garage-rpc-accept").newThread(this::acceptLoop).start();
+    }
+
+    int port() {
+        return serverSocket.getLocalPort();
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        try {
+            serverSocket.close();
+        } catch (IOException ignored) {
+            // Shutting down anyway
+        }
+        connections.forEach(RpcServer::closeQuietly);
+        workers.shutdownNow();
+    }
+
+    private void acceptLoop() {
+        while (!closed) {
+            try {
+                Socket socket = serverSocket.accept();
+                if (connections.size() >= MAX_CONNECTIONS) {
+                    closeQuietly(socket);
+                    continue;
+                }
+                socket.setTcpNoDelay(true);
+                connections.add(socket);
+                daemon("garage-rpc-connection").newThread(() -> serve(socket)).start();
+            } catch (IOException e) {
+                if (closed) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void serve(Socket socket) {
+        try (socket) {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            // A peer that stalls in the handshake is dropped rather than holding its thread
+            socket.setSoTimeout(handshakeTimeoutMillis);
+            String peer = handshake.accept(in, out);
+            socket.setSoTimeout(0);
+            while (!closed) {
+                RpcFrame call = RpcFrame.read(in);
+                if (call.type() != RpcFrame.CALL) {
+                    throw new IOException("Expected a call frame, got type " + call.type());
+                }
+                try {
+                    workers.execute(() -> answer(peer, call, out));
+                } catch (RejectedExecutionException e) {
+                    reply(call, Reply.failure("CLUSTER_UNAVAILABLE", "Node is too busy to answer; try again"), out);
+                }
+            }
+        } catch (IOException e) {
+            // The peer hung up, failed the handshake or sent garbage; it reconnects on its next call
+        } finally {
+            connections.remove(socket);
+        }
+    }
+
+    private void answer(String peer, RpcFrame call, DataOutputStream out) {
+        Reply reply;
+        try {
+            reply = handler.apply(peer, call.body());
+        } catch (RuntimeException e) {
+            reply = Reply.failure("INTERNAL_ERROR", e.getMessage());
+        }
+        reply(call, reply, out);
+    }
+
+    private static void reply(RpcFrame call, Reply reply, DataOutputStream out) {
+        try {
+            synchronized (out) {
+                new RpcFrame(reply.type(), call.callId(), reply.body()).write(out);
+            }
+        } catch (IOException e) {
+            // The caller times out and retries on a new connection
+        }
+    }
+
+    private static void closeQuietly(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {
+            // Shutting down anyway
+        }
+    }
+
+    static ThreadFactory daemon(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.garage.config;
+
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.env.EnvironmentPostProcessor;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+
+import java.util.Map;
+
+// Maps garage.execution=virtual-threads onto Boot's spring.threads.virtual.enabled, which runs Tomcat's requests, the
+// task executors and the scheduler on virtual threads. Added last, so spring.threads.virtual.enabled set directly wins.
+public class ExecutionModeEnvironmentPostProcessor implements EnvironmentPostProcessor {
+
+    static final String VIRTUAL_THREADS = "virtual-threads";
+
+    @Override
+    public void postProcessEnvironment(ConfigurableEnvironment environment, SpringApplication application) {
+        if (!VIRTUAL_THREADS.equals(environment.getProperty("garage.execution"))) {
+            return;
+        }
+        // Boot would quietly stay on platform threads
+        if (Runtime.version().feature() < 21) {
+            throw new IllegalStateException("garage.execution=virtual-threads requires Java 21 or later (build with -P java21)");
+        }
+        environment.getPropertySources().addLast(new MapPropertySource("garageExecution",
+                Map.of("spring.threads.virtual.enabled", "true")));
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.garage.config;
+
+import com.example.garage.model.CreateSpotRequest;
+import com.example.garage.persistence.GarageState;
+import com.example.garage.persistence.WriteAheadLog;
+import com.example.garage.repository.CarRepository;
+import com.example.garage.repository.DefaultGarageLayout;
+import com.example.garage.repository.ParkingSpotRepository;
+import com.example.garage.service.LayoutFormat;
+import com.example.garage.service.ParkingService;
+import com.example.garage.service.SpotLayoutReader;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+// Fills the repositories before the web server starts: saved state when persistence has some, otherwise the
+// layout file named by garage.layout.file, or the default layout when none is set
+@Component
+public class GarageStateInitializer implements InitializingBean {
+
+    private final ParkingSpotRepository parkingSpotRepository;
+    private final CarRepository carRepository;
+    private final ParkingService parkingService;
+    private final SpotLayoutReader spotLayoutReader;
+    private final WriteAheadLog writeAheadLog;
+
+    @Value("${garage.layout.file:}")
+    private String layoutFile;
+
+    public GarageStateInitializer(ParkingSpotRepository parkingSpotRepository, CarRepository carRepository,
+                                  ParkingService parkingService, SpotLayoutReader spotLayoutReader,
+                                  ObjectProvider<WriteAheadLog> writeAheadLog) {
+        this.parkingSpotRepository = parkingSpotRepository;
+        this.carRepository = carRepository;
+        this.parkingService = parkingService;
+        this.spotLayoutReader = spotLayoutReader;
+        this.writeAheadLog = writeAheadLog.getIfAvailable();
+    }
+
+    @Override
+    public void afterPropertiesSet() throws IOException {
+        GarageState state = writeAheadLog == null ? new GarageState() : writeAheadLog.recoveredState();
+        if (!state.isEmpty()) {
+            state.spots().forEach(parkingSpotRepository::save);
+            state.cars().forEach(carRepository::save);
+            return;
+        }
+
+        // Imported through the service so the layout is journaled and later events replay on top of it
+        if (layoutFile == null || layoutFile.isBlank()) {
+            parkingService.importSpots(DefaultGarageLayout.spots().stream()
+                    .map(spot -> new CreateSpotRequest(spot.id(), spot.level(), spot.number(), spot.size(), spot.features())));
+            return;
+        }
+        try (Stream<CreateSpotRequest> spots = spotLayoutReader.read(
+                Files.newBufferedReader(Path.of(layoutFile), StandardCharsets.UTF_8), LayoutFormat.fromFileName(layoutFile))) {
+            parkingService.importSpots(spots);
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.example.garage.config;
+
+import com.example.garage.persistence.StayLog;
+import com.example.garage.persistence.WriteAheadLog;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+@Configuration
+@EnableScheduling
+public class MetricsConfig {
+
+    @Bean
+    public MeterBinder writeAheadLogMetrics(ObjectProvider<WriteAheadLog> writeAheadLog) {
+        return registry -> writeAheadLog.ifAvailable(log -> {
+            FunctionCounter.builder("garage.journal.append.contended", log, WriteAheadLog::contendedAppends)
+                    .description("Journal appends that had to wait for another appender's lock")
+                    .register(registry);
+            FunctionCounter.builder("garage.journal.compaction.failures", log, WriteAheadLog::compactionFailures)
+                    .description("Scheduled journal compactions that failed and were left for the next tick")
+                    .register(registry);
+        });
+    }
+
+    @Bean
+    public MeterBinder stayLogMetrics(ObjectProvider<StayLog> stayLog) {
+        return registry -> stayLog.ifAvailable(log -> {
+            FunctionCounter.builder("garage.audit.write.failures", log, StayLog::writeFailures)
+                    .description("Stay blocks that could not be written; their rows stay buffered for the next flush")
+                    .register(registry);
+            FunctionCounter.builder("garage.audit.rows.dropped", log, StayLog::droppedRows)
+                    .description("Stays lost because the buffer was full or the log closed before they could be written")
+                    .register(registry);
+        });
+    }
+}
@@ -0,0 +1,41 @@
+package com.example.garage.config;
+
+import com.example.garage.persistence.GarageJournal;
+import com.example.garage.persistence.StayLog;
+import com.example.garage.persistence.WriteAheadLog;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Configuration
+public class PersistenceConfig {
+
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "garage.persistence.enabled", havingValue = "true")
+    public WriteAheadLog writeAheadLog(@Value("${garage.persistence.directory:data}") Path directory,
+                                       @Value("${garage.persistence.segment-size:64MB}") DataSize segmentSize,
+                                       @Value("${garage.persistence.compaction-interval:10m}") Duration compactionInterval) throws IOException {
+        return WriteAheadLog.open(directory, Math.toIntExact(segmentSize.toBytes()), compactionInterval);
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "garage.persistence.enabled", havingValue = "false", matchIfMissing = true)
+    public GarageJournal garageJournal() {
+        return GarageJournal.NONE;
+    }
+
+    // Picked up by the event bus as a handler, so stays are written off the check-out path
+    @Bean(destroyMethod = "close")
+    @ConditionalOnProperty(name = "garage.audit.enabled", havingValue = "true")
+    public StayLog stayLog(@Value("${garage.audit.directory:audit}") Path directory,
+                           @Value("${garage.audit.segment-size:64MB}") DataSize segmentSize,
+                           @Value("${garage.audit.flush-interval:PT1S}") Duration flushInterval) throws IOException {
+        return StayLog.open(directory, segmentSize.toBytes(), flushInterval);
+    }
+}
@@ -0,0 +1,62 @@
+package com.example.garage.controller;
+
+import com.example.garage.analytics.AnalyticsRollups;
+import com.example.garage.analytics.Resolution;
+import com.example.garage.model.RollupSeries;
+import com.example.garage.service.GarageShards;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Instant;
+import java.util.List;
+
+// Rollups of the events handled by this process, so they are not routed to a garage's owner when clustered
+@RestController
+@RequestMapping("/api/v1")
+public class AnalyticsController {
+
+    private final AnalyticsRollups rollups;
+
+    public AnalyticsController(AnalyticsRollups rollups) {
+        this.rollups = rollups;
+    }
+
+    @GetMapping({"/analytics/total", "/garages/{garageId}/analytics/total"})
+    public List<RollupSeries> getTotal(@PathVariable(required = false) String garageId,
+                                       @RequestParam(defaultValue = "HOUR") Resolution resolution,
+                                       @RequestParam(required = false) Instant from, @RequestParam(required = false) Instant to) {
+        return series(garageId, AnalyticsRollups.Dimension.TOTAL, resolution, from, to);
+    }
+
+    @GetMapping({"/analytics/levels", "/garages/{garageId}/analytics/levels"})
+    public List<RollupSeries> getByLevel(@PathVariable(required = false) String garageId,
+                                         @RequestParam(defaultValue = "HOUR") Resolution resolution,
+                                         @RequestParam(required = false) Instant from, @RequestParam(required = false) Instant to) {
+        return series(garageId, AnalyticsRollups.Dimension.LEVEL, resolution, from, to);
+    }
+
+    @GetMapping({"/analytics/sizes", "/garages/{garageId}/analytics/sizes"})
+    public List<RollupSeries> getBySize(@PathVariable(required = false) String garageId,
+                                        @RequestParam(defaultValue = "HOUR") Resolution resolution,
+                                        @RequestParam(required = false) Instant from, @RequestParam(required = false) Instant to) {
+        return series(garageId, AnalyticsRollups.Dimension.SIZE, resolution, from, to);
+    }
+
+    @GetMapping({"/analytics/features", "/garages/{garageId}/analytics/features"})
+    public List<RollupSeries> getByFeature(@PathVariable(required = false) String garageId,
+                                           @RequestParam(defaultValue = "HOUR") Resolution resolution,
+                                           @RequestParam(required = false) Instant from, @RequestParam(required = false) Instant to) {
+        return series(garageId, AnalyticsRollups.Dimension.FEATURE, resolution, from, to);
+    }
+
+    private List<RollupSeries> series(String garageId, AnalyticsRollups.Dimension dimension, Resolution resolution,
+                                      Instant from, Instant to) {
+        if (garageId != null) {
+            GarageShards.requireGarageId(garageId);
+        }
+        return rollups.series(garageId, dimension, resolution, from, to);
+    }
+}
@@ -28,6 +28,12 @@ public class GlobalExceptionHandler {
         return new ErrorResponse("SPOT_NOT_FOUND", ex.getMessage());
     }
 
+    @ExceptionHandler(GarageNotFoundException.class)
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    public ErrorResponse handleGarageNotFoundException(GarageNotFoundException ex) {
+        return new ErrorResponse("GARAGE_NOT_FOUND", ex.getMessage());
+    }
+
     @ExceptionHandler(NoCompatibleSpotFoundException.class)
     @ResponseStatus(HttpStatus.CONFLICT)
     public ErrorResponse handleNoCompatibleSpotFoundException(NoCompatibleSpotFoundException ex) {
@@ -40,9 +46,77 @@ public class GlobalExceptionHandler {
         return new ErrorResponse("SPOT_ALREADY_EXISTS", ex.getMessage());
     }
 
+    @ExceptionHandler(CarAlreadyParkedException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ErrorResponse handleCarAlreadyParkedException(CarAlreadyParkedException ex) {
+        return new ErrorResponse("CAR_ALREADY_PARKED", ex.getMessage());
+    }
+
+    @ExceptionHandler(PlateAlreadyReservedException.class)
+    @ResponseStatus(HttpStatus.CONFLICT)
+    public ErrorResponse handlePlateAlreadyReservedException(PlateAlreadyReservedException ex) {
+        return new ErrorResponse("PLATE_ALREADY_RESERVED", ex.getMessage());
+    }
+
+    @ExceptionHandler(ReservationNotFoundException.class)
+    @ResponseStatus(HttpStatus.NOT_FOUND)
+    public ErrorResponse handleReservationNotFoundException(ReservationNotFoundException ex) {
+        return new ErrorResponse("RESERVATION_NOT_FOUND", ex.getMessage());
+    }
+
+    @ExceptionHandler(IdempotencyKeyReusedException.class)
+    @ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+    public ErrorResponse handleIdempotencyKeyReusedException(IdempotencyKeyReusedException ex) {
+        return new ErrorResponse("IDEMPOTENCY_KEY_REUSED", ex.getMessage());
+    }
+
+    @ExceptionHandler(ClusterUnavailableException.class)
+    @ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+    public ErrorResponse handleClusterUnavailableException(ClusterUnavailableException ex) {
+        return new ErrorResponse("CLUSTER_UNAVAILABLE", ex.getMessage());
+    }
+
     @ExceptionHandler(IllegalArgumentException.class)
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ErrorResponse handleIllegalArgumentException(IllegalArgumentException ex) {
         return new ErrorResponse("INVALID_INPUT", ex.getMessage());
     }
+
+    // Same error codes as the handlers above, for per-item results in batch responses
+    public ErrorResponse toErrorResponse(RuntimeException ex) {
+        if (ex instanceof GarageFullException e) {
+            return handleGarageFullException(e);
+        }
+        if (ex instanceof CarNotFoundException e) {
+            return handleCarNotFoundException(e);
+        }
+        if (ex instanceof SpotNotFoundException e) {
+            return handleSpotNotFoundException(e);
+        }
+        if (ex instanceof GarageNotFoundException e) {
+            return handleGarageNotFoundException(e);
+        }
+        if (ex instanceof NoCompatibleSpotFoundException e) {
+            return handleNoCompatibleSpotFoundException(e);
+        }
+        if (ex instanceof SpotAlreadyExistsException e) {
+            return handleSpotAlreadyExistsException(e);
+        }
+        if (ex instanceof CarAlreadyParkedException e) {
+            return handleCarAlreadyParkedException(e);
+        }
+        if (ex instanceof PlateAlreadyReservedException e) {
+            return handlePlateAlreadyReservedException(e);
+        }
+        if (ex instanceof ReservationNotFoundException e) {
+            return handleReservationNotFoundException(e);
+        }
+        if (ex instanceof ClusterUnavailableException e) {
+            return handleClusterUnavailableException(e);
+        }
+        if (ex instanceof IllegalArgumentException e) {
+            return handleIllegalArgumentException(e);
+        }
+        return new ErrorResponse("INTERNAL_ERROR", ex.getMessage());
+    }
 }
@@ -0,0 +1,117 @@
+package com.example.garage.controller;
+
+import com.example.garage.exception.IdempotencyKeyReusedException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+// Remembers the result of each request sent with an Idempotency-Key header, so a gate that retries after a timeout gets
+// the original response back instead of a second check-in or check-out. A retry that arrives while the original is
+// still running waits for it. Only successes are kept: a failed request changed nothing, so its retry runs again.
+@Component
+public class IdempotencyCache {
+
+    private static final int MAX_KEY_LENGTH = 255;
+
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    // Succeeded entries, roughly in the order they expire in. An entry joins once its action has succeeded, so a
+    // failed one never takes a place in the queue or in the count, and a running one is never evicted.
+    private final Queue<Entry> order = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger queued = new AtomicInteger();
+    private final long ttlMillis;
+    private final int maxEntries;
+    private final Clock clock;
+
+    public IdempotencyCache(@Value("${garage.idempotency.ttl:PT24H}") Duration ttl,
+                            @Value("${garage.idempotency.max-entries:100000}") int maxEntries,
+                            Clock clock) {
+        this.ttlMillis = ttl.toMillis();
+        this.maxEntries = maxEntries;
+        this.clock = clock;
+    }
+
+    // Runs the action once per (operation, key); a null key always runs it. Reusing a key for a different request
+    // throws IdempotencyKeyReusedException.
+    @SuppressWarnings("unchecked")
+    public <T> T execute(String operation, String key, Object request, Supplier<T> action) {
+        if (key == null) {
+            return action.get();
+        }
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException("Idempotency key must be 1 to " + MAX_KEY_LENGTH + " characters");
+        }
+        String scopedKey = operation + ' ' + key;
+        while (true) {
+            long now = clock.millis();
+            evict(now);
+            Entry entry = new Entry(scopedKey, request, now + ttlMillis);
+            Entry existing = entries.putIfAbsent(scopedKey, entry);
+            if (existing != null && existing.expiresAt <= now) {
+                // Eviction has not reached it yet; take its place
+                if (!entries.replace(scopedKey, existing, entry)) {
+                    continue;
+                }
+                existing = null;
+            }
+            if (existing != null) {
+                if (!existing.request.equals(request)) {
+                    throw new IdempotencyKeyReusedException("Idempotency key " + key + " was already used for a different request");
+                }
+                try {
+                    return (T) existing.result.join();
+                } catch (CompletionException e) {
+                    // The original failed and was forgotten; run this one instead
+                    continue;
+                }
+            }
+
+            T value;
+            try {
+                value = action.get();
+            } catch (Throwable e) {
+                // Errors too, or retries would wait on this entry forever
+                entries.remove(scopedKey, entry);
+                entry.result.completeExceptionally(e);
+                throw e;
+            }
+            order.add(entry);
+            queued.incrementAndGet();
+            entry.result.complete(value);
+            return value;
+        }
+    }
+
+    private void evict(long now) {
+        Entry oldest;
+        while ((oldest = order.peek()) != null && (oldest.expiresAt <= now || queued.get() > maxEntries)) {
+            if (order.remove(oldest)) {
+                queued.decrementAndGet();
+                entries.remove(oldest.key, oldest);
+            }
+        }
+    }
+
+    private static final class Entry {
+
+        final String key;
+        final Object request;
+        final long expiresAt;
+        final CompletableFuture<Object> result = new CompletableFuture<>();
+
+        Entry(String key, Object request, long expiresAt) {
+            this.key = key;
+            this.request = request;
+            this.expiresAt = expiresAt;
+        }
+    }
+}
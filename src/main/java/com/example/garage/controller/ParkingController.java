@@ -3,62 +3,276 @@ package com.example.garage.controller;
 import com.example.garage.controller.dto.*;
 import com.example.garage.model.Car;
 import com.example.garage.model.CreateSpotRequest;
+import com.example.garage.model.OccupancySummary;
+import com.example.garage.model.OverstayAlert;
 import com.example.garage.model.ParkingSpot;
+import com.example.garage.model.ParkingStatus;
+import com.example.garage.model.Reservation;
+import com.example.garage.model.SpotFilter;
+import com.example.garage.model.VehicleArrival;
+import com.example.garage.pricing.Tariff;
+import com.example.garage.service.BatchResult;
+import com.example.garage.service.GarageCommand;
+import com.example.garage.service.GarageDirectory;
+import com.example.garage.service.LayoutFormat;
+import com.example.garage.service.OverstayDetector;
 import com.example.garage.service.ParkingService;
+import com.example.garage.service.SpotLayoutReader;
+import com.example.garage.service.SpotPage;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
 
-import java.util.Collection;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/api/v1")
 public class ParkingController {
 
     private final ParkingService parkingService;
+    private final GarageDirectory garages;
+    private final GlobalExceptionHandler exceptionHandler;
+    private final SpotLayoutReader spotLayoutReader;
+    private final SpotEventBroadcaster spotEventBroadcaster;
+    private final IdempotencyCache idempotencyCache;
+    private final OverstayDetector overstayDetector;
+    // One spot per line with no separator between values; flushed by the generator's buffer, not per spot
+    private final ObjectWriter spotLineWriter;
 
-    public ParkingController(ParkingService parkingService) {
+    public ParkingController(ParkingService parkingService, GarageDirectory garages, GlobalExceptionHandler exceptionHandler,
+                             SpotLayoutReader spotLayoutReader, SpotEventBroadcaster spotEventBroadcaster, IdempotencyCache idempotencyCache,
+                             OverstayDetector overstayDetector, ObjectMapper objectMapper) {
         this.parkingService = parkingService;
+        this.garages = garages;
+        this.exceptionHandler = exceptionHandler;
+        this.spotLayoutReader = spotLayoutReader;
+        this.spotEventBroadcaster = spotEventBroadcaster;
+        this.idempotencyCache = idempotencyCache;
+        this.overstayDetector = overstayDetector;
+        this.spotLineWriter = objectMapper.writerFor(ParkingSpot.class)
+                .withRootValueSeparator("")
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
     }
 
-    @GetMapping("/spots")
-    public Collection<ParkingSpot> getAllSpots() {
-        return parkingService.getAllSpots();
+    @GetMapping(value = {"/spots", "/garages/{garageId}/spots"}, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<ParkingSpot>> getSpots(@PathVariable(required = false) String garageId, SpotListRequest request) {
+        return page(garageId, request.filter(), request);
     }
 
-    @GetMapping("/spots/available")
-    public Collection<ParkingSpot> getAvailableSpots() {
-        return parkingService.getAvailableSpots();
+    @GetMapping(value = {"/spots", "/garages/{garageId}/spots"}, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamSpots(@PathVariable(required = false) String garageId, SpotListRequest request) {
+        return stream(garageId, request.filter(), request);
     }
 
-    @PutMapping("/spots/{id}/status")
-    public ResponseEntity<ParkingSpot> updateSpotStatus(@PathVariable String id, @RequestBody UpdateSpotStatusRequest request) {
-        ParkingSpot updatedSpot = parkingService.updateSpotStatus(id, request.status());
+    @GetMapping(value = {"/spots/available", "/garages/{garageId}/spots/available"}, produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<ParkingSpot>> getAvailableSpots(@PathVariable(required = false) String garageId, SpotListRequest request) {
+        return page(garageId, request.filter().withStatus(ParkingStatus.AVAILABLE), request);
+    }
+
+    @GetMapping(value = {"/spots/available", "/garages/{garageId}/spots/available"}, produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamAvailableSpots(@PathVariable(required = false) String garageId, SpotListRequest request) {
+        return stream(garageId, request.filter().withStatus(ParkingStatus.AVAILABLE), request);
+    }
+
+    // Pushes a "spot" event per status change instead of being polled; reconnects resume from Last-Event-ID
+    @GetMapping(value = "/spots/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamSpotEvents(@RequestHeader(value = "Last-Event-ID", required = false) String lastEventId) {
+        return spotEventBroadcaster.subscribe(lastEventId);
+    }
+
+    @GetMapping({"/occupancy", "/garages/{garageId}/occupancy"})
+    public OccupancySummary getOccupancy(@PathVariable(required = false) String garageId) {
+        return run(garageId, new GarageCommand.GetOccupancy());
+    }
+
+    @GetMapping("/tariff")
+    public Tariff getTariff() {
+        return parkingService.getTariff();
+    }
+
+    @PutMapping("/tariff")
+    public Tariff updateTariff(@RequestBody Tariff tariff) {
+        return parkingService.updateTariff(tariff);
+    }
+
+    @PutMapping({"/spots/{id}/status", "/garages/{garageId}/spots/{id}/status"})
+    public ResponseEntity<ParkingSpot> updateSpotStatus(@PathVariable(required = false) String garageId, @PathVariable String id, @RequestBody UpdateSpotStatusRequest request) {
+        ParkingSpot updatedSpot = run(garageId, new GarageCommand.UpdateSpotStatus(id, request.status()));
         return ResponseEntity.ok(updatedSpot);
     }
 
-    @PostMapping("/spots")
-    public ResponseEntity<ParkingSpot> createSpot(@RequestBody CreateSpotRequest request) {
-        ParkingSpot newSpot = parkingService.createParkingSpot(request);
+    @PostMapping({"/spots", "/garages/{garageId}/spots"})
+    public ResponseEntity<ParkingSpot> createSpot(@PathVariable(required = false) String garageId, @RequestBody CreateSpotRequest request) {
+        ParkingSpot newSpot = run(garageId, new GarageCommand.CreateSpot(request));
         return ResponseEntity.status(HttpStatus.CREATED).body(newSpot);
     }
 
-    @PostMapping("/cars/check-in")
-    public ResponseEntity<Car> checkIn(@RequestBody CheckInRequest checkInRequest) {
-        Car car = parkingService.checkIn(checkInRequest.licensePlate(), checkInRequest.size());
+    @PostMapping(value = {"/spots:import", "/garages/{garageId}/spots:import"}, consumes = {"text/csv", "application/x-ndjson"})
+    public ResponseEntity<LayoutImportResponse> importSpots(@PathVariable(required = false) String garageId, HttpServletRequest request) throws IOException {
+        LayoutFormat format = LayoutFormat.fromMediaType(request.getContentType());
+        Charset charset = request.getCharacterEncoding() == null ? StandardCharsets.UTF_8 : Charset.forName(request.getCharacterEncoding());
+        // Parsed straight off the request body, one line at a time
+        try (Stream<CreateSpotRequest> spots = spotLayoutReader.read(new InputStreamReader(request.getInputStream(), charset), format)) {
+            int imported = garageId == null ? parkingService.importSpots(spots) : garages.importSpots(garageId, spots);
+            return ResponseEntity.status(HttpStatus.CREATED).body(new LayoutImportResponse(imported));
+        }
+    }
+
+    @PostMapping({"/cars/check-in", "/garages/{garageId}/cars/check-in"})
+    public ResponseEntity<Car> checkIn(@PathVariable(required = false) String garageId, @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                       @RequestBody CheckInRequest checkInRequest) {
+        Car car = idempotencyCache.execute(operation("check-in", garageId), idempotencyKey, checkInRequest,
+                () -> run(garageId, new GarageCommand.CheckIn(checkInRequest.licensePlate(), checkInRequest.size(), checkInRequest.features())));
         return ResponseEntity.status(HttpStatus.CREATED).body(car);
     }
 
-    @PostMapping("/cars/check-out")
-    public ResponseEntity<CheckOutResponse> checkOut(@RequestBody CheckOutRequest checkOutRequest) {
-        double fee = parkingService.checkOut(checkOutRequest.licensePlate());
-        CheckOutResponse response = new CheckOutResponse("Check-out successful", checkOutRequest.licensePlate(), fee);
+    @PostMapping({"/cars/check-out", "/garages/{garageId}/cars/check-out"})
+    public ResponseEntity<CheckOutResponse> checkOut(@PathVariable(required = false) String garageId, @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                                     @RequestBody CheckOutRequest checkOutRequest) {
+        CheckOutResponse response = idempotencyCache.execute(operation("check-out", garageId), idempotencyKey, checkOutRequest, () -> {
+            double fee = run(garageId, new GarageCommand.CheckOut(checkOutRequest.licensePlate()));
+            return new CheckOutResponse("Check-out successful", checkOutRequest.licensePlate(), fee);
+        });
         return ResponseEntity.ok(response);
     }
 
-    @GetMapping("/cars/{licensePlate}")
-    public ResponseEntity<Car> findCar(@PathVariable String licensePlate) {
-        Car car = parkingService.findCarByLicensePlate(licensePlate);
+    @PostMapping({"/cars/check-in:batch", "/garages/{garageId}/cars/check-in:batch"})
+    public List<BatchItemResponse<Car>> checkInBatch(@PathVariable(required = false) String garageId, @RequestBody List<CheckInRequest> checkInRequests) {
+        List<VehicleArrival> arrivals = checkInRequests.stream()
+                .map(request -> request == null ? new VehicleArrival(null, null) : new VehicleArrival(request.licensePlate(), request.size(), request.features()))
+                .toList();
+        return run(garageId, new GarageCommand.CheckInBatch(arrivals)).stream()
+                .map(result -> toBatchItem(result, result.value()))
+                .toList();
+    }
+
+    @PostMapping({"/cars/check-out:batch", "/garages/{garageId}/cars/check-out:batch"})
+    public List<BatchItemResponse<CheckOutResponse>> checkOutBatch(@PathVariable(required = false) String garageId, @RequestBody List<CheckOutRequest> checkOutRequests) {
+        List<String> licensePlates = checkOutRequests.stream()
+                .map(request -> request == null ? null : request.licensePlate())
+                .toList();
+        return run(garageId, new GarageCommand.CheckOutBatch(licensePlates)).stream()
+                .map(result -> toBatchItem(result, result.isSuccess()
+                        ? new CheckOutResponse("Check-out successful", result.licensePlate(), result.value())
+                        : null))
+                .toList();
+    }
+
+    @PostMapping({"/reservations", "/garages/{garageId}/reservations"})
+    public ResponseEntity<Reservation> reserve(@PathVariable(required = false) String garageId, @RequestBody ReservationRequest request) {
+        Reservation reservation = run(garageId, new GarageCommand.Reserve(request.licensePlate(), request.size(), request.features(), request.hold()));
+        return ResponseEntity.status(HttpStatus.CREATED).body(reservation);
+    }
+
+    @GetMapping({"/reservations/{id}", "/garages/{garageId}/reservations/{id}"})
+    public Reservation getReservation(@PathVariable(required = false) String garageId, @PathVariable String id) {
+        return run(garageId, new GarageCommand.GetReservation(id));
+    }
+
+    @DeleteMapping({"/reservations/{id}", "/garages/{garageId}/reservations/{id}"})
+    public ResponseEntity<Void> cancelReservation(@PathVariable(required = false) String garageId, @PathVariable String id) {
+        run(garageId, new GarageCommand.CancelReservation(id));
+        return ResponseEntity.noContent().build();
+    }
+
+    @PostMapping({"/reservations/{id}/check-in", "/garages/{garageId}/reservations/{id}/check-in"})
+    public ResponseEntity<Car> checkInReservation(@PathVariable(required = false) String garageId, @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
+                                                  @PathVariable String id) {
+        Car car = idempotencyCache.execute(operation("reservation-check-in", garageId), idempotencyKey, id,
+                () -> run(garageId, new GarageCommand.CheckInReservation(id)));
+        return ResponseEntity.status(HttpStatus.CREATED).body(car);
+    }
+
+    @GetMapping({"/cars/{licensePlate}", "/garages/{garageId}/cars/{licensePlate}"})
+    public ResponseEntity<Car> findCar(@PathVariable(required = false) String garageId, @PathVariable String licensePlate) {
+        Car car = run(garageId, new GarageCommand.FindCar(licensePlate));
         return ResponseEntity.ok(car);
     }
+
+    // Enforcement queries: by level, by minimum stay (e.g. parkedLongerThan=PT24H), or both; oldest check-in first
+    @GetMapping({"/cars", "/garages/{garageId}/cars"})
+    public List<Car> findCars(@PathVariable(required = false) String garageId, @RequestParam(required = false) Integer level,
+                              @RequestParam(required = false) Duration parkedLongerThan, @RequestParam(required = false) Integer limit) {
+        return run(garageId, new GarageCommand.FindCars(level, parkedLongerThan, limit));
+    }
+
+    // Covers every garage served here; consoles poll with the sequence number of the last alert they have seen
+    @GetMapping("/overstays/alerts")
+    public List<OverstayAlert> getOverstayAlerts(@RequestParam(required = false) Long after) {
+        return overstayDetector.alertsAfter(after);
+    }
+
+    @GetMapping({"/spots/{id}/car", "/garages/{garageId}/spots/{id}/car"})
+    public Car findCarInSpot(@PathVariable(required = false) String garageId, @PathVariable String id) {
+        return run(garageId, new GarageCommand.FindCarInSpot(id));
+    }
+
+    // Unprefixed routes serve this deployment's own garage; /garages/{garageId} routes serve one of its shards, or,
+    // when clustered, whichever node owns the garage
+    private <T> T run(String garageId, GarageCommand<T> command) {
+        return garageId == null ? command.apply(parkingService) : garages.run(garageId, command);
+    }
+
+    // Idempotency keys are scoped to the garage they were used in
+    private static String operation(String name, String garageId) {
+        return garageId == null ? name : garageId + "/" + name;
+    }
+
+    // The body stays a plain array; the next page is linked from the Link header
+    private ResponseEntity<List<ParkingSpot>> page(String garageId, SpotFilter filter, SpotListRequest request) {
+        SpotPage page = run(garageId, new GarageCommand.FindSpots(filter, request.cursor(), request.limit()));
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.nextCursor() != null) {
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("cursor", page.nextCursor())
+                    .build()
+                    .encode()
+                    .toUriString();
+            response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return response.body(page.spots());
+    }
+
+    // Spots are serialized straight to the response as they are read from the repository.
+    // A client that drops the connection resumes with cursor set to the id on the last line it received.
+    private ResponseEntity<StreamingResponseBody> stream(String garageId, SpotFilter filter, SpotListRequest request) {
+        // Opened up front so an invalid limit is still answered with 400 rather than a broken stream
+        Stream<ParkingSpot> spots = garageId == null
+                ? parkingService.streamSpots(filter, request.cursor(), request.limit())
+                : garages.streamSpots(garageId, filter, request.cursor(), request.limit());
+        StreamingResponseBody body = out -> {
+            try (spots; JsonGenerator generator = spotLineWriter.createGenerator(out)) {
+                Iterator<ParkingSpot> iterator = spots.iterator();
+                while (iterator.hasNext()) {
+                    spotLineWriter.writeValue(generator, iterator.next());
+                    generator.writeRaw('\n');
+                }
+            }
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+
+    private <T> BatchItemResponse<T> toBatchItem(BatchResult<?> result, T body) {
+        if (result.isSuccess()) {
+            return new BatchItemResponse<>(result.licensePlate(), body, null);
+        }
+        return new BatchItemResponse<>(result.licensePlate(), null, exceptionHandler.toErrorResponse(result.error()));
+    }
 }
@@ -0,0 +1,210 @@
+package com.example.garage.controller;
+
+import com.example.garage.model.SpotStatusChange;
+import com.example.garage.repository.ParkingSpotRepository;
+import com.example.garage.repository.SpotChangeRing;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Fans the repository's change ring out to server-sent-event subscribers. Check-ins and check-outs only write to the
+// ring; a scheduled dispatcher hands each subscriber with unread changes to a small sender pool, never more than once
+// at a time, so a slow client holds up one sender and nothing else. Within a batch, changes to the same spot are
+// coalesced into the latest one, and a subscriber that falls a full ring behind is sent "resync" to reload the spots.
+// The ring records only while a stream is open or closed less than garage.events.reconnect-window ago, so a garage
+// nobody watches pays nothing for it.
+@Component
+public class SpotEventBroadcaster implements DisposableBean {
+
+    private static final int MAX_BATCH = 512;
+
+    private final SpotChangeRing changes;
+    private final ExecutorService senders;
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final Counter resyncs;
+    private final long reconnectWindowNanos;
+    // Dispatcher thread only
+    private boolean idle;
+    private long idleSince;
+
+    public SpotEventBroadcaster(ParkingSpotRepository parkingSpotRepository, MeterRegistry registry,
+                                @Value("${garage.events.sender-threads:4}") int senderThreads,
+                                @Value("${garage.events.reconnect-window:PT1M}") Duration reconnectWindow) {
+        this.changes = parkingSpotRepository.changes();
+        this.reconnectWindowNanos = reconnectWindow.toNanos();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(senderThreads, runnable -> {
+            Thread thread = new Thread(runnable, "spot-events-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        Gauge.builder("garage.events.subscribers", subscribers, Set::size)
+                .description("Open spot event streams")
+                .register(registry);
+        this.resyncs = Counter.builder("garage.events.resyncs")
+                .description("Spot event subscribers that fell behind the change buffer and were told to reload")
+                .register(registry);
+    }
+
+    // Resumes after lastEventId while those changes are still buffered; otherwise starts with a resync
+    public SseEmitter subscribe(String lastEventId) {
+        // No timeout: a dead connection surfaces on the next heartbeat
+        SseEmitter emitter = new SseEmitter(0L);
+        changes.attach();
+        long head = changes.head();
+        Subscriber subscriber = new Subscriber(emitter, head);
+        if (lastEventId != null) {
+            long resumeFrom = parseSequence(lastEventId) + 1;
+            if (resumeFrom > 0 && resumeFrom <= head && head - resumeFrom <= changes.capacity()) {
+                subscriber.cursor = resumeFrom;
+            } else {
+                subscriber.resync = true;
+            }
+        }
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(error -> unsubscribe(subscriber));
+        subscribers.add(subscriber);
+        return emitter;
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    @Scheduled(fixedDelayString = "${garage.events.dispatch-interval:PT0.1S}")
+    public void dispatch() {
+        if (subscribers.isEmpty()) {
+            long now = System.nanoTime();
+            if (!idle) {
+                idle = true;
+                idleSince = now;
+            } else if (now - idleSince > reconnectWindowNanos) {
+                changes.pause();
+            }
+            return;
+        }
+        idle = false;
+        long head = changes.head();
+        for (Subscriber subscriber : subscribers) {
+            if ((subscriber.cursor < head || subscriber.resync || subscriber.heartbeatDue) && subscriber.sending.compareAndSet(false, true)) {
+                try {
+                    senders.execute(() -> drain(subscriber));
+                } catch (RejectedExecutionException e) {
+                    // Shutting down
+                    subscriber.sending.set(false);
+                }
+            }
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${garage.events.heartbeat:PT15S}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.heartbeatDue = true;
+        }
+    }
+
+    @Override
+    public void destroy() {
+        senders.shutdownNow();
+        for (Subscriber subscriber : subscribers) {
+            subscriber.emitter.complete();
+        }
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            boolean sent = false;
+            if (!subscriber.resync) {
+                // Keyed by spot, re-inserted on every change so the batch stays in sequence order
+                Map<String, SpotStatusChange> latest = new LinkedHashMap<>();
+                long next = changes.read(subscriber.cursor, MAX_BATCH, change -> {
+                    latest.remove(change.spotId());
+                    latest.put(change.spotId(), change);
+                });
+                if (next == SpotChangeRing.LAGGED) {
+                    subscriber.resync = true;
+                } else {
+                    for (SpotStatusChange change : latest.values()) {
+                        subscriber.emitter.send(SseEmitter.event()
+                                .id(Long.toString(change.sequence()))
+                                .name("spot")
+                                .data(change, MediaType.APPLICATION_JSON));
+                        sent = true;
+                    }
+                    subscriber.cursor = next;
+                }
+            }
+            if (subscriber.resync) {
+                resyncs.increment();
+                long head = changes.head();
+                subscriber.emitter.send(SseEmitter.event()
+                        .id(Long.toString(head - 1))
+                        .name("resync")
+                        .data("reload"));
+                subscriber.cursor = head;
+                subscriber.resync = false;
+                sent = true;
+            }
+            if (!sent && subscriber.heartbeatDue) {
+                subscriber.emitter.send(SseEmitter.event().comment("heartbeat"));
+            }
+            subscriber.heartbeatDue = false;
+        } catch (IOException | IllegalStateException e) {
+            // The client went away or the stream was already completed
+            unsubscribe(subscriber);
+            subscriber.emitter.completeWithError(e);
+        } finally {
+            subscriber.sending.set(false);
+        }
+    }
+
+    // Runs once per subscriber however many of the emitter's callbacks fire
+    private void unsubscribe(Subscriber subscriber) {
+        if (subscribers.remove(subscriber)) {
+            changes.detach();
+        }
+    }
+
+    private static long parseSequence(String lastEventId) {
+        try {
+            return Long.parseLong(lastEventId.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final AtomicBoolean sending = new AtomicBoolean();
+        // Written only by the sender that holds `sending`; read by the dispatcher
+        private volatile long cursor;
+        private volatile boolean resync;
+        private volatile boolean heartbeatDue;
+
+        private Subscriber(SseEmitter emitter, long cursor) {
+            this.emitter = emitter;
+            this.cursor = cursor;
+        }
+    }
+}
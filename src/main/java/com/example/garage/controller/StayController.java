@@ -0,0 +1,70 @@
+package com.example.garage.controller;
+
+import com.example.garage.model.Stay;
+import com.example.garage.persistence.StayLog;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+@RestController
+@RequestMapping("/api/v1")
+@ConditionalOnProperty(name = "garage.audit.enabled", havingValue = "true")
+public class StayController {
+
+    private static final MediaType TEXT_CSV = MediaType.parseMediaType("text/csv");
+
+    private final StayLog stayLog;
+
+    public StayController(StayLog stayLog) {
+        this.stayLog = stayLog;
+    }
+
+    // Completed stays checked out in [from, to), across every garage served here, as CSV written while the log is read
+    @GetMapping(value = "/stays", produces = "text/csv")
+    public ResponseEntity<StreamingResponseBody> exportStays(@RequestParam Instant from, @RequestParam Instant to) throws IOException {
+        // Opened up front so an invalid range is still answered with 400 rather than a broken stream
+        Stream<Stay> stays = stayLog.read(from, to);
+        StreamingResponseBody body = out -> {
+            try (stays; Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16)) {
+                writer.write("garage_id,license_plate,spot_id,size,check_in,check_out,fee\n");
+                Iterator<Stay> iterator = stays.iterator();
+                while (iterator.hasNext()) {
+                    Stay stay = iterator.next();
+                    writer.write(csv(stay.garageId()) + ',' + csv(stay.licensePlate()) + ',' + csv(stay.spotId()) + ','
+                            + stay.size() + ',' + stay.checkInAt() + ',' + stay.checkOutAt() + ','
+                            + BigDecimal.valueOf(stay.feeCents(), 2) + '\n');
+                }
+            }
+        };
+        return ResponseEntity.ok()
+                .contentType(TEXT_CSV)
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"stays.csv\"")
+                .body(body);
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0 && value.indexOf('\r') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+}
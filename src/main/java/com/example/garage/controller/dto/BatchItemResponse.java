@@ -0,0 +1,4 @@
+package com.example.garage.controller.dto;
+
+public record BatchItemResponse<T>(String licensePlate, T result, ErrorResponse error) {
+}
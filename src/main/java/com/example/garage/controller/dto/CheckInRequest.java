@@ -2,5 +2,11 @@ package com.example.garage.controller.dto;
 
 import com.example.garage.model.VehicleSize;
 
-public record CheckInRequest(String licensePlate, VehicleSize size) {
+import java.util.List;
+
+public record CheckInRequest(String licensePlate, VehicleSize size, List<String> features) {
+
+    public CheckInRequest(String licensePlate, VehicleSize size) {
+        this(licensePlate, size, null);
+    }
 }
@@ -0,0 +1,4 @@
+package com.example.garage.controller.dto;
+
+public record LayoutImportResponse(int imported) {
+}
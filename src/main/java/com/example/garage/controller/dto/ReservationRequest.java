@@ -0,0 +1,10 @@
+package com.example.garage.controller.dto;
+
+import com.example.garage.model.VehicleSize;
+
+import java.time.Duration;
+import java.util.List;
+
+// hold is how long the spot is kept for the car; null takes the garage's default
+public record ReservationRequest(String licensePlate, VehicleSize size, List<String> features, Duration hold) {
+}
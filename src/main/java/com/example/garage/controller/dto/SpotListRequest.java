@@ -0,0 +1,13 @@
+package com.example.garage.controller.dto;
+
+import com.example.garage.model.ParkingStatus;
+import com.example.garage.model.SpotFilter;
+import com.example.garage.model.VehicleSize;
+
+// Query parameters of the spot listings; every one is optional
+public record SpotListRequest(Integer level, VehicleSize size, ParkingStatus status, String feature, String cursor, Integer limit) {
+
+    public SpotFilter filter() {
+        return new SpotFilter(level, size, status, feature);
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.garage.events;
+
+import com.example.garage.model.Car;
+import com.example.garage.model.ParkingSpot;
+
+import java.time.Instant;
+
+// Facts about completed check-ins and check-outs, published after the gate has been answered for. The spot is as it
+// was claimed, so consumers have its level, size and features without looking it up.
+public sealed interface ParkingEvent {
+
+    Instant at();
+
+    ParkingSpot spot();
+
+    record CarParked(Car car, ParkingSpot spot) implements ParkingEvent {
+        public Instant at() {
+            return car.checkInAt();
+        }
+    }
+
+    record CarLeft(Car car, ParkingSpot spot, Instant checkedOutAt, long feeCents) implements ParkingEvent {
+        public Instant at() {
+            return checkedOutAt;
+        }
+    }
+}
@@ -0,0 +1,294 @@
+package com.example.garage.events;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.InitializingBean;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+// Disruptor-style ring between check-ins and check-outs and their side effects. The slots are allocated once and
+// reused. A publisher claims the next sequence with one CAS on the cursor, fills that sequence's slot and marks it
+// published; nothing else is shared between publishers, so the gate pays a few nanoseconds however many handlers
+// there are. Each handler has its own thread and sequence, the only field it writes: it runs through every published
+// event in order, in batches of up to garage.event-bus.max-batch, and only then moves its sequence on, which is what
+// frees those slots. Publishers never overtake the slowest handler; garage.event-bus.back-pressure decides whether a
+// publisher that would waits for it ("block") or drops the event ("drop"). Both are counted, as is each handler's lag.
+@Component
+public class ParkingEventBus implements ParkingEventPublisher, InitializingBean, DisposableBean {
+
+    public enum BackPressure {
+        BLOCK, DROP
+    }
+
+    private static final Logger log = LoggerFactory.getLogger(ParkingEventBus.class);
+    private static final Duration SHUTDOWN_GRACE = Duration.ofSeconds(5);
+    // A handler failing on every event logs once per interval, with a count of the failures it left out
+    private static final long FAILURE_LOG_INTERVAL_NANOS = Duration.ofSeconds(10).toNanos();
+
+    private static final class Slot {
+        String garageId;
+        ParkingEvent event;
+    }
+
+    private final Slot[] slots;
+    private final int mask;
+    private final int shift;
+    // Per slot, the lap of the ring in which it was last published, so a reader can tell a fresh event from a stale one
+    private final AtomicIntegerArray published;
+    // Highest sequence claimed by a publisher
+    private final AtomicLong cursor = new AtomicLong(-1);
+    // Lowest handler sequence as of the last time a publisher looked, so most claims need not look again
+    private final AtomicLong gatingCache = new AtomicLong(-1);
+    private final Consumer[] consumers;
+    private final BackPressure backPressure;
+    private final int maxBatch;
+    private final Counter publishedEvents;
+    private final Counter droppedEvents;
+    private final Counter publisherWaits;
+    private volatile boolean running;
+
+    @Autowired
+    public ParkingEventBus(ObjectProvider<ParkingEventHandler> handlers,
+                           @Value("${garage.event-bus.capacity:65536}") int capacity,
+                           @Value("${garage.event-bus.back-pressure:block}") String backPressure,
+                           @Value("${garage.event-bus.max-batch:1024}") int maxBatch, MeterRegistry registry) {
+        this(handlers.orderedStream().toList(), capacity, BackPressure.valueOf(backPressure.toUpperCase(Locale.ROOT)), maxBatch, registry);
+    }
+
+    public ParkingEventBus(List<ParkingEventHandler> handlers, int capacity, BackPressure backPressure, int maxBatch,
+                           MeterRegistry registry) {
+        if (capacity < 2 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Event bus capacity must be between 2 and " + (1 << 30));
+        }
+        if (maxBatch < 1) {
+            throw new IllegalArgumentException("Event bus batch size must be at least 1");
+        }
+        // Rounded up to a power of two so a sequence maps to its slot with a mask
+        int size = Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new Slot[size];
+        for (int i = 0; i < size; i++) {
+            slots[i] = new Slot();
+        }
+        this.mask = size - 1;
+        this.shift = Integer.numberOfTrailingZeros(size);
+        this.published = new AtomicIntegerArray(size);
+        for (int i = 0; i < size; i++) {
+            published.set(i, -1);
+        }
+        this.backPressure = backPressure;
+        this.maxBatch = maxBatch;
+        this.consumers = handlers.stream().map(handler -> new Consumer(handler, registry)).toArray(Consumer[]::new);
+        this.publishedEvents = Counter.builder("garage.eventbus.published")
+                .description("Events published to the event bus")
+                .register(registry);
+        this.droppedEvents = Counter.builder("garage.eventbus.dropped")
+                .description("Events dropped because the slowest handler was a full ring behind")
+                .register(registry);
+        this.publisherWaits = Counter.builder("garage.eventbus.waits")
+                .description("Publishes that waited for the slowest handler to free a slot")
+                .register(registry);
+    }
+
+    @Override
+    public void afterPropertiesSet() {
+        running = true;
+        for (Consumer consumer : consumers) {
+            consumer.thread.start();
+        }
+    }
+
+    // Handlers finish what was published before shutdown; anything published after it is dropped
+    @Override
+    public void destroy() throws InterruptedException {
+        running = false;
+        for (Consumer consumer : consumers) {
+            consumer.thread.join(SHUTDOWN_GRACE.toMillis());
+        }
+    }
+
+    @Override
+    public void publish(ParkingEvent event) {
+        publish(null, event);
+    }
+
+    @Override
+    public ParkingEventPublisher forGarage(String garageId) {
+        return event -> publish(garageId, event);
+    }
+
+    public void publish(String garageId, ParkingEvent event) {
+        if (consumers.length == 0) {
+            return;
+        }
+        long sequence = claim();
+        if (sequence < 0) {
+            droppedEvents.increment();
+            return;
+        }
+        Slot slot = slots[(int) sequence & mask];
+        slot.garageId = garageId;
+        slot.event = event;
+        // Ordered after the slot's fields, so a handler that sees the lap also sees the event
+        published.lazySet((int) sequence & mask, lap(sequence));
+        publishedEvents.increment();
+    }
+
+    // Events published but not yet handled by the given handler
+    public long lag(String handlerName) {
+        for (Consumer consumer : consumers) {
+            if (consumer.handler.name().equals(handlerName)) {
+                return cursor.get() - consumer.sequence.get();
+            }
+        }
+        throw new IllegalArgumentException("No event handler named " + handlerName);
+    }
+
+    // -1 when the event has to be dropped
+    private long claim() {
+        boolean waited = false;
+        while (true) {
+            long current = cursor.get();
+            long next = current + 1;
+            long wrapPoint = next - slots.length;
+            if (wrapPoint > gatingCache.get()) {
+                long gating = slowestSequence(current);
+                gatingCache.set(gating);
+                if (wrapPoint > gating) {
+                    if (backPressure == BackPressure.DROP || !running) {
+                        return -1;
+                    }
+                    if (!waited) {
+                        publisherWaits.increment();
+                        waited = true;
+                    }
+                    LockSupport.parkNanos(1_000);
+                    continue;
+                }
+            }
+            if (cursor.compareAndSet(current, next)) {
+                return next;
+            }
+        }
+    }
+
+    private long slowestSequence(long upTo) {
+        long slowest = upTo;
+        for (Consumer consumer : consumers) {
+            slowest = Math.min(slowest, consumer.sequence.get());
+        }
+        return slowest;
+    }
+
+    private int lap(long sequence) {
+        return (int) (sequence >>> shift);
+    }
+
+    // The last sequence in [from, upTo] before the first one not yet published
+    private long highestPublished(long from, long upTo) {
+        for (long sequence = from; sequence <= upTo; sequence++) {
+            if (published.get((int) sequence & mask) != lap(sequence)) {
+                return sequence - 1;
+            }
+        }
+        return upTo;
+    }
+
+    private final class Consumer implements Runnable {
+        final ParkingEventHandler handler;
+        // Last sequence this handler is done with; written by its thread only
+        final AtomicLong sequence = new AtomicLong(-1);
+        final Thread thread;
+        final Counter failures;
+        final DistributionSummary batchSizes;
+        // Written by this consumer's thread only
+        long lastFailureLogged;
+        long unloggedFailures;
+
+        Consumer(ParkingEventHandler handler, MeterRegistry registry) {
+            this.handler = handler;
+            this.thread = new Thread(this, "event-bus-" + handler.name());
+            thread.setDaemon(true);
+            this.failures = Counter.builder("garage.eventbus.handler.failures")
+                    .description("Events a handler threw on; the handler moves on to the next one")
+                    .tag("handler", handler.name())
+                    .register(registry);
+            this.batchSizes = DistributionSummary.builder("garage.eventbus.batch.size")
+                    .description("Events handed to a handler in one batch")
+                    .tag("handler", handler.name())
+                    .register(registry);
+            Gauge.builder("garage.eventbus.lag", this, consumer -> cursor.get() - consumer.sequence.get())
+                    .description("Events published but not yet handled")
+                    .tag("handler", handler.name())
+                    .register(registry);
+        }
+
+        @Override
+        public void run() {
+            long next = 0;
+            int idle = 0;
+            while (true) {
+                long claimed = cursor.get();
+                long available = highestPublished(next, Math.min(claimed, next + maxBatch - 1));
+                if (available < next) {
+                    // Stops only once everything claimed before shutdown has been handled
+                    if (!running && claimed < next) {
+                        return;
+                    }
+                    idle = backOff(idle);
+                    continue;
+                }
+                idle = 0;
+                for (long s = next; s <= available; s++) {
+                    Slot slot = slots[(int) s & mask];
+                    try {
+                        handler.onEvent(slot.garageId, slot.event, s, s == available);
+                    } catch (Exception e) {
+                        failures.increment();
+                        logFailure(slot, s, e);
+                    }
+                }
+                batchSizes.record(available - next + 1);
+                sequence.set(available);
+                next = available + 1;
+            }
+        }
+
+        private void logFailure(Slot slot, long sequence, Exception e) {
+            long now = System.nanoTime();
+            if (lastFailureLogged != 0 && now - lastFailureLogged < FAILURE_LOG_INTERVAL_NANOS) {
+                unloggedFailures++;
+                return;
+            }
+            // A null garage id is the deployment's own garage
+            log.warn("Handler {} failed on {} #{} for garage {}; {} earlier failures not logged", handler.name(),
+                    slot.event.getClass().getSimpleName(), sequence, slot.garageId != null ? slot.garageId : "(own)",
+                    unloggedFailures, e);
+            lastFailureLogged = now;
+            unloggedFailures = 0;
+        }
+
+        // Spins briefly for the next event, then sleeps longer the longer the bus stays quiet
+        private int backOff(int idle) {
+            if (idle < 100) {
+                Thread.onSpinWait();
+            } else {
+                LockSupport.parkNanos(idle < 1_000 ? 10_000 : 1_000_000);
+            }
+            return idle + 1;
+        }
+    }
+}
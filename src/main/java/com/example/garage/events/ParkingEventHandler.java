@@ -0,0 +1,11 @@
+package com.example.garage.events;
+
+// A consumer of the event bus. Each handler runs on its own thread and sees every event in publication order;
+// endOfBatch marks the last event currently available, the point to flush anything buffered.
+public interface ParkingEventHandler {
+
+    void onEvent(String garageId, ParkingEvent event, long sequence, boolean endOfBatch) throws Exception;
+
+    // Names the handler's thread and its metrics
+    String name();
+}
@@ -0,0 +1,15 @@
+package com.example.garage.events;
+
+public interface ParkingEventPublisher {
+
+    ParkingEventPublisher NONE = event -> {
+    };
+
+    // Returns without waiting for consumers
+    void publish(ParkingEvent event);
+
+    // The publisher for one of the garages served alongside the deployment's own
+    default ParkingEventPublisher forGarage(String garageId) {
+        return this;
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.garage.exception;
+
+public class CarAlreadyParkedException extends RuntimeException {
+    public CarAlreadyParkedException(String message) {
+        super(message);
+    }
+}
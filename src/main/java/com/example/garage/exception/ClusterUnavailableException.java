@@ -0,0 +1,7 @@
+package com.example.garage.exception;
+
+public class ClusterUnavailableException extends RuntimeException {
+    public ClusterUnavailableException(String message) {
+        super(message);
+    }
+}
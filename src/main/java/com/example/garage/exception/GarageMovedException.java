@@ -0,0 +1,8 @@
+package com.example.garage.exception;
+
+// The garage was handed to another cluster node while the request was on its way in
+public class GarageMovedException extends RuntimeException {
+    public GarageMovedException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,7 @@
+package com.example.garage.exception;
+
+public class GarageNotFoundException extends RuntimeException {
+    public GarageNotFoundException(String message) {
+        super(message);
+    }
+}
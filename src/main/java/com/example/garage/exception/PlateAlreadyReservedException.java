@@ -0,0 +1,7 @@
+package com.example.garage.exception;
+
+public class PlateAlreadyReservedException extends RuntimeException {
+    public PlateAlreadyReservedException(String message) {
+        super(message);
+    }
+}
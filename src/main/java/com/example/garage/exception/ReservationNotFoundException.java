@@ -0,0 +1,7 @@
+package com.example.garage.exception;
+
+public class ReservationNotFoundException extends RuntimeException {
+    public ReservationNotFoundException(String message) {
+        super(message);
+    }
+}
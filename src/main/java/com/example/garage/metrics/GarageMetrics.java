@@ -0,0 +1,95 @@
+package com.example.garage.metrics;
+
+import com.example.garage.model.VehicleSize;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.stereotype.Component;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+// Hot-path instrumentation. Every meter is registered up front and looked up by ordinal, so recording allocates nothing.
+@Component
+public class GarageMetrics {
+
+    public enum Contention {
+        SPOT_CLAIM, SPOT_RELEASE, STATUS_UPDATE
+    }
+
+    private static final VehicleSize[] SIZES = VehicleSize.values();
+
+    private final Timer checkInTimer;
+    private final Timer checkOutTimer;
+    private final Timer spotSearchTimer;
+    private final Counter[] noCompatibleSpot = new Counter[SIZES.length];
+    // One slot per size, plus a last slot for lookups where the car, and so its size, is unknown
+    private final Counter[] carNotFound = new Counter[SIZES.length + 1];
+    private final Counter[] casFailures = new Counter[Contention.values().length];
+    private final Counter reservationsExpired;
+
+    public GarageMetrics(MeterRegistry registry) {
+        checkInTimer = Timer.builder("garage.checkin")
+                .description("Time to check a car in, including the spot search")
+                .publishPercentileHistogram()
+                .register(registry);
+        checkOutTimer = Timer.builder("garage.checkout")
+                .description("Time to check a car out and compute its fee")
+                .publishPercentileHistogram()
+                .register(registry);
+        spotSearchTimer = Timer.builder("garage.spot.search")
+                .description("Time to find the narrowest compatible free spot")
+                .register(registry);
+        for (VehicleSize size : SIZES) {
+            noCompatibleSpot[size.ordinal()] = errorCounter(registry, "no_compatible_spot", size.name());
+            carNotFound[size.ordinal()] = errorCounter(registry, "car_not_found", size.name());
+        }
+        carNotFound[SIZES.length] = errorCounter(registry, "car_not_found", "UNKNOWN");
+        for (Contention point : Contention.values()) {
+            casFailures[point.ordinal()] = Counter.builder("garage.spot.cas.failures")
+                    .description("Spot compare-and-set attempts lost to a concurrent writer")
+                    .tag("operation", point.name().toLowerCase(Locale.ROOT))
+                    .register(registry);
+        }
+        reservationsExpired = Counter.builder("garage.reservations.expired")
+                .description("Reservations whose hold ran out before the car arrived")
+                .register(registry);
+    }
+
+    public void recordCheckIn(long nanos) {
+        checkInTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordCheckOut(long nanos) {
+        checkOutTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordSpotSearch(long nanos) {
+        spotSearchTimer.record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void noCompatibleSpot(VehicleSize size) {
+        noCompatibleSpot[size.ordinal()].increment();
+    }
+
+    // size is null when the car was never found
+    public void carNotFound(VehicleSize size) {
+        carNotFound[size == null ? SIZES.length : size.ordinal()].increment();
+    }
+
+    public void casFailure(Contention point) {
+        casFailures[point.ordinal()].increment();
+    }
+
+    public void reservationExpired() {
+        reservationsExpired.increment();
+    }
+
+    private static Counter errorCounter(MeterRegistry registry, String error, String size) {
+        return Counter.builder("garage.errors")
+                .description("Requests rejected by the garage, by error and vehicle size")
+                .tag("error", error)
+                .tag("size", size)
+                .register(registry);
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.garage.metrics;
+
+import com.example.garage.model.VehicleSize;
+import com.example.garage.repository.ParkingSpotRepository;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.MultiGauge;
+import io.micrometer.core.instrument.Tags;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.ToDoubleFunction;
+
+// Occupancy gauges per level, spot size and feature, read live from the repository's counters at scrape time.
+// Levels and features can appear at runtime, so their rows are re-registered periodically.
+@Component
+public class OccupancyMetrics {
+
+    private final ParkingSpotRepository parkingSpotRepository;
+    private final MultiGauge levelOccupied;
+    private final MultiGauge levelCapacity;
+    private final MultiGauge featureOccupied;
+    private final MultiGauge featureCapacity;
+
+    public OccupancyMetrics(MeterRegistry registry, ParkingSpotRepository parkingSpotRepository) {
+        this.parkingSpotRepository = parkingSpotRepository;
+        this.levelOccupied = MultiGauge.builder("garage.level.occupied").description("Spots not available, per level").register(registry);
+        this.levelCapacity = MultiGauge.builder("garage.level.capacity").description("Spots per level").register(registry);
+        this.featureOccupied = MultiGauge.builder("garage.feature.occupied").description("Spots not available, per feature").register(registry);
+        this.featureCapacity = MultiGauge.builder("garage.feature.capacity").description("Spots per feature").register(registry);
+        for (VehicleSize size : VehicleSize.values()) {
+            Gauge.builder("garage.size.occupied", parkingSpotRepository, repository -> repository.occupancy(size).occupied())
+                    .description("Spots not available, per spot size")
+                    .tag("size", size.name())
+                    .register(registry);
+            Gauge.builder("garage.size.capacity", parkingSpotRepository, repository -> repository.occupancy(size).capacity())
+                    .description("Spots per spot size")
+                    .tag("size", size.name())
+                    .register(registry);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${garage.metrics.occupancy-refresh:PT15S}")
+    public void refresh() {
+        List<MultiGauge.Row<?>> levelOccupiedRows = new ArrayList<>();
+        List<MultiGauge.Row<?>> levelCapacityRows = new ArrayList<>();
+        for (int level : parkingSpotRepository.occupancyByLevel().keySet()) {
+            Tags tags = Tags.of("level", Integer.toString(level));
+            levelOccupiedRows.add(row(tags, repository -> repository.occupancy(level).occupied()));
+            levelCapacityRows.add(row(tags, repository -> repository.occupancy(level).capacity()));
+        }
+        levelOccupied.register(levelOccupiedRows, true);
+        levelCapacity.register(levelCapacityRows, true);
+
+        List<MultiGauge.Row<?>> featureOccupiedRows = new ArrayList<>();
+        List<MultiGauge.Row<?>> featureCapacityRows = new ArrayList<>();
+        for (String feature : parkingSpotRepository.occupancyByFeature().keySet()) {
+            Tags tags = Tags.of("feature", feature);
+            featureOccupiedRows.add(row(tags, repository -> repository.occupancyOfFeature(feature).occupied()));
+            featureCapacityRows.add(row(tags, repository -> repository.occupancyOfFeature(feature).capacity()));
+        }
+        featureOccupied.register(featureOccupiedRows, true);
+        featureCapacity.register(featureCapacityRows, true);
+    }
+
+    private MultiGauge.Row<ParkingSpotRepository> row(Tags tags, ToDoubleFunction<ParkingSpotRepository> value) {
+        return MultiGauge.Row.of(tags, parkingSpotRepository, value);
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.garage.model;
+
+public record OccupancyCount(long capacity, long available, long occupied) {
+
+    public static OccupancyCount of(long capacity, long available) {
+        return new OccupancyCount(capacity, available, capacity - available);
+    }
+
+    public OccupancyCount plus(OccupancyCount other) {
+        return of(capacity + other.capacity, available + other.available);
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.garage.model;
+
+import java.util.Map;
+
+public record OccupancySummary(
+        OccupancyCount total,
+        Map<Integer, OccupancyCount> levels,
+        Map<VehicleSize, OccupancyCount> sizes,
+        Map<String, OccupancyCount> features
+) {
+}
@@ -0,0 +1,9 @@
+package com.example.garage.model;
+
+import java.time.Duration;
+import java.time.Instant;
+
+// Tier 1 is the maximum stay; each later tier is a penalty tier. garageId is null for the deployment's own garage.
+public record OverstayAlert(long sequence, String garageId, String licensePlate, String spotId, Instant checkInAt,
+                            int tier, Duration threshold, Instant raisedAt) {
+}
@@ -1,6 +1,37 @@
 package com.example.garage.model;
 
+import com.fasterxml.jackson.annotation.JsonCreator;
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.util.List;
+import java.util.Objects;
+
+// featureMask is derived from features through the SpotFeatures of the store holding the spot, which sets it when the
+// spot is saved; pass it only when it is already known. Being derived, it takes no part in equality.
+public record ParkingSpot(String id, int level, int number, ParkingStatus status, VehicleSize size, List<String> features,
+                          @JsonIgnore long featureMask) {
+
+    @JsonCreator
+    public ParkingSpot(String id, int level, int number, ParkingStatus status, VehicleSize size, List<String> features) {
+        this(id, level, number, status, size, features, SpotFeatures.NONE);
+    }
+
+    public ParkingSpot withStatus(ParkingStatus newStatus) {
+        return new ParkingSpot(id, level, number, newStatus, size, features, featureMask);
+    }
+
+    public boolean hasFeatures(long mask) {
+        return (featureMask & mask) == mask;
+    }
+
+    @Override
+    public boolean equals(Object other) {
+        return other instanceof ParkingSpot spot && level == spot.level && number == spot.number && Objects.equals(id, spot.id)
+                && status == spot.status && size == spot.size && Objects.equals(features, spot.features);
+    }
 
-public record ParkingSpot(String id, int level, int number, ParkingStatus status, VehicleSize size, List<String> features) {
+    @Override
+    public int hashCode() {
+        return Objects.hash(id, level, number, status, size, features);
+    }
 }
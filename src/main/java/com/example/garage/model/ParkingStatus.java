@@ -2,5 +2,7 @@ package com.example.garage.model;
 
 public enum ParkingStatus {
     AVAILABLE,
-    OCCUPIED
+    OCCUPIED,
+    // Held for a car that has not arrived yet; never free, never journaled
+    RESERVED
 }
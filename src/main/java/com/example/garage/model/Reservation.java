@@ -0,0 +1,6 @@
+package com.example.garage.model;
+
+import java.time.Instant;
+
+public record Reservation(String id, String licensePlate, VehicleSize size, String spotId, Instant reservedAt, Instant expiresAt) {
+}
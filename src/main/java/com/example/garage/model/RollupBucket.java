@@ -0,0 +1,9 @@
+package com.example.garage.model;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+// averageOccupied is weighted by time over the part of the bucket that has passed
+public record RollupBucket(Instant start, long checkIns, long checkOuts, BigDecimal revenue, double averageOccupied,
+                           long peakOccupied) {
+}
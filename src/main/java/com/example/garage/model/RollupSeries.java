@@ -0,0 +1,7 @@
+package com.example.garage.model;
+
+import java.util.List;
+
+// One value of a dimension, e.g. level "2" or feature "EV_CHARGING"; the total has value null
+public record RollupSeries(String value, List<RollupBucket> buckets) {
+}
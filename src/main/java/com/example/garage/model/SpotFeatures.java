@@ -0,0 +1,98 @@
+package com.example.garage.model;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+// Interns one garage's feature names to bit positions, so a spot's features fit in one long and checking for one is a
+// mask test. Each spot store owns one: names are registered when a spot carrying them is stored there and keep their
+// bit for the life of the store, so what one garage stores never uses up the bits of another.
+public final class SpotFeatures {
+
+    public static final int MAX_FEATURES = Long.SIZE;
+    public static final long NONE = 0;
+    // Returned by lookup when a name was never registered, so no spot can have it
+    public static final long UNKNOWN = -1;
+
+    private final Map<String, Integer> bits = new ConcurrentHashMap<>();
+    // Written before the name's bit is published through bits
+    private final String[] names = new String[MAX_FEATURES];
+    // One immutable list per distinct mask, shared by every spot built from that mask
+    private final Map<Long, List<String>> lists = new ConcurrentHashMap<>();
+
+    public long register(List<String> features) {
+        long mask = NONE;
+        if (features != null) {
+            for (String feature : features) {
+                Integer bit = feature == null ? null : bits.get(feature);
+                mask |= 1L << (bit != null ? bit : assign(feature));
+            }
+        }
+        return mask;
+    }
+
+    public long lookup(List<String> features) {
+        long mask = NONE;
+        if (features != null) {
+            for (String feature : features) {
+                Integer bit = feature == null ? null : bits.get(feature);
+                if (bit == null) {
+                    return UNKNOWN;
+                }
+                mask |= 1L << bit;
+            }
+        }
+        return mask;
+    }
+
+    public long lookup(String feature) {
+        Integer bit = feature == null ? null : bits.get(feature);
+        return bit == null ? UNKNOWN : 1L << bit;
+    }
+
+    // In bit (registration) order
+    public List<String> names(long mask) {
+        if (mask == NONE) {
+            return List.of();
+        }
+        List<String> list = lists.get(mask);
+        if (list == null) {
+            list = lists.computeIfAbsent(mask, m -> {
+                List<String> features = new ArrayList<>(Long.bitCount(m));
+                for (long rest = m; rest != 0; rest &= rest - 1) {
+                    features.add(names[Long.numberOfTrailingZeros(rest)]);
+                }
+                return List.copyOf(features);
+            });
+        }
+        return list;
+    }
+
+    public String name(int bit) {
+        return names[bit];
+    }
+
+    // The spot with its mask in this registry; a spot read from another store carries that store's bits
+    public ParkingSpot bind(ParkingSpot spot) {
+        return new ParkingSpot(spot.id(), spot.level(), spot.number(), spot.status(), spot.size(), spot.features(),
+                register(spot.features()));
+    }
+
+    private synchronized int assign(String feature) {
+        if (feature == null) {
+            throw new IllegalArgumentException("Spot features cannot be null");
+        }
+        Integer existing = bits.get(feature);
+        if (existing != null) {
+            return existing;
+        }
+        int bit = bits.size();
+        if (bit == MAX_FEATURES) {
+            throw new IllegalArgumentException("A garage supports at most " + MAX_FEATURES + " distinct spot features");
+        }
+        names[bit] = feature;
+        bits.put(feature, bit);
+        return bit;
+    }
+}
@@ -0,0 +1,18 @@
+package com.example.garage.model;
+
+// Null fields match every spot
+public record SpotFilter(Integer level, VehicleSize size, ParkingStatus status, String feature) {
+
+    public static final SpotFilter ALL = new SpotFilter(null, null, null, null);
+
+    public SpotFilter withStatus(ParkingStatus newStatus) {
+        return new SpotFilter(level, size, newStatus, feature);
+    }
+
+    public boolean matches(ParkingSpot spot) {
+        return (level == null || spot.level() == level)
+                && (size == null || spot.size() == size)
+                && (status == null || spot.status() == status)
+                && (feature == null || spot.features() != null && spot.features().contains(feature));
+    }
+}
@@ -0,0 +1,5 @@
+package com.example.garage.model;
+
+// A spot entered the garage or changed status; sequence numbers are gap-free in publication order
+public record SpotStatusChange(long sequence, String spotId, int level, VehicleSize size, ParkingStatus status) {
+}
@@ -0,0 +1,8 @@
+package com.example.garage.model;
+
+import java.time.Instant;
+
+// A completed stay, as recorded for finance at check-out. garageId is null for the deployment's own garage.
+public record Stay(String garageId, String licensePlate, String spotId, VehicleSize size, Instant checkInAt,
+                   Instant checkOutAt, long feeCents) {
+}
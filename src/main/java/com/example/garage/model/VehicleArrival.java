@@ -0,0 +1,11 @@
+package com.example.garage.model;
+
+import java.util.List;
+
+// features: spot features the vehicle needs; null or empty accepts any spot
+public record VehicleArrival(String licensePlate, VehicleSize size, List<String> features) {
+
+    public VehicleArrival(String licensePlate, VehicleSize size) {
+        this(licensePlate, size, null);
+    }
+}
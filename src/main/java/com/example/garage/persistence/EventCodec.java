@@ -0,0 +1,154 @@
+package com.example.garage.persistence;
+
+import com.example.garage.model.Car;
+import com.example.garage.model.ParkingSpot;
+import com.example.garage.model.ParkingStatus;
+import com.example.garage.model.VehicleSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+// Record framing: [int payload length][int CRC32 of payload][payload]. A zero length or bad CRC marks the end of the log.
+final class EventCodec {
+
+    static final int HEADER_BYTES = 8;
+
+    private static final byte SPOT_CREATED = 1;
+    private static final byte SPOT_STATUS_CHANGED = 2;
+    private static final byte CAR_CHECKED_IN = 3;
+    private static final byte CAR_CHECKED_OUT = 4;
+
+    private EventCodec() {
+    }
+
+    static byte[] encode(GarageEvent event) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(0);
+            out.writeInt(0);
+            writePayload(event, out);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        ByteBuffer record = ByteBuffer.wrap(bytes.toByteArray());
+        int payloadLength = record.capacity() - HEADER_BYTES;
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), HEADER_BYTES, payloadLength);
+        record.putInt(0, payloadLength);
+        record.putInt(4, (int) crc.getValue());
+        return record.array();
+    }
+
+    // Reads records from the buffer's position until the end of valid data; returns the number read
+    static int decodeAll(ByteBuffer buffer, Consumer<GarageEvent> sink) {
+        int count = 0;
+        CRC32 crc = new CRC32();
+        while (buffer.remaining() >= HEADER_BYTES) {
+            int start = buffer.position();
+            int payloadLength = buffer.getInt();
+            int checksum = buffer.getInt();
+            if (payloadLength <= 0 || payloadLength > buffer.remaining()) {
+                buffer.position(start);
+                break;
+            }
+            byte[] payload = new byte[payloadLength];
+            buffer.get(payload);
+            crc.reset();
+            crc.update(payload);
+            if ((int) crc.getValue() != checksum) {
+                // Torn write from a crash mid-append
+                buffer.position(start);
+                break;
+            }
+            sink.accept(readPayload(payload));
+            count++;
+        }
+        return count;
+    }
+
+    private static void writePayload(GarageEvent event, DataOutputStream out) throws IOException {
+        if (event instanceof GarageEvent.SpotCreated e) {
+            out.writeByte(SPOT_CREATED);
+            writeSpot(e.spot(), out);
+        } else if (event instanceof GarageEvent.SpotStatusChanged e) {
+            out.writeByte(SPOT_STATUS_CHANGED);
+            out.writeUTF(e.spotId());
+            out.writeByte(e.status().ordinal());
+        } else if (event instanceof GarageEvent.CarCheckedIn e) {
+            out.writeByte(CAR_CHECKED_IN);
+            writeCar(e.car(), out);
+        } else if (event instanceof GarageEvent.CarCheckedOut e) {
+            out.writeByte(CAR_CHECKED_OUT);
+            out.writeUTF(e.licensePlate());
+            out.writeUTF(e.spotId());
+        }
+    }
+
+    private static GarageEvent readPayload(byte[] payload) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            byte type = in.readByte();
+            return switch (type) {
+                case SPOT_CREATED -> new GarageEvent.SpotCreated(readSpot(in));
+                case SPOT_STATUS_CHANGED -> new GarageEvent.SpotStatusChanged(in.readUTF(), ParkingStatus.values()[in.readByte()]);
+                case CAR_CHECKED_IN -> new GarageEvent.CarCheckedIn(readCar(in));
+                case CAR_CHECKED_OUT -> new GarageEvent.CarCheckedOut(in.readUTF(), in.readUTF());
+                default -> throw new IllegalStateException("Unknown journal record type " + type);
+            };
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeSpot(ParkingSpot spot, DataOutputStream out) throws IOException {
+        out.writeUTF(spot.id());
+        out.writeInt(spot.level());
+        out.writeInt(spot.number());
+        out.writeByte(spot.status().ordinal());
+        out.writeByte(spot.size().ordinal());
+        List<String> features = spot.features() == null ? List.of() : spot.features();
+        out.writeShort(features.size());
+        for (String feature : features) {
+            out.writeUTF(feature);
+        }
+    }
+
+    private static ParkingSpot readSpot(DataInputStream in) throws IOException {
+        String id = in.readUTF();
+        int level = in.readInt();
+        int number = in.readInt();
+        ParkingStatus status = ParkingStatus.values()[in.readByte()];
+        VehicleSize size = VehicleSize.values()[in.readByte()];
+        int featureCount = in.readShort();
+        List<String> features = new ArrayList<>(featureCount);
+        for (int i = 0; i < featureCount; i++) {
+            features.add(in.readUTF());
+        }
+        return new ParkingSpot(id, level, number, status, size, List.copyOf(features));
+    }
+
+    private static void writeCar(Car car, DataOutputStream out) throws IOException {
+        out.writeUTF(car.licensePlate());
+        out.writeUTF(car.assignedSpotId());
+        out.writeLong(car.checkInAt().getEpochSecond());
+        out.writeInt(car.checkInAt().getNano());
+        out.writeByte(car.size().ordinal());
+    }
+
+    private static Car readCar(DataInputStream in) throws IOException {
+        String licensePlate = in.readUTF();
+        String spotId = in.readUTF();
+        Instant checkInAt = Instant.ofEpochSecond(in.readLong(), in.readInt());
+        VehicleSize size = VehicleSize.values()[in.readByte()];
+        return new Car(licensePlate, spotId, checkInAt, size);
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.garage.persistence;
+
+import com.example.garage.model.Car;
+import com.example.garage.model.ParkingSpot;
+import com.example.garage.model.ParkingStatus;
+
+public sealed interface GarageEvent {
+
+    record SpotCreated(ParkingSpot spot) implements GarageEvent {
+    }
+
+    record SpotStatusChanged(String spotId, ParkingStatus status) implements GarageEvent {
+    }
+
+    record CarCheckedIn(Car car) implements GarageEvent {
+    }
+
+    record CarCheckedOut(String licensePlate, String spotId) implements GarageEvent {
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.garage.persistence;
+
+import java.util.List;
+
+public interface GarageJournal {
+
+    GarageJournal NONE = event -> {
+    };
+
+    // Returns once the event is durable
+    void append(GarageEvent event);
+
+    // Returns once every event is durable
+    default void appendAll(List<GarageEvent> events) {
+        events.forEach(this::append);
+    }
+}
@@ -0,0 +1,50 @@
+package com.example.garage.persistence;
+
+import com.example.garage.model.Car;
+import com.example.garage.model.ParkingSpot;
+import com.example.garage.model.ParkingStatus;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+// Garage contents folded from a snapshot and the log segments after it
+public class GarageState {
+
+    private final Map<String, ParkingSpot> spots = new LinkedHashMap<>();
+    private final Map<String, Car> cars = new LinkedHashMap<>();
+
+    public void apply(GarageEvent event) {
+        if (event instanceof GarageEvent.SpotCreated e) {
+            spots.put(e.spot().id(), e.spot());
+        } else if (event instanceof GarageEvent.SpotStatusChanged e) {
+            spots.computeIfPresent(e.spotId(), (id, spot) -> spot.withStatus(e.status()));
+        } else if (event instanceof GarageEvent.CarCheckedIn e) {
+            cars.put(e.car().licensePlate(), e.car());
+            spots.computeIfPresent(e.car().assignedSpotId(), (id, spot) -> spot.withStatus(ParkingStatus.OCCUPIED));
+        } else if (event instanceof GarageEvent.CarCheckedOut e) {
+            cars.remove(e.licensePlate());
+            spots.computeIfPresent(e.spotId(), (id, spot) -> spot.withStatus(ParkingStatus.AVAILABLE));
+        }
+    }
+
+    void putSpot(ParkingSpot spot) {
+        spots.put(spot.id(), spot);
+    }
+
+    void putCar(Car car) {
+        cars.put(car.licensePlate(), car);
+    }
+
+    public Collection<ParkingSpot> spots() {
+        return spots.values();
+    }
+
+    public Collection<Car> cars() {
+        return cars.values();
+    }
+
+    public boolean isEmpty() {
+        return spots.isEmpty() && cars.isEmpty();
+    }
+}
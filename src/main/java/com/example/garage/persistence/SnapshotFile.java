@@ -0,0 +1,174 @@
+package com.example.garage.persistence;
+
+import com.example.garage.model.Car;
+import com.example.garage.model.ParkingSpot;
+import com.example.garage.model.ParkingStatus;
+import com.example.garage.model.VehicleSize;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+// Binary image of a GarageState:
+//   header   [int magic][short version]
+//   strings  [int count] then [short length][UTF-8 bytes] per string: spot ids and feature names, each stored once
+//   spots    [int count] then [int id][int level][int number][byte status][byte size][short n][int feature]*n
+//   cars     [int count] then [short length][UTF-8 plate][int spot id][long epoch second][int nanos][byte size]
+//   trailer  [int CRC32 of everything before it]
+// Enums are stored as ordinals and strings as indexes into the string table.
+final class SnapshotFile {
+
+    private static final int MAGIC = 0x47534E50; // "GSNP"
+    private static final short VERSION = 1;
+
+    private SnapshotFile() {
+    }
+
+    static void write(Path path, GarageState state) throws IOException {
+        Map<String, Integer> indexes = new HashMap<>();
+        List<String> strings = new ArrayList<>();
+        for (ParkingSpot spot : state.spots()) {
+            intern(spot.id(), indexes, strings);
+            for (String feature : features(spot)) {
+                intern(feature, indexes, strings);
+            }
+        }
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            CRC32 crc = new CRC32();
+            DataOutputStream out = new DataOutputStream(new CheckedOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16), crc));
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+
+            out.writeInt(strings.size());
+            for (String string : strings) {
+                writeString(string, out);
+            }
+
+            out.writeInt(state.spots().size());
+            for (ParkingSpot spot : state.spots()) {
+                out.writeInt(indexes.get(spot.id()));
+                out.writeInt(spot.level());
+                out.writeInt(spot.number());
+                out.writeByte(spot.status().ordinal());
+                out.writeByte(spot.size().ordinal());
+                List<String> features = features(spot);
+                out.writeShort(features.size());
+                for (String feature : features) {
+                    out.writeInt(indexes.get(feature));
+                }
+            }
+
+            out.writeInt(state.cars().size());
+            for (Car car : state.cars()) {
+                Integer spotId = indexes.get(car.assignedSpotId());
+                if (spotId == null) {
+                    throw new IllegalStateException("Car " + car.licensePlate() + " is parked in unknown spot " + car.assignedSpotId());
+                }
+                writeString(car.licensePlate(), out);
+                out.writeInt(spotId);
+                out.writeLong(car.checkInAt().getEpochSecond());
+                out.writeInt(car.checkInAt().getNano());
+                out.writeByte(car.size().ordinal());
+            }
+
+            // The trailer sits outside the checksum it carries
+            out.flush();
+            ByteBuffer trailer = ByteBuffer.allocate(Integer.BYTES).putInt(0, (int) crc.getValue());
+            while (trailer.hasRemaining()) {
+                channel.write(trailer);
+            }
+            channel.force(true);
+        }
+    }
+
+    static void read(Path path, GarageState state) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            verify(path, buffer);
+
+            buffer.position(Integer.BYTES + Short.BYTES);
+            String[] strings = new String[buffer.getInt()];
+            for (int i = 0; i < strings.length; i++) {
+                strings[i] = readString(buffer);
+            }
+
+            ParkingStatus[] statuses = ParkingStatus.values();
+            VehicleSize[] sizes = VehicleSize.values();
+            int spotCount = buffer.getInt();
+            for (int i = 0; i < spotCount; i++) {
+                String id = strings[buffer.getInt()];
+                int level = buffer.getInt();
+                int number = buffer.getInt();
+                ParkingStatus status = statuses[buffer.get()];
+                VehicleSize size = sizes[buffer.get()];
+                String[] features = new String[buffer.getShort()];
+                for (int f = 0; f < features.length; f++) {
+                    features[f] = strings[buffer.getInt()];
+                }
+                state.putSpot(new ParkingSpot(id, level, number, status, size, List.of(features)));
+            }
+
+            int carCount = buffer.getInt();
+            for (int i = 0; i < carCount; i++) {
+                String licensePlate = readString(buffer);
+                String spotId = strings[buffer.getInt()];
+                Instant checkInAt = Instant.ofEpochSecond(buffer.getLong(), buffer.getInt());
+                state.putCar(new Car(licensePlate, spotId, checkInAt, sizes[buffer.get()]));
+            }
+        }
+    }
+
+    private static void verify(Path path, MappedByteBuffer buffer) throws IOException {
+        int body = buffer.capacity() - Integer.BYTES;
+        if (body < Integer.BYTES + Short.BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException(path + " is not a garage snapshot");
+        }
+        if (buffer.getShort(Integer.BYTES) != VERSION) {
+            throw new IOException(path + " has unsupported snapshot version " + buffer.getShort(Integer.BYTES));
+        }
+        CRC32 crc = new CRC32();
+        crc.update(buffer.slice(0, body));
+        if ((int) crc.getValue() != buffer.getInt(body)) {
+            throw new IOException(path + " is corrupt: checksum mismatch");
+        }
+    }
+
+    private static void intern(String string, Map<String, Integer> indexes, List<String> strings) {
+        if (indexes.putIfAbsent(string, strings.size()) == null) {
+            strings.add(string);
+        }
+    }
+
+    private static List<String> features(ParkingSpot spot) {
+        return spot.features() == null ? List.of() : spot.features();
+    }
+
+    private static void writeString(String string, DataOutputStream out) throws IOException {
+        byte[] bytes = string.getBytes(StandardCharsets.UTF_8);
+        out.writeShort(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
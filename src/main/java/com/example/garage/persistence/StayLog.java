@@ -0,0 +1,575 @@
+package com.example.garage.persistence;
+
+import com.example.garage.events.ParkingEvent;
+import com.example.garage.events.ParkingEventHandler;
+import com.example.garage.model.Stay;
+import com.example.garage.model.VehicleSize;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import java.util.zip.CRC32;
+
+// Append-only record of completed stays, fed from check-out events on the event bus, in segment files of column blocks:
+//   header   [int magic][int block length][int rows][long min check-out][long max check-out][int CRC32 of the columns]
+//   columns  check-out as zigzag varint deltas from the previous row (the first from the minimum), stay length, fee
+//            in cents, size ordinal, garage and spot ids as indexes into per-block dictionaries (garage 0 is the
+//            deployment's own), then plates as [varint length][UTF-8 bytes]
+// Times are kept to the millisecond. Rows are buffered until a block is full or garage.audit.flush-interval passes.
+// A range read skips blocks by their header and decodes one block at a time, so it holds one block whatever the range.
+// A block that cannot be written stays buffered and is retried on the next flush; rows are dropped, logged and counted
+// only when a full buffer still cannot be written or the log closes with rows it could not write.
+public class StayLog implements ParkingEventHandler, Closeable {
+
+    static final int BLOCK_ROWS = 8192;
+
+    private static final Logger log = LoggerFactory.getLogger(StayLog.class);
+    private static final int MAGIC = 0x53544159; // "STAY"
+    private static final int HEADER_BYTES = 32;
+    private static final Pattern FILE_NAME = Pattern.compile("stays-(\\d{9})\\.col");
+    private static final VehicleSize[] SIZES = VehicleSize.values();
+
+    private final Path directory;
+    private final long segmentSize;
+    private final ScheduledExecutorService flusher;
+    private final LongAdder writeFailures = new LongAdder();
+    private final LongAdder droppedRows = new LongAdder();
+    // Guarded by this
+    private final Columns pending = new Columns();
+    private final List<Segment> segments = new ArrayList<>();
+    private FileChannel active;
+    private boolean open = true;
+
+    private StayLog(Path directory, long segmentSize, Duration flushInterval) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+        try (Stream<Path> paths = Files.list(directory)) {
+            for (Path path : paths.sorted().toList()) {
+                Matcher matcher = FILE_NAME.matcher(path.getFileName().toString());
+                if (matcher.matches()) {
+                    segments.add(Segment.scan(path, Integer.parseInt(matcher.group(1))));
+                }
+            }
+        }
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stay-log-flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long millis = flushInterval.toMillis();
+        flusher.scheduleWithFixedDelay(this::flushQuietly, millis, millis, TimeUnit.MILLISECONDS);
+    }
+
+    public static StayLog open(Path directory, long segmentSize, Duration flushInterval) throws IOException {
+        return new StayLog(directory, segmentSize, flushInterval);
+    }
+
+    @Override
+    public String name() {
+        return "stay-log";
+    }
+
+    @Override
+    public void onEvent(String garageId, ParkingEvent event, long sequence, boolean endOfBatch) throws IOException {
+        if (event instanceof ParkingEvent.CarLeft left) {
+            append(new Stay(garageId, left.car().licensePlate(), left.spot().id(), left.car().size(),
+                    left.car().checkInAt(), left.checkedOutAt(), left.feeCents()));
+        }
+    }
+
+    public synchronized void append(Stay stay) throws IOException {
+        if (!open) {
+            throw new IllegalStateException("Stay log is closed");
+        }
+        if (pending.rows == BLOCK_ROWS) {
+            // A full block an earlier write left behind; with no room for the stay, a second failure drops it
+            try {
+                writeBlock();
+            } catch (IOException | RuntimeException e) {
+                droppedRows.increment();
+                log.error("Dropped the stay of {}: the stay log buffer is full and its block still cannot be written", stay.licensePlate(), e);
+                throw e;
+            }
+        }
+        pending.add(stay);
+        if (pending.rows == BLOCK_ROWS) {
+            writeQuietly();
+        }
+    }
+
+    // Writes buffered rows as a block and forces it to disk
+    public synchronized void flush() throws IOException {
+        if (open && pending.rows > 0) {
+            writeBlock();
+        }
+    }
+
+    public long writeFailures() {
+        return writeFailures.sum();
+    }
+
+    public long droppedRows() {
+        return droppedRows.sum();
+    }
+
+    // Stays checked out at or after from and before to, in the order they were recorded, which is check-out order to
+    // within the few milliseconds concurrent check-outs may race. Covers everything recorded before the call.
+    public Stream<Stay> read(Instant from, Instant to) throws IOException {
+        if (!from.isBefore(to)) {
+            throw new IllegalArgumentException("Range start must be before its end");
+        }
+        List<Segment> overlapping = new ArrayList<>();
+        synchronized (this) {
+            flush();
+            for (Segment segment : segments) {
+                if (segment.overlaps(from, to)) {
+                    overlapping.add(segment.copy());
+                }
+            }
+        }
+        BlockReader reader = new BlockReader(overlapping, from, to);
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(reader, Spliterator.ORDERED | Spliterator.NONNULL), false)
+                .onClose(reader::close);
+    }
+
+    @Override
+    public void close() throws IOException {
+        flusher.shutdownNow();
+        synchronized (this) {
+            if (!open) {
+                return;
+            }
+            try {
+                flush();
+            } finally {
+                if (pending.rows > 0) {
+                    droppedRows.add(pending.rows);
+                    log.error("Dropped {} stays the stay log could not write before closing", pending.rows);
+                    pending.clear();
+                }
+                open = false;
+                if (active != null) {
+                    active.close();
+                }
+            }
+        }
+    }
+
+    // Caller holds this. The rows stay buffered until their block is written, so a failed write is retried whole.
+    private void writeBlock() throws IOException {
+        try {
+            encodeAndWrite();
+        } catch (IOException | RuntimeException e) {
+            writeFailures.increment();
+            throw e;
+        }
+    }
+
+    private void encodeAndWrite() throws IOException {
+        long min = pending.minCheckOut();
+        long max = pending.maxCheckOut();
+        ByteBuffer block = pending.encode(min, max);
+        Segment segment = segments.isEmpty() ? null : segments.get(segments.size() - 1);
+        // Never appends to a segment from an earlier run, whose tail may be torn
+        if (active == null || segment.size + block.remaining() > segmentSize) {
+            if (active != null) {
+                FileChannel previous = active;
+                active = null;
+                previous.close();
+            }
+            int number = segment == null ? 1 : segment.number + 1;
+            Path path = directory.resolve(String.format("stays-%09d.col", number));
+            active = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+            segment = new Segment(path, number);
+            segments.add(segment);
+        }
+        try {
+            while (block.hasRemaining()) {
+                active.write(block);
+            }
+            active.force(false);
+        } catch (IOException e) {
+            // Cut back to the last whole block so the retry, which goes to a fresh segment, is not read twice;
+            // if that fails too, whatever part made it out reads back as a torn tail
+            FileChannel failed = active;
+            active = null;
+            try {
+                failed.truncate(segment.size);
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            try {
+                failed.close();
+            } catch (IOException suppressed) {
+                e.addSuppressed(suppressed);
+            }
+            throw e;
+        }
+        pending.clear();
+        segment.size += block.limit();
+        segment.minCheckOut = Math.min(segment.minCheckOut, min);
+        segment.maxCheckOut = Math.max(segment.maxCheckOut, max);
+    }
+
+    private synchronized void flushQuietly() {
+        if (open && pending.rows > 0) {
+            writeQuietly();
+        }
+    }
+
+    // Caller holds this
+    private void writeQuietly() {
+        try {
+            writeBlock();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Could not write a block of {} stays to {}; keeping them for the next flush", pending.rows, directory, e);
+        }
+    }
+
+    private static final class Segment {
+
+        final Path path;
+        final int number;
+        // Bytes of whole blocks, and the check-out range they cover
+        long size;
+        long minCheckOut = Long.MAX_VALUE;
+        long maxCheckOut = Long.MIN_VALUE;
+
+        Segment(Path path, int number) {
+            this.path = path;
+            this.number = number;
+        }
+
+        // Reads only block headers; stops at the first block a crash left incomplete
+        static Segment scan(Path path, int number) throws IOException {
+            Segment segment = new Segment(path, number);
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                long fileSize = channel.size();
+                while (segment.size + HEADER_BYTES <= fileSize) {
+                    if (!readHeader(channel, segment.size, header) || segment.size + header.getInt(4) > fileSize) {
+                        break;
+                    }
+                    segment.minCheckOut = Math.min(segment.minCheckOut, header.getLong(12));
+                    segment.maxCheckOut = Math.max(segment.maxCheckOut, header.getLong(20));
+                    segment.size += header.getInt(4);
+                }
+            }
+            return segment;
+        }
+
+        boolean overlaps(Instant from, Instant to) {
+            return size > 0 && Instant.ofEpochMilli(minCheckOut).isBefore(to) && !Instant.ofEpochMilli(maxCheckOut).isBefore(from);
+        }
+
+        Segment copy() {
+            Segment copy = new Segment(path, number);
+            copy.size = size;
+            copy.minCheckOut = minCheckOut;
+            copy.maxCheckOut = maxCheckOut;
+            return copy;
+        }
+    }
+
+    // False when there is no intact header at the position
+    private static boolean readHeader(FileChannel channel, long position, ByteBuffer header) throws IOException {
+        header.clear();
+        while (header.hasRemaining()) {
+            if (channel.read(header, position + header.position()) < 0) {
+                return false;
+            }
+        }
+        return header.getInt(0) == MAGIC && header.getInt(4) >= HEADER_BYTES;
+    }
+
+    private static final class BlockReader implements Iterator<Stay> {
+
+        private final Deque<Segment> segments;
+        private final Instant from;
+        private final Instant to;
+        private final ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        private final Deque<Stay> rows = new ArrayDeque<>();
+        private Segment segment;
+        private FileChannel channel;
+        private long position;
+
+        BlockReader(List<Segment> segments, Instant from, Instant to) {
+            this.segments = new ArrayDeque<>(segments);
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        public boolean hasNext() {
+            try {
+                while (rows.isEmpty()) {
+                    if (!nextBlock()) {
+                        return false;
+                    }
+                }
+                return true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        @Override
+        public Stay next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            return rows.removeFirst();
+        }
+
+        void close() {
+            try {
+                if (channel != null) {
+                    channel.close();
+                }
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        // Decodes the next block overlapping the range into rows; false at the end of the last segment
+        private boolean nextBlock() throws IOException {
+            while (true) {
+                if (channel != null && position + HEADER_BYTES <= segment.size && readHeader(channel, position, header)
+                        && position + header.getInt(4) <= segment.size) {
+                    int length = header.getInt(4);
+                    long start = position;
+                    position += length;
+                    if (Instant.ofEpochMilli(header.getLong(12)).isBefore(to) && !Instant.ofEpochMilli(header.getLong(20)).isBefore(from)) {
+                        ByteBuffer body = ByteBuffer.allocate(length - HEADER_BYTES);
+                        while (body.hasRemaining()) {
+                            channel.read(body, start + HEADER_BYTES + body.position());
+                        }
+                        CRC32 crc = new CRC32();
+                        crc.update(body.array());
+                        if ((int) crc.getValue() != header.getInt(28)) {
+                            throw new IOException("Corrupt stay block at " + start + " in " + segment.path);
+                        }
+                        Columns.decode(body.flip(), header.getInt(8), header.getLong(12), stay -> {
+                            if (!stay.checkOutAt().isBefore(from) && stay.checkOutAt().isBefore(to)) {
+                                rows.addLast(stay);
+                            }
+                        });
+                    }
+                    return true;
+                }
+                close();
+                channel = null;
+                if (segments.isEmpty()) {
+                    return false;
+                }
+                segment = segments.removeFirst();
+                channel = FileChannel.open(segment.path, StandardOpenOption.READ);
+                position = 0;
+            }
+        }
+    }
+
+    // Rows of the block being filled, one array per column
+    private static final class Columns {
+
+        final long[] checkOut = new long[BLOCK_ROWS];
+        final long[] checkIn = new long[BLOCK_ROWS];
+        final long[] fee = new long[BLOCK_ROWS];
+        final byte[] size = new byte[BLOCK_ROWS];
+        final String[] garage = new String[BLOCK_ROWS];
+        final String[] spot = new String[BLOCK_ROWS];
+        final String[] plate = new String[BLOCK_ROWS];
+        int rows;
+
+        void add(Stay stay) {
+            checkOut[rows] = stay.checkOutAt().toEpochMilli();
+            checkIn[rows] = stay.checkInAt().toEpochMilli();
+            fee[rows] = stay.feeCents();
+            size[rows] = (byte) stay.size().ordinal();
+            garage[rows] = stay.garageId();
+            spot[rows] = stay.spotId();
+            plate[rows] = stay.licensePlate();
+            rows++;
+        }
+
+        void clear() {
+            Arrays.fill(garage, 0, rows, null);
+            Arrays.fill(spot, 0, rows, null);
+            Arrays.fill(plate, 0, rows, null);
+            rows = 0;
+        }
+
+        long minCheckOut() {
+            long min = Long.MAX_VALUE;
+            for (int i = 0; i < rows; i++) {
+                min = Math.min(min, checkOut[i]);
+            }
+            return min;
+        }
+
+        long maxCheckOut() {
+            long max = Long.MIN_VALUE;
+            for (int i = 0; i < rows; i++) {
+                max = Math.max(max, checkOut[i]);
+            }
+            return max;
+        }
+
+        ByteBuffer encode(long min, long max) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream(rows * 24);
+            long previous = min;
+            for (int i = 0; i < rows; i++) {
+                writeSigned(body, checkOut[i] - previous);
+                previous = checkOut[i];
+            }
+            for (int i = 0; i < rows; i++) {
+                writeSigned(body, checkOut[i] - checkIn[i]);
+            }
+            for (int i = 0; i < rows; i++) {
+                writeSigned(body, fee[i]);
+            }
+            body.write(size, 0, rows);
+            writeDictionary(body, garage);
+            writeDictionary(body, spot);
+            for (int i = 0; i < rows; i++) {
+                writeString(body, plate[i]);
+            }
+
+            byte[] columns = body.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(columns);
+            ByteBuffer block = ByteBuffer.allocate(HEADER_BYTES + columns.length);
+            block.putInt(MAGIC).putInt(block.capacity()).putInt(rows).putLong(min).putLong(max).putInt((int) crc.getValue());
+            return block.put(columns).flip();
+        }
+
+        static void decode(ByteBuffer body, int rows, long min, Consumer<Stay> sink) {
+            long[] checkOut = new long[rows];
+            long previous = min;
+            for (int i = 0; i < rows; i++) {
+                previous += readSigned(body);
+                checkOut[i] = previous;
+            }
+            long[] checkIn = new long[rows];
+            for (int i = 0; i < rows; i++) {
+                checkIn[i] = checkOut[i] - readSigned(body);
+            }
+            long[] fee = new long[rows];
+            for (int i = 0; i < rows; i++) {
+                fee[i] = readSigned(body);
+            }
+            byte[] size = new byte[rows];
+            body.get(size);
+            String[] garage = readDictionary(body, rows);
+            String[] spot = readDictionary(body, rows);
+            for (int i = 0; i < rows; i++) {
+                sink.accept(new Stay(garage[i], readString(body), spot[i], SIZES[size[i]],
+                        Instant.ofEpochMilli(checkIn[i]), Instant.ofEpochMilli(checkOut[i]), fee[i]));
+            }
+        }
+
+        // Index 0 stands for null; the distinct values follow in order of first use
+        private void writeDictionary(ByteArrayOutputStream out, String[] values) {
+            Map<String, Integer> indexes = new HashMap<>();
+            List<String> distinct = new ArrayList<>();
+            int[] column = new int[rows];
+            for (int i = 0; i < rows; i++) {
+                if (values[i] != null) {
+                    column[i] = indexes.computeIfAbsent(values[i], value -> {
+                        distinct.add(value);
+                        return distinct.size();
+                    });
+                }
+            }
+            writeUnsigned(out, distinct.size());
+            distinct.forEach(value -> writeString(out, value));
+            for (int index : column) {
+                writeUnsigned(out, index);
+            }
+        }
+
+        private static String[] readDictionary(ByteBuffer in, int rows) {
+            String[] distinct = new String[(int) readUnsigned(in) + 1];
+            for (int i = 1; i < distinct.length; i++) {
+                distinct[i] = readString(in);
+            }
+            String[] column = new String[rows];
+            for (int i = 0; i < rows; i++) {
+                column[i] = distinct[(int) readUnsigned(in)];
+            }
+            return column;
+        }
+
+        private static void writeString(ByteArrayOutputStream out, String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeUnsigned(out, bytes.length);
+            out.write(bytes, 0, bytes.length);
+        }
+
+        private static String readString(ByteBuffer in) {
+            byte[] bytes = new byte[(int) readUnsigned(in)];
+            in.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        private static void writeSigned(ByteArrayOutputStream out, long value) {
+            writeUnsigned(out, (value << 1) ^ (value >> 63));
+        }
+
+        private static long readSigned(ByteBuffer in) {
+            long zigzag = readUnsigned(in);
+            return (zigzag >>> 1) ^ -(zigzag & 1);
+        }
+
+        private static void writeUnsigned(ByteArrayOutputStream out, long value) {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) (value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.write((int) value);
+        }
+
+        private static long readUnsigned(ByteBuffer in) {
+            long value = 0;
+            for (int shift = 0; ; shift += 7) {
+                byte b = in.get();
+                value |= (long) (b & 0x7F) << shift;
+                if (b >= 0) {
+                    return value;
+                }
+            }
+        }
+    }
+}
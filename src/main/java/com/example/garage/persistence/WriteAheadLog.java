@@ -0,0 +1,354 @@
+package com.example.garage.persistence;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// Append-only journal of garage events in memory-mapped segment files.
+// Appenders copy their record into the active segment and wait; one flusher thread fsyncs on behalf of every
+// appender that arrived since the previous flush (group commit). Compaction folds sealed segments into a snapshot.
+public class WriteAheadLog implements GarageJournal, Closeable {
+
+    private static final Logger log = LoggerFactory.getLogger(WriteAheadLog.class);
+    private static final Pattern FILE_NAME = Pattern.compile("segment-(\\d{9})\\.wal|snapshot-(\\d{9})\\.snap");
+
+    private final Path directory;
+    private final int segmentSize;
+
+    // Guards the active segment and writtenBytes; never held while waiting for a flush
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Condition flushRequested = flushLock.newCondition();
+    private final Condition flushCompleted = flushLock.newCondition();
+
+    private final LongAdder contendedAppends = new LongAdder();
+    private final LongAdder compactionFailures = new LongAdder();
+
+    private final Thread flusher;
+    private final ScheduledExecutorService compactor;
+    private final GarageState recoveredState;
+
+    private Segment active;
+    // Byte counters across all segments written since open; durableBytes trails writtenBytes until the next fsync
+    private volatile long writtenBytes;
+    private volatile long durableBytes;
+    private volatile boolean open = true;
+
+    private WriteAheadLog(Path directory, int segmentSize, Duration compactionInterval) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+
+        Files.createDirectories(directory);
+        this.recoveredState = new GarageState();
+        int lastSegment = replay(recoveredState, Integer.MAX_VALUE);
+        // Never append after a possibly torn tail: every open starts a fresh segment
+        this.active = Segment.create(segmentPath(lastSegment + 1), lastSegment + 1, segmentSize);
+
+        this.flusher = new Thread(this::flushLoop, "wal-flusher");
+        this.flusher.setDaemon(true);
+        this.flusher.start();
+
+        this.compactor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "wal-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (!compactionInterval.isZero() && !compactionInterval.isNegative()) {
+            long millis = compactionInterval.toMillis();
+            compactor.scheduleWithFixedDelay(this::compactQuietly, millis, millis, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public static WriteAheadLog open(Path directory, int segmentSize, Duration compactionInterval) throws IOException {
+        return new WriteAheadLog(directory, segmentSize, compactionInterval);
+    }
+
+    // State rebuilt from the latest snapshot and the segments written after it, as found when the log was opened
+    public GarageState recoveredState() {
+        return recoveredState;
+    }
+
+    @Override
+    public void append(GarageEvent event) {
+        appendAll(List.of(event));
+    }
+
+    // Written back to back and covered by a single wait for durability
+    @Override
+    public void appendAll(List<GarageEvent> events) {
+        List<byte[]> records = new ArrayList<>(events.size());
+        for (GarageEvent event : events) {
+            byte[] record = EventCodec.encode(event);
+            if (record.length > segmentSize) {
+                throw new IllegalArgumentException("Journal record of " + record.length + " bytes exceeds the segment size");
+            }
+            records.add(record);
+        }
+
+        long end;
+        if (!appendLock.tryLock()) {
+            contendedAppends.increment();
+            appendLock.lock();
+        }
+        try {
+            if (!open) {
+                throw new IllegalStateException("Write-ahead log is closed");
+            }
+            for (byte[] record : records) {
+                if (active.buffer.remaining() < record.length) {
+                    roll();
+                }
+                active.buffer.put(record);
+                writtenBytes += record.length;
+            }
+            end = writtenBytes;
+        } finally {
+            appendLock.unlock();
+        }
+        awaitDurable(end);
+    }
+
+    public long contendedAppends() {
+        return contendedAppends.sum();
+    }
+
+    public long compactionFailures() {
+        return compactionFailures.sum();
+    }
+
+    // Seals the active segment and replaces the snapshot and every sealed segment with a new snapshot
+    public synchronized void compact() throws IOException {
+        int firstLive;
+        appendLock.lock();
+        try {
+            if (!open) {
+                return;
+            }
+            roll();
+            firstLive = active.number;
+        } finally {
+            appendLock.unlock();
+        }
+
+        GarageState state = new GarageState();
+        replay(state, firstLive);
+
+        Path temporary = directory.resolve("snapshot.tmp");
+        SnapshotFile.write(temporary, state);
+        // The snapshot is named after the first segment it does not cover
+        Files.move(temporary, snapshotPath(firstLive), StandardCopyOption.ATOMIC_MOVE);
+
+        for (LogFile file : listFiles()) {
+            if (file.number < firstLive || (file.snapshot && file.number != firstLive)) {
+                Files.deleteIfExists(file.path);
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        compactor.shutdownNow();
+        appendLock.lock();
+        try {
+            if (!open) {
+                return;
+            }
+            open = false;
+            active.close();
+        } finally {
+            appendLock.unlock();
+        }
+        flushLock.lock();
+        try {
+            durableBytes = writtenBytes;
+            flushRequested.signalAll();
+            flushCompleted.signalAll();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void awaitDurable(long end) {
+        flushLock.lock();
+        try {
+            flushRequested.signal();
+            while (durableBytes < end) {
+                flushCompleted.awaitUninterruptibly();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    private void flushLoop() {
+        while (true) {
+            flushLock.lock();
+            try {
+                while (open && durableBytes >= writtenBytes) {
+                    flushRequested.awaitUninterruptibly();
+                }
+                if (!open) {
+                    return;
+                }
+            } finally {
+                flushLock.unlock();
+            }
+
+            long target;
+            MappedByteBuffer buffer;
+            appendLock.lock();
+            try {
+                target = writtenBytes;
+                buffer = active.buffer;
+            } finally {
+                appendLock.unlock();
+            }
+            // Every record up to target is covered by this one fsync
+            buffer.force();
+
+            flushLock.lock();
+            try {
+                if (target > durableBytes) {
+                    durableBytes = target;
+                }
+                flushCompleted.signalAll();
+            } finally {
+                flushLock.unlock();
+            }
+        }
+    }
+
+    // Caller holds appendLock
+    private void roll() {
+        try {
+            active.close();
+            int next = active.number + 1;
+            active = Segment.create(segmentPath(next), next, segmentSize);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        flushLock.lock();
+        try {
+            // Closing forced the sealed segment, so everything written so far is durable
+            durableBytes = writtenBytes;
+            flushCompleted.signalAll();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // Applies the latest snapshot and the segments after it, stopping before segment number `before`;
+    // returns the highest segment number seen
+    private int replay(GarageState state, int before) throws IOException {
+        List<LogFile> files = listFiles();
+        int snapshot = files.stream()
+                .filter(file -> file.snapshot && file.number <= before)
+                .mapToInt(file -> file.number)
+                .max()
+                .orElse(0);
+        int last = 0;
+        for (LogFile file : files) {
+            last = Math.max(last, file.number);
+            boolean replayed = file.snapshot ? file.number == snapshot : file.number >= snapshot && file.number < before;
+            if (file.snapshot && replayed) {
+                SnapshotFile.read(file.path, state);
+            } else if (replayed) {
+                read(file.path, state);
+            }
+        }
+        return last;
+    }
+
+    private static void read(Path path, GarageState state) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            EventCodec.decodeAll(buffer, state::apply);
+        }
+    }
+
+    private List<LogFile> listFiles() throws IOException {
+        try (Stream<Path> paths = Files.list(directory)) {
+            return paths.map(LogFile::parse)
+                    .filter(file -> file != null)
+                    // Within one number the snapshot comes first: it precedes the segment it is named after
+                    .sorted((a, b) -> a.number != b.number ? Integer.compare(a.number, b.number) : Boolean.compare(b.snapshot, a.snapshot))
+                    .toList();
+        }
+    }
+
+    private Path segmentPath(int number) {
+        return directory.resolve(String.format("segment-%09d.wal", number));
+    }
+
+    private Path snapshotPath(int number) {
+        return directory.resolve(String.format("snapshot-%09d.snap", number));
+    }
+
+    private void compactQuietly() {
+        try {
+            compact();
+        } catch (IOException | RuntimeException e) {
+            // Compaction only bounds replay time; the log stays correct without it, so retry on the next tick
+            compactionFailures.increment();
+            log.warn("Journal compaction in {} failed; retrying on the next tick", directory, e);
+        }
+    }
+
+    private record LogFile(Path path, int number, boolean snapshot) {
+
+        static LogFile parse(Path path) {
+            Matcher matcher = FILE_NAME.matcher(path.getFileName().toString());
+            if (!matcher.matches()) {
+                return null;
+            }
+            boolean snapshot = matcher.group(1) == null;
+            return new LogFile(path, Integer.parseInt(snapshot ? matcher.group(2) : matcher.group(1)), snapshot);
+        }
+    }
+
+    private static final class Segment {
+
+        private final int number;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+
+        private Segment(int number, FileChannel channel, MappedByteBuffer buffer) {
+            this.number = number;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        static Segment create(Path path, int number, int size) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ,
+                    StandardOpenOption.WRITE);
+            // Mapping past the end grows the file; the zero-filled tail reads back as end-of-log
+            return new Segment(number, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+
+        void close() throws IOException {
+            buffer.force();
+            channel.close();
+        }
+    }
+}
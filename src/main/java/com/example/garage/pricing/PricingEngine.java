@@ -0,0 +1,98 @@
+package com.example.garage.pricing;
+
+import com.example.garage.model.ParkingSpot;
+import com.example.garage.model.VehicleSize;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+
+// Prices stays from the current rate table. Replacing the tariff compiles a new table off to the side and publishes it
+// with one volatile write, so check-outs never wait and each one prices against a single, complete tariff.
+@Component
+public class PricingEngine {
+
+    // Spots carrying this feature are charged the premium rate
+    static final String EV_CHARGING = "EV_CHARGING";
+
+    private final ZoneId zone;
+    private volatile RateTable rates;
+
+    @Autowired
+    public PricingEngine(@Value("${parking.rate.hourly:5.00}") BigDecimal hourlyRate,
+                         @Value("${parking.rate.premium.ev:7.50}") BigDecimal evHourlyRate,
+                         @Value("${parking.rate.size:}") String sizeRates,
+                         @Value("${parking.rate.grace-period:0m}") Duration gracePeriod,
+                         @Value("${parking.rate.daily-max:}") String dailyMax,
+                         @Value("${parking.rate.time-bands:}") String timeBands,
+                         Clock clock) {
+        this(new Tariff(hourlyRate, evHourlyRate, parseSizeRates(sizeRates), gracePeriod,
+                dailyMax.isBlank() ? null : new BigDecimal(dailyMax.trim()), parseTimeBands(timeBands)), clock.getZone());
+    }
+
+    // Time bands are read in the given zone
+    public PricingEngine(Tariff tariff, ZoneId zone) {
+        this.zone = zone;
+        this.rates = new RateTable(tariff, zone);
+    }
+
+    public long feeCents(ParkingSpot spot, Instant checkIn, Instant checkOut) {
+        return rates.feeCents(spot.size(), spot.features() != null && spot.features().contains(EV_CHARGING), checkIn, checkOut);
+    }
+
+    public Tariff tariff() {
+        return rates.tariff();
+    }
+
+    // Throws IllegalArgumentException, leaving the current tariff in place, if the new one does not compile
+    public Tariff replace(Tariff tariff) {
+        rates = new RateTable(tariff, zone);
+        return tariff;
+    }
+
+    // COMPACT=4.00,OVERSIZED=8.00
+    private static Map<VehicleSize, BigDecimal> parseSizeRates(String value) {
+        Map<VehicleSize, BigDecimal> rates = new EnumMap<>(VehicleSize.class);
+        for (String entry : entries(value)) {
+            String[] parts = entry.split("=", 2);
+            if (parts.length != 2) {
+                throw new IllegalArgumentException("Size rates must look like COMPACT=4.00, got " + entry);
+            }
+            rates.put(VehicleSize.valueOf(parts[0].trim()), new BigDecimal(parts[1].trim()));
+        }
+        return rates;
+    }
+
+    // 07:00-10:00=1.5,22:00-06:00=0.5
+    private static List<Tariff.TimeBand> parseTimeBands(String value) {
+        List<Tariff.TimeBand> bands = new ArrayList<>();
+        for (String entry : entries(value)) {
+            String[] parts = entry.split("[-=]");
+            if (parts.length != 3) {
+                throw new IllegalArgumentException("Time bands must look like 07:00-10:00=1.5, got " + entry);
+            }
+            bands.add(new Tariff.TimeBand(LocalTime.parse(parts[0].trim()), LocalTime.parse(parts[1].trim()), new BigDecimal(parts[2].trim())));
+        }
+        return bands;
+    }
+
+    private static List<String> entries(String value) {
+        List<String> entries = new ArrayList<>();
+        for (String entry : value.split(",")) {
+            if (!entry.isBlank()) {
+                entries.add(entry.trim());
+            }
+        }
+        return entries;
+    }
+}
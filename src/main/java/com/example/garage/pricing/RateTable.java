@@ -0,0 +1,138 @@
+package com.example.garage.pricing;
+
+import com.example.garage.model.VehicleSize;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.zone.ZoneRules;
+
+// A Tariff compiled for one time zone. For every rate class (spot size, with or without EV charging) it holds the
+// cumulative price of each minute of the day, so the fee for a stay of any length is a few array reads.
+//
+// Prices are kept in units of 1/6000 cent: one minute at an hourly rate of r cents costs r * 100 units exactly, and
+// only the final fee is rounded, half up, to whole cents.
+final class RateTable {
+
+    private static final int MINUTES_PER_DAY = 24 * 60;
+    private static final long UNITS_PER_CENT = 6000;
+    private static final BigDecimal UNITS_PER_MINUTE_AT_ONE_PER_HOUR = BigDecimal.valueOf(100 * UNITS_PER_CENT / 60);
+    private static final VehicleSize[] SIZES = VehicleSize.values();
+
+    private final Tariff tariff;
+    private final ZoneRules zone;
+    private final long graceMinutes;
+    private final long dailyMaxUnits;
+    // Indexed by size ordinal * 2 + (EV ? 1 : 0); entry m is the price of the day's first m minutes
+    private final long[][] cumulative = new long[SIZES.length * 2][];
+
+    RateTable(Tariff tariff, ZoneId zone) {
+        this.tariff = tariff;
+        this.zone = zone.getRules();
+        this.graceMinutes = tariff.gracePeriod() == null ? 0 : requireNonNegative(tariff.gracePeriod().toMinutes(), "Grace period");
+        this.dailyMaxUnits = tariff.dailyMax() == null ? Long.MAX_VALUE : amountUnits(tariff.dailyMax());
+
+        BigDecimal[] multipliers = minuteMultipliers(tariff);
+        for (VehicleSize size : SIZES) {
+            BigDecimal sizeRate = tariff.sizeRates() == null ? null : tariff.sizeRates().get(size);
+            BigDecimal rate = sizeRate != null ? sizeRate : tariff.hourlyRate();
+            if (rate == null) {
+                throw new IllegalArgumentException("Hourly rate cannot be null");
+            }
+            cumulative[size.ordinal() * 2] = compile(rate, multipliers);
+            cumulative[size.ordinal() * 2 + 1] = tariff.evHourlyRate() == null
+                    ? cumulative[size.ordinal() * 2]
+                    : compile(tariff.evHourlyRate(), multipliers);
+        }
+    }
+
+    Tariff tariff() {
+        return tariff;
+    }
+
+    long feeCents(VehicleSize spotSize, boolean evCharging, Instant checkIn, Instant checkOut) {
+        long seconds = checkOut.getEpochSecond() - checkIn.getEpochSecond() - (checkOut.getNano() < checkIn.getNano() ? 1 : 0);
+        long minutes = seconds / 60;
+        if (minutes <= 0 || minutes < graceMinutes) {
+            return 0;
+        }
+        long[] prices = cumulative[spotSize.ordinal() * 2 + (evCharging ? 1 : 0)];
+        long localSecond = checkIn.getEpochSecond() + zone.getOffset(checkIn).getTotalSeconds();
+        int start = (int) (Math.floorMod(localSecond, 86_400L) / 60);
+
+        long days = minutes / MINUTES_PER_DAY;
+        int rest = (int) (minutes % MINUTES_PER_DAY);
+        int end = start + rest;
+        long partial = end <= MINUTES_PER_DAY
+                ? prices[end] - prices[start]
+                : prices[MINUTES_PER_DAY] - prices[start] + prices[end - MINUTES_PER_DAY];
+        long units = days * Math.min(prices[MINUTES_PER_DAY], dailyMaxUnits) + Math.min(partial, dailyMaxUnits);
+        return (units + UNITS_PER_CENT / 2) / UNITS_PER_CENT;
+    }
+
+    private static long[] compile(BigDecimal hourlyRate, BigDecimal[] multipliers) {
+        long[] prices = new long[MINUTES_PER_DAY + 1];
+        for (int minute = 0; minute < MINUTES_PER_DAY; minute++) {
+            prices[minute + 1] = prices[minute] + units(hourlyRate, multipliers[minute], "Hourly rate");
+        }
+        return prices;
+    }
+
+    // Price of one minute at the given hourly rate and multiplier
+    private static long units(BigDecimal hourlyRate, BigDecimal multiplier, String name) {
+        if (hourlyRate.signum() < 0) {
+            throw new IllegalArgumentException(name + " cannot be negative");
+        }
+        return hourlyRate.multiply(multiplier).multiply(UNITS_PER_MINUTE_AT_ONE_PER_HOUR)
+                .setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    private static long amountUnits(BigDecimal amount) {
+        if (amount.signum() < 0) {
+            throw new IllegalArgumentException("Daily maximum cannot be negative");
+        }
+        return amount.multiply(BigDecimal.valueOf(100 * UNITS_PER_CENT)).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    private static BigDecimal[] minuteMultipliers(Tariff tariff) {
+        BigDecimal[] multipliers = new BigDecimal[MINUTES_PER_DAY];
+        if (tariff.timeBands() != null) {
+            for (Tariff.TimeBand band : tariff.timeBands()) {
+                if (band == null || band.from() == null || band.to() == null || band.multiplier() == null) {
+                    throw new IllegalArgumentException("Time bands need a from time, a to time and a multiplier");
+                }
+                if (band.multiplier().signum() < 0) {
+                    throw new IllegalArgumentException("Time band multiplier cannot be negative");
+                }
+                int from = minuteOf(band.from());
+                int length = Math.floorMod(minuteOf(band.to()) - from - 1, MINUTES_PER_DAY) + 1;
+                for (int i = 0; i < length; i++) {
+                    int minute = (from + i) % MINUTES_PER_DAY;
+                    if (multipliers[minute] != null) {
+                        throw new IllegalArgumentException("Time bands overlap at " + LocalTime.ofSecondOfDay(minute * 60L));
+                    }
+                    multipliers[minute] = band.multiplier();
+                }
+            }
+        }
+        for (int minute = 0; minute < MINUTES_PER_DAY; minute++) {
+            if (multipliers[minute] == null) {
+                multipliers[minute] = BigDecimal.ONE;
+            }
+        }
+        return multipliers;
+    }
+
+    private static int minuteOf(LocalTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+
+    private static long requireNonNegative(long value, String name) {
+        if (value < 0) {
+            throw new IllegalArgumentException(name + " cannot be negative");
+        }
+        return value;
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.garage.pricing;
+
+import com.example.garage.model.VehicleSize;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.Map;
+
+// Pricing rules in currency units per hour. A stay shorter than gracePeriod is free. Otherwise every minute is charged
+// at the spot's hourly rate: evHourlyRate for EV charging spots, else the spot size's rate, else hourlyRate. Time bands
+// scale the rate for the minutes they cover, and dailyMax caps each 24 hours counted from check-in. Null optional
+// fields mean no rule.
+public record Tariff(
+        BigDecimal hourlyRate,
+        BigDecimal evHourlyRate,
+        Map<VehicleSize, BigDecimal> sizeRates,
+        Duration gracePeriod,
+        BigDecimal dailyMax,
+        List<TimeBand> timeBands
+) {
+
+    // `to` is exclusive and may be earlier than `from` for a band that runs past midnight; equal times cover the whole day
+    public record TimeBand(LocalTime from, LocalTime to, BigDecimal multiplier) {
+    }
+
+    public static Tariff flat(BigDecimal hourlyRate, BigDecimal evHourlyRate) {
+        return new Tariff(hourlyRate, evHourlyRate, Map.of(), Duration.ZERO, null, List.of());
+    }
+}
@@ -0,0 +1,635 @@
+package com.example.garage.repository;
+
+import com.example.garage.model.OccupancyCount;
+import com.example.garage.model.ParkingSpot;
+import com.example.garage.model.ParkingStatus;
+import com.example.garage.model.SpotFeatures;
+import com.example.garage.model.SpotFilter;
+import com.example.garage.model.VehicleSize;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.AbstractCollection;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+// Structure-of-arrays spot store for very large garages. A spot is an int index into fixed-size chunks of primitive
+// columns (short level, int number, byte size and status, long feature bitmask); ParkingSpot records are built only
+// as views when a spot leaves the repository. Each partition's free-spot index is a bitmap over its members.
+//
+// Writers to a spot hold its lock stripe and make the spot's version odd while they write its columns, so views are
+// read without locking and retried if they overlapped a write. Because views are rebuilt on every read, replace()
+// compares by value rather than by identity.
+@Repository
+@ConditionalOnProperty(name = "garage.spot-store", havingValue = "arrays")
+public class ArrayParkingSpotRepository implements ParkingSpotRepository {
+
+    private static final int CHUNK_BITS = 14;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+    private static final int LOCK_STRIPES = 256;
+
+    private static final VarHandle VERSIONS = MethodHandles.arrayElementVarHandle(int[].class);
+    private static final ParkingStatus[] STATUSES = ParkingStatus.values();
+    private static final VehicleSize[] SIZES = VehicleSize.values();
+
+    private final SpotIdIndex indexes = new SpotIdIndex();
+    // Every stored id in order, so listings can resume after any id; spots are never removed
+    private final NavigableSet<String> spotIds = new ConcurrentSkipListSet<>();
+
+    // Serializes new spots; never taken while holding a stripe
+    private final Object appendLock = new Object();
+    private final Object[] stripes = new Object[LOCK_STRIPES];
+    private volatile Chunk[] chunks = new Chunk[0];
+    private volatile int spotCount;
+
+    // Free-spot index: per spot size, one partition per level (lowest level first)
+    private final Map<VehicleSize, ConcurrentNavigableMap<Integer, Partition>> partitions = new EnumMap<>(VehicleSize.class);
+    private final SpotFeatures features = new SpotFeatures();
+    private final OccupancyCounters occupancy = new OccupancyCounters(features);
+    private final FeatureIndex featureIndex = new FeatureIndex(occupancy);
+    private final SpotChangeRing changes;
+
+    public ArrayParkingSpotRepository() {
+        this(SpotChangeRing.DEFAULT_CAPACITY);
+    }
+
+    @Autowired
+    public ArrayParkingSpotRepository(@Value("${garage.events.buffer-size:" + SpotChangeRing.DEFAULT_CAPACITY + "}") int changeBufferSize) {
+        this.changes = new SpotChangeRing(changeBufferSize);
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            stripes[i] = new Object();
+        }
+        for (VehicleSize size : VehicleSize.values()) {
+            partitions.put(size, new ConcurrentSkipListMap<>());
+        }
+    }
+
+    // A view over the columns; each element is built as it is iterated
+    @Override
+    public Collection<ParkingSpot> findAll() {
+        return new AbstractCollection<>() {
+            @Override
+            public Iterator<ParkingSpot> iterator() {
+                return IntStream.range(0, spotCount).mapToObj(ArrayParkingSpotRepository.this::view).iterator();
+            }
+
+            @Override
+            public int size() {
+                return spotCount;
+            }
+        };
+    }
+
+    @Override
+    public Stream<ParkingSpot> findAll(SpotFilter filter, String afterId) {
+        NavigableSet<String> ids = afterId == null ? spotIds : spotIds.tailSet(afterId, false);
+        return ids.stream()
+                .map(id -> view(indexes.get(id)))
+                .filter(filter::matches);
+    }
+
+    @Override
+    public Optional<ParkingSpot> findFirstAvailable() {
+        for (VehicleSize size : SIZES) {
+            Optional<ParkingSpot> spot = findFirstAvailable(size);
+            if (spot.isPresent()) {
+                return spot;
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<ParkingSpot> findFirstAvailable(VehicleSize size) {
+        // Spill over to the next level only once a partition is empty
+        for (Partition partition : partitions.get(size).values()) {
+            ParkingSpot spot = partition.nextAvailable(partition.slots, 0);
+            if (spot != null) {
+                return Optional.of(spot);
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<ParkingSpot> findAnyAvailable(VehicleSize size) {
+        for (Partition partition : partitions.get(size).values()) {
+            Slots slots = partition.slots;
+            if (slots.count() == 0) {
+                continue;
+            }
+            // From a random position, then from the start for the free spots before it
+            ParkingSpot spot = partition.nextAvailable(slots, ThreadLocalRandom.current().nextInt(slots.count()));
+            if (spot == null) {
+                spot = partition.nextAvailable(slots, 0);
+            }
+            if (spot != null) {
+                return Optional.of(spot);
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<ParkingSpot> findFirstAvailable(VehicleSize size, long featureMask) {
+        return featureMask == SpotFeatures.NONE ? findFirstAvailable(size) : Optional.ofNullable(featureIndex.firstFree(size, featureMask));
+    }
+
+    @Override
+    public Iterator<ParkingSpot> availableSpots(VehicleSize size) {
+        Iterator<Partition> levels = partitions.get(size).values().iterator();
+        return new Iterator<>() {
+            private Partition partition;
+            private Slots slots;
+            private int position;
+            private ParkingSpot next;
+
+            @Override
+            public boolean hasNext() {
+                while (next == null) {
+                    if (partition != null) {
+                        position = slots.nextFree(position);
+                        if (position >= 0) {
+                            next = partition.availableAt(slots, position++);
+                            continue;
+                        }
+                    }
+                    if (!levels.hasNext()) {
+                        return false;
+                    }
+                    partition = levels.next();
+                    slots = partition.slots;
+                    position = 0;
+                }
+                return true;
+            }
+
+            @Override
+            public ParkingSpot next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                ParkingSpot spot = next;
+                next = null;
+                return spot;
+            }
+        };
+    }
+
+    @Override
+    public Collection<ParkingSpot> findAllAvailable() {
+        List<ParkingSpot> available = new ArrayList<>();
+        for (VehicleSize size : SIZES) {
+            availableSpots(size).forEachRemaining(available::add);
+        }
+        return available;
+    }
+
+    @Override
+    public ParkingSpot save(ParkingSpot unbound) {
+        requireShortLevel(unbound);
+        ParkingSpot spot = features.bind(unbound);
+        int index = indexes.get(spot.id());
+        if (index == SpotIdIndex.ABSENT) {
+            append(spot, spot.featureMask());
+        } else {
+            write(index, null, spot, spot.featureMask(), null);
+        }
+        return spot;
+    }
+
+    @Override
+    public void saveAll(Collection<ParkingSpot> spots) {
+        for (ParkingSpot spot : spots) {
+            save(spot);
+        }
+    }
+
+    @Override
+    public boolean replace(ParkingSpot expected, ParkingSpot updated) {
+        return replace(expected, updated, null);
+    }
+
+    @Override
+    public boolean replace(ParkingSpot expected, ParkingSpot updated, Runnable beforeVisible) {
+        int index = indexes.get(expected.id());
+        if (index == SpotIdIndex.ABSENT) {
+            return false;
+        }
+        requireShortLevel(updated);
+        ParkingSpot spot = unbound(updated) ? features.bind(updated) : updated;
+        return write(index, expected, spot, spot.featureMask(), beforeVisible);
+    }
+
+    @Override
+    public Optional<ParkingSpot> findById(String id) {
+        int index = indexes.get(id);
+        return index == SpotIdIndex.ABSENT ? Optional.empty() : Optional.of(view(index));
+    }
+
+    @Override
+    public boolean existsById(String id) {
+        return indexes.get(id) != SpotIdIndex.ABSENT;
+    }
+
+    @Override
+    public Set<String> findExistingIds(Collection<String> ids) {
+        Set<String> existing = new LinkedHashSet<>();
+        for (String id : ids) {
+            if (existsById(id)) {
+                existing.add(id);
+            }
+        }
+        return existing;
+    }
+
+    @Override
+    public SpotFeatures features() {
+        return features;
+    }
+
+    @Override
+    public SpotChangeRing changes() {
+        return changes;
+    }
+
+    @Override
+    public OccupancyCount occupancy() {
+        return occupancy.total();
+    }
+
+    @Override
+    public OccupancyCount occupancy(VehicleSize size) {
+        return occupancy.ofSize(size);
+    }
+
+    @Override
+    public OccupancyCount occupancy(int level) {
+        return occupancy.ofLevel(level);
+    }
+
+    @Override
+    public OccupancyCount occupancyOfFeature(String feature) {
+        return occupancy.ofFeature(feature);
+    }
+
+    @Override
+    public Map<Integer, OccupancyCount> occupancyByLevel() {
+        return occupancy.byLevel();
+    }
+
+    @Override
+    public Map<VehicleSize, OccupancyCount> occupancyBySize() {
+        return occupancy.bySize();
+    }
+
+    @Override
+    public Map<String, OccupancyCount> occupancyByFeature() {
+        return occupancy.byFeature();
+    }
+
+    private static void requireShortLevel(ParkingSpot spot) {
+        if (spot.level() < Short.MIN_VALUE || spot.level() > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Level " + spot.level() + " is out of range for the array spot store");
+        }
+    }
+
+    private void append(ParkingSpot spot, long featureMask) {
+        synchronized (appendLock) {
+            int existing = indexes.get(spot.id());
+            if (existing != SpotIdIndex.ABSENT) {
+                // Lost a race with another save of the same new id
+                write(existing, null, spot, featureMask, null);
+                return;
+            }
+            int index = spotCount;
+            if ((index >>> CHUNK_BITS) == chunks.length) {
+                Chunk[] grown = Arrays.copyOf(chunks, chunks.length + 1);
+                grown[chunks.length] = new Chunk();
+                chunks = grown;
+            }
+            synchronized (stripe(index)) {
+                Chunk chunk = chunk(index);
+                int slot = index & CHUNK_MASK;
+                chunk.ids[slot] = spot.id();
+                store(chunk, slot, spot, featureMask);
+                indexes.put(spot.id(), index);
+                spotIds.add(spot.id());
+                spotCount = index + 1;
+
+                Partition partition = partitionOf(spot.size(), spot.level());
+                partition.insert(index);
+                if (spot.status() == ParkingStatus.AVAILABLE) {
+                    featureIndex.markFree(spot);
+                }
+                count(partition, spot.status(), featureMask, 1);
+                changes.publish(spot);
+            }
+        }
+    }
+
+    // Unconditional when expected is null; otherwise only if the stored spot still equals expected. beforeVisible, if
+    // any, runs under the stripe before the first column changes, so throwing leaves the spot untouched.
+    private boolean write(int index, ParkingSpot expected, ParkingSpot updated, long featureMask, Runnable beforeVisible) {
+        synchronized (stripe(index)) {
+            Chunk chunk = chunk(index);
+            int slot = index & CHUNK_MASK;
+            if (expected != null && !matches(chunk, slot, expected)) {
+                return false;
+            }
+            if (beforeVisible != null) {
+                beforeVisible.run();
+            }
+            // Columns only change under this stripe, so plain reads see the current values
+            int previousLevel = chunk.levels[slot];
+            int previousNumber = chunk.numbers[slot];
+            VehicleSize previousSize = SIZES[chunk.sizes[slot]];
+            ParkingStatus previousStatus = STATUSES[chunk.statuses[slot]];
+            long previousFeatures = chunk.features[slot];
+
+            Partition previousPartition = partitions.get(previousSize).get(previousLevel);
+            Partition partition = previousLevel == updated.level() && previousSize == updated.size()
+                    ? previousPartition
+                    : partitionOf(updated.size(), updated.level());
+            // A new number can change the spot's place in its partition's order
+            boolean moved = partition != previousPartition || previousNumber != updated.number();
+            if (moved) {
+                previousPartition.remove(index);
+            }
+            if (previousStatus == ParkingStatus.AVAILABLE && previousFeatures != SpotFeatures.NONE) {
+                featureIndex.markTaken(new ParkingSpot(chunk.ids[slot], previousLevel, previousNumber, previousStatus, previousSize,
+                        features.names(previousFeatures), previousFeatures));
+            }
+            store(chunk, slot, updated, featureMask);
+            if (moved) {
+                partition.insert(index);
+            } else if (previousStatus != updated.status()) {
+                partition.setFree(index, updated.status() == ParkingStatus.AVAILABLE);
+            }
+            if (updated.status() == ParkingStatus.AVAILABLE) {
+                featureIndex.markFree(updated);
+            }
+
+            if (partition == previousPartition && previousFeatures == featureMask) {
+                long freeDelta = free(updated.status()) - free(previousStatus);
+                if (freeDelta != 0) {
+                    tally(partition, featureMask, 0, freeDelta);
+                }
+            } else {
+                count(previousPartition, previousStatus, previousFeatures, -1);
+                count(partition, updated.status(), featureMask, 1);
+            }
+            if (previousStatus != updated.status()) {
+                changes.publish(updated.id(), updated.level(), updated.size(), updated.status());
+            }
+            return true;
+        }
+    }
+
+    // Caller holds the spot's stripe
+    private boolean matches(Chunk chunk, int slot, ParkingSpot expected) {
+        if (chunk.levels[slot] != expected.level()
+                || chunk.numbers[slot] != expected.number()
+                || SIZES[chunk.sizes[slot]] != expected.size()
+                || STATUSES[chunk.statuses[slot]] != expected.status()) {
+            return false;
+        }
+        return chunk.features[slot] == (unbound(expected) ? features.lookup(expected.features()) : expected.featureMask());
+    }
+
+    // Spots read from this store carry its bits; one built elsewhere with features but no mask is looked up
+    private static boolean unbound(ParkingSpot spot) {
+        return spot.featureMask() == SpotFeatures.NONE && spot.features() != null && !spot.features().isEmpty();
+    }
+
+    // Caller holds the spot's stripe; the odd version tells readers a write is in progress
+    private static void store(Chunk chunk, int slot, ParkingSpot spot, long featureMask) {
+        int version = chunk.versions[slot];
+        VERSIONS.setOpaque(chunk.versions, slot, version + 1);
+        VarHandle.storeStoreFence();
+        chunk.levels[slot] = (short) spot.level();
+        chunk.numbers[slot] = spot.number();
+        chunk.sizes[slot] = (byte) spot.size().ordinal();
+        chunk.statuses[slot] = (byte) spot.status().ordinal();
+        chunk.features[slot] = featureMask;
+        VERSIONS.setRelease(chunk.versions, slot, version + 2);
+    }
+
+    private ParkingSpot view(int index) {
+        Chunk chunk = chunk(index);
+        int slot = index & CHUNK_MASK;
+        while (true) {
+            int version = (int) VERSIONS.getAcquire(chunk.versions, slot);
+            if ((version & 1) == 0) {
+                int level = chunk.levels[slot];
+                int number = chunk.numbers[slot];
+                byte size = chunk.sizes[slot];
+                byte status = chunk.statuses[slot];
+                long featureMask = chunk.features[slot];
+                VarHandle.loadLoadFence();
+                if ((int) VERSIONS.getOpaque(chunk.versions, slot) == version) {
+                    return new ParkingSpot(chunk.ids[slot], level, number, STATUSES[status], SIZES[size],
+                            features.names(featureMask), featureMask);
+                }
+            }
+            Thread.onSpinWait();
+        }
+    }
+
+    private void count(Partition partition, ParkingStatus status, long featureMask, long sign) {
+        tally(partition, featureMask, sign, sign * free(status));
+    }
+
+    private void tally(Partition partition, long featureMask, long spotDelta, long freeDelta) {
+        occupancy.add(partition.occupancy, partition.size, spotDelta, freeDelta);
+        occupancy.addFeatures(featureMask, spotDelta, freeDelta);
+    }
+
+    private static long free(ParkingStatus status) {
+        return status == ParkingStatus.AVAILABLE ? 1 : 0;
+    }
+
+    private Partition partitionOf(VehicleSize size, int level) {
+        return partitions.get(size).computeIfAbsent(level, l -> new Partition(size, occupancy.levelTally(l)));
+    }
+
+    private Chunk chunk(int index) {
+        return chunks[index >>> CHUNK_BITS];
+    }
+
+    private Object stripe(int index) {
+        return stripes[index & (LOCK_STRIPES - 1)];
+    }
+
+    private int positionOf(int index) {
+        return chunk(index).positions[index & CHUNK_MASK];
+    }
+
+    private static final class Chunk {
+
+        final String[] ids = new String[CHUNK_SIZE];
+        final short[] levels = new short[CHUNK_SIZE];
+        final int[] numbers = new int[CHUNK_SIZE];
+        final byte[] sizes = new byte[CHUNK_SIZE];
+        final byte[] statuses = new byte[CHUNK_SIZE];
+        final long[] features = new long[CHUNK_SIZE];
+        final int[] versions = new int[CHUNK_SIZE];
+        // Place in the spot's partition; guarded by that partition
+        final int[] positions = new int[CHUNK_SIZE];
+    }
+
+    // Members of one partition ordered by (number, id), and a bitmap of which positions are free. Appending in order
+    // reuses the arrays; anything else publishes a rebuilt copy, so readers always see a consistent pair.
+    private record Slots(int[] members, AtomicLongArray free, int count) {
+
+        int nextFree(int from) {
+            for (int word = from >>> 6; word << 6 < count; word++) {
+                long bits = free.get(word);
+                if (word == from >>> 6) {
+                    bits &= -1L << (from & 63);
+                }
+                if (bits != 0) {
+                    int position = (word << 6) + Long.numberOfTrailingZeros(bits);
+                    return position < count ? position : -1;
+                }
+            }
+            return -1;
+        }
+    }
+
+    private final class Partition {
+
+        final VehicleSize size;
+        // Shared with the other sizes' partitions on the same level
+        final OccupancyTally occupancy;
+        volatile Slots slots = new Slots(new int[64], new AtomicLongArray(1), 0);
+
+        Partition(VehicleSize size, OccupancyTally occupancy) {
+            this.size = size;
+            this.occupancy = occupancy;
+        }
+
+        // First spot at or after `from` that is free in the bitmap and still available when viewed
+        ParkingSpot nextAvailable(Slots slots, int from) {
+            for (int position = slots.nextFree(from); position >= 0; position = slots.nextFree(position + 1)) {
+                ParkingSpot spot = availableAt(slots, position);
+                if (spot != null) {
+                    return spot;
+                }
+            }
+            return null;
+        }
+
+        // Null if the spot changed after this snapshot was taken
+        ParkingSpot availableAt(Slots slots, int position) {
+            ParkingSpot spot = view(slots.members()[position]);
+            return spot.status() == ParkingStatus.AVAILABLE && spot.size() == size ? spot : null;
+        }
+
+        synchronized void insert(int index) {
+            Slots current = slots;
+            int count = current.count();
+            int position = count;
+            if (count > 0 && compare(index, current.members()[count - 1]) < 0) {
+                int low = 0;
+                int high = count - 1;
+                while (low < high) {
+                    int middle = (low + high) >>> 1;
+                    if (compare(index, current.members()[middle]) < 0) {
+                        high = middle;
+                    } else {
+                        low = middle + 1;
+                    }
+                }
+                position = low;
+            }
+            if (position == count && count < current.members().length) {
+                current.members()[count] = index;
+                setPosition(index, count);
+                if (isAvailable(index)) {
+                    setBit(current.free(), count, true);
+                }
+                slots = new Slots(current.members(), current.free(), count + 1);
+                return;
+            }
+            int[] members = new int[count < current.members().length ? current.members().length : count * 2];
+            System.arraycopy(current.members(), 0, members, 0, position);
+            members[position] = index;
+            System.arraycopy(current.members(), position, members, position + 1, count - position);
+            slots = rebuild(members, count + 1, position);
+        }
+
+        synchronized void remove(int index) {
+            Slots current = slots;
+            int position = positionOf(index);
+            int[] members = new int[current.members().length];
+            System.arraycopy(current.members(), 0, members, 0, position);
+            System.arraycopy(current.members(), position + 1, members, position, current.count() - position - 1);
+            slots = rebuild(members, current.count() - 1, position);
+        }
+
+        synchronized void setFree(int index, boolean free) {
+            setBit(slots.free(), positionOf(index), free);
+        }
+
+        // Renumbers the members from `from` on and rebuilds the bitmap from their statuses. A concurrent status
+        // change waits for this partition's lock before it sets its own bit, so it cannot be lost.
+        private Slots rebuild(int[] members, int count, int from) {
+            AtomicLongArray free = new AtomicLongArray((members.length + 63) >>> 6);
+            for (int position = 0; position < count; position++) {
+                if (position >= from) {
+                    setPosition(members[position], position);
+                }
+                if (isAvailable(members[position])) {
+                    setBit(free, position, true);
+                }
+            }
+            return new Slots(members, free, count);
+        }
+
+        private boolean isAvailable(int index) {
+            return STATUSES[chunk(index).statuses[index & CHUNK_MASK]] == ParkingStatus.AVAILABLE;
+        }
+
+        private void setPosition(int index, int position) {
+            chunk(index).positions[index & CHUNK_MASK] = position;
+        }
+
+        private int compare(int index, int other) {
+            Chunk chunk = chunk(index);
+            Chunk otherChunk = chunk(other);
+            int byNumber = Integer.compare(chunk.numbers[index & CHUNK_MASK], otherChunk.numbers[other & CHUNK_MASK]);
+            return byNumber != 0 ? byNumber : chunk.ids[index & CHUNK_MASK].compareTo(otherChunk.ids[other & CHUNK_MASK]);
+        }
+
+        // Caller holds this partition's lock
+        private static void setBit(AtomicLongArray free, int position, boolean set) {
+            int word = position >>> 6;
+            long bit = 1L << (position & 63);
+            long bits = free.get(word);
+            free.set(word, set ? bits | bit : bits & ~bit);
+        }
+    }
+}
@@ -1,27 +1,126 @@
 package com.example.garage.repository;
 
 import com.example.garage.model.Car;
+import com.example.garage.model.ParkingSpot;
 import org.springframework.stereotype.Repository;
 
+import java.time.Instant;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
 import java.util.Map;
+import java.util.NavigableSet;
 import java.util.Optional;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
 
+// Parked cars by license plate, with secondary indexes kept in step on every save and delete: by spot, by the level
+// of that spot, and by check-in time. Index updates for a plate run inside its map entry's compute, so they never
+// interleave for the same car; readers see each index live and weakly consistent, like the spot repository's walks.
 @Repository
 public class CarRepository {
 
+    // Plate breaks ties between cars checked in at the same instant
+    private static final Comparator<Car> BY_CHECK_IN = Comparator.comparing(Car::checkInAt).thenComparing(Car::licensePlate);
+
     private final Map<String, Car> cars = new ConcurrentHashMap<>();
+    private final Map<String, Car> bySpot = new ConcurrentHashMap<>();
+    private final Map<Integer, Set<Car>> byLevel = new ConcurrentHashMap<>();
+    private final NavigableSet<Car> byCheckIn = new ConcurrentSkipListSet<>(BY_CHECK_IN);
+    // Levels never change once a spot exists, so a car's level is looked up once, when it is saved
+    private final ParkingSpotRepository parkingSpotRepository;
+
+    public CarRepository(ParkingSpotRepository parkingSpotRepository) {
+        this.parkingSpotRepository = parkingSpotRepository;
+    }
 
     public Car save(Car car) {
-        cars.put(car.licensePlate(), car);
+        cars.compute(car.licensePlate(), (plate, previous) -> {
+            if (previous != null) {
+                unindex(previous);
+            }
+            index(car);
+            return car;
+        });
         return car;
     }
 
+    public Collection<Car> findAll() {
+        return cars.values();
+    }
+
     public Optional<Car> findByLicensePlate(String licensePlate) {
         return Optional.ofNullable(cars.get(licensePlate));
     }
 
+    public Optional<Car> findBySpotId(String spotId) {
+        return Optional.ofNullable(bySpot.get(spotId));
+    }
+
+    // Oldest check-in first
+    public List<Car> findByLevel(int level) {
+        Set<Car> onLevel = byLevel.get(level);
+        return onLevel == null ? List.of() : onLevel.stream().sorted(BY_CHECK_IN).toList();
+    }
+
+    // Oldest check-in first; a head walk of the check-in index, so it costs O(log n) plus the cars returned
+    public Collection<Car> findCheckedInBefore(Instant cutoff) {
+        return byCheckIn.headSet(checkInBound(cutoff), false);
+    }
+
+    // Checked in at or after from and before to, oldest first; O(log n) plus the cars returned
+    public Collection<Car> findCheckedInBetween(Instant from, Instant to) {
+        if (!from.isBefore(to)) {
+            return List.of();
+        }
+        return byCheckIn.subSet(checkInBound(from), true, checkInBound(to), false);
+    }
+
+    // Oldest check-in first
+    public Collection<Car> findAllByCheckIn() {
+        return byCheckIn;
+    }
+
     public void deleteByLicensePlate(String licensePlate) {
-        cars.remove(licensePlate);
+        cars.computeIfPresent(licensePlate, (plate, previous) -> {
+            unindex(previous);
+            return null;
+        });
+    }
+
+    public boolean delete(Car car) {
+        boolean[] removed = {false};
+        cars.computeIfPresent(car.licensePlate(), (plate, current) -> {
+            if (!current.equals(car)) {
+                return current;
+            }
+            unindex(current);
+            removed[0] = true;
+            return null;
+        });
+        return removed[0];
+    }
+
+    // Sorts ahead of every car checked in at the same instant
+    private static Car checkInBound(Instant checkInAt) {
+        return new Car("", null, checkInAt, null);
+    }
+
+    private void index(Car car) {
+        bySpot.put(car.assignedSpotId(), car);
+        parkingSpotRepository.findById(car.assignedSpotId()).map(ParkingSpot::level)
+                .ifPresent(level -> byLevel.computeIfAbsent(level, l -> ConcurrentHashMap.newKeySet()).add(car));
+        byCheckIn.add(car);
+    }
+
+    private void unindex(Car car) {
+        bySpot.remove(car.assignedSpotId(), car);
+        parkingSpotRepository.findById(car.assignedSpotId()).map(ParkingSpot::level)
+                .ifPresent(level -> byLevel.computeIfPresent(level, (l, onLevel) -> {
+                    onLevel.remove(car);
+                    return onLevel;
+                }));
+        byCheckIn.remove(car);
     }
 }
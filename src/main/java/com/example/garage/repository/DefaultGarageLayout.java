@@ -0,0 +1,33 @@
+package com.example.garage.repository;
+
+import com.example.garage.model.ParkingSpot;
+import com.example.garage.model.ParkingStatus;
+import com.example.garage.model.VehicleSize;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+// Layout a garage starts with when there is no saved state to restore
+public final class DefaultGarageLayout {
+
+    private DefaultGarageLayout() {
+    }
+
+    public static List<ParkingSpot> spots() {
+        List<ParkingSpot> spots = new ArrayList<>();
+        // Level 1: Compact spots
+        IntStream.rangeClosed(1, 5).forEach(i ->
+                spots.add(new ParkingSpot("A" + i, 1, i, ParkingStatus.AVAILABLE, VehicleSize.COMPACT, List.of())));
+        // Level 2: Standard spots
+        IntStream.rangeClosed(1, 3).forEach(i ->
+                spots.add(new ParkingSpot("B" + i, 2, i, ParkingStatus.AVAILABLE, VehicleSize.STANDARD, List.of())));
+        // Level 3: Oversized spots
+        IntStream.rangeClosed(1, 2).forEach(i -> {
+            List<String> features = (i == 1) ? List.of("EV_CHARGING") : List.of();
+            spots.add(new ParkingSpot("C" + i, 3, i, ParkingStatus.AVAILABLE, VehicleSize.OVERSIZED, features));
+        });
+        return spots;
+    }
+
+}
@@ -0,0 +1,78 @@
+package com.example.garage.repository;
+
+import com.example.garage.model.ParkingSpot;
+import com.example.garage.model.SpotFeatures;
+import com.example.garage.model.VehicleSize;
+
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Free spots that carry a feature, per feature bit and spot size, lowest level first. A search for several features
+// walks only the spots with the rarest of them, so featureless spots are never visited.
+final class FeatureIndex {
+
+    private static final Comparator<ParkingSpot> SPOT_ORDER = Comparator.comparingInt(ParkingSpot::level)
+            .thenComparingInt(ParkingSpot::number)
+            .thenComparing(ParkingSpot::id);
+
+    private final AtomicReferenceArray<Map<VehicleSize, NavigableSet<ParkingSpot>>> features =
+            new AtomicReferenceArray<>(SpotFeatures.MAX_FEATURES);
+    private final OccupancyCounters occupancy;
+
+    FeatureIndex(OccupancyCounters occupancy) {
+        this.occupancy = occupancy;
+    }
+
+    // Callers hold the spot's write lock, as for the size partitions
+    void markFree(ParkingSpot spot) {
+        for (long rest = spot.featureMask(); rest != 0; rest &= rest - 1) {
+            slice(Long.numberOfTrailingZeros(rest), spot.size()).add(spot);
+        }
+    }
+
+    void markTaken(ParkingSpot spot) {
+        for (long rest = spot.featureMask(); rest != 0; rest &= rest - 1) {
+            slice(Long.numberOfTrailingZeros(rest), spot.size()).remove(spot);
+        }
+    }
+
+    // Null when no free spot of this size has every feature in the mask
+    ParkingSpot firstFree(VehicleSize size, long featureMask) {
+        int rarest = -1;
+        long rarestFree = Long.MAX_VALUE;
+        for (long rest = featureMask; rest != 0; rest &= rest - 1) {
+            int bit = Long.numberOfTrailingZeros(rest);
+            long free = occupancy.freeWithFeature(bit);
+            if (free < rarestFree) {
+                rarest = bit;
+                rarestFree = free;
+            }
+        }
+        if (rarest < 0) {
+            return null;
+        }
+        for (ParkingSpot spot : slice(rarest, size)) {
+            if (spot.hasFeatures(featureMask)) {
+                return spot;
+            }
+        }
+        return null;
+    }
+
+    private NavigableSet<ParkingSpot> slice(int bit, VehicleSize size) {
+        Map<VehicleSize, NavigableSet<ParkingSpot>> sizes = features.get(bit);
+        if (sizes == null) {
+            Map<VehicleSize, NavigableSet<ParkingSpot>> created = new EnumMap<>(VehicleSize.class);
+            for (VehicleSize each : VehicleSize.values()) {
+                created.put(each, new ConcurrentSkipListSet<>(SPOT_ORDER));
+            }
+            features.compareAndSet(bit, null, created);
+            sizes = features.get(bit);
+        }
+        return sizes.get(size);
+    }
+}
@@ -0,0 +1,310 @@
+package com.example.garage.repository;
+
+import com.example.garage.model.OccupancyCount;
+import com.example.garage.model.ParkingSpot;
+import com.example.garage.model.ParkingStatus;
+import com.example.garage.model.SpotFeatures;
+import com.example.garage.model.SpotFilter;
+import com.example.garage.model.VehicleSize;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.NoSuchElementException;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.stream.Stream;
+
+// One immutable ParkingSpot per spot in a hash map
+@Repository
+@ConditionalOnProperty(name = "garage.spot-store", havingValue = "map", matchIfMissing = true)
+public class MapParkingSpotRepository implements ParkingSpotRepository {
+
+    private final Map<String, ParkingSpot> parkingSpots = new ConcurrentHashMap<>();
+    // Every stored id in order, so listings can resume after any id; spots are never removed
+    private final NavigableSet<String> spotIds = new ConcurrentSkipListSet<>();
+
+    // Free-spot index: per spot size, one partition per level (lowest level first), kept in step with parkingSpots
+    private final Map<VehicleSize, ConcurrentNavigableMap<Integer, SpotPartition>> partitions = new EnumMap<>(VehicleSize.class);
+
+    private final SpotFeatures features = new SpotFeatures();
+    // Updated with the index; each partition holds its level's tally
+    private final OccupancyCounters occupancy = new OccupancyCounters(features);
+    private final FeatureIndex featureIndex = new FeatureIndex(occupancy);
+    private final SpotChangeRing changes;
+
+    public MapParkingSpotRepository() {
+        this(SpotChangeRing.DEFAULT_CAPACITY);
+    }
+
+    @Autowired
+    public MapParkingSpotRepository(@Value("${garage.events.buffer-size:" + SpotChangeRing.DEFAULT_CAPACITY + "}") int changeBufferSize) {
+        this.changes = new SpotChangeRing(changeBufferSize);
+        for (VehicleSize size : VehicleSize.values()) {
+            partitions.put(size, new ConcurrentSkipListMap<>());
+        }
+    }
+
+    @Override
+    public Collection<ParkingSpot> findAll() {
+        return parkingSpots.values();
+    }
+
+    @Override
+    public Stream<ParkingSpot> findAll(SpotFilter filter, String afterId) {
+        NavigableSet<String> ids = afterId == null ? spotIds : spotIds.tailSet(afterId, false);
+        return ids.stream()
+                .map(parkingSpots::get)
+                .filter(spot -> spot != null && filter.matches(spot));
+    }
+
+    @Override
+    public Optional<ParkingSpot> findFirstAvailable() {
+        for (VehicleSize size : VehicleSize.values()) {
+            Optional<ParkingSpot> spot = findFirstAvailable(size);
+            if (spot.isPresent()) {
+                return spot;
+            }
+        }
+        return Optional.empty();
+    }
+
+    // Optional.empty() is a shared instance, so only a found spot allocates a wrapper, and a claim that finds one goes
+    // on to allocate the updated ParkingSpot anyway
+    @Override
+    public Optional<ParkingSpot> findFirstAvailable(VehicleSize size) {
+        // Spill over to the next level only once a partition is empty
+        for (SpotPartition partition : partitions.get(size).values()) {
+            ParkingSpot spot = partition.firstFree();
+            if (spot != null) {
+                return Optional.of(spot);
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<ParkingSpot> findAnyAvailable(VehicleSize size) {
+        for (SpotPartition partition : partitions.get(size).values()) {
+            ParkingSpot spot = partition.anyFree();
+            if (spot != null) {
+                return Optional.of(spot);
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Override
+    public Optional<ParkingSpot> findFirstAvailable(VehicleSize size, long featureMask) {
+        return featureMask == SpotFeatures.NONE ? findFirstAvailable(size) : Optional.ofNullable(featureIndex.firstFree(size, featureMask));
+    }
+
+    @Override
+    public Iterator<ParkingSpot> availableSpots(VehicleSize size) {
+        Iterator<SpotPartition> levels = partitions.get(size).values().iterator();
+        return new Iterator<>() {
+            private Iterator<ParkingSpot> current = Collections.emptyIterator();
+
+            @Override
+            public boolean hasNext() {
+                while (!current.hasNext() && levels.hasNext()) {
+                    current = levels.next().freeSpots().iterator();
+                }
+                return current.hasNext();
+            }
+
+            @Override
+            public ParkingSpot next() {
+                if (!hasNext()) {
+                    throw new NoSuchElementException();
+                }
+                return current.next();
+            }
+        };
+    }
+
+    @Override
+    public Collection<ParkingSpot> findAllAvailable() {
+        return partitions.values().stream()
+                .flatMap(levels -> levels.values().stream())
+                .flatMap(partition -> partition.freeSpots().stream())
+                .toList();
+    }
+
+    @Override
+    public ParkingSpot save(ParkingSpot unbound) {
+        ParkingSpot spot = features.bind(unbound);
+        // compute() holds the entry's lock, so the map and the free-spot index never disagree about a spot
+        parkingSpots.compute(spot.id(), (id, previous) -> {
+            if (previous == null) {
+                spotIds.add(id);
+            }
+            reindex(previous, spot);
+            return spot;
+        });
+        return spot;
+    }
+
+    // One pass over the batch, each spot indexed as it is stored
+    @Override
+    public void saveAll(Collection<ParkingSpot> spots) {
+        for (ParkingSpot spot : spots) {
+            save(spot);
+        }
+    }
+
+    // Compare-and-set on the stored instance: fails if another writer replaced the spot after it was read
+    @Override
+    public boolean replace(ParkingSpot expected, ParkingSpot unbound) {
+        return replace(expected, unbound, null);
+    }
+
+    @Override
+    public boolean replace(ParkingSpot expected, ParkingSpot unbound, Runnable beforeVisible) {
+        // expected was read from here, so updated normally carries this store's bits already
+        ParkingSpot updated = unbound.featureMask() == SpotFeatures.NONE && unbound.features() != null && !unbound.features().isEmpty()
+                ? features.bind(unbound) : unbound;
+        // The capturing lambda is the one allocation left per claim. A plain replace(id, expected, updated) would avoid
+        // it but reindex after the entry lock is released, where two writers to one spot can reindex out of order.
+        // Whether it won shows in the result: updated is a fresh instance, never what another writer stored.
+        return parkingSpots.computeIfPresent(expected.id(), (id, current) -> {
+            if (current != expected) {
+                return current;
+            }
+            if (beforeVisible != null) {
+                // Throwing out of compute() leaves the mapping as it was
+                beforeVisible.run();
+            }
+            reindex(current, updated);
+            return updated;
+        }) == updated;
+    }
+
+    @Override
+    public Optional<ParkingSpot> findById(String id) {
+        return Optional.ofNullable(parkingSpots.get(id));
+    }
+
+    @Override
+    public boolean existsById(String id) {
+        return parkingSpots.containsKey(id);
+    }
+
+    @Override
+    public Set<String> findExistingIds(Collection<String> ids) {
+        Set<String> existing = new LinkedHashSet<>();
+        for (String id : ids) {
+            if (parkingSpots.containsKey(id)) {
+                existing.add(id);
+            }
+        }
+        return existing;
+    }
+
+    @Override
+    public SpotFeatures features() {
+        return features;
+    }
+
+    @Override
+    public SpotChangeRing changes() {
+        return changes;
+    }
+
+    @Override
+    public OccupancyCount occupancy() {
+        return occupancy.total();
+    }
+
+    @Override
+    public OccupancyCount occupancy(VehicleSize size) {
+        return occupancy.ofSize(size);
+    }
+
+    @Override
+    public OccupancyCount occupancy(int level) {
+        return occupancy.ofLevel(level);
+    }
+
+    @Override
+    public OccupancyCount occupancyOfFeature(String feature) {
+        return occupancy.ofFeature(feature);
+    }
+
+    @Override
+    public Map<Integer, OccupancyCount> occupancyByLevel() {
+        return occupancy.byLevel();
+    }
+
+    @Override
+    public Map<VehicleSize, OccupancyCount> occupancyBySize() {
+        return occupancy.bySize();
+    }
+
+    @Override
+    public Map<String, OccupancyCount> occupancyByFeature() {
+        return occupancy.byFeature();
+    }
+
+    // Runs inside the map's compute(), so index and counters change with the spot they describe
+    private void reindex(ParkingSpot previous, ParkingSpot current) {
+        SpotPartition partition = partitionOf(current);
+        if (previous == null) {
+            count(partition, current, 1);
+        } else {
+            SpotPartition previousPartition = previous.level() == current.level() && previous.size() == current.size()
+                    ? partition
+                    : partitionOf(previous);
+            if (previous.status() == ParkingStatus.AVAILABLE) {
+                previousPartition.markTaken(previous);
+                featureIndex.markTaken(previous);
+            }
+            if (previousPartition == partition && previous.featureMask() == current.featureMask()) {
+                // Same slices before and after: only a status change moves the counts
+                long freeDelta = free(current) - free(previous);
+                if (freeDelta != 0) {
+                    tally(partition, current, 0, freeDelta);
+                }
+            } else {
+                count(previousPartition, previous, -1);
+                count(partition, current, 1);
+            }
+        }
+        if (current.status() == ParkingStatus.AVAILABLE) {
+            partition.markFree(current);
+            featureIndex.markFree(current);
+        }
+        if (previous == null || previous.status() != current.status()) {
+            changes.publish(current);
+        }
+    }
+
+    private void count(SpotPartition partition, ParkingSpot spot, long sign) {
+        tally(partition, spot, sign, sign * free(spot));
+    }
+
+    private void tally(SpotPartition partition, ParkingSpot spot, long spotDelta, long freeDelta) {
+        occupancy.add(partition.occupancy(), spot.size(), spotDelta, freeDelta);
+        occupancy.addFeatures(spot.featureMask(), spotDelta, freeDelta);
+    }
+
+    private static long free(ParkingSpot spot) {
+        return spot.status() == ParkingStatus.AVAILABLE ? 1 : 0;
+    }
+
+    private SpotPartition partitionOf(ParkingSpot spot) {
+        return partitions.get(spot.size()).computeIfAbsent(spot.level(), level -> new SpotPartition(occupancy.levelTally(level)));
+    }
+}
@@ -0,0 +1,106 @@
+package com.example.garage.repository;
+
+import com.example.garage.model.OccupancyCount;
+import com.example.garage.model.SpotFeatures;
+import com.example.garage.model.VehicleSize;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+// Capacity and free counts per level, spot size and feature, kept by the spot stores as spots change
+final class OccupancyCounters {
+
+    private final ConcurrentNavigableMap<Integer, OccupancyTally> levels = new ConcurrentSkipListMap<>();
+    private final OccupancyTally[] sizes = new OccupancyTally[VehicleSize.values().length];
+    // Indexed by feature bit; created the first time a spot carries the feature
+    private final AtomicReferenceArray<OccupancyTally> features = new AtomicReferenceArray<>(SpotFeatures.MAX_FEATURES);
+
+    private final SpotFeatures names;
+
+    OccupancyCounters(SpotFeatures names) {
+        this.names = names;
+        for (VehicleSize size : VehicleSize.values()) {
+            sizes[size.ordinal()] = new OccupancyTally();
+        }
+    }
+
+    // Stores look this up once per partition and keep it, so the hot path never searches the level map
+    OccupancyTally levelTally(int level) {
+        return levels.computeIfAbsent(level, l -> new OccupancyTally());
+    }
+
+    void add(OccupancyTally level, VehicleSize size, long spotDelta, long freeDelta) {
+        level.add(spotDelta, freeDelta);
+        sizes[size.ordinal()].add(spotDelta, freeDelta);
+    }
+
+    void addFeatures(long featureMask, long spotDelta, long freeDelta) {
+        for (long rest = featureMask; rest != 0; rest &= rest - 1) {
+            int bit = Long.numberOfTrailingZeros(rest);
+            OccupancyTally tally = features.get(bit);
+            if (tally == null) {
+                features.compareAndSet(bit, null, new OccupancyTally());
+                tally = features.get(bit);
+            }
+            tally.add(spotDelta, freeDelta);
+        }
+    }
+
+    OccupancyCount total() {
+        OccupancyCount total = OccupancyCount.of(0, 0);
+        for (OccupancyTally tally : sizes) {
+            total = total.plus(tally.snapshot());
+        }
+        return total;
+    }
+
+    OccupancyCount ofSize(VehicleSize size) {
+        return sizes[size.ordinal()].snapshot();
+    }
+
+    OccupancyCount ofLevel(int level) {
+        OccupancyTally tally = levels.get(level);
+        return tally == null ? OccupancyCount.of(0, 0) : tally.snapshot();
+    }
+
+    OccupancyCount ofFeature(String feature) {
+        long mask = names.lookup(feature);
+        OccupancyTally tally = mask == SpotFeatures.UNKNOWN ? null : features.get(Long.numberOfTrailingZeros(mask));
+        return tally == null ? OccupancyCount.of(0, 0) : tally.snapshot();
+    }
+
+    // Free spots with the feature, across all levels and sizes
+    long freeWithFeature(int bit) {
+        OccupancyTally tally = features.get(bit);
+        return tally == null ? 0 : tally.free();
+    }
+
+    Map<Integer, OccupancyCount> byLevel() {
+        Map<Integer, OccupancyCount> byLevel = new TreeMap<>();
+        levels.forEach((level, tally) -> byLevel.put(level, tally.snapshot()));
+        return byLevel;
+    }
+
+    Map<VehicleSize, OccupancyCount> bySize() {
+        Map<VehicleSize, OccupancyCount> bySize = new EnumMap<>(VehicleSize.class);
+        for (VehicleSize size : VehicleSize.values()) {
+            bySize.put(size, ofSize(size));
+        }
+        return bySize;
+    }
+
+    Map<String, OccupancyCount> byFeature() {
+        Map<String, OccupancyCount> byFeature = new TreeMap<>();
+        for (int bit = 0; bit < features.length(); bit++) {
+            OccupancyTally tally = features.get(bit);
+            if (tally != null) {
+                byFeature.put(names.name(bit), tally.snapshot());
+            }
+        }
+        return byFeature;
+    }
+}
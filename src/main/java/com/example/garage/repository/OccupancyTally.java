@@ -0,0 +1,30 @@
+package com.example.garage.repository;
+
+import com.example.garage.model.OccupancyCount;
+
+import java.util.concurrent.atomic.LongAdder;
+
+// Spot and free-spot counts for one slice of the garage. LongAdder stripes keep concurrent updates off a single cache line;
+// the two sums are read separately, so a snapshot taken mid-update can be off by one for an instant.
+final class OccupancyTally {
+
+    private final LongAdder spots = new LongAdder();
+    private final LongAdder free = new LongAdder();
+
+    void add(long spotDelta, long freeDelta) {
+        if (spotDelta != 0) {
+            spots.add(spotDelta);
+        }
+        if (freeDelta != 0) {
+            free.add(freeDelta);
+        }
+    }
+
+    long free() {
+        return free.sum();
+    }
+
+    OccupancyCount snapshot() {
+        return OccupancyCount.of(spots.sum(), free.sum());
+    }
+}
@@ -1,67 +1,81 @@
 package com.example.garage.repository;
 
+import com.example.garage.model.OccupancyCount;
 import com.example.garage.model.ParkingSpot;
-import com.example.garage.model.ParkingStatus;
+import com.example.garage.model.SpotFeatures;
+import com.example.garage.model.SpotFilter;
 import com.example.garage.model.VehicleSize;
-import org.springframework.stereotype.Repository;
 
 import java.util.Collection;
-import java.util.List;
+import java.util.Iterator;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
-import java.util.stream.IntStream;
-
-@Repository
-public class ParkingSpotRepository {
-
-    private final Map<String, ParkingSpot> parkingSpots = new ConcurrentHashMap<>();
-
-    public ParkingSpotRepository() {
-        // Level 1: Compact spots
-        IntStream.rangeClosed(1, 5).forEach(i -> {
-            String id = "A" + i;
-            parkingSpots.put(id, new ParkingSpot(id, 1, i, ParkingStatus.AVAILABLE, VehicleSize.COMPACT, List.of()));
-        });
-        // Level 2: Standard spots
-        IntStream.rangeClosed(1, 3).forEach(i -> {
-            String id = "B" + i;
-            parkingSpots.put(id, new ParkingSpot(id, 2, i, ParkingStatus.AVAILABLE, VehicleSize.STANDARD, List.of()));
-        });
-        // Level 3: Oversized spots
-        IntStream.rangeClosed(1, 2).forEach(i -> {
-            String id = "C" + i;
-            List<String> features = (i == 1) ? List.of("EV_CHARGING") : List.of();
-            parkingSpots.put(id, new ParkingSpot(id, 3, i, ParkingStatus.AVAILABLE, VehicleSize.OVERSIZED, features));
-        });
-    }
-
-    public Collection<ParkingSpot> findAll() {
-        return parkingSpots.values();
-    }
-
-    public Optional<ParkingSpot> findFirstAvailable() {
-        return parkingSpots.values().stream()
-                .filter(spot -> spot.status() == ParkingStatus.AVAILABLE)
-                .findFirst();
-    }
-
-    public Collection<ParkingSpot> findAllAvailable() {
-        return parkingSpots.values().stream()
-                .filter(spot -> spot.status() == ParkingStatus.AVAILABLE)
-                .toList();
-    }
-
-    public ParkingSpot save(ParkingSpot spot) {
-        parkingSpots.put(spot.id(), spot);
-        return spot;
-    }
-
-    public Optional<ParkingSpot> findById(String id) {
-        return Optional.ofNullable(parkingSpots.get(id));
-    }
-
-    public boolean existsById(String id) {
-        return parkingSpots.containsKey(id);
-    }
+import java.util.Set;
+import java.util.stream.Stream;
+
+// Spots, their free-spot index and occupancy counters. garage.spot-store picks the backend:
+// "map" (default) keeps a ParkingSpot per spot in a hash map; "arrays" keeps primitive columns for very large garages.
+public interface ParkingSpotRepository {
+
+    Collection<ParkingSpot> findAll();
+
+    // Live, weakly consistent walk in id order over the spots after afterId (from the first spot when null)
+    Stream<ParkingSpot> findAll(SpotFilter filter, String afterId);
+
+    Optional<ParkingSpot> findFirstAvailable();
+
+    // Lowest level first, then lowest spot number
+    Optional<ParkingSpot> findFirstAvailable(VehicleSize size);
+
+    // As above, lowest level first, but any free spot on that level, probed from a random point; for callers that
+    // lost a race for the first spot, so they spread out rather than all racing for the next one
+    Optional<ParkingSpot> findAnyAvailable(VehicleSize size);
+
+    // As findFirstAvailable(size), among spots with every feature in the mask from features(); answered from per-feature free-spot indexes
+    Optional<ParkingSpot> findFirstAvailable(VehicleSize size, long featureMask);
+
+    // Live, weakly consistent walk over the free spots of one size, lowest level first
+    Iterator<ParkingSpot> availableSpots(VehicleSize size);
+
+    Collection<ParkingSpot> findAllAvailable();
+
+    // Returns the spot as stored, with its feature mask in this store's registry
+    ParkingSpot save(ParkingSpot spot);
+
+    // Bulk load for layout imports
+    void saveAll(Collection<ParkingSpot> spots);
+
+    // Compare-and-set: fails if another writer changed the spot after `expected` was read from this repository
+    boolean replace(ParkingSpot expected, ParkingSpot updated);
+
+    // As above, running beforeVisible once the swap is certain but before any reader or writer can see it, with the
+    // spot's writers held off; if it throws, the spot is left unchanged. For journaling an update ahead of anything a
+    // concurrent writer of the same spot could journal after seeing it.
+    boolean replace(ParkingSpot expected, ParkingSpot updated, Runnable beforeVisible);
+
+    Optional<ParkingSpot> findById(String id);
+
+    boolean existsById(String id);
+
+    Set<String> findExistingIds(Collection<String> ids);
+
+    // This store's feature names; masks passed in and spots read out use its bits
+    SpotFeatures features();
+
+    // Recent status changes, for subscribers that want deltas instead of polling
+    SpotChangeRing changes();
+
+    OccupancyCount occupancy();
+
+    OccupancyCount occupancy(VehicleSize size);
+
+    OccupancyCount occupancy(int level);
+
+    OccupancyCount occupancyOfFeature(String feature);
+
+    Map<Integer, OccupancyCount> occupancyByLevel();
+
+    Map<VehicleSize, OccupancyCount> occupancyBySize();
+
+    Map<String, OccupancyCount> occupancyByFeature();
 }
@@ -0,0 +1,112 @@
+package com.example.garage.repository;
+
+import com.example.garage.model.ParkingSpot;
+import com.example.garage.model.ParkingStatus;
+import com.example.garage.model.SpotStatusChange;
+import com.example.garage.model.VehicleSize;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+// Bounded, overwrite-oldest ring of spot status changes. Writers never wait: each claims a sequence number and
+// stores its change in that sequence's slot. Readers keep their own cursor, and one that falls a full ring
+// behind is told so instead of slowing the writers down. Before the first reader attaches, and after pause() with
+// none attached, writers skip the ring entirely; the next reader to attach finds every sequence handed out before the
+// gap overwritten, so a stream resuming across it resyncs.
+public final class SpotChangeRing {
+
+    public static final int DEFAULT_CAPACITY = 8192;
+    public static final long LAGGED = -1;
+
+    private final AtomicReferenceArray<SpotStatusChange> slots;
+    private final int mask;
+    private final AtomicLong head = new AtomicLong();
+    // Guarded by this ring's monitor; `recording` is also read without it on the publish fast path
+    private int readers;
+    private volatile boolean recording;
+    private boolean skipped;
+
+    SpotChangeRing(int capacity) {
+        if (capacity < 1 || capacity > 1 << 30) {
+            throw new IllegalArgumentException("Change buffer size must be between 1 and " + (1 << 30));
+        }
+        // Rounded up to a power of two so a sequence maps to its slot with a mask
+        int size = capacity == 1 ? 1 : Integer.highestOneBit(capacity - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    // Called from inside the spot map's compute(), so changes to one spot are published in the order they happen
+    void publish(ParkingSpot spot) {
+        publish(spot.id(), spot.level(), spot.size(), spot.status());
+    }
+
+    void publish(String spotId, int level, VehicleSize size, ParkingStatus status) {
+        if (!recording) {
+            // Decided under the lock attach() takes, so a skipped change is always seen by the next attach()
+            synchronized (this) {
+                if (!recording) {
+                    skipped = true;
+                    return;
+                }
+            }
+        }
+        long sequence = head.getAndIncrement();
+        slots.set((int) (sequence & mask), new SpotStatusChange(sequence, spotId, level, size, status));
+    }
+
+    // Call before reading head(); pair with detach()
+    public synchronized void attach() {
+        readers++;
+        recording = true;
+        if (skipped) {
+            skipped = false;
+            // Puts every sequence handed out before the gap more than a ring behind
+            head.addAndGet(slots.length() + 1L);
+        }
+    }
+
+    public synchronized void detach() {
+        readers--;
+    }
+
+    // Stops recording unless a reader is attached
+    public synchronized void pause() {
+        if (readers == 0) {
+            recording = false;
+        }
+    }
+
+    public int capacity() {
+        return slots.length();
+    }
+
+    // Sequence number the next change will get
+    public long head() {
+        return head.get();
+    }
+
+    // Hands the published changes from `from` onwards, at most `max` of them, to the consumer and returns the cursor to
+    // read from next. Stops early at a slot whose writer has claimed it but not yet stored its change.
+    // Returns LAGGED if `from` has already been overwritten.
+    public long read(long from, int max, Consumer<SpotStatusChange> consumer) {
+        long cursor = from;
+        long end = Math.min(head.get(), from + max);
+        while (cursor < end) {
+            if (head.get() - cursor > slots.length()) {
+                return LAGGED;
+            }
+            SpotStatusChange change = slots.get((int) (cursor & mask));
+            if (change == null || change.sequence() < cursor) {
+                break;
+            }
+            if (change.sequence() > cursor) {
+                return LAGGED;
+            }
+            consumer.accept(change);
+            cursor++;
+        }
+        return cursor;
+    }
+}
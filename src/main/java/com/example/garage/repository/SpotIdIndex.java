@@ -0,0 +1,70 @@
+package com.example.garage.repository;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+// Open-addressing map from spot id to spot index: one String reference and one int per slot, with no entry objects
+// or boxed values. Lookups never lock; inserts must be serialized by the caller. A key is published only after its
+// value, and a grown table only once it is complete, so a lookup sees either a whole entry or none.
+final class SpotIdIndex {
+
+    static final int ABSENT = -1;
+
+    private static final VarHandle KEYS = MethodHandles.arrayElementVarHandle(String[].class);
+
+    private volatile Table table = new Table(64);
+    private int size;
+
+    int get(String id) {
+        Table current = table;
+        int mask = current.keys.length - 1;
+        for (int slot = spread(id.hashCode()) & mask; ; slot = (slot + 1) & mask) {
+            String key = (String) KEYS.getAcquire(current.keys, slot);
+            if (key == null) {
+                return ABSENT;
+            }
+            if (key.equals(id)) {
+                return current.values[slot];
+            }
+        }
+    }
+
+    // Caller holds the store's append lock and has checked the id is new
+    void put(String id, int index) {
+        Table current = table;
+        // Kept at most half full so probe runs stay short
+        if ((size + 1) * 2 > current.keys.length) {
+            Table grown = new Table(current.keys.length * 2);
+            for (int slot = 0; slot < current.keys.length; slot++) {
+                if (current.keys[slot] != null) {
+                    insert(grown, current.keys[slot], current.values[slot]);
+                }
+            }
+            table = grown;
+            current = grown;
+        }
+        insert(current, id, index);
+        size++;
+    }
+
+    private static void insert(Table table, String id, int index) {
+        int mask = table.keys.length - 1;
+        int slot = spread(id.hashCode()) & mask;
+        while (table.keys[slot] != null) {
+            slot = (slot + 1) & mask;
+        }
+        table.values[slot] = index;
+        KEYS.setRelease(table.keys, slot, id);
+    }
+
+    private static int spread(int hash) {
+        return (hash ^ (hash >>> 16)) * 0x9E3779B1;
+    }
+
+    private record Table(String[] keys, int[] values) {
+
+        Table(int capacity) {
+            this(new String[capacity], new int[capacity]);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.garage.repository;
+
+import com.example.garage.model.ParkingSpot;
+import com.example.garage.model.ParkingStatus;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.ThreadLocalRandom;
+
+// Free spots of one (level, size) pair; each partition is its own contention domain
+final class SpotPartition {
+
+    private static final Comparator<ParkingSpot> SPOT_ORDER = Comparator.comparingInt(ParkingSpot::number)
+            .thenComparing(ParkingSpot::id);
+
+    private final NavigableSet<ParkingSpot> freeSpots = new ConcurrentSkipListSet<>(SPOT_ORDER);
+    // Shared with the other sizes' partitions on the same level
+    private final OccupancyTally occupancy;
+
+    SpotPartition(OccupancyTally occupancy) {
+        this.occupancy = occupancy;
+    }
+
+    ParkingSpot firstFree() {
+        // Iterating rather than calling first() avoids NoSuchElementException if the set drains concurrently
+        for (ParkingSpot spot : freeSpots) {
+            return spot;
+        }
+        return null;
+    }
+
+    // The first free spot numbered at or after a random point in the partition's range, wrapping to the start, so
+    // callers that lost a race for the lowest spot spread over the level instead of all racing for the next one
+    ParkingSpot anyFree() {
+        ParkingSpot first = firstFree();
+        if (first == null) {
+            return null;
+        }
+        int last = first.number();
+        for (ParkingSpot spot : freeSpots.descendingSet()) {
+            last = spot.number();
+            break;
+        }
+        if (last <= first.number()) {
+            return first;
+        }
+        int number = ThreadLocalRandom.current().nextInt(first.number(), last + 1);
+        ParkingSpot spot = freeSpots.ceiling(new ParkingSpot("", 0, number, ParkingStatus.AVAILABLE, first.size(), List.of()));
+        return spot != null ? spot : firstFree();
+    }
+
+    NavigableSet<ParkingSpot> freeSpots() {
+        return freeSpots;
+    }
+
+    OccupancyTally occupancy() {
+        return occupancy;
+    }
+
+    void markFree(ParkingSpot spot) {
+        freeSpots.add(spot);
+    }
+
+    void markTaken(ParkingSpot spot) {
+        freeSpots.remove(spot);
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.garage.service;
+
+public record BatchResult<T>(String licensePlate, T value, RuntimeException error) {
+
+    public static <T> BatchResult<T> success(String licensePlate, T value) {
+        return new BatchResult<>(licensePlate, value, null);
+    }
+
+    public static <T> BatchResult<T> failure(String licensePlate, RuntimeException error) {
+        return new BatchResult<>(licensePlate, null, error);
+    }
+
+    public boolean isSuccess() {
+        return error == null;
+    }
+}
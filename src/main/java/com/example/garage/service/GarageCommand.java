@@ -0,0 +1,221 @@
+package com.example.garage.service;
+
+import com.example.garage.model.Car;
+import com.example.garage.model.CreateSpotRequest;
+import com.example.garage.model.OccupancySummary;
+import com.example.garage.model.ParkingSpot;
+import com.example.garage.model.ParkingStatus;
+import com.example.garage.model.Reservation;
+import com.example.garage.model.SpotFilter;
+import com.example.garage.model.VehicleArrival;
+import com.example.garage.model.VehicleSize;
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.type.TypeFactory;
+
+import java.time.Duration;
+import java.util.List;
+
+// One request against a garage, as data, so it runs the same on the node that owns the garage wherever it arrived
+@JsonTypeInfo(use = JsonTypeInfo.Id.NAME, property = "op")
+@JsonSubTypes({
+        @JsonSubTypes.Type(value = GarageCommand.FindSpots.class, name = "find-spots"),
+        @JsonSubTypes.Type(value = GarageCommand.ListSpots.class, name = "list-spots"),
+        @JsonSubTypes.Type(value = GarageCommand.GetOccupancy.class, name = "occupancy"),
+        @JsonSubTypes.Type(value = GarageCommand.UpdateSpotStatus.class, name = "update-spot-status"),
+        @JsonSubTypes.Type(value = GarageCommand.CreateSpot.class, name = "create-spot"),
+        @JsonSubTypes.Type(value = GarageCommand.ImportSpots.class, name = "import-spots"),
+        @JsonSubTypes.Type(value = GarageCommand.CheckIn.class, name = "check-in"),
+        @JsonSubTypes.Type(value = GarageCommand.CheckOut.class, name = "check-out"),
+        @JsonSubTypes.Type(value = GarageCommand.CheckInBatch.class, name = "check-in-batch"),
+        @JsonSubTypes.Type(value = GarageCommand.CheckOutBatch.class, name = "check-out-batch"),
+        @JsonSubTypes.Type(value = GarageCommand.FindCar.class, name = "find-car"),
+        @JsonSubTypes.Type(value = GarageCommand.FindCarInSpot.class, name = "find-car-in-spot"),
+        @JsonSubTypes.Type(value = GarageCommand.FindCars.class, name = "find-cars"),
+        @JsonSubTypes.Type(value = GarageCommand.Reserve.class, name = "reserve"),
+        @JsonSubTypes.Type(value = GarageCommand.GetReservation.class, name = "get-reservation"),
+        @JsonSubTypes.Type(value = GarageCommand.CancelReservation.class, name = "cancel-reservation"),
+        @JsonSubTypes.Type(value = GarageCommand.CheckInReservation.class, name = "check-in-reservation")
+})
+public sealed interface GarageCommand<T> {
+
+    T apply(ParkingService service);
+
+    // What apply returns, for decoding a result that came back from another node
+    JavaType resultType(TypeFactory types);
+
+    record FindSpots(SpotFilter filter, String cursor, Integer limit) implements GarageCommand<SpotPage> {
+        public SpotPage apply(ParkingService service) {
+            return service.findSpots(filter, cursor, limit);
+        }
+
+        public JavaType resultType(TypeFactory types) {
+            return types.constructType(SpotPage.class);
+        }
+    }
+
+    // The collected form of a spot stream, for when the spots have to travel between nodes
+    record ListSpots(SpotFilter filter, String cursor, Integer limit) implements GarageCommand<List<ParkingSpot>> {
+        public List<ParkingSpot> apply(ParkingService service) {
+            try (var spots = service.streamSpots(filter, cursor, limit)) {
+                return spots.toList();
+            }
+        }
+
+        public JavaType resultType(TypeFactory types) {
+            return types.constructCollectionType(List.class, ParkingSpot.class);
+        }
+    }
+
+    record GetOccupancy() implements GarageCommand<OccupancySummary> {
+        public OccupancySummary apply(ParkingService service) {
+            return service.getOccupancy();
+        }
+
+        public JavaType resultType(TypeFactory types) {
+            return types.constructType(OccupancySummary.class);
+        }
+    }
+
+    record UpdateSpotStatus(String spotId, ParkingStatus status) implements GarageCommand<ParkingSpot> {
+        public ParkingSpot apply(ParkingService service) {
+            return service.updateSpotStatus(spotId, status);
+        }
+
+        public JavaType resultType(TypeFactory types) {
+            return types.constructType(ParkingSpot.class);
+        }
+    }
+
+    record CreateSpot(CreateSpotRequest request) implements GarageCommand<ParkingSpot> {
+        public ParkingSpot apply(ParkingService service) {
+            return service.createParkingSpot(request);
+        }
+
+        public JavaType resultType(TypeFactory types) {
+            return types.constructType(ParkingSpot.class);
+        }
+    }
+
+    record ImportSpots(List<CreateSpotRequest> spots) implements GarageCommand<Integer> {
+        public Integer apply(ParkingService service) {
+            return service.importSpots(spots.stream());
+        }
+
+        public JavaType resultType(TypeFactory types) {
+            return types.constructType(Integer.class);
+        }
+    }
+
+    record CheckIn(String licensePlate, VehicleSize size, List<String> features) implements GarageCommand<Car> {
+        public Car apply(ParkingService service) {
+            return service.checkIn(licensePlate, size, features);
+        }
+
+        public JavaType resultType(TypeFactory types) {
+            return types.constructType(Car.class);
+        }
+    }
+
+    record CheckOut(String licensePlate) implements GarageCommand<Double> {
+        public Double apply(ParkingService service) {
+            return service.checkOut(licensePlate);
+        }
+
+        public JavaType resultType(TypeFactory types) {
+            return types.constructType(Double.class);
+        }
+    }
+
+    record CheckInBatch(List<VehicleArrival> arrivals) implements GarageCommand<List<BatchResult<Car>>> {
+        public List<BatchResult<Car>> apply(ParkingService service) {
+            return service.checkInBatch(arrivals);
+        }
+
+        public JavaType resultType(TypeFactory types) {
+            return types.constructCollectionType(List.class, types.constructParametricType(BatchResult.class, Car.class));
+        }
+    }
+
+    record CheckOutBatch(List<String> licensePlates) implements GarageCommand<List<BatchResult<Double>>> {
+        public List<BatchResult<Double>> apply(ParkingService service) {
+            return service.checkOutBatch(licensePlates);
+        }
+
+        public JavaType resultType(TypeFactory types) {
+            return types.constructCollectionType(List.class, types.constructParametricType(BatchResult.class, Double.class));
+        }
+    }
+
+    record FindCar(String licensePlate) implements GarageCommand<Car> {
+        public Car apply(ParkingService service) {
+            return service.findCarByLicensePlate(licensePlate);
+        }
+
+        public JavaType resultType(TypeFactory types) {
+            return types.constructType(Car.class);
+        }
+    }
+
+    record FindCarInSpot(String spotId) implements GarageCommand<Car> {
+        public Car apply(ParkingService service) {
+            return service.findCarInSpot(spotId);
+        }
+
+        public JavaType resultType(TypeFactory types) {
+            return types.constructType(Car.class);
+        }
+    }
+
+    record FindCars(Integer level, Duration parkedLongerThan, Integer limit) implements GarageCommand<List<Car>> {
+        public List<Car> apply(ParkingService service) {
+            return service.findCars(level, parkedLongerThan, limit);
+        }
+
+        public JavaType resultType(TypeFactory types) {
+            return types.constructCollectionType(List.class, Car.class);
+        }
+    }
+
+    record Reserve(String licensePlate, VehicleSize size, List<String> features, Duration hold) implements GarageCommand<Reservation> {
+        public Reservation apply(ParkingService service) {
+            return service.reserve(licensePlate, size, features, hold);
+        }
+
+        public JavaType resultType(TypeFactory types) {
+            return types.constructType(Reservation.class);
+        }
+    }
+
+    record GetReservation(String reservationId) implements GarageCommand<Reservation> {
+        public Reservation apply(ParkingService service) {
+            return service.getReservation(reservationId);
+        }
+
+        public JavaType resultType(TypeFactory types) {
+            return types.constructType(Reservation.class);
+        }
+    }
+
+    record CancelReservation(String reservationId) implements GarageCommand<Void> {
+        public Void apply(ParkingService service) {
+            service.cancelReservation(reservationId);
+            return null;
+        }
+
+        public JavaType resultType(TypeFactory types) {
+            return types.constructType(Void.class);
+        }
+    }
+
+    record CheckInReservation(String reservationId) implements GarageCommand<Car> {
+        public Car apply(ParkingService service) {
+            return service.checkInReservation(reservationId);
+        }
+
+        public JavaType resultType(TypeFactory types) {
+            return types.constructType(Car.class);
+        }
+    }
+}
@@ -0,0 +1,23 @@
+package com.example.garage.service;
+
+import com.example.garage.model.CreateSpotRequest;
+import com.example.garage.model.ParkingSpot;
+import com.example.garage.model.SpotFilter;
+
+import java.util.stream.Stream;
+
+// Where garage-scoped requests run: on this process's own shards, or on whichever cluster node owns the garage
+public interface GarageDirectory {
+
+    <T> T run(String garageId, GarageCommand<T> command);
+
+    // A garage held elsewhere gets the layout collected into one command
+    default int importSpots(String garageId, Stream<CreateSpotRequest> spots) {
+        return run(garageId, new GarageCommand.ImportSpots(spots.toList()));
+    }
+
+    // A garage held elsewhere sends its matching spots back in one response
+    default Stream<ParkingSpot> streamSpots(String garageId, SpotFilter filter, String cursor, Integer limit) {
+        return run(garageId, new GarageCommand.ListSpots(filter, cursor, limit)).stream();
+    }
+}
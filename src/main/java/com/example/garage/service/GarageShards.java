@@ -0,0 +1,488 @@
+package com.example.garage.service;
+
+import com.example.garage.events.ParkingEventPublisher;
+import com.example.garage.exception.GarageMovedException;
+import com.example.garage.exception.GarageNotFoundException;
+import com.example.garage.metrics.GarageMetrics;
+import com.example.garage.model.CreateSpotRequest;
+import com.example.garage.model.ParkingSpot;
+import com.example.garage.model.ParkingStatus;
+import com.example.garage.model.SpotFilter;
+import com.example.garage.persistence.GarageEvent;
+import com.example.garage.persistence.GarageJournal;
+import com.example.garage.persistence.GarageState;
+import com.example.garage.persistence.WriteAheadLog;
+import com.example.garage.pricing.PricingEngine;
+import com.example.garage.repository.ArrayParkingSpotRepository;
+import com.example.garage.repository.CarRepository;
+import com.example.garage.repository.MapParkingSpotRepository;
+import com.example.garage.repository.ParkingSpotRepository;
+import org.springframework.beans.factory.DisposableBean;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+// Further garages served from this process alongside its own. Each is a shard with its own spot and car repositories,
+// indexes, locks and service, so sites never contend with each other. A shard is loaded on first use from its
+// persisted log, or else from <garage id>.csv or .ndjson in garage.shards.layout-directory, and evicted once idle.
+// A shard holding reservations, or without persistence one with a car parked or a spot added or changed, is never evicted.
+// A shard is loaded outside the map, behind a future other requests for it wait on, so loading one garage never holds
+// up another. Requests hold a shard's read lock; eviction and handing the shard to another node take its write lock.
+@Component
+public class GarageShards implements GarageDirectory, DisposableBean {
+
+    private static final Pattern GARAGE_ID = Pattern.compile("[A-Za-z0-9][A-Za-z0-9_-]{0,63}");
+    // Shards are not streamed over server-sent events, so their change rings only need to exist
+    private static final int SHARD_CHANGE_BUFFER = 64;
+
+    // Completed once the shard is loaded; removed again if loading fails
+    private final Map<String, CompletableFuture<Shard>> shards = new ConcurrentHashMap<>();
+    // Garages handed to another node; they are not loaded here again until handed back
+    private final Set<String> released = ConcurrentHashMap.newKeySet();
+    private final String spotStore;
+    private final Path layoutDirectory;
+    private final Duration idleTimeout;
+    private final Path persistenceDirectory;
+    private final int segmentSize;
+    private final Duration compactionInterval;
+    private final SpotLayoutReader spotLayoutReader;
+    private final GarageMetrics metrics;
+    private final PricingEngine pricing;
+    private final ParkingEventPublisher events;
+    private final Clock clock;
+
+    public GarageShards(@Value("${garage.spot-store:map}") String spotStore,
+                        @Value("${garage.shards.layout-directory:garages}") Path layoutDirectory,
+                        @Value("${garage.shards.idle-timeout:PT30M}") Duration idleTimeout,
+                        @Value("${garage.persistence.enabled:false}") boolean persistent,
+                        @Value("${garage.persistence.directory:data}") Path persistenceDirectory,
+                        @Value("${garage.shards.segment-size:4MB}") DataSize segmentSize,
+                        @Value("${garage.persistence.compaction-interval:10m}") Duration compactionInterval,
+                        SpotLayoutReader spotLayoutReader, GarageMetrics metrics, PricingEngine pricing,
+                        ParkingEventPublisher events, Clock clock) {
+        this.spotStore = spotStore;
+        this.layoutDirectory = layoutDirectory;
+        this.idleTimeout = idleTimeout;
+        this.persistenceDirectory = persistent ? persistenceDirectory.resolve("garages") : null;
+        this.segmentSize = Math.toIntExact(segmentSize.toBytes());
+        this.compactionInterval = compactionInterval;
+        this.spotLayoutReader = spotLayoutReader;
+        this.metrics = metrics;
+        this.pricing = pricing;
+        this.events = events;
+        this.clock = clock;
+    }
+
+    public static void requireGarageId(String garageId) {
+        if (garageId == null || !GARAGE_ID.matcher(garageId).matches()) {
+            throw new IllegalArgumentException("Garage id must be 1 to 64 letters, digits, '-' or '_', starting with a letter or digit");
+        }
+    }
+
+    @Override
+    public <T> T run(String garageId, GarageCommand<T> command) {
+        return call(garageId, command::apply);
+    }
+
+    @Override
+    public int importSpots(String garageId, Stream<CreateSpotRequest> spots) {
+        return call(garageId, service -> service.importSpots(spots));
+    }
+
+    // The stream reads the shard after its lock is released; at worst it sees a shard that was just evicted
+    @Override
+    public Stream<ParkingSpot> streamSpots(String garageId, SpotFilter filter, String cursor, Integer limit) {
+        return call(garageId, service -> service.streamSpots(filter, cursor, limit));
+    }
+
+    // Loads the garage on first use; every call counts as activity that keeps it loaded
+    public <T> T call(String garageId, Function<ParkingService, T> action) {
+        requireGarageId(garageId);
+        while (true) {
+            Shard shard = acquire(garageId, this::loadUnlessReleased);
+            shard.lock.readLock().lock();
+            try {
+                // Evicted or handed away between lookup and lock; look it up again
+                if (!shard.retired) {
+                    shard.lastUsedMillis = clock.millis();
+                    return action.apply(shard.service);
+                }
+            } finally {
+                shard.lock.readLock().unlock();
+            }
+        }
+    }
+
+    // Runs only against a garage already loaded here, never loading it, and does not count as activity
+    public <T> Optional<T> callIfLoaded(String garageId, Function<ParkingService, T> action) {
+        CompletableFuture<Shard> loading = shards.get(garageId);
+        Shard shard = loading == null ? null : loaded(loading);
+        if (shard == null) {
+            return Optional.empty();
+        }
+        shard.lock.readLock().lock();
+        try {
+            return shard.retired ? Optional.empty() : Optional.ofNullable(action.apply(shard.service));
+        } finally {
+            shard.lock.readLock().unlock();
+        }
+    }
+
+    public ParkingService service(String garageId) {
+        return call(garageId, Function.identity());
+    }
+
+    public boolean isLoaded(String garageId) {
+        return shards.containsKey(garageId);
+    }
+
+    public int loadedCount() {
+        return shards.size();
+    }
+
+    public void forEachLoaded(BiConsumer<String, ParkingService> action) {
+        shards.forEach((garageId, loading) -> {
+            Shard shard = loaded(loading);
+            if (shard != null) {
+                action.accept(garageId, shard.service);
+            }
+        });
+    }
+
+    // Loaded garages, plus those only persisted here since they were evicted
+    public Set<String> heldIds() {
+        Set<String> held = new HashSet<>(shards.keySet());
+        if (persistenceDirectory != null && Files.isDirectory(persistenceDirectory)) {
+            try (Stream<Path> directories = Files.list(persistenceDirectory)) {
+                directories.filter(Files::isDirectory).map(path -> path.getFileName().toString()).forEach(held::add);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Cannot list " + persistenceDirectory, e);
+            }
+        }
+        held.removeAll(released);
+        return held;
+    }
+
+    // Hands the garage over: waits for requests in flight, then removes it here and returns what it held. Null when
+    // it holds nothing beyond its layout file, which the receiving node reads for itself. The garage is not loaded
+    // here again until install() hands it back.
+    public ShardState export(String garageId) {
+        requireGarageId(garageId);
+        released.add(garageId);
+        Shard shard;
+        while (true) {
+            if (!shards.containsKey(garageId)
+                    && (persistenceDirectory == null || !Files.isDirectory(persistenceDirectory.resolve(garageId)))) {
+                return null;
+            }
+            shard = acquire(garageId, this::load);
+            shard.lock.writeLock().lock();
+            // Evicted in between; its log is reloaded on the next pass
+            if (!shard.retired) {
+                break;
+            }
+            shard.lock.writeLock().unlock();
+        }
+        try {
+            shard.retired = true;
+            Shard exported = shard;
+            shards.computeIfPresent(garageId, (id, loading) -> loaded(loading) == exported ? null : loading);
+            ShardState state = new ShardState(
+                    List.copyOf(shard.service.getAllSpots()),
+                    List.copyOf(shard.cars.findAll()),
+                    shard.service.getReservations());
+            shard.close();
+            if (shard.log != null) {
+                deleteRecursively(persistenceDirectory.resolve(garageId));
+            }
+            return state;
+        } finally {
+            shard.lock.writeLock().unlock();
+        }
+    }
+
+    // Takes over a garage handed from another node, replacing anything held here under the same id
+    public void install(String garageId, ShardState state) {
+        requireGarageId(garageId);
+        CompletableFuture<Shard> previous = shards.put(garageId, CompletableFuture.completedFuture(restore(garageId, state)));
+        released.remove(garageId);
+        if (previous != null) {
+            // Retired once loaded, should it still be loading
+            previous.thenAccept(GarageShards::retire);
+        }
+    }
+
+    // A released garage may be loaded here again, as when it comes back without state to hand over
+    public void reclaim(String garageId) {
+        released.remove(garageId);
+    }
+
+    @Scheduled(fixedDelayString = "${garage.reservations.expiry-interval:PT1S}")
+    public void expireReservations() {
+        forEachLoaded((garageId, service) -> service.expireReservations());
+    }
+
+    // Under the write lock, so no request is in the shard, and closed before it leaves the map, so a reload of the
+    // same garage never opens its log while this one still has it open. A request that looked it up just before
+    // finds it retired and loads it again.
+    @Scheduled(fixedDelayString = "${garage.shards.eviction-interval:PT1M}")
+    public void evictIdle() {
+        long idleBefore = clock.millis() - idleTimeout.toMillis();
+        shards.forEach((garageId, loading) -> {
+            Shard shard = loaded(loading);
+            if (shard == null || shard.lastUsedMillis > idleBefore || !shard.lock.writeLock().tryLock()) {
+                return;
+            }
+            try {
+                if (!shard.retired && shard.lastUsedMillis <= idleBefore && canReload(shard)) {
+                    shard.retired = true;
+                    shard.close();
+                    shards.remove(garageId, loading);
+                }
+            } finally {
+                shard.lock.writeLock().unlock();
+            }
+        });
+    }
+
+    @Override
+    public void destroy() {
+        shards.values().forEach(loading -> {
+            Shard shard = loaded(loading);
+            if (shard != null) {
+                shard.close();
+            }
+        });
+        shards.clear();
+    }
+
+    // The first caller for a garage loads it on its own thread; later ones wait for that load without holding the map
+    private Shard acquire(String garageId, Function<String, Shard> loader) {
+        CompletableFuture<Shard> loading = shards.get(garageId);
+        if (loading == null) {
+            CompletableFuture<Shard> created = new CompletableFuture<>();
+            loading = shards.putIfAbsent(garageId, created);
+            if (loading == null) {
+                loading = created;
+                try {
+                    created.complete(loader.apply(garageId));
+                } catch (RuntimeException e) {
+                    shards.remove(garageId, created);
+                    created.completeExceptionally(e);
+                }
+            }
+        }
+        try {
+            return loading.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException cause ? cause : e;
+        }
+    }
+
+    // Null while still loading or when loading failed
+    private static Shard loaded(CompletableFuture<Shard> loading) {
+        return loading.isDone() && !loading.isCompletedExceptionally() ? loading.join() : null;
+    }
+
+    // Reservations are never journaled, so a shard holding any stays loaded either way
+    private boolean canReload(Shard shard) {
+        if (!shard.service.getReservations().isEmpty()) {
+            return false;
+        }
+        if (shard.log != null) {
+            return true;
+        }
+        return !shard.edited.get() && shard.service.getOccupancy().total().occupied() == 0;
+    }
+
+    private Shard loadUnlessReleased(String garageId) {
+        if (released.contains(garageId)) {
+            throw new GarageMovedException("Garage " + garageId + " was handed to another node");
+        }
+        return load(garageId);
+    }
+
+    private Shard load(String garageId) {
+        Path layout = findLayout(garageId);
+        Path logDirectory = persistenceDirectory == null ? null : persistenceDirectory.resolve(garageId);
+        boolean persisted = logDirectory != null && Files.isDirectory(logDirectory);
+        if (layout == null && !persisted) {
+            throw new GarageNotFoundException("Garage " + garageId + " not found");
+        }
+
+        try {
+            return open(garageId, (service, log, parkingSpotRepository, carRepository) -> {
+                GarageState state = log == null ? new GarageState() : log.recoveredState();
+                if (!state.isEmpty()) {
+                    state.spots().forEach(parkingSpotRepository::save);
+                    state.cars().forEach(carRepository::save);
+                    return false;
+                }
+                if (layout == null) {
+                    throw new GarageNotFoundException("Garage " + garageId + " not found");
+                }
+                // Imported through the service so the layout is journaled and later events replay on top of it
+                try (Stream<CreateSpotRequest> spots = spotLayoutReader.read(
+                        Files.newBufferedReader(layout, StandardCharsets.UTF_8), LayoutFormat.fromFileName(layout.toString()))) {
+                    service.importSpots(spots);
+                    return false;
+                }
+            });
+        } catch (GarageNotFoundException e) {
+            // A log directory that recovered nothing holds no garage; drop it so it is not listed as held here
+            deleteRecursively(logDirectory);
+            throw e;
+        }
+    }
+
+    private Shard restore(String garageId, ShardState state) {
+        if (persistenceDirectory != null) {
+            // Whatever an earlier stint here left behind is older than the state being handed over
+            deleteRecursively(persistenceDirectory.resolve(garageId));
+        }
+        return open(garageId, (service, log, parkingSpotRepository, carRepository) -> {
+            if (log != null) {
+                // Reservations are never journaled, so their spots are logged as free
+                List<GarageEvent> events = new ArrayList<>();
+                state.spots().forEach(spot -> events.add(new GarageEvent.SpotCreated(
+                        spot.status() == ParkingStatus.RESERVED ? spot.withStatus(ParkingStatus.AVAILABLE) : spot)));
+                state.cars().forEach(car -> events.add(new GarageEvent.CarCheckedIn(car)));
+                log.appendAll(events);
+            }
+            state.spots().forEach(parkingSpotRepository::save);
+            state.cars().forEach(carRepository::save);
+            state.reservations().forEach(service::restoreReservation);
+            // Without a log, nothing tells what was handed over apart from the layout
+            return log == null;
+        });
+    }
+
+    private Shard open(String garageId, ShardFiller filler) {
+        ParkingSpotRepository parkingSpotRepository = "arrays".equals(spotStore)
+                ? new ArrayParkingSpotRepository(SHARD_CHANGE_BUFFER)
+                : new MapParkingSpotRepository(SHARD_CHANGE_BUFFER);
+        CarRepository carRepository = new CarRepository(parkingSpotRepository);
+        WriteAheadLog log = null;
+        AtomicBoolean edited = new AtomicBoolean();
+        try {
+            log = persistenceDirectory == null ? null : WriteAheadLog.open(persistenceDirectory.resolve(garageId), segmentSize, compactionInterval);
+            // Without a log, spot changes are only noted: occupancy tells whether the cars are back to the layout,
+            // but not whether a spot was added or put out of service
+            GarageJournal journal = log != null ? log : event -> {
+                if (event instanceof GarageEvent.SpotCreated || event instanceof GarageEvent.SpotStatusChanged) {
+                    edited.set(true);
+                }
+            };
+            ParkingService service = new ParkingService(parkingSpotRepository, carRepository, journal, events.forGarage(garageId), metrics,
+                    pricing, clock);
+            edited.set(filler.fill(service, log, parkingSpotRepository, carRepository));
+            return new Shard(service, carRepository, log, edited);
+        } catch (IOException e) {
+            closeQuietly(log);
+            throw new UncheckedIOException("Cannot load garage " + garageId, e);
+        } catch (RuntimeException e) {
+            closeQuietly(log);
+            throw e;
+        }
+    }
+
+    private Path findLayout(String garageId) {
+        for (LayoutFormat format : LayoutFormat.values()) {
+            Path layout = layoutDirectory.resolve(garageId + format.extension());
+            if (Files.isRegularFile(layout)) {
+                return layout;
+            }
+        }
+        return null;
+    }
+
+    private static void retire(Shard shard) {
+        shard.lock.writeLock().lock();
+        try {
+            shard.retired = true;
+        } finally {
+            shard.lock.writeLock().unlock();
+        }
+        shard.close();
+    }
+
+    private static void deleteRecursively(Path directory) {
+        if (!Files.exists(directory)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(directory)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot delete " + directory, e);
+        }
+    }
+
+    private static void closeQuietly(WriteAheadLog log) {
+        if (log == null) {
+            return;
+        }
+        try {
+            log.close();
+        } catch (IOException e) {
+            // Every append already waited for durability, so there is nothing left to lose
+        }
+    }
+
+    @FunctionalInterface
+    private interface ShardFiller {
+        // Returns whether the shard starts out different from its layout
+        boolean fill(ParkingService service, WriteAheadLog log, ParkingSpotRepository parkingSpotRepository,
+                  CarRepository carRepository) throws IOException;
+    }
+
+    private static final class Shard {
+        final ParkingService service;
+        final CarRepository cars;
+        final WriteAheadLog log;
+        // Set when a shard without a log changes a spot; it can no longer be rebuilt from its layout
+        final AtomicBoolean edited;
+        final ReadWriteLock lock = new ReentrantReadWriteLock();
+        volatile long lastUsedMillis;
+        // Set under the write lock once the shard is no longer served from here
+        volatile boolean retired;
+
+        Shard(ParkingService service, CarRepository cars, WriteAheadLog log, AtomicBoolean edited) {
+            this.service = service;
+            this.cars = cars;
+            this.log = log;
+            this.edited = edited;
+        }
+
+        void close() {
+            closeQuietly(log);
+        }
+    }
+}
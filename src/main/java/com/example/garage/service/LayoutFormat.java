@@ -0,0 +1,45 @@
+package com.example.garage.service;
+
+import org.springframework.http.MediaType;
+
+import java.util.Locale;
+
+public enum LayoutFormat {
+    CSV("text/csv", ".csv"),
+    NDJSON("application/x-ndjson", ".ndjson");
+
+    private final MediaType mediaType;
+    private final String extension;
+
+    LayoutFormat(String mediaType, String extension) {
+        this.mediaType = MediaType.parseMediaType(mediaType);
+        this.extension = extension;
+    }
+
+    public String extension() {
+        return extension;
+    }
+
+    public static LayoutFormat fromMediaType(String contentType) {
+        MediaType mediaType = contentType == null ? null : MediaType.parseMediaType(contentType);
+        for (LayoutFormat format : values()) {
+            if (mediaType != null && format.mediaType.isCompatibleWith(mediaType)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Unsupported layout content type " + contentType + ", expected text/csv or application/x-ndjson");
+    }
+
+    public static LayoutFormat fromFileName(String fileName) {
+        String name = fileName.toLowerCase(Locale.ROOT);
+        if (name.endsWith(".jsonl")) {
+            return NDJSON;
+        }
+        for (LayoutFormat format : values()) {
+            if (name.endsWith(format.extension)) {
+                return format;
+            }
+        }
+        throw new IllegalArgumentException("Cannot tell the layout format of " + fileName + ", expected a .csv or .ndjson file");
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.garage.service;
+
+import com.example.garage.model.Car;
+import com.example.garage.model.OverstayAlert;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+// Flags cars that stay longer than garage.overstay.tiers: the first tier is the maximum stay, each later one a penalty
+// tier. A scan reads, per tier, only the cars whose stay crossed that tier since the previous scan, as one range of the
+// car repository's check-in index, so it costs O(log n) plus the cars flagged however many are parked; check-ins and
+// check-outs pay only for keeping that index. Covers this deployment's own garage and the shards loaded here; a car
+// that crossed a tier while its shard was unloaded is still listed by GET /cars?parkedLongerThan, but not alerted.
+@Component
+public class OverstayDetector {
+
+    private final ParkingService parkingService;
+    private final GarageShards garageShards;
+    private final List<Duration> tiers;
+    private final int maxAlerts;
+    private final Clock clock;
+    private final Counter[] alertCounters;
+    // Oldest first, the newest maxAlerts; guarded by this
+    private final Deque<OverstayAlert> alerts = new ArrayDeque<>();
+    private long lastSequence;
+    // Null until the first scan, which flags every car already past a tier, as after a restart
+    private Instant scannedUpTo;
+
+    public OverstayDetector(ParkingService parkingService, GarageShards garageShards, MeterRegistry registry,
+                            @Value("${garage.overstay.tiers:PT24H}") List<Duration> tiers,
+                            @Value("${garage.overstay.max-alerts:1000}") int maxAlerts, Clock clock) {
+        if (tiers.isEmpty()) {
+            throw new IllegalArgumentException("At least one overstay tier is required");
+        }
+        for (int i = 0; i < tiers.size(); i++) {
+            if (tiers.get(i).compareTo(Duration.ZERO) <= 0 || (i > 0 && tiers.get(i).compareTo(tiers.get(i - 1)) <= 0)) {
+                throw new IllegalArgumentException("Overstay tiers must be positive and increasing, got " + tiers);
+            }
+        }
+        this.parkingService = parkingService;
+        this.garageShards = garageShards;
+        this.tiers = List.copyOf(tiers);
+        this.maxAlerts = maxAlerts;
+        this.clock = clock;
+        this.alertCounters = new Counter[tiers.size()];
+        for (int i = 0; i < tiers.size(); i++) {
+            alertCounters[i] = Counter.builder("garage.overstay.alerts")
+                    .description("Cars flagged for staying past an overstay tier")
+                    .tag("tier", String.valueOf(i + 1))
+                    .register(registry);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${garage.overstay.scan-interval:PT1M}")
+    public synchronized void scan() {
+        Instant now = clock.instant();
+        scan(null, parkingService, now);
+        garageShards.forEachLoaded((garageId, service) -> scan(garageId, service, now));
+        scannedUpTo = now;
+    }
+
+    // Alerts after the given sequence number, oldest first; all those still kept when it is null
+    public synchronized List<OverstayAlert> alertsAfter(Long sequence) {
+        return alerts.stream().filter(alert -> sequence == null || alert.sequence() > sequence).toList();
+    }
+
+    private void scan(String garageId, ParkingService service, Instant now) {
+        Set<String> flagged = new HashSet<>();
+        // Highest tier first, so a car that crossed several since the last scan is flagged once, at the highest
+        for (int tier = tiers.size(); tier >= 1; tier--) {
+            Duration threshold = tiers.get(tier - 1);
+            Instant from = scannedUpTo == null ? null : scannedUpTo.minus(threshold);
+            for (Car car : service.findCarsCheckedInBetween(from, now.minus(threshold))) {
+                if (flagged.add(car.licensePlate())) {
+                    raise(new OverstayAlert(++lastSequence, garageId, car.licensePlate(), car.assignedSpotId(),
+                            car.checkInAt(), tier, threshold, now));
+                }
+            }
+        }
+    }
+
+    private void raise(OverstayAlert alert) {
+        alerts.addLast(alert);
+        if (alerts.size() > maxAlerts) {
+            alerts.removeFirst();
+        }
+        alertCounters[alert.tier() - 1].increment();
+    }
+}
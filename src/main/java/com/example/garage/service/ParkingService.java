@@ -1,43 +1,90 @@
 package com.example.garage.service;
 
+import com.example.garage.events.ParkingEvent;
+import com.example.garage.events.ParkingEventPublisher;
+import com.example.garage.exception.CarAlreadyParkedException;
 import com.example.garage.exception.CarNotFoundException;
 import com.example.garage.exception.GarageFullException;
 import com.example.garage.exception.NoCompatibleSpotFoundException;
+import com.example.garage.exception.PlateAlreadyReservedException;
+import com.example.garage.exception.ReservationNotFoundException;
 import com.example.garage.exception.SpotAlreadyExistsException;
 import com.example.garage.exception.SpotNotFoundException;
+import com.example.garage.metrics.GarageMetrics;
 import com.example.garage.model.Car;
 import com.example.garage.model.CreateSpotRequest;
+import com.example.garage.model.OccupancySummary;
 import com.example.garage.model.ParkingSpot;
 import com.example.garage.model.ParkingStatus;
+import com.example.garage.model.Reservation;
+import com.example.garage.model.SpotFeatures;
+import com.example.garage.model.SpotFilter;
+import com.example.garage.model.VehicleArrival;
 import com.example.garage.model.VehicleSize;
+import com.example.garage.persistence.GarageEvent;
+import com.example.garage.persistence.GarageJournal;
+import com.example.garage.pricing.PricingEngine;
+import com.example.garage.pricing.Tariff;
 import com.example.garage.repository.CarRepository;
 import com.example.garage.repository.ParkingSpotRepository;
-import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
 import java.time.Clock;
 import java.time.Duration;
 import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
 
 @Service
 public class ParkingService {
 
+    private static final VehicleSize[] SPOT_SIZES = VehicleSize.values();
+    private static final int MAX_BATCH_SIZE = 1000;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final Duration DEFAULT_HOLD = Duration.ofMinutes(15);
+    private static final Duration MAX_HOLD = Duration.ofHours(24);
+    private static final Duration EXPIRY_TICK = Duration.ofSeconds(1);
+
     private final ParkingSpotRepository parkingSpotRepository;
     private final CarRepository carRepository;
-
-    @Value("${parking.rate.hourly:5.00}")
-    private double hourlyRate;
-
-    @Value("${parking.rate.premium.ev:7.50}")
-    private double premiumRate;
-
+    private final GarageJournal journal;
+    private final ParkingEventPublisher events;
+    private final GarageMetrics metrics;
+    private final PricingEngine pricing;
     private final Clock clock;
+    // Plates with a check-in under way, claimed before any spot is searched for
+    private final Set<String> arriving = ConcurrentHashMap.newKeySet();
+    // Outstanding reservations by id, and the reservation each reserved plate holds. A hold leaves the first map exactly
+    // once, by check-in, cancellation or expiry, and whichever removes it owns the spot from then on.
+    private final Map<String, ReservationHold> reservations = new ConcurrentHashMap<>();
+    private final Map<String, String> reservedPlates = new ConcurrentHashMap<>();
+    private final TimingWheel<ReservationHold> reservationExpiry;
 
-    public ParkingService(ParkingSpotRepository parkingSpotRepository, CarRepository carRepository, Clock clock) {
+    public ParkingService(ParkingSpotRepository parkingSpotRepository, CarRepository carRepository, GarageJournal journal,
+                          ParkingEventPublisher events, GarageMetrics metrics, PricingEngine pricing, Clock clock) {
         this.parkingSpotRepository = parkingSpotRepository;
         this.carRepository = carRepository;
+        this.journal = journal;
+        this.events = events;
+        this.metrics = metrics;
+        this.pricing = pricing;
         this.clock = clock;
+        this.reservationExpiry = new TimingWheel<>(clock, EXPIRY_TICK);
     }
 
     public Collection<ParkingSpot> getAllSpots() {
@@ -48,6 +95,48 @@ public class ParkingService {
         return parkingSpotRepository.findAllAvailable();
     }
 
+    // Spots in id order after the cursor; a null limit returns every match on one page
+    public SpotPage findSpots(SpotFilter filter, String cursor, Integer limit) {
+        requireLimit(limit);
+        try (Stream<ParkingSpot> matches = parkingSpotRepository.findAll(filter, cursor)) {
+            Iterator<ParkingSpot> iterator = matches.iterator();
+            List<ParkingSpot> spots = new ArrayList<>(limit == null ? 16 : limit);
+            while (iterator.hasNext() && (limit == null || spots.size() < limit)) {
+                spots.add(iterator.next());
+            }
+            String nextCursor = iterator.hasNext() ? spots.get(spots.size() - 1).id() : null;
+            return new SpotPage(spots, nextCursor);
+        }
+    }
+
+    // Lazy counterpart of findSpots for streaming responses; nothing is collected
+    public Stream<ParkingSpot> streamSpots(SpotFilter filter, String cursor, Integer limit) {
+        requireLimit(limit);
+        Stream<ParkingSpot> matches = parkingSpotRepository.findAll(filter, cursor);
+        return limit == null ? matches : matches.limit(limit);
+    }
+
+    // Read from counters kept by the repository, never by scanning spots
+    public OccupancySummary getOccupancy() {
+        return new OccupancySummary(
+                parkingSpotRepository.occupancy(),
+                parkingSpotRepository.occupancyByLevel(),
+                parkingSpotRepository.occupancyBySize(),
+                parkingSpotRepository.occupancyByFeature());
+    }
+
+    public Tariff getTariff() {
+        return pricing.tariff();
+    }
+
+    // Takes effect for every check-out that starts after it returns; check-outs in flight keep the old rates
+    public Tariff updateTariff(Tariff tariff) {
+        if (tariff == null) {
+            throw new IllegalArgumentException("Tariff cannot be null");
+        }
+        return pricing.replace(tariff);
+    }
+
     public ParkingSpot updateSpotStatus(String spotId, ParkingStatus status) {
         if (spotId == null || spotId.trim().isEmpty()) {
             throw new IllegalArgumentException("Spot id cannot be null or empty");
@@ -55,15 +144,380 @@ public class ParkingService {
         if (status == null) {
             throw new IllegalArgumentException("Status cannot be null");
         }
+        if (status == ParkingStatus.RESERVED) {
+            throw new IllegalArgumentException("Spots can only be reserved through a reservation");
+        }
         
-        ParkingSpot spot = parkingSpotRepository.findById(spotId)
-                .orElseThrow(() -> new SpotNotFoundException("Spot with id " + spotId + " not found"));
-        
-        ParkingSpot updatedSpot = new ParkingSpot(spot.id(), spot.level(), spot.number(), status, spot.size(), spot.features());
-        return parkingSpotRepository.save(updatedSpot);
+        while (true) {
+            ParkingSpot spot = parkingSpotRepository.findById(spotId)
+                    .orElseThrow(() -> new SpotNotFoundException("Spot with id " + spotId + " not found"));
+            if (spot.status() == ParkingStatus.RESERVED) {
+                throw new IllegalArgumentException("Spot " + spotId + " is held by a reservation");
+            }
+
+            ParkingSpot updatedSpot = spot.withStatus(status);
+            // Journaled before the status is visible: a spot freed here cannot be claimed, and its check-in journaled,
+            // until the change is in the log. A failed append leaves the spot as it was.
+            if (parkingSpotRepository.replace(spot, updatedSpot, () -> journal.append(new GarageEvent.SpotStatusChanged(spotId, status)))) {
+                return updatedSpot;
+            }
+            metrics.casFailure(GarageMetrics.Contention.STATUS_UPDATE);
+        }
     }
 
     public ParkingSpot createParkingSpot(CreateSpotRequest request) {
+        validateSpotRequest(request);
+        if (parkingSpotRepository.existsById(request.id())) {
+            throw new SpotAlreadyExistsException("Spot with id " + request.id() + " already exists");
+        }
+
+        ParkingSpot newSpot = newSpot(request);
+
+        // Journaled before the spot is visible, so no check-in into it can reach the log first
+        journal.append(new GarageEvent.SpotCreated(newSpot));
+        return parkingSpotRepository.save(newSpot);
+    }
+
+    // All-or-nothing: nothing is created unless every spot in the layout is valid and new
+    public int importSpots(Stream<CreateSpotRequest> requests) {
+        List<ParkingSpot> spots = new ArrayList<>();
+        Set<String> ids = new HashSet<>();
+        Set<String> repeated = new LinkedHashSet<>();
+        requests.forEach(request -> {
+            try {
+                validateSpotRequest(request);
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Layout entry " + (spots.size() + 1) + ": " + e.getMessage(), e);
+            }
+            if (!ids.add(request.id())) {
+                repeated.add(request.id());
+            }
+            spots.add(newSpot(request));
+        });
+        if (spots.isEmpty()) {
+            throw new IllegalArgumentException("Layout contains no spots");
+        }
+        if (!repeated.isEmpty()) {
+            throw new IllegalArgumentException("Layout lists spot ids more than once: " + describeIds(repeated));
+        }
+        Set<String> existing = parkingSpotRepository.findExistingIds(ids);
+        if (!existing.isEmpty()) {
+            throw new SpotAlreadyExistsException("Spots already exist: " + describeIds(existing));
+        }
+
+        journal.appendAll(spots.stream().<GarageEvent>map(GarageEvent.SpotCreated::new).toList());
+        parkingSpotRepository.saveAll(spots);
+        return spots.size();
+    }
+
+    public Car checkIn(String licensePlate, VehicleSize size) {
+        return checkIn(licensePlate, size, null);
+    }
+
+    // Only spots carrying every requested feature qualify; null or empty features accept any spot
+    public Car checkIn(String licensePlate, VehicleSize size, List<String> features) {
+        if (licensePlate == null || licensePlate.trim().isEmpty()) {
+            throw new IllegalArgumentException("License plate cannot be null or empty");
+        }
+        if (size == null) {
+            throw new IllegalArgumentException("Vehicle size cannot be null");
+        }
+
+        long start = System.nanoTime();
+        claimPlate(licensePlate);
+        try {
+            ParkingSpot spot = claimCompatibleSpot(size, features, ParkingStatus.OCCUPIED);
+
+            Car car = new Car(licensePlate, spot.id(), Instant.now(clock), size);
+            return park(car, spot);
+        } finally {
+            arriving.remove(licensePlate);
+            metrics.recordCheckIn(System.nanoTime() - start);
+        }
+    }
+
+    // Holds the narrowest compatible spot for the car until it arrives or the hold runs out; null hold takes the default
+    public Reservation reserve(String licensePlate, VehicleSize size, List<String> features, Duration hold) {
+        if (licensePlate == null || licensePlate.trim().isEmpty()) {
+            throw new IllegalArgumentException("License plate cannot be null or empty");
+        }
+        if (size == null) {
+            throw new IllegalArgumentException("Vehicle size cannot be null");
+        }
+        Duration holdFor = hold == null ? DEFAULT_HOLD : hold;
+        if (holdFor.isNegative() || holdFor.isZero() || holdFor.compareTo(MAX_HOLD) > 0) {
+            throw new IllegalArgumentException("Hold must be positive and at most " + MAX_HOLD.toHours() + " hours");
+        }
+
+        claimPlate(licensePlate);
+        try {
+            ParkingSpot spot = claimCompatibleSpot(size, features, ParkingStatus.RESERVED);
+            Instant now = Instant.now(clock);
+            Reservation reservation = new Reservation(UUID.randomUUID().toString(), licensePlate, size, spot.id(), now, now.plus(holdFor));
+            ReservationHold entry = new ReservationHold(reservation);
+            // Visible before it is scheduled, so its expiry always finds it
+            reservedPlates.put(licensePlate, reservation.id());
+            reservations.put(reservation.id(), entry);
+            reservationExpiry.schedule(entry, reservation.expiresAt());
+            return reservation;
+        } finally {
+            arriving.remove(licensePlate);
+        }
+    }
+
+    public Reservation getReservation(String reservationId) {
+        return findHold(reservationId).reservation;
+    }
+
+    // Parks the car in the spot its reservation holds
+    public Car checkInReservation(String reservationId) {
+        long start = System.nanoTime();
+        ReservationHold hold = findHold(reservationId);
+        Reservation reservation = hold.reservation;
+        claimPlate(reservation.licensePlate(), reservationId);
+        try {
+            // Taking the hold is the claim: an expiry or cancellation that got there first wins
+            if (!reservations.remove(reservationId, hold)) {
+                throw reservationNotFound(reservationId);
+            }
+            reservationExpiry.cancel(hold);
+            reservedPlates.remove(reservation.licensePlate(), reservationId);
+            ParkingSpot spot = occupyReservedSpot(reservation.spotId());
+
+            return park(new Car(reservation.licensePlate(), spot.id(), Instant.now(clock), reservation.size()), spot);
+        } finally {
+            arriving.remove(reservation.licensePlate());
+            metrics.recordCheckIn(System.nanoTime() - start);
+        }
+    }
+
+    public void cancelReservation(String reservationId) {
+        ReservationHold hold = findHold(reservationId);
+        if (!reservations.remove(reservationId, hold)) {
+            throw reservationNotFound(reservationId);
+        }
+        reservationExpiry.cancel(hold);
+        release(hold.reservation);
+    }
+
+    public List<Reservation> getReservations() {
+        return reservations.values().stream().map(hold -> hold.reservation).toList();
+    }
+
+    // Takes over a reservation whose spot arrived already RESERVED, as when a garage moves between nodes
+    public void restoreReservation(Reservation reservation) {
+        ReservationHold entry = new ReservationHold(reservation);
+        reservedPlates.put(reservation.licensePlate(), reservation.id());
+        reservations.put(reservation.id(), entry);
+        reservationExpiry.schedule(entry, reservation.expiresAt());
+    }
+
+    // Returns the spots of lapsed reservations to the free pool. Only holds whose deadline passed on the clock are
+    // visited; reservations are not journaled, so after a restart the log has their spots free and they are gone.
+    @Scheduled(fixedDelayString = "${garage.reservations.expiry-interval:PT1S}")
+    public void expireReservations() {
+        reservationExpiry.advance(hold -> {
+            if (reservations.remove(hold.reservation.id(), hold)) {
+                release(hold.reservation);
+                metrics.reservationExpired();
+            }
+        });
+    }
+
+    public double checkOut(String licensePlate) {
+        if (licensePlate == null || licensePlate.trim().isEmpty()) {
+            throw new IllegalArgumentException("License plate cannot be null or empty");
+        }
+
+        long start = System.nanoTime();
+        try {
+            return releaseCar(licensePlate);
+        } finally {
+            metrics.recordCheckOut(System.nanoTime() - start);
+        }
+    }
+
+    public List<BatchResult<Car>> checkInBatch(List<VehicleArrival> arrivals) {
+        requireBatch(arrivals);
+
+        List<BatchResult<Car>> results = new ArrayList<>(Collections.nCopies(arrivals.size(), null));
+        Map<VehicleSize, Deque<Integer>> waiting = new EnumMap<>(VehicleSize.class);
+        List<Integer> wantingFeatures = new ArrayList<>();
+        List<String> claimedPlates = new ArrayList<>();
+        for (int i = 0; i < arrivals.size(); i++) {
+            VehicleArrival arrival = arrivals.get(i);
+            String licensePlate = arrival == null ? null : arrival.licensePlate();
+            if (licensePlate == null || licensePlate.trim().isEmpty()) {
+                results.set(i, BatchResult.failure(licensePlate, new IllegalArgumentException("License plate cannot be null or empty")));
+            } else if (arrival.size() == null) {
+                results.set(i, BatchResult.failure(licensePlate, new IllegalArgumentException("Vehicle size cannot be null")));
+            } else {
+                try {
+                    claimPlate(licensePlate);
+                } catch (CarAlreadyParkedException | PlateAlreadyReservedException e) {
+                    results.set(i, BatchResult.failure(licensePlate, e));
+                    continue;
+                }
+                claimedPlates.add(licensePlate);
+                if (arrival.features() != null && !arrival.features().isEmpty()) {
+                    wantingFeatures.add(i);
+                } else {
+                    waiting.computeIfAbsent(arrival.size(), size -> new ArrayDeque<>()).add(i);
+                }
+            }
+        }
+        try {
+            allocateBatch(arrivals, results, waiting, wantingFeatures);
+        } finally {
+            arriving.removeAll(claimedPlates);
+        }
+        return results;
+    }
+
+    private void allocateBatch(List<VehicleArrival> arrivals, List<BatchResult<Car>> results, Map<VehicleSize, Deque<Integer>> waiting,
+                               List<Integer> wantingFeatures) {
+
+        Instant now = Instant.now(clock);
+        // Feature requests are the most constrained, so they are served first, each from the feature indexes
+        for (int index : wantingFeatures) {
+            VehicleArrival arrival = arrivals.get(index);
+            try {
+                ParkingSpot spot = claimCompatibleSpot(arrival.size(), arrival.features(), ParkingStatus.OCCUPIED);
+                results.set(index, BatchResult.success(arrival.licensePlate(), park(new Car(arrival.licensePlate(), spot.id(), now, arrival.size()), spot)));
+            } catch (RuntimeException e) {
+                results.set(index, BatchResult.failure(arrival.licensePlate(), e));
+            }
+        }
+        // Largest vehicles first, so smaller ones cannot take the only spots the big ones fit
+        for (int s = SPOT_SIZES.length - 1; s >= 0; s--) {
+            VehicleSize size = SPOT_SIZES[s];
+            Deque<Integer> queue = waiting.get(size);
+            if (queue == null) {
+                continue;
+            }
+            for (VehicleSize spotSize : SPOT_SIZES) {
+                if (!isCompatible(size, spotSize)) {
+                    continue;
+                }
+                // One walk over the free spots of this size for the whole queue; spots lost to concurrent check-ins are skipped
+                Iterator<ParkingSpot> freeSpots = parkingSpotRepository.availableSpots(spotSize);
+                while (!queue.isEmpty() && freeSpots.hasNext()) {
+                    ParkingSpot spot = freeSpots.next();
+                    ParkingSpot occupiedSpot = spot.withStatus(ParkingStatus.OCCUPIED);
+                    if (parkingSpotRepository.replace(spot, occupiedSpot)) {
+                        int index = queue.poll();
+                        String licensePlate = arrivals.get(index).licensePlate();
+                        try {
+                            results.set(index, BatchResult.success(licensePlate, park(new Car(licensePlate, spot.id(), now, size), occupiedSpot)));
+                        } catch (RuntimeException e) {
+                            results.set(index, BatchResult.failure(licensePlate, e));
+                        }
+                    } else {
+                        metrics.casFailure(GarageMetrics.Contention.SPOT_CLAIM);
+                    }
+                }
+            }
+            for (int index : queue) {
+                metrics.noCompatibleSpot(size);
+                results.set(index, BatchResult.failure(arrivals.get(index).licensePlate(),
+                        new NoCompatibleSpotFoundException("No compatible spot available for size " + size)));
+            }
+        }
+    }
+
+    public List<BatchResult<Double>> checkOutBatch(List<String> licensePlates) {
+        requireBatch(licensePlates);
+
+        List<BatchResult<Double>> results = new ArrayList<>(licensePlates.size());
+        for (String licensePlate : licensePlates) {
+            try {
+                results.add(BatchResult.success(licensePlate, checkOut(licensePlate)));
+            } catch (RuntimeException e) {
+                results.add(BatchResult.failure(licensePlate, e));
+            }
+        }
+        return results;
+    }
+
+    public Car findCarByLicensePlate(String licensePlate) {
+        if (licensePlate == null || licensePlate.trim().isEmpty()) {
+            throw new IllegalArgumentException("License plate cannot be null or empty");
+        }
+
+        return carRepository.findByLicensePlate(licensePlate)
+                .orElseThrow(() -> {
+                    metrics.carNotFound(null);
+                    return new CarNotFoundException("Car with license plate " + licensePlate + " not found");
+                });
+    }
+
+    public Car findCarInSpot(String spotId) {
+        if (spotId == null || spotId.trim().isEmpty()) {
+            throw new IllegalArgumentException("Spot id cannot be null or empty");
+        }
+
+        return carRepository.findBySpotId(spotId)
+                .orElseThrow(() -> parkingSpotRepository.existsById(spotId)
+                        ? new CarNotFoundException("No car is parked in spot " + spotId)
+                        : new SpotNotFoundException("Spot with id " + spotId + " not found"));
+    }
+
+    // Oldest check-in first, answered from the car indexes rather than a scan: by level when one is given, otherwise
+    // from the check-in index, which stops at the cutoff when only cars parked longer than a duration are wanted.
+    // A null limit returns every match.
+    public List<Car> findCars(Integer level, Duration parkedLongerThan, Integer limit) {
+        requireLimit(limit);
+        if (parkedLongerThan != null && parkedLongerThan.isNegative()) {
+            throw new IllegalArgumentException("Parked duration cannot be negative");
+        }
+        Instant cutoff = parkedLongerThan == null ? null : Instant.now(clock).minus(parkedLongerThan);
+        Stream<Car> cars;
+        if (level != null) {
+            cars = carRepository.findByLevel(level).stream().filter(car -> cutoff == null || car.checkInAt().isBefore(cutoff));
+        } else if (cutoff != null) {
+            cars = carRepository.findCheckedInBefore(cutoff).stream();
+        } else {
+            cars = carRepository.findAllByCheckIn().stream();
+        }
+        return (limit == null ? cars : cars.limit(limit)).toList();
+    }
+
+    // From a null start, every car checked in before the end
+    public Collection<Car> findCarsCheckedInBetween(Instant from, Instant to) {
+        return from == null ? carRepository.findCheckedInBefore(to) : carRepository.findCheckedInBetween(from, to);
+    }
+
+    private double releaseCar(String licensePlate) {
+        Car car = carRepository.findByLicensePlate(licensePlate).orElse(null);
+        if (car == null) {
+            metrics.carNotFound(null);
+            throw new CarNotFoundException("Car with license plate " + licensePlate + " not found");
+        }
+
+        ParkingSpot spot = parkingSpotRepository.findById(car.assignedSpotId())
+                .orElseThrow(() -> new IllegalStateException("Assigned spot not found, data inconsistency"));
+
+        // Removing this exact car record is the claim: a concurrent check-out of the same plate loses here
+        if (!carRepository.delete(car)) {
+            metrics.carNotFound(car.size());
+            throw new CarNotFoundException("Car with license plate " + licensePlate + " not found");
+        }
+        // Journaled while the spot is still held, so a check-in that reuses it is always logged after this
+        try {
+            journal.append(new GarageEvent.CarCheckedOut(licensePlate, car.assignedSpotId()));
+        } catch (RuntimeException e) {
+            carRepository.save(car);
+            throw e;
+        }
+        releaseSpot(spot);
+
+        Instant checkedOutAt = Instant.now(clock);
+        long feeCents = pricing.feeCents(spot, car.checkInAt(), checkedOutAt);
+        events.publish(new ParkingEvent.CarLeft(car, spot, checkedOutAt, feeCents));
+        return feeCents / 100.0;
+    }
+
+    private void validateSpotRequest(CreateSpotRequest request) {
         if (request == null) {
             throw new IllegalArgumentException("Request cannot be null");
         }
@@ -73,11 +527,10 @@ public class ParkingService {
         if (request.size() == null) {
             throw new IllegalArgumentException("Spot size cannot be null");
         }
-        if (parkingSpotRepository.existsById(request.id())) {
-            throw new SpotAlreadyExistsException("Spot with id " + request.id() + " already exists");
-        }
+    }
 
-        ParkingSpot newSpot = new ParkingSpot(
+    private ParkingSpot newSpot(CreateSpotRequest request) {
+        return new ParkingSpot(
                 request.id(),
                 request.level(),
                 request.number(),
@@ -85,63 +538,158 @@ public class ParkingService {
                 request.size(),
                 request.features()
         );
+    }
 
-        return parkingSpotRepository.save(newSpot);
+    private String describeIds(Collection<String> ids) {
+        String listed = String.join(", ", ids.stream().limit(10).toList());
+        return ids.size() > 10 ? listed + " and " + (ids.size() - 10) + " more" : listed;
     }
 
-    public synchronized Car checkIn(String licensePlate, VehicleSize size) {
-        if (licensePlate == null || licensePlate.trim().isEmpty()) {
-            throw new IllegalArgumentException("License plate cannot be null or empty");
+    private void requireBatch(List<?> batch) {
+        if (batch == null || batch.isEmpty()) {
+            throw new IllegalArgumentException("Batch cannot be null or empty");
         }
-        if (size == null) {
-            throw new IllegalArgumentException("Vehicle size cannot be null");
+        if (batch.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Batch cannot contain more than " + MAX_BATCH_SIZE + " items");
         }
+    }
 
-        ParkingSpot spot = findCompatibleSpot(size)
-                .orElseThrow(() -> new NoCompatibleSpotFoundException("No compatible spot available for size " + size));
+    private void requireLimit(Integer limit) {
+        if (limit != null && (limit < 1 || limit > MAX_PAGE_SIZE)) {
+            throw new IllegalArgumentException("Limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+    }
 
-        ParkingSpot updatedSpot = new ParkingSpot(spot.id(), spot.level(), spot.number(), ParkingStatus.OCCUPIED, spot.size(), spot.features());
-        parkingSpotRepository.save(updatedSpot);
+    private void claimPlate(String licensePlate) {
+        claimPlate(licensePlate, null);
+    }
 
-        Car car = new Car(licensePlate, spot.id(), Instant.now(clock), size);
-        return carRepository.save(car);
+    // Fails fast for a plate that is parked, already arriving, or holding a reservation other than the one given,
+    // before any spot is searched for
+    private void claimPlate(String licensePlate, String reservationId) {
+        if (!arriving.add(licensePlate)) {
+            throw new CarAlreadyParkedException("Car with license plate " + licensePlate + " is already being checked in");
+        }
+        if (carRepository.findByLicensePlate(licensePlate).isPresent()) {
+            arriving.remove(licensePlate);
+            throw new CarAlreadyParkedException("Car with license plate " + licensePlate + " is already parked");
+        }
+        String reserved = reservedPlates.get(licensePlate);
+        if (reserved != null && !reserved.equals(reservationId)) {
+            arriving.remove(licensePlate);
+            throw new PlateAlreadyReservedException("Car with license plate " + licensePlate + " already holds reservation " + reserved);
+        }
     }
 
-    public double checkOut(String licensePlate) {
-        if (licensePlate == null || licensePlate.trim().isEmpty()) {
-            throw new IllegalArgumentException("License plate cannot be null or empty");
+    private ReservationHold findHold(String reservationId) {
+        if (reservationId == null || reservationId.trim().isEmpty()) {
+            throw new IllegalArgumentException("Reservation id cannot be null or empty");
         }
+        ReservationHold hold = reservations.get(reservationId);
+        if (hold == null) {
+            throw reservationNotFound(reservationId);
+        }
+        return hold;
+    }
 
-        Car car = carRepository.findByLicensePlate(licensePlate)
-                .orElseThrow(() -> new CarNotFoundException("Car with license plate " + licensePlate + " not found"));
+    private ReservationNotFoundException reservationNotFound(String reservationId) {
+        return new ReservationNotFoundException("Reservation " + reservationId + " not found or expired");
+    }
 
-        ParkingSpot spot = parkingSpotRepository.findById(car.assignedSpotId())
-                .orElseThrow(() -> new IllegalStateException("Assigned spot not found, data inconsistency"));
+    private void release(Reservation reservation) {
+        reservedPlates.remove(reservation.licensePlate(), reservation.id());
+        while (true) {
+            ParkingSpot spot = parkingSpotRepository.findById(reservation.spotId()).orElse(null);
+            if (spot == null || spot.status() != ParkingStatus.RESERVED) {
+                return;
+            }
+            if (parkingSpotRepository.replace(spot, spot.withStatus(ParkingStatus.AVAILABLE))) {
+                return;
+            }
+            metrics.casFailure(GarageMetrics.Contention.SPOT_RELEASE);
+        }
+    }
 
-        ParkingSpot updatedSpot = new ParkingSpot(spot.id(), spot.level(), spot.number(), ParkingStatus.AVAILABLE, spot.size(), spot.features());
-        parkingSpotRepository.save(updatedSpot);
+    private ParkingSpot occupyReservedSpot(String spotId) {
+        while (true) {
+            ParkingSpot spot = parkingSpotRepository.findById(spotId)
+                    .orElseThrow(() -> new IllegalStateException("Reserved spot not found, data inconsistency"));
+            if (spot.status() != ParkingStatus.RESERVED) {
+                throw new IllegalStateException("Reserved spot " + spotId + " is no longer held, data inconsistency");
+            }
+            ParkingSpot occupiedSpot = spot.withStatus(ParkingStatus.OCCUPIED);
+            if (parkingSpotRepository.replace(spot, occupiedSpot)) {
+                return occupiedSpot;
+            }
+            metrics.casFailure(GarageMetrics.Contention.SPOT_CLAIM);
+        }
+    }
 
-        carRepository.deleteByLicensePlate(licensePlate);
+    // claimAs is the status the spot is taken into: OCCUPIED for a check-in, RESERVED for a reservation
+    private ParkingSpot claimCompatibleSpot(VehicleSize size, List<String> features, ParkingStatus claimAs) {
+        // A name no spot here has ever carried cannot be satisfied
+        long featureMask = features == null || features.isEmpty() ? SpotFeatures.NONE : parkingSpotRepository.features().lookup(features);
+        // The lowest free spot while uncontended; after losing a race for it, any free spot on the same level
+        boolean spread = false;
+        while (true) {
+            long start = System.nanoTime();
+            ParkingSpot spot = featureMask == SpotFeatures.UNKNOWN ? null : findCompatibleSpot(size, featureMask, spread);
+            metrics.recordSpotSearch(System.nanoTime() - start);
+            if (spot == null) {
+                metrics.noCompatibleSpot(size);
+                throw new NoCompatibleSpotFoundException(featureMask == SpotFeatures.NONE
+                        ? "No compatible spot available for size " + size
+                        : "No compatible spot available for size " + size + " with features " + features);
+            }
 
-        long durationMinutes = Duration.between(car.checkInAt(), Instant.now(clock)).toMinutes();
-        double rate = spot.features().contains("EV_CHARGING") ? premiumRate : hourlyRate;
-        double fee = (durationMinutes / 60.0) * rate;
-        return Math.round(fee * 100.0) / 100.0;
+            ParkingSpot claimedSpot = spot.withStatus(claimAs);
+            if (parkingSpotRepository.replace(spot, claimedSpot)) {
+                return claimedSpot;
+            }
+            // Another check-in claimed the same spot first; look again, away from where the others are looking
+            metrics.casFailure(GarageMetrics.Contention.SPOT_CLAIM);
+            spread = true;
+        }
     }
 
-    public Car findCarByLicensePlate(String licensePlate) {
-        if (licensePlate == null || licensePlate.trim().isEmpty()) {
-            throw new IllegalArgumentException("License plate cannot be null or empty");
+    // Journals the check-in before the car becomes visible, so its check-out can never be logged ahead of it
+    private Car park(Car car, ParkingSpot occupiedSpot) {
+        try {
+            journal.append(new GarageEvent.CarCheckedIn(car));
+        } catch (RuntimeException e) {
+            releaseSpot(occupiedSpot);
+            throw e;
         }
+        Car parked = carRepository.save(car);
+        events.publish(new ParkingEvent.CarParked(parked, occupiedSpot));
+        return parked;
+    }
 
-        return carRepository.findByLicensePlate(licensePlate)
-                .orElseThrow(() -> new CarNotFoundException("Car with license plate " + licensePlate + " not found"));
+    private void releaseSpot(ParkingSpot spot) {
+        while (spot.status() != ParkingStatus.AVAILABLE) {
+            if (parkingSpotRepository.replace(spot, spot.withStatus(ParkingStatus.AVAILABLE))) {
+                return;
+            }
+            metrics.casFailure(GarageMetrics.Contention.SPOT_RELEASE);
+            spot = parkingSpotRepository.findById(spot.id())
+                    .orElseThrow(() -> new IllegalStateException("Assigned spot not found, data inconsistency"));
+        }
     }
 
-    private java.util.Optional<ParkingSpot> findCompatibleSpot(VehicleSize size) {
-        return parkingSpotRepository.findAllAvailable().stream()
-                .filter(spot -> isCompatible(size, spot.size()))
-                .findFirst();
+    // Null when nothing fits. Each repository probe still returns an Optional; this only saves wrapping the winner again
+    private ParkingSpot findCompatibleSpot(VehicleSize size, long featureMask, boolean spread) {
+        // Spot sizes are ordered smallest first, so the narrowest compatible free spot wins
+        for (VehicleSize spotSize : SPOT_SIZES) {
+            if (isCompatible(size, spotSize)) {
+                Optional<ParkingSpot> spot = featureMask != SpotFeatures.NONE
+                        ? parkingSpotRepository.findFirstAvailable(spotSize, featureMask)
+                        : spread ? parkingSpotRepository.findAnyAvailable(spotSize) : parkingSpotRepository.findFirstAvailable(spotSize);
+                if (spot.isPresent()) {
+                    return spot.get();
+                }
+            }
+        }
+        return null;
     }
 
     private boolean isCompatible(VehicleSize carSize, VehicleSize spotSize) {
@@ -0,0 +1,13 @@
+package com.example.garage.service;
+
+import com.example.garage.model.Reservation;
+
+// A reservation together with its place in the expiry wheel
+final class ReservationHold extends TimingWheel.Entry {
+
+    final Reservation reservation;
+
+    ReservationHold(Reservation reservation) {
+        this.reservation = reservation;
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.garage.service;
+
+import com.example.garage.model.Car;
+import com.example.garage.model.ParkingSpot;
+import com.example.garage.model.Reservation;
+
+import java.util.List;
+
+// Everything a garage holds, for handing it to another node
+public record ShardState(List<ParkingSpot> spots, List<Car> cars, List<Reservation> reservations) {
+}
@@ -0,0 +1,91 @@
+package com.example.garage.service;
+
+import com.example.garage.model.CreateSpotRequest;
+import com.example.garage.model.VehicleSize;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+// Lazily parses a garage layout one line at a time, so a large import never holds the raw file in memory.
+// CSV has the header "id,level,number,size,features" with features separated by '|'; NDJSON has one spot object per line.
+// Blank lines and lines starting with '#' are skipped in both formats.
+@Component
+public class SpotLayoutReader {
+
+    private static final String CSV_HEADER = "id,level,number,size,features";
+
+    private final ObjectMapper objectMapper;
+
+    public SpotLayoutReader(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    // The stream must be closed to release the reader
+    public Stream<CreateSpotRequest> read(Reader reader, LayoutFormat format) {
+        BufferedReader lines = reader instanceof BufferedReader buffered ? buffered : new BufferedReader(reader);
+        AtomicInteger lineNumber = new AtomicInteger();
+        boolean[] headerSeen = {format != LayoutFormat.CSV};
+        return lines.lines()
+                .map(line -> {
+                    int number = lineNumber.incrementAndGet();
+                    String trimmed = line.strip();
+                    if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                        return null;
+                    }
+                    if (!headerSeen[0]) {
+                        if (!trimmed.replace(" ", "").equalsIgnoreCase(CSV_HEADER)) {
+                            throw new IllegalArgumentException("Line " + number + ": expected CSV header \"" + CSV_HEADER + "\"");
+                        }
+                        headerSeen[0] = true;
+                        return null;
+                    }
+                    return format == LayoutFormat.CSV ? parseCsv(trimmed, number) : parseJson(trimmed, number);
+                })
+                .filter(Objects::nonNull)
+                .onClose(() -> {
+                    try {
+                        lines.close();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                });
+    }
+
+    private CreateSpotRequest parseCsv(String line, int number) {
+        String[] fields = line.split(",", -1);
+        if (fields.length < 4 || fields.length > 5) {
+            throw new IllegalArgumentException("Line " + number + ": expected 4 or 5 fields but found " + fields.length);
+        }
+        try {
+            List<String> features = fields.length == 5 && !fields[4].isBlank()
+                    ? Arrays.stream(fields[4].split("\\|")).map(String::strip).toList()
+                    : List.of();
+            return new CreateSpotRequest(
+                    fields[0].strip(),
+                    Integer.parseInt(fields[1].strip()),
+                    Integer.parseInt(fields[2].strip()),
+                    VehicleSize.valueOf(fields[3].strip()),
+                    features);
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Line " + number + ": " + e.getMessage(), e);
+        }
+    }
+
+    private CreateSpotRequest parseJson(String line, int number) {
+        try {
+            return objectMapper.readValue(line, CreateSpotRequest.class);
+        } catch (JsonProcessingException e) {
+            throw new IllegalArgumentException("Line " + number + ": " + e.getOriginalMessage(), e);
+        }
+    }
+}
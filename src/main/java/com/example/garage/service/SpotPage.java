@@ -0,0 +1,9 @@
+package com.example.garage.service;
+
+import com.example.garage.model.ParkingSpot;
+
+import java.util.List;
+
+// nextCursor is null on the last page
+public record SpotPage(List<ParkingSpot> spots, String nextCursor) {
+}
@@ -0,0 +1,156 @@
+package com.example.garage.service;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+// Hierarchical timing wheel: four levels of 64 slots, each slot spanning 64 slots of the level below. Scheduling and
+// cancelling link or unlink one entry; an entry is moved down at most once per level as its deadline nears, and
+// advancing only visits the slots whose ticks have passed, so the cost per expiry is constant however many are held.
+// Entries are intrusive, so holding one costs no allocation beyond the entry itself. Time comes from the clock only.
+final class TimingWheel<E extends TimingWheel.Entry> {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 4;
+    // Deadlines beyond the top level are parked in its farthest slot and placed again when that slot comes round
+    private static final long SPAN = 1L << (SLOT_BITS * LEVELS);
+
+    abstract static class Entry {
+        long deadlineTick;
+        Entry previous;
+        Entry next;
+
+        boolean isScheduled() {
+            return previous != null;
+        }
+    }
+
+    private static final class Head extends Entry {
+        Head() {
+            linkToSelf(this);
+        }
+    }
+
+    private final Clock clock;
+    private final long tickMillis;
+    private final Head[][] slots = new Head[LEVELS][SLOTS];
+    // Every tick up to and including this one has been expired
+    private long currentTick;
+    private int size;
+
+    TimingWheel(Clock clock, Duration tick) {
+        if (tick.toMillis() < 1) {
+            throw new IllegalArgumentException("Tick must be at least one millisecond");
+        }
+        this.clock = clock;
+        this.tickMillis = tick.toMillis();
+        for (Head[] level : slots) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                level[slot] = new Head();
+            }
+        }
+        this.currentTick = Math.floorDiv(clock.millis(), tickMillis);
+    }
+
+    // Fires on the first tick at or after the deadline, never before it
+    synchronized void schedule(E entry, Instant deadline) {
+        if (entry.isScheduled()) {
+            throw new IllegalStateException("Entry is already scheduled");
+        }
+        long tick = -Math.floorDiv(-deadline.toEpochMilli(), tickMillis);
+        entry.deadlineTick = Math.max(tick, currentTick + 1);
+        place(entry);
+        size++;
+    }
+
+    // False when the entry already fired or was never scheduled
+    synchronized boolean cancel(E entry) {
+        if (!entry.isScheduled()) {
+            return false;
+        }
+        unlink(entry);
+        size--;
+        return true;
+    }
+
+    synchronized int size() {
+        return size;
+    }
+
+    // Expires every entry whose deadline has passed on the clock; the callback runs outside the wheel's lock
+    int advance(Consumer<? super E> onExpiry) {
+        List<E> expired = expire(Math.floorDiv(clock.millis(), tickMillis));
+        expired.forEach(onExpiry);
+        return expired.size();
+    }
+
+    @SuppressWarnings("unchecked")
+    private synchronized List<E> expire(long nowTick) {
+        List<E> expired = new ArrayList<>();
+        if (size == 0) {
+            currentTick = Math.max(currentTick, nowTick);
+            return expired;
+        }
+        while (currentTick < nowTick && size > 0) {
+            long tick = ++currentTick;
+            // Moving down a level happens as the tick enters a new slot of the level above
+            for (int level = 1; level < LEVELS && (tick & ((1L << (SLOT_BITS * level)) - 1)) == 0; level++) {
+                cascade(slots[level][slotIndex(tick, level)]);
+            }
+            Head head = slots[0][(int) (tick & SLOT_MASK)];
+            for (Entry entry = head.next; entry != head; entry = head.next) {
+                unlink(entry);
+                size--;
+                expired.add((E) entry);
+            }
+        }
+        currentTick = Math.max(currentTick, nowTick);
+        return expired;
+    }
+
+    private void cascade(Head head) {
+        Entry entry = head.next;
+        linkToSelf(head);
+        while (entry != head) {
+            Entry next = entry.next;
+            entry.previous = null;
+            place(entry);
+            entry = next;
+        }
+    }
+
+    private void place(Entry entry) {
+        long delta = entry.deadlineTick - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= 1L << (SLOT_BITS * (level + 1))) {
+            level++;
+        }
+        long tick = delta < SPAN ? entry.deadlineTick : currentTick + SPAN - 1;
+        Head head = slots[level][slotIndex(tick, level)];
+        entry.next = head;
+        entry.previous = head.previous;
+        head.previous.next = entry;
+        head.previous = entry;
+    }
+
+    private static int slotIndex(long tick, int level) {
+        return (int) ((tick >>> (SLOT_BITS * level)) & SLOT_MASK);
+    }
+
+    private static void unlink(Entry entry) {
+        entry.previous.next = entry.next;
+        entry.next.previous = entry.previous;
+        entry.previous = null;
+        entry.next = null;
+    }
+
+    private static void linkToSelf(Head head) {
+        head.previous = head;
+        head.next = head;
+    }
+}
@@ -1,29 +1,59 @@
 package com.example.garage;
 
+import com.example.garage.controller.SpotEventBroadcaster;
 import com.example.garage.controller.dto.*;
 import com.example.garage.model.*;
+import com.example.garage.pricing.Tariff;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
 import org.springframework.beans.factory.annotation.Autowired;
 import com.example.garage.config.TestClockConfig;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
 import org.springframework.context.annotation.Import;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.test.annotation.DirtiesContext;
 import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpMethod;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
 import static org.assertj.core.api.Assertions.assertThat;
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
 @Import(TestClockConfig.class)
+@AutoConfigureObservability
 public class ParkingControllerIntegrationTest {
 
     @Autowired
     private TestRestTemplate restTemplate;
 
+    @Autowired
+    private SpotEventBroadcaster spotEventBroadcaster;
+
+    @LocalServerPort
+    private int port;
+
     @Test
     void testCheckInAndCheckOut() {
         // 1. Check-in a car
@@ -192,6 +222,90 @@ public class ParkingControllerIntegrationTest {
         assertThat(response.getBody().message()).contains("NONEXISTENT");
     }
 
+    @Test
+    void testCheckInWithRequestedFeatures() {
+        // 1. A compact car asking for EV charging gets the only charging spot, although compact spots are free
+        CheckInRequest checkInRequest = new CheckInRequest("EV-REQUEST", VehicleSize.COMPACT, List.of("EV_CHARGING"));
+        ResponseEntity<Car> checkInResponse = restTemplate.postForEntity("/api/v1/cars/check-in", checkInRequest, Car.class);
+        assertThat(checkInResponse.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(checkInResponse.getBody()).isNotNull();
+        assertThat(checkInResponse.getBody().assignedSpotId()).isEqualTo("C1");
+
+        // 2. With it taken, the next request for the feature is rejected
+        CheckInRequest secondRequest = new CheckInRequest("EV-REQUEST-2", VehicleSize.COMPACT, List.of("EV_CHARGING"));
+        ResponseEntity<ErrorResponse> response = restTemplate.postForEntity("/api/v1/cars/check-in", secondRequest, ErrorResponse.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        assertThat(response.getBody()).isNotNull();
+        assertThat(response.getBody().code()).isEqualTo("NO_COMPATIBLE_SPOT_FOUND");
+    }
+
+    @Test
+    void testIdempotentCheckInAndDuplicatePlate() {
+        HttpHeaders headers = new HttpHeaders();
+        headers.set("Idempotency-Key", "gate-3-retry");
+        HttpEntity<CheckInRequest> checkIn = new HttpEntity<>(new CheckInRequest("RETRY-1", VehicleSize.COMPACT), headers);
+
+        // 1. A timed-out check-in retried with the same key gets the original car back
+        ResponseEntity<Car> first = restTemplate.postForEntity("/api/v1/cars/check-in", checkIn, Car.class);
+        ResponseEntity<Car> retry = restTemplate.postForEntity("/api/v1/cars/check-in", checkIn, Car.class);
+        assertThat(first.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(retry.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(retry.getBody()).isEqualTo(first.getBody());
+
+        // 2. Without a key, the same plate is refused instead of taking a second spot
+        ResponseEntity<ErrorResponse> duplicate = restTemplate.postForEntity("/api/v1/cars/check-in",
+                new CheckInRequest("RETRY-1", VehicleSize.COMPACT), ErrorResponse.class);
+        assertThat(duplicate.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        assertThat(duplicate.getBody()).isNotNull();
+        assertThat(duplicate.getBody().code()).isEqualTo("CAR_ALREADY_PARKED");
+        assertThat(restTemplate.getForObject("/api/v1/occupancy", OccupancySummary.class).total().occupied()).isEqualTo(1);
+    }
+
+    @Test
+    void testReservationCheckIn() {
+        // 1. Reserve the EV spot ahead of arrival
+        ResponseEntity<Reservation> reserved = restTemplate.postForEntity("/api/v1/reservations",
+                new ReservationRequest("AHEAD-1", VehicleSize.OVERSIZED, List.of("EV_CHARGING"), Duration.ofMinutes(30)), Reservation.class);
+        assertThat(reserved.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        Reservation reservation = reserved.getBody();
+        assertThat(reservation).isNotNull();
+        assertThat(reservation.spotId()).isEqualTo("C1");
+
+        // 2. The held spot is no longer offered
+        ResponseEntity<ErrorResponse> taken = restTemplate.postForEntity("/api/v1/cars/check-in",
+                new CheckInRequest("OTHER-EV", VehicleSize.OVERSIZED, List.of("EV_CHARGING")), ErrorResponse.class);
+        assertThat(taken.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        assertThat(restTemplate.getForObject("/api/v1/reservations/" + reservation.id(), Reservation.class)).isEqualTo(reservation);
+
+        // 3. Arriving through the reservation parks the car in it, once
+        ResponseEntity<Car> checkIn = restTemplate.postForEntity("/api/v1/reservations/" + reservation.id() + "/check-in", null, Car.class);
+        assertThat(checkIn.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(checkIn.getBody()).isNotNull();
+        assertThat(checkIn.getBody().assignedSpotId()).isEqualTo("C1");
+
+        ResponseEntity<ErrorResponse> again = restTemplate.postForEntity("/api/v1/reservations/" + reservation.id() + "/check-in", null, ErrorResponse.class);
+        assertThat(again.getStatusCode()).isEqualTo(HttpStatus.NOT_FOUND);
+        assertThat(again.getBody()).isNotNull();
+        assertThat(again.getBody().code()).isEqualTo("RESERVATION_NOT_FOUND");
+    }
+
+    @Test
+    void testTariffUpdate() {
+        // 1. Replace the tariff with a dearer one
+        Tariff tariff = Tariff.flat(new BigDecimal("6.00"), new BigDecimal("9.00"));
+        ResponseEntity<Tariff> updateResponse = restTemplate.exchange("/api/v1/tariff", HttpMethod.PUT, new HttpEntity<>(tariff), Tariff.class);
+        assertThat(updateResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(restTemplate.getForObject("/api/v1/tariff", Tariff.class).hourlyRate()).isEqualByComparingTo("6.00");
+
+        // 2. Overlapping time bands are rejected and the tariff stays as it was
+        Tariff overlapping = new Tariff(new BigDecimal("1.00"), null, null, null, null, List.of(
+                new Tariff.TimeBand(LocalTime.of(7, 0), LocalTime.of(10, 0), BigDecimal.TEN),
+                new Tariff.TimeBand(LocalTime.of(8, 0), LocalTime.of(9, 0), BigDecimal.TEN)));
+        ResponseEntity<ErrorResponse> rejected = restTemplate.exchange("/api/v1/tariff", HttpMethod.PUT, new HttpEntity<>(overlapping), ErrorResponse.class);
+        assertThat(rejected.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(restTemplate.getForObject("/api/v1/tariff", Tariff.class).hourlyRate()).isEqualByComparingTo("6.00");
+    }
+
     @Test
     void testPremiumSpotBilling() {
         // 1. Find a premium spot and check in
@@ -419,4 +533,185 @@ public class ParkingControllerIntegrationTest {
         assertThat(spotsResponse.getBody()).isNotNull();
         assertThat(spotsResponse.getBody()).anyMatch(spot -> spot.id().equals("D1"));
     }
+
+    @Test
+    void testBatchCheckInAndCheckOut() {
+        // 1. Check in more compact cars than the garage holds in one request
+        List<CheckInRequest> arrivals = new ArrayList<>();
+        for (int i = 1; i <= 12; i++) {
+            arrivals.add(new CheckInRequest("BATCH-" + i, VehicleSize.COMPACT));
+        }
+        ResponseEntity<BatchItemResponse<Car>[]> checkInResponse = restTemplate.exchange(
+                "/api/v1/cars/check-in:batch", HttpMethod.POST, new HttpEntity<>(arrivals),
+                new ParameterizedTypeReference<>() {});
+
+        assertThat(checkInResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(checkInResponse.getBody()).hasSize(12);
+        assertThat(checkInResponse.getBody()).filteredOn(item -> item.error() == null).hasSize(10);
+        assertThat(checkInResponse.getBody()).filteredOn(item -> item.error() != null)
+                .allMatch(item -> item.error().code().equals("NO_COMPATIBLE_SPOT_FOUND"));
+
+        // 2. Check out a parked car and an unknown one in one request
+        List<CheckOutRequest> departures = List.of(new CheckOutRequest("BATCH-1"), new CheckOutRequest("GHOST-CAR"));
+        ResponseEntity<BatchItemResponse<CheckOutResponse>[]> checkOutResponse = restTemplate.exchange(
+                "/api/v1/cars/check-out:batch", HttpMethod.POST, new HttpEntity<>(departures),
+                new ParameterizedTypeReference<>() {});
+
+        assertThat(checkOutResponse.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(checkOutResponse.getBody()).isNotNull();
+        assertThat(checkOutResponse.getBody()[0].result().licensePlate()).isEqualTo("BATCH-1");
+        assertThat(checkOutResponse.getBody()[1].error().code()).isEqualTo("CAR_NOT_FOUND");
+    }
+
+    @Test
+    void testImportLayout() {
+        // 1. Import a new level as NDJSON, one spot per line
+        String layout = """
+                {"id":"E1","level":5,"number":1,"size":"STANDARD","features":[]}
+                {"id":"E2","level":5,"number":2,"size":"STANDARD","features":["EV_CHARGING"]}
+                """;
+        HttpHeaders headers = new HttpHeaders();
+        headers.setContentType(MediaType.parseMediaType("application/x-ndjson"));
+        ResponseEntity<LayoutImportResponse> importResponse = restTemplate.postForEntity(
+                "/api/v1/spots:import", new HttpEntity<>(layout, headers), LayoutImportResponse.class);
+
+        assertThat(importResponse.getStatusCode()).isEqualTo(HttpStatus.CREATED);
+        assertThat(importResponse.getBody().imported()).isEqualTo(2);
+
+        // 2. The imported spots are available immediately
+        ResponseEntity<ParkingSpot[]> availableResponse = restTemplate.getForEntity("/api/v1/spots/available", ParkingSpot[].class);
+        assertThat(availableResponse.getBody()).extracting(ParkingSpot::id).contains("E1", "E2");
+
+        // 3. Importing the same spots again is rejected as a whole
+        ResponseEntity<ErrorResponse> duplicateResponse = restTemplate.postForEntity(
+                "/api/v1/spots:import", new HttpEntity<>(layout, headers), ErrorResponse.class);
+        assertThat(duplicateResponse.getStatusCode()).isEqualTo(HttpStatus.CONFLICT);
+        assertThat(duplicateResponse.getBody().code()).isEqualTo("SPOT_ALREADY_EXISTS");
+    }
+
+    @Test
+    void testPagedAndStreamedSpotListing() {
+        // 1. Walk the compact spots two at a time by following the Link header
+        List<String> pagedIds = new ArrayList<>();
+        String url = "/api/v1/spots?size=COMPACT&limit=2";
+        while (url != null) {
+            ResponseEntity<ParkingSpot[]> page = restTemplate.getForEntity(url, ParkingSpot[].class);
+            assertThat(page.getStatusCode()).isEqualTo(HttpStatus.OK);
+            assertThat(page.getBody()).hasSizeLessThanOrEqualTo(2);
+            for (ParkingSpot spot : page.getBody()) {
+                pagedIds.add(spot.id());
+            }
+            String link = page.getHeaders().getFirst(HttpHeaders.LINK);
+            url = link == null ? null : link.substring(link.indexOf('<') + 1, link.indexOf('>'));
+        }
+        assertThat(pagedIds).containsExactly("A1", "A2", "A3", "A4", "A5");
+
+        // 2. The same filters stream as NDJSON, one spot per line
+        HttpHeaders headers = new HttpHeaders();
+        headers.setAccept(List.of(MediaType.APPLICATION_NDJSON));
+        ResponseEntity<String> stream = restTemplate.exchange(
+                "/api/v1/spots/available?feature=EV_CHARGING", HttpMethod.GET, new HttpEntity<>(headers), String.class);
+        assertThat(stream.getHeaders().getContentType()).isEqualTo(MediaType.APPLICATION_NDJSON);
+        assertThat(stream.getBody().lines()).hasSize(1).allMatch(line -> line.contains("\"id\":\"C1\""));
+
+        // 3. Out-of-range page sizes are rejected
+        ResponseEntity<ErrorResponse> invalid = restTemplate.getForEntity("/api/v1/spots?limit=0", ErrorResponse.class);
+        assertThat(invalid.getStatusCode()).isEqualTo(HttpStatus.BAD_REQUEST);
+        assertThat(invalid.getBody().code()).isEqualTo("INVALID_INPUT");
+    }
+
+    @Test
+    @Timeout(10)
+    void testSpotEventStream() throws Exception {
+        // 1. A display connects, sees a car park, and drops its connection
+        String lastEventId;
+        CompletableFuture<BufferedReader> opening = openSpotEvents(null);
+        while (spotEventBroadcaster.subscriberCount() == 0) {
+            Thread.sleep(10);
+        }
+        Car car = restTemplate.postForEntity("/api/v1/cars/check-in", new CheckInRequest("SSE-1", VehicleSize.OVERSIZED), Car.class).getBody();
+        try (BufferedReader events = opening.get()) {
+            lastEventId = nextSpotEventId(events);
+            assertThat(nextSpotEvent(events)).contains("\"spotId\":\"" + car.assignedSpotId() + "\"").contains("\"status\":\"OCCUPIED\"");
+        }
+
+        // 2. The car leaves while the display is away
+        restTemplate.postForEntity("/api/v1/cars/check-out", new CheckOutRequest("SSE-1"), CheckOutResponse.class);
+
+        // 3. Reconnecting with Last-Event-ID replays what was missed, then later changes are pushed as they happen
+        try (BufferedReader events = openSpotEvents(lastEventId).get()) {
+            assertThat(nextSpotEvent(events)).contains("\"spotId\":\"" + car.assignedSpotId() + "\"").contains("\"status\":\"AVAILABLE\"");
+
+            Car next = restTemplate.postForEntity("/api/v1/cars/check-in", new CheckInRequest("SSE-2", VehicleSize.OVERSIZED), Car.class).getBody();
+            assertThat(nextSpotEvent(events)).contains("\"spotId\":\"" + next.assignedSpotId() + "\"").contains("\"status\":\"OCCUPIED\"");
+        }
+    }
+
+    // Completes once the server sends the response headers, which it does with the first event
+    private CompletableFuture<BufferedReader> openSpotEvents(String lastEventId) {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/v1/spots/events"))
+                .header("Accept", "text/event-stream");
+        if (lastEventId != null) {
+            request.header("Last-Event-ID", lastEventId);
+        }
+        return HttpClient.newHttpClient().sendAsync(request.build(), HttpResponse.BodyHandlers.ofInputStream()).thenApply(response -> {
+            assertThat(response.headers().firstValue("Content-Type")).hasValueSatisfying(type -> assertThat(type).startsWith("text/event-stream"));
+            return new BufferedReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8));
+        });
+    }
+
+    // Id of the next "spot" event; its data line is left for nextSpotEvent
+    private static String nextSpotEventId(BufferedReader events) throws Exception {
+        String line;
+        while ((line = events.readLine()) != null) {
+            if (line.startsWith("id:")) {
+                return line.substring("id:".length());
+            }
+        }
+        throw new AssertionError("Event stream ended");
+    }
+
+    @Test
+    void testOccupancySummary() {
+        // 1. Park a car in the EV spot
+        restTemplate.postForEntity("/api/v1/cars/check-in", new CheckInRequest("EV-CAR", VehicleSize.OVERSIZED), Car.class);
+
+        // 2. The summary counts it on its level, size and feature
+        ResponseEntity<OccupancySummary> response = restTemplate.getForEntity("/api/v1/occupancy", OccupancySummary.class);
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.OK);
+        OccupancySummary summary = response.getBody();
+        assertThat(summary.total()).isEqualTo(new OccupancyCount(10, 9, 1));
+        assertThat(summary.levels().get(3)).isEqualTo(new OccupancyCount(2, 1, 1));
+        assertThat(summary.sizes().get(VehicleSize.OVERSIZED)).isEqualTo(new OccupancyCount(2, 1, 1));
+        assertThat(summary.features().get("EV_CHARGING")).isEqualTo(new OccupancyCount(1, 0, 1));
+    }
+
+    // Data line of the next "spot" event
+    private static String nextSpotEvent(BufferedReader events) throws Exception {
+        String line;
+        boolean spotEvent = false;
+        while ((line = events.readLine()) != null) {
+            if (line.equals("event:spot")) {
+                spotEvent = true;
+            } else if (spotEvent && line.startsWith("data:")) {
+                return line;
+            }
+        }
+        throw new AssertionError("Event stream ended");
+    }
+
+    @Test
+    void testPrometheusMetrics() {
+        // 1. A successful check-in and a rejected one
+        restTemplate.postForEntity("/api/v1/cars/check-in", new CheckInRequest("METRICS-1", VehicleSize.COMPACT), Car.class);
+        restTemplate.postForEntity("/api/v1/cars/check-out", new CheckOutRequest("NOBODY"), ErrorResponse.class);
+
+        // 2. Both show up in the Prometheus scrape
+        ResponseEntity<String> scrape = restTemplate.getForEntity("/actuator/prometheus", String.class);
+        assertThat(scrape.getStatusCode()).isEqualTo(HttpStatus.OK);
+        assertThat(scrape.getBody())
+                .contains("garage_checkin_seconds_count 1")
+                .contains("garage_errors_total{error=\"car_not_found\",size=\"UNKNOWN\"} 1")
+                .contains("garage_spot_cas_failures_total{operation=\"spot_claim\"}");
+    }
 }
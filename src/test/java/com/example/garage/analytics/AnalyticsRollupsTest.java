@@ -0,0 +1,112 @@
+package com.example.garage.analytics;
+
+import com.example.garage.config.MutableClock;
+import com.example.garage.metrics.GarageMetrics;
+import com.example.garage.model.RollupBucket;
+import com.example.garage.model.RollupSeries;
+import com.example.garage.model.VehicleSize;
+import com.example.garage.persistence.GarageJournal;
+import com.example.garage.pricing.PricingEngine;
+import com.example.garage.pricing.Tariff;
+import com.example.garage.repository.CarRepository;
+import com.example.garage.repository.DefaultGarageLayout;
+import com.example.garage.repository.MapParkingSpotRepository;
+import com.example.garage.repository.ParkingSpotRepository;
+import com.example.garage.service.ParkingService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AnalyticsRollupsTest {
+
+    private static final Instant MIDNIGHT = Instant.parse("2025-07-09T00:00:00Z");
+
+    private final MutableClock clock = new MutableClock(MIDNIGHT);
+    private ParkingService parkingService;
+    private AnalyticsRollups rollups;
+    // Events are handed to the rollups on the publishing thread, and only while this is set
+    private volatile boolean publishing;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        ParkingSpotRepository parkingSpotRepository = new MapParkingSpotRepository();
+        DefaultGarageLayout.spots().forEach(parkingSpotRepository::save);
+        PricingEngine pricing = new PricingEngine(Tariff.flat(new BigDecimal("5.00"), new BigDecimal("7.50")), ZoneOffset.UTC);
+        parkingService = new ParkingService(parkingSpotRepository, new CarRepository(parkingSpotRepository), GarageJournal.NONE,
+                event -> {
+                    if (publishing) {
+                        rollups.onEvent(null, event, 0, true);
+                    }
+                }, new GarageMetrics(new SimpleMeterRegistry()), pricing, clock);
+        ObjectProvider<ParkingService> services = mock(ObjectProvider.class);
+        when(services.getObject()).thenReturn(parkingService);
+        rollups = new AnalyticsRollups(services, mock(ObjectProvider.class), clock);
+    }
+
+    @Test
+    void series_ShouldRollUpFlowsRevenueAndOccupancyCountingCarsParkedBeforeTheGarageWasFirstSeen() {
+        // Given - one car parked before any event reached the rollups, one that comes and goes
+        clock.advance(Duration.ofHours(10));
+        parkingService.checkIn("EARLY-1", VehicleSize.STANDARD);
+        publishing = true;
+        clock.advance(Duration.ofMinutes(30));
+        parkingService.checkIn("VISIT-1", VehicleSize.STANDARD);
+        clock.advance(Duration.ofMinutes(30));
+        parkingService.checkOut("VISIT-1");
+        clock.advance(Duration.ofHours(1));
+
+        // When
+        List<RollupSeries> levels = rollups.series(null, AnalyticsRollups.Dimension.LEVEL, Resolution.HOUR,
+                MIDNIGHT.plus(Duration.ofHours(10)), MIDNIGHT.plus(Duration.ofHours(12)));
+
+        // Then - both cars on level 2 from half past ten, one from eleven; half an hour at the standard rate
+        assertThat(levels).extracting(RollupSeries::value).containsExactly("2");
+        assertThat(levels.get(0).buckets()).containsExactly(
+                new RollupBucket(MIDNIGHT.plus(Duration.ofHours(10)), 1, 0, new BigDecimal("0.00"), 1.0, 2),
+                new RollupBucket(MIDNIGHT.plus(Duration.ofHours(11)), 0, 1, new BigDecimal("2.50"), 1.0, 1));
+        assertThat(rollups.series(null, AnalyticsRollups.Dimension.FEATURE, Resolution.HOUR, null, null)).isEmpty();
+        assertThat(rollups.series("elsewhere", AnalyticsRollups.Dimension.TOTAL, Resolution.HOUR, null, null)).isEmpty();
+    }
+
+    @Test
+    void series_ShouldKeepOnlyTheLastRingOfBucketsWhileACarStaysParked() {
+        // Given - an EV parked for two days, with nothing else happening
+        publishing = true;
+        parkingService.checkIn("EV-1", VehicleSize.OVERSIZED, List.of("EV_CHARGING"));
+        clock.advance(Duration.ofDays(2).plusMinutes(30).plusSeconds(30));
+
+        // When
+        List<RollupSeries> minutes = rollups.series(null, AnalyticsRollups.Dimension.FEATURE, Resolution.MINUTE,
+                MIDNIGHT, clock.instant());
+        List<RollupSeries> days = rollups.series(null, AnalyticsRollups.Dimension.TOTAL, Resolution.DAY, MIDNIGHT, null);
+
+        // Then
+        assertThat(minutes).extracting(RollupSeries::value).containsExactly("EV_CHARGING");
+        List<RollupBucket> buckets = minutes.get(0).buckets();
+        assertThat(buckets).hasSize(Resolution.MINUTE.retained());
+        assertThat(buckets.get(0).start()).isEqualTo(MIDNIGHT.plus(Duration.ofDays(1).plusMinutes(31)));
+        assertThat(buckets).allSatisfy(bucket -> {
+            assertThat(bucket.averageOccupied()).isEqualTo(1.0);
+            assertThat(bucket.peakOccupied()).isEqualTo(1);
+        });
+        assertThat(days.get(0).value()).isNull();
+        assertThat(days.get(0).buckets()).extracting(RollupBucket::checkIns, RollupBucket::averageOccupied)
+                .containsExactly(
+                        tuple(1L, 1.0),
+                        tuple(0L, 1.0),
+                        tuple(0L, 1.0));
+    }
+}
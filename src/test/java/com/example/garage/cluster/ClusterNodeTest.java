@@ -0,0 +1,180 @@
+package com.example.garage.cluster;
+
+import com.example.garage.config.MutableClock;
+import com.example.garage.controller.GlobalExceptionHandler;
+import com.example.garage.events.ParkingEventPublisher;
+import com.example.garage.exception.CarNotFoundException;
+import com.example.garage.metrics.GarageMetrics;
+import com.example.garage.model.Car;
+import com.example.garage.model.Reservation;
+import com.example.garage.model.VehicleSize;
+import com.example.garage.pricing.PricingEngine;
+import com.example.garage.pricing.Tariff;
+import com.example.garage.service.GarageCommand;
+import com.example.garage.service.GarageShards;
+import com.example.garage.service.SpotLayoutReader;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+// Nodes run in-process and talk to each other over localhost
+class ClusterNodeTest {
+
+    private static final String LAYOUT = """
+            id,level,number,size,features
+            S1,1,1,COMPACT,
+            S2,1,2,STANDARD,
+            """;
+    private static final String SECRET = "test-cluster-secret";
+    private static final List<String> GARAGES = IntStream.range(0, 12).mapToObj(i -> "site-" + i).toList();
+
+    @TempDir
+    Path directory;
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2025-07-09T12:00:00Z"));
+    private final List<ClusterNode> nodes = new ArrayList<>();
+    private final List<GarageShards> shards = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        for (String garage : GARAGES) {
+            Files.writeString(directory.resolve(garage + ".csv"), LAYOUT);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        nodes.forEach(ClusterNode::destroy);
+        shards.forEach(GarageShards::destroy);
+    }
+
+    @Test
+    void run_OnAnyNode_ShouldBeServedByTheGaragesOwner() {
+        // Given
+        ClusterNode first = start(null);
+        ClusterNode second = start(first);
+        String garage = GARAGES.stream().filter(id -> second.ownerOf(id).equals(second.address())).findFirst().orElseThrow();
+
+        // When - checked in through the node that does not own the garage
+        Car car = first.run(garage, new GarageCommand.CheckIn("SITE-1", VehicleSize.COMPACT, null));
+
+        // Then
+        assertThat(car.assignedSpotId()).isEqualTo("S1");
+        assertThat(second.run(garage, new GarageCommand.FindCar("SITE-1"))).isEqualTo(car);
+        assertThat(first.members()).containsExactlyInAnyOrder(first.address(), second.address());
+        assertThat(shards.get(0).isLoaded(garage)).isFalse();
+        assertThat(shards.get(1).isLoaded(garage)).isTrue();
+        assertThatThrownBy(() -> first.run(garage, new GarageCommand.FindCar("NOBODY")))
+                .isInstanceOf(CarNotFoundException.class)
+                .hasMessageContaining("NOBODY");
+    }
+
+    @Test
+    void join_ShouldHandGaragesToTheNewNodeWithTheirCarsAndReservations() {
+        // Given - one node holding every garage, each with a car parked and a spot held
+        ClusterNode first = start(null);
+        for (String garage : GARAGES) {
+            first.run(garage, new GarageCommand.CheckIn("CAR-" + garage, VehicleSize.COMPACT, null));
+        }
+        Reservation held = first.run("site-0", new GarageCommand.Reserve("HELD-1", VehicleSize.STANDARD, null, null));
+
+        // When
+        ClusterNode second = start(first);
+        ClusterNode third = start(second);
+
+        // Then - every car is still where it was, whichever node is asked
+        for (String garage : GARAGES) {
+            for (ClusterNode node : List.of(first, second, third)) {
+                assertThat(node.run(garage, new GarageCommand.FindCar("CAR-" + garage)).assignedSpotId()).isEqualTo("S1");
+            }
+        }
+        assertThat(third.run("site-0", new GarageCommand.GetReservation(held.id()))).isEqualTo(held);
+        for (int i = 0; i < nodes.size(); i++) {
+            ClusterNode node = nodes.get(i);
+            List<String> owned = GARAGES.stream().filter(id -> node.ownerOf(id).equals(node.address())).toList();
+            assertThat(shards.get(i).heldIds()).containsExactlyInAnyOrderElementsOf(owned);
+        }
+    }
+
+    @Test
+    void leave_ShouldPushEveryGarageItHeldToTheRemainingNodes() {
+        // Given
+        ClusterNode first = start(null);
+        ClusterNode second = start(first);
+        for (String garage : GARAGES) {
+            second.run(garage, new GarageCommand.CheckIn("CAR-" + garage, VehicleSize.COMPACT, null));
+        }
+        int heldBySecond = shards.get(1).heldIds().size();
+
+        // When
+        second.leave();
+
+        // Then
+        assertThat(heldBySecond).isPositive();
+        assertThat(first.members()).containsExactly(first.address());
+        assertThat(shards.get(1).heldIds()).isEmpty();
+        assertThat(shards.get(0).heldIds()).containsExactlyInAnyOrderElementsOf(GARAGES);
+        for (String garage : GARAGES) {
+            assertThat(first.run(garage, new GarageCommand.FindCar("CAR-" + garage)).assignedSpotId()).isEqualTo("S1");
+        }
+    }
+
+    @Test
+    void join_ShouldBeRefusedWithoutTheSecretAndRingChangesOnlyTakenFromMembers() {
+        // Given
+        ClusterNode first = start(null);
+
+        // When / Then - a node with the wrong secret fails the handshake
+        assertThatThrownBy(() -> start(first, "wrong-secret"))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("No seed");
+
+        // When / Then - a peer with the secret that never joined cannot rewrite the ring or pull a garage
+        try (RpcClient outsider = new RpcClient(Duration.ofSeconds(5), "localhost:1", new PeerHandshake(SECRET))) {
+            assertThatThrownBy(() -> outsider.call(first.address(),
+                    "{\"type\":\"members\",\"epoch\":99,\"nodes\":[\"localhost:1\"],\"history\":[]}".getBytes()))
+                    .isInstanceOf(RpcClient.RemoteFailure.class)
+                    .hasMessageContaining("not a member");
+            assertThatThrownBy(() -> outsider.call(first.address(),
+                    "{\"type\":\"take\",\"garageId\":\"site-0\",\"node\":\"localhost:1\"}".getBytes()))
+                    .isInstanceOf(RpcClient.RemoteFailure.class)
+                    .hasMessageContaining("not a member");
+        }
+        assertThat(first.members()).containsExactly(first.address());
+    }
+
+    private ClusterNode start(ClusterNode seed) {
+        return start(seed, SECRET);
+    }
+
+    private ClusterNode start(ClusterNode seed, String secret) {
+        PricingEngine pricing = new PricingEngine(Tariff.flat(new BigDecimal("5.00"), new BigDecimal("7.50")), ZoneOffset.UTC);
+        GarageShards garageShards = new GarageShards("map", directory, Duration.ofMinutes(30), false, directory.resolve("data"),
+                DataSize.ofKilobytes(64), Duration.ZERO, new SpotLayoutReader(new ObjectMapper()),
+                new GarageMetrics(new SimpleMeterRegistry()), pricing, ParkingEventPublisher.NONE, clock);
+        ClusterNode node = new ClusterNode(garageShards, new GlobalExceptionHandler(), new ObjectMapper().findAndRegisterModules(),
+                0, "", "localhost", secret, seed == null ? List.of() : List.of(seed.address()), 128, Duration.ofSeconds(5));
+        shards.add(garageShards);
+        node.afterPropertiesSet();
+        nodes.add(node);
+        return node;
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.garage.cluster;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HashRingTest {
+
+    private static final List<String> GARAGES = IntStream.range(0, 3000).mapToObj(i -> "garage-" + i).toList();
+
+    @Test
+    void owner_ShouldSpreadGaragesEvenlyOverTheMembers() {
+        // Given
+        HashRing ring = new HashRing(List.of("a:1", "b:1", "c:1"), 128);
+
+        // When
+        Map<String, Integer> owned = new HashMap<>();
+        GARAGES.forEach(garage -> owned.merge(ring.owner(garage), 1, Integer::sum));
+
+        // Then - within a quarter of an even share each
+        assertThat(owned).containsOnlyKeys("a:1", "b:1", "c:1");
+        assertThat(owned.values()).allSatisfy(count -> assertThat(count).isBetween(750, 1250));
+    }
+
+    @Test
+    void owner_WhenANodeJoins_ShouldOnlyMoveGaragesToThatNode() {
+        // Given
+        HashRing before = new HashRing(List.of("a:1", "b:1", "c:1"), 128);
+        HashRing after = new HashRing(List.of("c:1", "a:1", "b:1", "d:1"), 128);
+
+        // When
+        List<String> moved = GARAGES.stream().filter(garage -> !before.owner(garage).equals(after.owner(garage))).toList();
+
+        // Then - about a quarter move, all of them to the new node
+        assertThat(moved).allSatisfy(garage -> assertThat(after.owner(garage)).isEqualTo("d:1"));
+        assertThat(moved.size()).isBetween(500, 1000);
+        assertThat(new HashRing(List.of(), 128).owner("garage-1")).isNull();
+    }
+}
@@ -0,0 +1,64 @@
+package com.example.garage.config;
+
+import com.example.garage.GarageApplication;
+import org.apache.tomcat.util.threads.VirtualThreadExecutor;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.DisabledForJreRange;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.JRE;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.embedded.tomcat.TomcatWebServer;
+import org.springframework.boot.web.servlet.context.ServletWebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.env.MockEnvironment;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ExecutionModeEnvironmentPostProcessorTest {
+
+    private final ExecutionModeEnvironmentPostProcessor postProcessor = new ExecutionModeEnvironmentPostProcessor();
+
+    @Test
+    void postProcessEnvironment_OnPlatformExecution_ShouldLeaveVirtualThreadsOff() {
+        // Given
+        MockEnvironment environment = new MockEnvironment().withProperty("garage.execution", "platform");
+
+        // When
+        postProcessor.postProcessEnvironment(environment, new SpringApplication());
+
+        // Then
+        assertThat(environment.getProperty("spring.threads.virtual.enabled")).isNull();
+    }
+
+    @Test
+    @DisabledForJreRange(min = JRE.JAVA_21)
+    void postProcessEnvironment_OnVirtualThreadsBeforeJava21_ShouldStopStartup() {
+        // Given
+        MockEnvironment environment = new MockEnvironment().withProperty("garage.execution", "virtual-threads");
+
+        // When & Then
+        assertThatThrownBy(() -> postProcessor.postProcessEnvironment(environment, new SpringApplication()))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("requires Java 21");
+    }
+
+    @Test
+    @EnabledForJreRange(min = JRE.JAVA_21)
+    void virtualThreadExecution_ShouldRunTomcatRequestsOnVirtualThreads() {
+        // Given
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(GarageApplication.class)
+                .web(WebApplicationType.SERVLET)
+                .properties("server.port=0", "garage.execution=virtual-threads")
+                .run()) {
+            TomcatWebServer webServer = (TomcatWebServer) ((ServletWebServerApplicationContext) context).getWebServer();
+
+            // Then
+            assertThat(context.getEnvironment().getProperty("spring.threads.virtual.enabled")).isEqualTo("true");
+            assertThat(webServer.getTomcat().getConnector().getProtocolHandler().getExecutor())
+                    .isInstanceOf(VirtualThreadExecutor.class);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.example.garage.controller;
+
+import com.example.garage.config.MutableClock;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+class IdempotencyCacheTest {
+
+    private final IdempotencyCache cache = new IdempotencyCache(Duration.ofHours(24), 3,
+            new MutableClock(Instant.parse("2025-07-09T12:00:00Z")));
+
+    @Test
+    void execute_WhenManyRequestsFail_ShouldKeepTheLiveKeys() {
+        // Given - two successes, then more failures than the cache holds entries
+        AtomicInteger runs = new AtomicInteger();
+        cache.execute("check-in", "key-1", "A", runs::incrementAndGet);
+        cache.execute("check-in", "key-2", "B", runs::incrementAndGet);
+        for (int i = 0; i < 10; i++) {
+            String key = "failing-" + i;
+            assertThatThrownBy(() -> cache.execute("check-in", key, "X", () -> {
+                throw new IllegalStateException("Garage full");
+            })).isInstanceOf(IllegalStateException.class);
+        }
+
+        // When
+        cache.execute("check-in", "key-3", "C", runs::incrementAndGet);
+        int replayed1 = cache.execute("check-in", "key-1", "A", runs::incrementAndGet);
+        int replayed2 = cache.execute("check-in", "key-2", "B", runs::incrementAndGet);
+
+        // Then - neither live key was evicted to make room for the failures
+        assertThat(replayed1).isEqualTo(1);
+        assertThat(replayed2).isEqualTo(2);
+        assertThat(runs).hasValue(3);
+    }
+
+    @Test
+    void execute_WhenTheActionThrowsAnError_ShouldLetARetryRun() {
+        // Given - the first attempt died with an Error rather than an exception
+        assertThatThrownBy(() -> cache.execute("check-in", "key-1", "A", () -> {
+            throw new StackOverflowError();
+        })).isInstanceOf(StackOverflowError.class);
+
+        // When - the retry would wait forever on an entry left behind
+        int result = assertTimeoutPreemptively(Duration.ofSeconds(5), () -> cache.execute("check-in", "key-1", "A", () -> 1));
+
+        // Then
+        assertThat(result).isEqualTo(1);
+    }
+}
@@ -1,27 +1,54 @@
 package com.example.garage.controller;
 
+import com.example.garage.config.ClockConfig;
+import com.example.garage.controller.dto.CheckInRequest;
+import com.example.garage.exception.GarageNotFoundException;
+import com.example.garage.exception.NoCompatibleSpotFoundException;
 import com.example.garage.exception.SpotAlreadyExistsException;
+import com.example.garage.model.Car;
 import com.example.garage.model.CreateSpotRequest;
 import com.example.garage.model.ParkingSpot;
 import com.example.garage.model.ParkingStatus;
+import com.example.garage.model.SpotFilter;
 import com.example.garage.model.VehicleSize;
+import com.example.garage.service.BatchResult;
+import com.example.garage.service.GarageCommand;
+import com.example.garage.service.GarageDirectory;
+import com.example.garage.service.OverstayDetector;
 import com.example.garage.service.ParkingService;
+import com.example.garage.service.SpotLayoutReader;
+import com.example.garage.service.SpotPage;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 
+import java.time.Duration;
+import java.time.Instant;
 import java.util.List;
+import java.util.stream.Stream;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(ParkingController.class)
+@Import({SpotLayoutReader.class, IdempotencyCache.class, ClockConfig.class})
 class ParkingControllerTest {
 
     @Autowired
@@ -30,6 +57,15 @@ class ParkingControllerTest {
     @MockBean
     private ParkingService parkingService;
 
+    @MockBean
+    private GarageDirectory garages;
+
+    @MockBean
+    private SpotEventBroadcaster spotEventBroadcaster;
+
+    @MockBean
+    private OverstayDetector overstayDetector;
+
     @Autowired
     private ObjectMapper objectMapper;
 
@@ -66,4 +102,161 @@ class ParkingControllerTest {
                 .andExpect(jsonPath("$.code").value("SPOT_ALREADY_EXISTS"))
                 .andExpect(jsonPath("$.message").value("Spot with id A1 already exists"));
     }
+
+    @Test
+    void getSpots_WhenMoreSpotsMatch_ShouldLinkToNextPage() throws Exception {
+        // Given
+        SpotFilter filter = new SpotFilter(2, null, ParkingStatus.AVAILABLE, null);
+        when(parkingService.findSpots(eq(filter), isNull(), eq(2))).thenReturn(new SpotPage(List.of(
+                new ParkingSpot("B1", 2, 1, ParkingStatus.AVAILABLE, VehicleSize.STANDARD, List.of()),
+                new ParkingSpot("B2", 2, 2, ParkingStatus.AVAILABLE, VehicleSize.STANDARD, List.of())), "B2"));
+
+        // When & Then
+        mockMvc.perform(get("/api/v1/spots?level=2&status=AVAILABLE&limit=2"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[1].id").value("B2"))
+                .andExpect(header().string("Link", "<http://localhost/api/v1/spots?level=2&status=AVAILABLE&limit=2&cursor=B2>; rel=\"next\""));
+    }
+
+    @Test
+    void getSpots_WithNdjsonAccept_ShouldWriteOneSpotPerLine() throws Exception {
+        // Given
+        when(parkingService.streamSpots(eq(SpotFilter.ALL), eq("A9"), isNull())).thenReturn(Stream.of(
+                new ParkingSpot("B1", 2, 1, ParkingStatus.AVAILABLE, VehicleSize.STANDARD, List.of()),
+                new ParkingSpot("C1", 3, 1, ParkingStatus.OCCUPIED, VehicleSize.OVERSIZED, List.of("EV_CHARGING"))));
+
+        // When
+        MvcResult started = mockMvc.perform(get("/api/v1/spots?cursor=A9").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(request().asyncStarted())
+                .andReturn();
+
+        // Then
+        mockMvc.perform(asyncDispatch(started))
+                .andExpect(status().isOk())
+                .andExpect(content().contentType(MediaType.APPLICATION_NDJSON))
+                .andExpect(content().string("""
+                        {"id":"B1","level":2,"number":1,"status":"AVAILABLE","size":"STANDARD","features":[]}
+                        {"id":"C1","level":3,"number":1,"status":"OCCUPIED","size":"OVERSIZED","features":["EV_CHARGING"]}
+                        """));
+    }
+
+    @Test
+    void checkInBatch_ShouldReturnPerItemResultsWithErrorCodes() throws Exception {
+        // Given
+        Car car = new Car("GATE-1", "A1", Instant.parse("2025-07-09T12:00:00Z"), VehicleSize.COMPACT);
+        when(parkingService.checkInBatch(anyList())).thenReturn(List.of(
+                BatchResult.success("GATE-1", car),
+                BatchResult.failure("GATE-2", new NoCompatibleSpotFoundException("No compatible spot available for size OVERSIZED"))));
+        List<CheckInRequest> requests = List.of(
+                new CheckInRequest("GATE-1", VehicleSize.COMPACT),
+                new CheckInRequest("GATE-2", VehicleSize.OVERSIZED));
+
+        // When & Then
+        mockMvc.perform(post("/api/v1/cars/check-in:batch")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(requests)))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].licensePlate").value("GATE-1"))
+                .andExpect(jsonPath("$[0].result.assignedSpotId").value("A1"))
+                .andExpect(jsonPath("$[1].licensePlate").value("GATE-2"))
+                .andExpect(jsonPath("$[1].error.code").value("NO_COMPATIBLE_SPOT_FOUND"));
+    }
+
+    @Test
+    void checkIn_WithRepeatedIdempotencyKey_ShouldReplayTheOriginalResponse() throws Exception {
+        // Given
+        Car car = new Car("GATE-7", "A3", Instant.parse("2025-07-09T12:00:00Z"), VehicleSize.COMPACT);
+        when(parkingService.checkIn(eq("GATE-7"), eq(VehicleSize.COMPACT), isNull())).thenReturn(car);
+        String body = objectMapper.writeValueAsString(new CheckInRequest("GATE-7", VehicleSize.COMPACT));
+
+        // When & Then - the retry gets the same 201 without a second check-in
+        for (int attempt = 0; attempt < 2; attempt++) {
+            mockMvc.perform(post("/api/v1/cars/check-in")
+                            .header("Idempotency-Key", "gate-7-0001")
+                            .contentType(MediaType.APPLICATION_JSON)
+                            .content(body))
+                    .andExpect(status().isCreated())
+                    .andExpect(jsonPath("$.assignedSpotId").value("A3"));
+        }
+        verify(parkingService, times(1)).checkIn(eq("GATE-7"), eq(VehicleSize.COMPACT), isNull());
+
+        mockMvc.perform(post("/api/v1/cars/check-in")
+                        .header("Idempotency-Key", "gate-7-0001")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(new CheckInRequest("GATE-8", VehicleSize.COMPACT))))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.code").value("IDEMPOTENCY_KEY_REUSED"));
+    }
+
+    @Test
+    void checkIn_UnderAGarageId_ShouldBeServedByThatGaragesShard() throws Exception {
+        // Given
+        ParkingService north = mock(ParkingService.class);
+        when(garages.run(eq("north"), any())).thenAnswer(invocation -> invocation.<GarageCommand<?>>getArgument(1).apply(north));
+        when(garages.run(eq("nowhere"), any())).thenThrow(new GarageNotFoundException("Garage nowhere not found"));
+        when(north.checkIn(eq("SITE-1"), eq(VehicleSize.COMPACT), isNull()))
+                .thenReturn(new Car("SITE-1", "N1", Instant.parse("2025-07-09T12:00:00Z"), VehicleSize.COMPACT));
+        String body = objectMapper.writeValueAsString(new CheckInRequest("SITE-1", VehicleSize.COMPACT));
+
+        // When & Then
+        mockMvc.perform(post("/api/v1/garages/north/cars/check-in")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.assignedSpotId").value("N1"));
+        mockMvc.perform(post("/api/v1/garages/nowhere/cars/check-in")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isNotFound())
+                .andExpect(jsonPath("$.code").value("GARAGE_NOT_FOUND"));
+        verify(parkingService, never()).checkIn(any(), any(), any());
+    }
+
+    @Test
+    void findCars_WithLevelAndMinimumStay_ShouldPassBothToTheService() throws Exception {
+        // Given
+        Car overstayed = new Car("OLD-1", "B1", Instant.parse("2025-07-08T06:00:00Z"), VehicleSize.STANDARD);
+        when(parkingService.findCars(2, Duration.ofHours(24), null)).thenReturn(List.of(overstayed));
+
+        // When & Then
+        mockMvc.perform(get("/api/v1/cars").param("level", "2").param("parkedLongerThan", "PT24H"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].licensePlate").value("OLD-1"))
+                .andExpect(jsonPath("$.length()").value(1));
+    }
+
+    @Test
+    void importSpots_WithCsvBody_ShouldStreamParsedSpotsToService() throws Exception {
+        // Given
+        when(parkingService.importSpots(any())).thenAnswer(invocation -> (int) invocation.<Stream<CreateSpotRequest>>getArgument(0)
+                .filter(spot -> spot.size() == VehicleSize.OVERSIZED && spot.features().contains("EV_CHARGING"))
+                .count());
+        String layout = """
+                id,level,number,size,features
+                F1,6,1,OVERSIZED,EV_CHARGING|COVERED
+                F2,6,2,OVERSIZED,EV_CHARGING
+                """;
+
+        // When & Then
+        mockMvc.perform(post("/api/v1/spots:import")
+                        .contentType("text/csv")
+                        .content(layout))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$.imported").value(2));
+    }
+
+    @Test
+    void importSpots_WithMalformedLine_ShouldReturn400WithLineNumber() throws Exception {
+        // Given
+        when(parkingService.importSpots(any())).thenAnswer(invocation -> (int) invocation.<Stream<CreateSpotRequest>>getArgument(0).count());
+
+        // When & Then
+        mockMvc.perform(post("/api/v1/spots:import")
+                        .contentType("text/csv")
+                        .content("id,level,number,size,features\nF1,six,1,OVERSIZED,\n"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.code").value("INVALID_INPUT"))
+                .andExpect(jsonPath("$.message").value("Line 2: For input string: \"six\""));
+    }
 }
@@ -0,0 +1,175 @@
+package com.example.garage.events;
+
+import com.example.garage.model.Car;
+import com.example.garage.model.ParkingSpot;
+import com.example.garage.model.ParkingStatus;
+import com.example.garage.model.VehicleSize;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ParkingEventBusTest {
+
+    private static final ParkingSpot SPOT = new ParkingSpot("A1", 1, 1, ParkingStatus.OCCUPIED, VehicleSize.COMPACT, List.of());
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private ParkingEventBus bus;
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        if (bus != null) {
+            bus.destroy();
+        }
+    }
+
+    @Test
+    void publish_FromManyThreads_ShouldDeliverEveryEventToEveryHandlerInSequenceOrder() throws Exception {
+        // Given - a ring far smaller than the events published, so publishers wait on the slower handler
+        RecordingHandler fast = new RecordingHandler("fast", null);
+        RecordingHandler slow = new RecordingHandler("slow", null) {
+            @Override
+            public void onEvent(String garageId, ParkingEvent event, long sequence, boolean endOfBatch) {
+                Thread.onSpinWait();
+                super.onEvent(garageId, event, sequence, endOfBatch);
+            }
+        };
+        bus = new ParkingEventBus(List.of(fast, slow), 16, ParkingEventBus.BackPressure.BLOCK, 8, registry);
+        bus.afterPropertiesSet();
+        ExecutorService publishers = Executors.newFixedThreadPool(4);
+
+        // When
+        for (int t = 0; t < 4; t++) {
+            int publisher = t;
+            publishers.submit(() -> {
+                for (int i = 0; i < 2_500; i++) {
+                    bus.forGarage("g" + publisher).publish(parked("P" + publisher + "-" + i));
+                }
+            });
+        }
+        publishers.shutdown();
+        assertThat(publishers.awaitTermination(10, TimeUnit.SECONDS)).isTrue();
+        bus.destroy();
+
+        // Then
+        for (RecordingHandler handler : List.of(fast, slow)) {
+            assertThat(handler.sequences).hasSize(10_000);
+            for (int i = 0; i < handler.sequences.size(); i++) {
+                assertThat(handler.sequences.get(i)).isEqualTo(i);
+            }
+            assertThat(handler.maxBatch).isLessThanOrEqualTo(8);
+            assertThat(bus.lag(handler.name())).isZero();
+        }
+        // Each publisher's own events arrive in the order it published them
+        List<String> fromFirst = fast.plates.stream().filter(plate -> plate.startsWith("P0-")).toList();
+        assertThat(fromFirst).containsExactlyElementsOf(
+                IntStream.range(0, 2_500).mapToObj(i -> "P0-" + i).toList());
+        assertThat(registry.get("garage.eventbus.published").counter().count()).isEqualTo(10_000);
+        assertThat(registry.get("garage.eventbus.dropped").counter().count()).isZero();
+    }
+
+    @Test
+    void publish_WithDropPolicyAndAStalledHandler_ShouldDropWhatDoesNotFitAndCountTheLag() throws Exception {
+        // Given - a handler held on its first event
+        CountDownLatch release = new CountDownLatch(1);
+        RecordingHandler stalled = new RecordingHandler("stalled", release);
+        bus = new ParkingEventBus(List.of(stalled), 4, ParkingEventBus.BackPressure.DROP, 1024, registry);
+        bus.afterPropertiesSet();
+        bus.publish(parked("FIRST"));
+        stalled.started.await(5, TimeUnit.SECONDS);
+
+        // When - the ring holds the stalled event and three more
+        for (int i = 0; i < 10; i++) {
+            bus.publish(parked("CAR-" + i));
+        }
+        long lagWhileStalled = bus.lag("stalled");
+        release.countDown();
+        bus.destroy();
+
+        // Then
+        assertThat(lagWhileStalled).isEqualTo(4);
+        assertThat(registry.get("garage.eventbus.dropped").counter().count()).isEqualTo(7);
+        assertThat(stalled.plates).containsExactly("FIRST", "CAR-0", "CAR-1", "CAR-2");
+        assertThat(bus.lag("stalled")).isZero();
+    }
+
+    @Test
+    void onEvent_WhenAHandlerThrows_ShouldCountTheFailureAndCarryOn() throws Exception {
+        // Given
+        RecordingHandler failing = new RecordingHandler("failing", null) {
+            @Override
+            public void onEvent(String garageId, ParkingEvent event, long sequence, boolean endOfBatch) {
+                super.onEvent(garageId, event, sequence, endOfBatch);
+                if (sequence == 0) {
+                    throw new IllegalStateException("boom");
+                }
+            }
+        };
+        bus = new ParkingEventBus(List.of(failing), 8, ParkingEventBus.BackPressure.BLOCK, 1024, registry);
+        bus.afterPropertiesSet();
+
+        // When
+        bus.publish(parked("A"));
+        bus.publish(parked("B"));
+        bus.destroy();
+
+        // Then
+        assertThat(failing.plates).containsExactly("A", "B");
+        assertThat(registry.get("garage.eventbus.handler.failures").tag("handler", "failing").counter().count()).isEqualTo(1);
+    }
+
+    private static ParkingEvent parked(String plate) {
+        return new ParkingEvent.CarParked(new Car(plate, "A1", Instant.EPOCH, VehicleSize.COMPACT), SPOT);
+    }
+
+    private static class RecordingHandler implements ParkingEventHandler {
+
+        final String name;
+        final CountDownLatch release;
+        final CountDownLatch started = new CountDownLatch(1);
+        final List<Long> sequences = new ArrayList<>();
+        final List<String> plates = new CopyOnWriteArrayList<>();
+        int batch;
+        int maxBatch;
+
+        RecordingHandler(String name, CountDownLatch release) {
+            this.name = name;
+            this.release = release;
+        }
+
+        @Override
+        public void onEvent(String garageId, ParkingEvent event, long sequence, boolean endOfBatch) {
+            started.countDown();
+            if (release != null) {
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            sequences.add(sequence);
+            plates.add(((ParkingEvent.CarParked) event).car().licensePlate());
+            batch++;
+            if (endOfBatch) {
+                maxBatch = Math.max(maxBatch, batch);
+                batch = 0;
+            }
+        }
+
+        @Override
+        public String name() {
+            return name;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com.example.garage.persistence;
+
+import com.example.garage.model.Car;
+import com.example.garage.model.ParkingSpot;
+import com.example.garage.model.ParkingStatus;
+import com.example.garage.model.VehicleSize;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SnapshotFileTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void read_ShouldRestoreSpotsAndCarsWritten() throws IOException {
+        // Given
+        GarageState state = new GarageState();
+        ParkingSpot evSpot = new ParkingSpot("C1", 3, 1, ParkingStatus.OCCUPIED, VehicleSize.OVERSIZED, List.of("EV_CHARGING"));
+        ParkingSpot freeSpot = new ParkingSpot("C2", 3, 2, ParkingStatus.AVAILABLE, VehicleSize.OVERSIZED, List.of());
+        Car car = new Car("TRUCK-1", "C1", Instant.parse("2025-07-09T12:00:00.123456789Z"), VehicleSize.OVERSIZED);
+        state.putSpot(evSpot);
+        state.putSpot(freeSpot);
+        state.putCar(car);
+        Path path = directory.resolve("snapshot-000000001.snap");
+
+        // When
+        SnapshotFile.write(path, state);
+        GarageState restored = new GarageState();
+        SnapshotFile.read(path, restored);
+
+        // Then
+        assertThat(restored.spots()).containsExactly(evSpot, freeSpot);
+        assertThat(restored.cars()).containsExactly(car);
+        // Ids are read once from the string table and shared
+        assertThat(restored.cars().iterator().next().assignedSpotId()).isSameAs(restored.spots().iterator().next().id());
+    }
+
+    @Test
+    void read_WhenFileIsCorrupt_ShouldFail() throws IOException {
+        // Given
+        GarageState state = new GarageState();
+        state.putSpot(new ParkingSpot("A1", 1, 1, ParkingStatus.AVAILABLE, VehicleSize.COMPACT, List.of()));
+        Path path = directory.resolve("snapshot-000000001.snap");
+        SnapshotFile.write(path, state);
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{'Z'}), 12);
+        }
+
+        // When & Then
+        assertThatThrownBy(() -> SnapshotFile.read(path, new GarageState()))
+                .isInstanceOf(IOException.class)
+                .hasMessageContaining("checksum mismatch");
+    }
+}
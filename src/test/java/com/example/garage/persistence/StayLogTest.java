@@ -0,0 +1,128 @@
+package com.example.garage.persistence;
+
+import com.example.garage.events.ParkingEvent;
+import com.example.garage.model.Car;
+import com.example.garage.model.ParkingSpot;
+import com.example.garage.model.ParkingStatus;
+import com.example.garage.model.Stay;
+import com.example.garage.model.VehicleSize;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StayLogTest {
+
+    private static final Instant MIDNIGHT = Instant.parse("2025-07-09T00:00:00Z");
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void read_ShouldStreamTheStaysCheckedOutInRangeAcrossBlocksSegmentsAndRestarts() throws IOException {
+        // Given - a stay a minute for a day, in a block an hour over small segments, with a restart at noon
+        try (StayLog log = open()) {
+            append(log, 0, 12 * 60);
+        }
+        try (StayLog log = open()) {
+            append(log, 12 * 60, 24 * 60);
+
+            // When
+            List<Stay> afternoon;
+            try (Stream<Stay> read = log.read(MIDNIGHT.plus(Duration.ofHours(12)), MIDNIGHT.plus(Duration.ofHours(18)))) {
+                afternoon = read.toList();
+            }
+
+            // Then
+            assertThat(afternoon).hasSize(6 * 60);
+            assertThat(afternoon.get(0)).isEqualTo(stay(12 * 60));
+            assertThat(afternoon.get(afternoon.size() - 1)).isEqualTo(stay(18 * 60 - 1));
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            assertThat(files.count()).isGreaterThan(3);
+        }
+    }
+
+    @Test
+    void flush_WhenABlockCannotBeWritten_ShouldKeepItsRowsForTheNextFlush() throws IOException {
+        try (StayLog log = open()) {
+            // Given - a directory where the first segment file should go
+            Path blocked = Files.createDirectory(directory.resolve("stays-000000001.col"));
+            append(log, 0, 3);
+
+            // When
+            assertThatThrownBy(log::flush).isInstanceOf(IOException.class);
+            Files.delete(blocked);
+            log.flush();
+
+            // Then
+            List<Stay> recorded;
+            try (Stream<Stay> read = log.read(MIDNIGHT, MIDNIGHT.plus(Duration.ofDays(1)))) {
+                recorded = read.toList();
+            }
+            assertThat(recorded).containsExactly(stay(0), stay(1), stay(2));
+            assertThat(log.writeFailures()).isEqualTo(1);
+            assertThat(log.droppedRows()).isZero();
+        }
+    }
+
+    @Test
+    void onEvent_ShouldRecordCheckOutsOnlyAndStopAtATornBlockAfterACrash() throws IOException {
+        // Given
+        Car car = new Car("OUT-1", "B1", MIDNIGHT, VehicleSize.STANDARD);
+        ParkingSpot spot = new ParkingSpot("B1", 2, 1, ParkingStatus.OCCUPIED, VehicleSize.STANDARD, List.of());
+        try (StayLog log = open()) {
+            log.onEvent("north", new ParkingEvent.CarParked(car, spot), 0, false);
+            log.onEvent("north", new ParkingEvent.CarLeft(car, spot, MIDNIGHT.plus(Duration.ofHours(2)), 1000), 1, true);
+        }
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.findFirst().orElseThrow();
+        }
+        // Half of a second block, as if the process died writing it
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap(new byte[]{0x53, 0x54, 0x41, 0x59, 0, 0, 1, 0}));
+        }
+
+        // When
+        List<Stay> recorded;
+        try (StayLog log = open(); Stream<Stay> read = log.read(MIDNIGHT, MIDNIGHT.plus(Duration.ofDays(1)))) {
+            recorded = read.toList();
+        }
+
+        // Then
+        assertThat(recorded).containsExactly(new Stay("north", "OUT-1", "B1", VehicleSize.STANDARD, MIDNIGHT,
+                MIDNIGHT.plus(Duration.ofHours(2)), 1000));
+    }
+
+    private StayLog open() throws IOException {
+        return StayLog.open(directory, 4096, Duration.ofMinutes(1));
+    }
+
+    private static void append(StayLog log, int fromMinute, int toMinute) throws IOException {
+        for (int minute = fromMinute; minute < toMinute; minute++) {
+            log.append(stay(minute));
+            if (minute % 60 == 59) {
+                log.flush();
+            }
+        }
+    }
+
+    private static Stay stay(int minute) {
+        Instant checkOut = MIDNIGHT.plus(Duration.ofMinutes(minute));
+        return new Stay(minute % 3 == 0 ? null : "garage-" + minute % 3, "PLATE-" + minute, "S" + minute % 50,
+                VehicleSize.values()[minute % 3], checkOut.minus(Duration.ofMinutes(90)), checkOut, 750L * (minute % 7));
+    }
+}
@@ -0,0 +1,121 @@
+package com.example.garage.persistence;
+
+import com.example.garage.model.Car;
+import com.example.garage.model.ParkingSpot;
+import com.example.garage.model.ParkingStatus;
+import com.example.garage.model.VehicleSize;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class WriteAheadLogTest {
+
+    private static final int SEGMENT_SIZE = 4096;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void open_ShouldReplayEventsWrittenBeforeRestart() throws IOException {
+        // Given
+        try (WriteAheadLog log = open()) {
+            log.append(new GarageEvent.SpotCreated(spot("A1")));
+            log.append(new GarageEvent.SpotCreated(spot("A2")));
+            log.append(new GarageEvent.CarCheckedIn(car("TEST-1", "A1")));
+            log.append(new GarageEvent.CarCheckedIn(car("TEST-2", "A2")));
+            log.append(new GarageEvent.CarCheckedOut("TEST-1", "A1"));
+            log.append(new GarageEvent.SpotStatusChanged("A1", ParkingStatus.OCCUPIED));
+        }
+
+        // When
+        try (WriteAheadLog log = open()) {
+            GarageState state = log.recoveredState();
+
+            // Then
+            assertThat(state.spots()).extracting(ParkingSpot::id, ParkingSpot::status).containsExactly(
+                    tuple("A1", ParkingStatus.OCCUPIED),
+                    tuple("A2", ParkingStatus.OCCUPIED));
+            assertThat(state.cars()).containsExactly(car("TEST-2", "A2"));
+        }
+    }
+
+    @Test
+    void compact_ShouldFoldSealedSegmentsIntoSnapshot() throws IOException {
+        // Given - enough churn to roll over several small segments
+        try (WriteAheadLog log = open()) {
+            log.append(new GarageEvent.SpotCreated(spot("A1")));
+            for (int i = 0; i < 200; i++) {
+                log.append(new GarageEvent.CarCheckedIn(car("TEST-" + i, "A1")));
+                log.append(new GarageEvent.CarCheckedOut("TEST-" + i, "A1"));
+            }
+            log.append(new GarageEvent.CarCheckedIn(car("LAST", "A1")));
+            assertThat(segmentCount()).isGreaterThan(2);
+
+            // When
+            log.compact();
+            log.append(new GarageEvent.SpotCreated(spot("A2")));
+        }
+
+        // Then
+        assertThat(segmentCount()).isEqualTo(1);
+        try (WriteAheadLog log = open()) {
+            GarageState state = log.recoveredState();
+            assertThat(state.spots()).extracting(ParkingSpot::id).containsExactly("A1", "A2");
+            assertThat(state.cars()).containsExactly(car("LAST", "A1"));
+        }
+    }
+
+    @Test
+    void open_ShouldStopReplayAtTornRecord() throws IOException {
+        // Given
+        try (WriteAheadLog log = open()) {
+            log.append(new GarageEvent.SpotCreated(spot("A1")));
+            log.append(new GarageEvent.SpotCreated(spot("A2")));
+        }
+        Path segment = directory.resolve("segment-000000001.wal");
+        int secondRecord = EventCodec.encode(new GarageEvent.SpotCreated(spot("A1"))).length;
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+            // Corrupt the last byte of the second record's payload, as a crash mid-write would
+            int corrupted = secondRecord + EventCodec.encode(new GarageEvent.SpotCreated(spot("A2"))).length - 1;
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) 0x7f}), corrupted);
+        }
+
+        // When
+        try (WriteAheadLog log = open()) {
+
+            // Then
+            assertThat(log.recoveredState().spots()).extracting(ParkingSpot::id).containsExactly("A1");
+        }
+    }
+
+    private WriteAheadLog open() throws IOException {
+        return WriteAheadLog.open(directory, SEGMENT_SIZE, Duration.ZERO);
+    }
+
+    private long segmentCount() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.getFileName().toString().startsWith("segment-")).count();
+        }
+    }
+
+    private static ParkingSpot spot(String id) {
+        return new ParkingSpot(id, 1, Integer.parseInt(id.substring(1)), ParkingStatus.AVAILABLE, VehicleSize.COMPACT, List.of());
+    }
+
+    private static Car car(String licensePlate, String spotId) {
+        return new Car(licensePlate, spotId, Instant.parse("2025-07-09T12:00:00Z"), VehicleSize.COMPACT);
+    }
+}
@@ -0,0 +1,74 @@
+package com.example.garage.pricing;
+
+import com.example.garage.model.ParkingSpot;
+import com.example.garage.model.ParkingStatus;
+import com.example.garage.model.VehicleSize;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class PricingEngineTest {
+
+    private static final Instant NINE_PM = Instant.parse("2025-07-09T21:00:00Z");
+    private static final ParkingSpot COMPACT_SPOT = new ParkingSpot("A1", 1, 1, ParkingStatus.OCCUPIED, VehicleSize.COMPACT, List.of());
+    private static final ParkingSpot OVERSIZED_SPOT = new ParkingSpot("C2", 3, 2, ParkingStatus.OCCUPIED, VehicleSize.OVERSIZED, List.of());
+    private static final ParkingSpot EV_SPOT = new ParkingSpot("C1", 3, 1, ParkingStatus.OCCUPIED, VehicleSize.OVERSIZED, List.of("EV_CHARGING"));
+
+    private final Tariff flat = Tariff.flat(new BigDecimal("5.00"), new BigDecimal("7.50"));
+
+    @Test
+    void feeCents_WithFlatTariff_ShouldChargeEveryMinuteAtTheSpotsRate() {
+        // Given
+        PricingEngine pricing = new PricingEngine(flat, ZoneOffset.UTC);
+
+        // When & Then
+        assertThat(pricing.feeCents(COMPACT_SPOT, NINE_PM, NINE_PM.plus(Duration.ofMinutes(90)))).isEqualTo(750);
+        assertThat(pricing.feeCents(EV_SPOT, NINE_PM, NINE_PM.plus(Duration.ofMinutes(61)))).isEqualTo(763);
+        assertThat(pricing.feeCents(COMPACT_SPOT, NINE_PM, NINE_PM.plus(Duration.ofSeconds(59)))).isZero();
+    }
+
+    @Test
+    void feeCents_ShouldApplySizeRatesGraceTimeBandsAndDailyMaximum() {
+        // Given - nights at half price, oversized spots at 8.00, 10 free minutes and at most 60.00 a day
+        Tariff tariff = new Tariff(new BigDecimal("5.00"), null, Map.of(VehicleSize.OVERSIZED, new BigDecimal("8.00")),
+                Duration.ofMinutes(10), new BigDecimal("60.00"),
+                List.of(new Tariff.TimeBand(LocalTime.of(22, 0), LocalTime.of(6, 0), new BigDecimal("0.5"))));
+        PricingEngine pricing = new PricingEngine(tariff, ZoneOffset.UTC);
+
+        // When & Then
+        assertThat(pricing.feeCents(COMPACT_SPOT, NINE_PM, NINE_PM.plus(Duration.ofMinutes(9)))).isZero();
+        assertThat(pricing.feeCents(COMPACT_SPOT, NINE_PM, NINE_PM.plus(Duration.ofHours(2)))).isEqualTo(500 + 250);
+        assertThat(pricing.feeCents(OVERSIZED_SPOT, NINE_PM, NINE_PM.plus(Duration.ofHours(1)))).isEqualTo(800);
+        assertThat(pricing.feeCents(EV_SPOT, NINE_PM, NINE_PM.plus(Duration.ofHours(1)))).isEqualTo(800);
+        // A full day of oversized parking costs 8.00 * 16 + 4.00 * 8 = 160.00, capped at 60.00, then one more evening hour
+        assertThat(pricing.feeCents(OVERSIZED_SPOT, NINE_PM, NINE_PM.plus(Duration.ofHours(25)))).isEqualTo(6000 + 800);
+    }
+
+    @Test
+    void replace_WhenTariffIsInvalid_ShouldKeepTheCurrentOne() {
+        // Given
+        PricingEngine pricing = new PricingEngine(flat, ZoneOffset.UTC);
+        Tariff overlapping = new Tariff(new BigDecimal("5.00"), null, Map.of(), Duration.ZERO, null, List.of(
+                new Tariff.TimeBand(LocalTime.of(7, 0), LocalTime.of(10, 0), new BigDecimal("1.5")),
+                new Tariff.TimeBand(LocalTime.of(9, 0), LocalTime.of(11, 0), new BigDecimal("2"))));
+
+        // When & Then
+        assertThatThrownBy(() -> pricing.replace(overlapping))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Time bands overlap at 09:00");
+        assertThat(pricing.tariff()).isSameAs(flat);
+
+        Tariff doubled = Tariff.flat(new BigDecimal("10.00"), new BigDecimal("15.00"));
+        pricing.replace(doubled);
+        assertThat(pricing.feeCents(COMPACT_SPOT, NINE_PM, NINE_PM.plus(Duration.ofHours(1)))).isEqualTo(1000);
+    }
+}
@@ -0,0 +1,63 @@
+package com.example.garage.repository;
+
+import com.example.garage.model.ParkingSpot;
+import com.example.garage.model.ParkingStatus;
+import com.example.garage.model.VehicleSize;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ArrayParkingSpotRepositoryTest extends ParkingSpotRepositoryTest {
+
+    @Override
+    protected ParkingSpotRepository createRepository() {
+        return new ArrayParkingSpotRepository();
+    }
+
+    @Test
+    void replace_ShouldCompareByValueAndRejectStaleSpots() {
+        // Given
+        ParkingSpot spot = repository.findById("C1").orElseThrow();
+        ParkingSpot copy = new ParkingSpot(spot.id(), spot.level(), spot.number(), spot.status(), spot.size(), new ArrayList<>(spot.features()));
+
+        // When
+        boolean replaced = repository.replace(copy, spot.withStatus(ParkingStatus.OCCUPIED));
+        boolean replacedAgain = repository.replace(spot, spot.withStatus(ParkingStatus.OCCUPIED));
+
+        // Then
+        assertThat(replaced).isTrue();
+        assertThat(replacedAgain).isFalse();
+        assertThat(repository.findById("C1")).map(ParkingSpot::status).contains(ParkingStatus.OCCUPIED);
+    }
+
+    @Test
+    void save_WhenSpotsSpanSeveralChunks_ShouldKeepFreeIndexInNumberOrder() {
+        // Given - the lowest number arrives last, so it lands at the front of the partition
+        for (int number = 2; number <= 20_000; number++) {
+            repository.save(new ParkingSpot("Z" + number, 9, number, ParkingStatus.AVAILABLE, VehicleSize.STANDARD, List.of()));
+        }
+        repository.save(new ParkingSpot("Z1", 9, 1, ParkingStatus.AVAILABLE, VehicleSize.STANDARD, List.of()));
+        repository.save(repository.findById("Z1").orElseThrow().withStatus(ParkingStatus.OCCUPIED));
+        for (ParkingSpot spot : List.copyOf(repository.findAllAvailable())) {
+            if (spot.size() == VehicleSize.STANDARD && spot.level() < 9) {
+                repository.save(spot.withStatus(ParkingStatus.OCCUPIED));
+            }
+        }
+
+        // When & Then
+        assertThat(repository.findFirstAvailable(VehicleSize.STANDARD)).map(ParkingSpot::id).contains("Z2");
+        assertThat(repository.findById("Z20000")).map(ParkingSpot::number).contains(20_000);
+        assertThat(repository.findAll()).hasSize(20_010);
+    }
+
+    @Test
+    void save_WhenLevelDoesNotFitInAShort_ShouldBeRejected() {
+        // When & Then
+        assertThatThrownBy(() -> repository.save(new ParkingSpot("Y1", 40_000, 1, ParkingStatus.AVAILABLE, VehicleSize.COMPACT, List.of())))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.garage.repository;
+
+import com.example.garage.model.Car;
+import com.example.garage.model.VehicleSize;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CarRepositoryTest {
+
+    private static final Instant NOON = Instant.parse("2025-07-09T12:00:00Z");
+
+    private CarRepository repository;
+
+    @BeforeEach
+    void setUp() {
+        ParkingSpotRepository spots = new MapParkingSpotRepository();
+        DefaultGarageLayout.spots().forEach(spots::save);
+        repository = new CarRepository(spots);
+    }
+
+    @Test
+    void save_ShouldIndexTheCarBySpotLevelAndCheckInTime() {
+        // Given
+        Car early = new Car("EARLY-1", "B2", NOON.minusSeconds(7200), VehicleSize.STANDARD);
+        Car late = new Car("LATE-1", "B1", NOON, VehicleSize.STANDARD);
+        Car compact = new Car("SMALL-1", "A1", NOON.minusSeconds(3600), VehicleSize.COMPACT);
+
+        // When
+        repository.save(late);
+        repository.save(early);
+        repository.save(compact);
+
+        // Then
+        assertThat(repository.findBySpotId("B2")).contains(early);
+        assertThat(repository.findBySpotId("B3")).isEmpty();
+        assertThat(repository.findByLevel(2)).containsExactly(early, late);
+        assertThat(repository.findByLevel(3)).isEmpty();
+        assertThat(repository.findCheckedInBefore(NOON)).containsExactly(early, compact);
+        assertThat(repository.findAllByCheckIn()).containsExactly(early, compact, late);
+    }
+
+    @Test
+    void deleteAndResave_ShouldKeepEveryIndexInStepWithTheCars() {
+        // Given
+        Car parked = new Car("MOVE-1", "A1", NOON, VehicleSize.COMPACT);
+        repository.save(parked);
+
+        // When - the same plate saved again in another spot, then a stale delete and a real one
+        Car moved = new Car("MOVE-1", "B1", NOON.plusSeconds(60), VehicleSize.COMPACT);
+        repository.save(moved);
+        boolean staleDeleted = repository.delete(parked);
+        int onLevelTwo = repository.findByLevel(2).size();
+        boolean deleted = repository.delete(moved);
+
+        // Then
+        assertThat(staleDeleted).isFalse();
+        assertThat(onLevelTwo).isEqualTo(1);
+        assertThat(deleted).isTrue();
+        assertThat(repository.findBySpotId("A1")).isEmpty();
+        assertThat(repository.findBySpotId("B1")).isEmpty();
+        assertThat(repository.findByLevel(1)).isEmpty();
+        assertThat(repository.findByLevel(2)).isEmpty();
+        assertThat(repository.findAllByCheckIn()).isEmpty();
+    }
+}
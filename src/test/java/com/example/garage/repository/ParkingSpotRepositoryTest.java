@@ -0,0 +1,214 @@
+package com.example.garage.repository;
+
+import com.example.garage.model.OccupancyCount;
+import com.example.garage.model.ParkingSpot;
+import com.example.garage.model.ParkingStatus;
+import com.example.garage.model.SpotFeatures;
+import com.example.garage.model.SpotFilter;
+import com.example.garage.model.VehicleSize;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ParkingSpotRepositoryTest {
+
+    protected ParkingSpotRepository repository;
+
+    protected ParkingSpotRepository createRepository() {
+        return new MapParkingSpotRepository();
+    }
+
+    @BeforeEach
+    void setUp() {
+        repository = createRepository();
+        DefaultGarageLayout.spots().forEach(repository::save);
+    }
+
+    @Test
+    void findFirstAvailable_ShouldReturnLowestSpotOfRequestedSize() {
+        // When
+        Optional<ParkingSpot> compact = repository.findFirstAvailable(VehicleSize.COMPACT);
+        Optional<ParkingSpot> oversized = repository.findFirstAvailable(VehicleSize.OVERSIZED);
+
+        // Then
+        assertThat(compact).map(ParkingSpot::id).contains("A1");
+        assertThat(oversized).map(ParkingSpot::id).contains("C1");
+    }
+
+    @Test
+    void replace_WhenBeforeVisibleThrows_ShouldLeaveTheSpotAsItWas() {
+        // Given
+        ParkingSpot spot = repository.findById("C1").orElseThrow();
+
+        // When
+        assertThatThrownBy(() -> repository.replace(spot, spot.withStatus(ParkingStatus.OCCUPIED), () -> {
+            throw new IllegalStateException("Journal unavailable");
+        })).isInstanceOf(IllegalStateException.class);
+
+        // Then
+        assertThat(repository.findById("C1")).map(ParkingSpot::status).contains(ParkingStatus.AVAILABLE);
+        assertThat(repository.findFirstAvailable(VehicleSize.OVERSIZED)).map(ParkingSpot::id).contains("C1");
+        assertThat(repository.occupancy(VehicleSize.OVERSIZED).occupied()).isZero();
+        assertThat(repository.replace(spot, spot.withStatus(ParkingStatus.OCCUPIED))).isTrue();
+    }
+
+    @Test
+    void save_WhenSpotBecomesOccupied_ShouldRemoveItFromFreeIndex() {
+        // Given
+        ParkingSpot spot = repository.findById("C1").orElseThrow();
+
+        // When
+        repository.save(new ParkingSpot(spot.id(), spot.level(), spot.number(), ParkingStatus.OCCUPIED, spot.size(), spot.features()));
+
+        // Then
+        assertThat(repository.findFirstAvailable(VehicleSize.OVERSIZED)).map(ParkingSpot::id).contains("C2");
+        assertThat(repository.findAllAvailable()).noneMatch(s -> s.id().equals("C1"));
+    }
+
+    @Test
+    void save_WhenSpotBecomesAvailableAgain_ShouldRestoreItToFreeIndex() {
+        // Given
+        ParkingSpot spot = repository.findById("C1").orElseThrow();
+        repository.save(new ParkingSpot(spot.id(), spot.level(), spot.number(), ParkingStatus.OCCUPIED, spot.size(), spot.features()));
+
+        // When
+        repository.save(spot);
+
+        // Then
+        assertThat(repository.findFirstAvailable(VehicleSize.OVERSIZED)).contains(spot);
+        assertThat(repository.findAllAvailable()).hasSize(10);
+    }
+
+    @Test
+    void findFirstAvailable_WhenSizeIsExhausted_ShouldReturnEmpty() {
+        // Given
+        for (ParkingSpot spot : List.copyOf(repository.findAllAvailable())) {
+            if (spot.size() == VehicleSize.OVERSIZED) {
+                repository.save(new ParkingSpot(spot.id(), spot.level(), spot.number(), ParkingStatus.OCCUPIED, spot.size(), spot.features()));
+            }
+        }
+
+        // When & Then
+        assertThat(repository.findFirstAvailable(VehicleSize.OVERSIZED)).isEmpty();
+        assertThat(repository.findFirstAvailable(VehicleSize.COMPACT)).isPresent();
+    }
+
+    @Test
+    void findFirstAvailable_ShouldPreferLowestLevelAndSpillOverWhenItFills() {
+        // Given - a second compact partition on level 2
+        repository.save(new ParkingSpot("D1", 2, 1, ParkingStatus.AVAILABLE, VehicleSize.COMPACT, List.of()));
+        for (ParkingSpot spot : List.copyOf(repository.findAllAvailable())) {
+            if (spot.size() == VehicleSize.COMPACT && spot.level() == 1) {
+                assertThat(repository.findFirstAvailable(VehicleSize.COMPACT)).map(ParkingSpot::level).contains(1);
+                repository.save(spot.withStatus(ParkingStatus.OCCUPIED));
+            }
+        }
+
+        // When & Then
+        assertThat(repository.findFirstAvailable(VehicleSize.COMPACT)).map(ParkingSpot::id).contains("D1");
+    }
+
+    @Test
+    void findAnyAvailable_ShouldSpreadOverTheFreeSpotsOfTheLowestLevelWithAny() {
+        // Given - A1 is taken and a compact spot is free on a higher level
+        repository.save(repository.findById("A1").orElseThrow().withStatus(ParkingStatus.OCCUPIED));
+        repository.save(new ParkingSpot("D1", 4, 1, ParkingStatus.AVAILABLE, VehicleSize.COMPACT, List.of()));
+
+        // When
+        Set<String> probed = new HashSet<>();
+        for (int i = 0; i < 200; i++) {
+            probed.add(repository.findAnyAvailable(VehicleSize.COMPACT).orElseThrow().id());
+        }
+
+        // Then
+        assertThat(probed).hasSizeGreaterThan(1).isSubsetOf("A2", "A3", "A4", "A5");
+    }
+
+    @Test
+    void findFirstAvailableWithFeatures_ShouldOnlyReturnSpotsCarryingAllOfThem() {
+        // Given
+        repository.save(new ParkingSpot("E1", 2, 7, ParkingStatus.AVAILABLE, VehicleSize.COMPACT, List.of("EV_CHARGING", "ACCESSIBLE")));
+        repository.save(new ParkingSpot("E2", 1, 9, ParkingStatus.AVAILABLE, VehicleSize.COMPACT, List.of("ACCESSIBLE")));
+        long evCharging = repository.features().lookup("EV_CHARGING");
+        long accessible = repository.features().lookup("ACCESSIBLE");
+        long evAndAccessible = evCharging | accessible;
+
+        // When & Then
+        assertThat(repository.findFirstAvailable(VehicleSize.COMPACT, accessible)).map(ParkingSpot::id).contains("E2");
+        assertThat(repository.findFirstAvailable(VehicleSize.COMPACT, evAndAccessible)).map(ParkingSpot::id).contains("E1");
+        assertThat(repository.findFirstAvailable(VehicleSize.OVERSIZED, evCharging)).map(ParkingSpot::id).contains("C1");
+
+        repository.save(repository.findById("E1").orElseThrow().withStatus(ParkingStatus.OCCUPIED));
+        assertThat(repository.findFirstAvailable(VehicleSize.COMPACT, evAndAccessible)).isEmpty();
+        assertThat(repository.findFirstAvailable(VehicleSize.COMPACT, SpotFeatures.NONE)).map(ParkingSpot::id).contains("A1");
+    }
+
+    @Test
+    void save_ShouldInternFeatureNamesPerRepository() {
+        // Given - this repository has used up every feature bit
+        for (int i = repository.occupancyByFeature().size(); i < SpotFeatures.MAX_FEATURES; i++) {
+            repository.save(new ParkingSpot("F" + i, 4, i + 1, ParkingStatus.AVAILABLE, VehicleSize.COMPACT, List.of("FEATURE_" + i)));
+        }
+        ParkingSpotRepository other = createRepository();
+
+        // When
+        ParkingSpot elsewhere = other.save(new ParkingSpot("G1", 1, 1, ParkingStatus.AVAILABLE, VehicleSize.COMPACT, List.of("ONE_MORE")));
+
+        // Then
+        assertThatThrownBy(() -> repository.save(new ParkingSpot("F99", 4, 99, ParkingStatus.AVAILABLE, VehicleSize.COMPACT, List.of("ONE_MORE"))))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("A garage supports at most 64 distinct spot features");
+        assertThat(other.findFirstAvailable(VehicleSize.COMPACT, other.features().lookup("ONE_MORE"))).contains(elsewhere);
+    }
+
+    @Test
+    void findAll_ShouldWalkMatchingSpotsInIdOrderAfterTheGivenId() {
+        // Given
+        repository.save(repository.findById("B1").orElseThrow().withStatus(ParkingStatus.OCCUPIED));
+        SpotFilter availableOnLevel2 = new SpotFilter(2, null, ParkingStatus.AVAILABLE, null);
+
+        // When & Then
+        assertThat(repository.findAll(availableOnLevel2, null)).extracting(ParkingSpot::id).containsExactly("B2", "B3");
+        assertThat(repository.findAll(SpotFilter.ALL, "B2")).extracting(ParkingSpot::id).containsExactly("B3", "C1", "C2");
+        assertThat(repository.findAll(new SpotFilter(null, null, null, "EV_CHARGING"), null)).extracting(ParkingSpot::id).containsExactly("C1");
+    }
+
+    @Test
+    void occupancy_ShouldFollowStatusChangesPerLevelSizeAndFeature() {
+        // Given
+        ParkingSpot evSpot = repository.findById("C1").orElseThrow();
+
+        // When
+        repository.replace(evSpot, evSpot.withStatus(ParkingStatus.OCCUPIED));
+        repository.save(repository.findById("A1").orElseThrow().withStatus(ParkingStatus.OCCUPIED));
+
+        // Then
+        assertThat(repository.occupancy()).isEqualTo(OccupancyCount.of(10, 8));
+        assertThat(repository.occupancy(3)).isEqualTo(OccupancyCount.of(2, 1));
+        assertThat(repository.occupancy(VehicleSize.COMPACT)).isEqualTo(OccupancyCount.of(5, 4));
+        assertThat(repository.occupancyOfFeature("EV_CHARGING")).isEqualTo(new OccupancyCount(1, 0, 1));
+        assertThat(repository.occupancyByLevel()).containsOnlyKeys(1, 2, 3);
+    }
+
+    @Test
+    void occupancy_WhenSpotMovesLevelAndLosesFeature_ShouldMoveItsCounts() {
+        // Given
+        ParkingSpot evSpot = repository.findById("C1").orElseThrow();
+
+        // When
+        repository.save(new ParkingSpot("C1", 4, 1, ParkingStatus.AVAILABLE, VehicleSize.OVERSIZED, List.of()));
+
+        // Then
+        assertThat(repository.occupancy(evSpot.level())).isEqualTo(OccupancyCount.of(1, 1));
+        assertThat(repository.occupancy(4)).isEqualTo(OccupancyCount.of(1, 1));
+        assertThat(repository.occupancy(VehicleSize.OVERSIZED)).isEqualTo(OccupancyCount.of(2, 2));
+        assertThat(repository.occupancyOfFeature("EV_CHARGING")).isEqualTo(OccupancyCount.of(0, 0));
+    }
+}
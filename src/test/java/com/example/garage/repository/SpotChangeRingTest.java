@@ -0,0 +1,75 @@
+package com.example.garage.repository;
+
+import com.example.garage.model.ParkingSpot;
+import com.example.garage.model.ParkingStatus;
+import com.example.garage.model.SpotStatusChange;
+import com.example.garage.model.VehicleSize;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class SpotChangeRingTest {
+
+    @Test
+    void save_ShouldPublishNewSpotsAndStatusChangesOnly() {
+        // Given
+        ParkingSpotRepository repository = new MapParkingSpotRepository();
+        repository.changes().attach();
+        ParkingSpot spot = new ParkingSpot("A1", 1, 1, ParkingStatus.AVAILABLE, VehicleSize.COMPACT, List.of());
+        repository.save(spot);
+
+        // When
+        repository.replace(spot, spot.withStatus(ParkingStatus.OCCUPIED));
+        repository.save(new ParkingSpot("A1", 1, 1, ParkingStatus.OCCUPIED, VehicleSize.COMPACT, List.of("COVERED")));
+
+        // Then
+        List<SpotStatusChange> changes = new ArrayList<>();
+        long next = repository.changes().read(0, 10, changes::add);
+        assertThat(next).isEqualTo(2);
+        assertThat(changes).extracting(SpotStatusChange::sequence, SpotStatusChange::spotId, SpotStatusChange::status).containsExactly(
+                tuple(0L, "A1", ParkingStatus.AVAILABLE),
+                tuple(1L, "A1", ParkingStatus.OCCUPIED));
+    }
+
+    @Test
+    void read_WhenReaderFellAFullRingBehind_ShouldReportLagged() {
+        // Given - capacity 3 rounds up to 4
+        SpotChangeRing ring = new SpotChangeRing(3);
+        ring.attach();
+        for (int i = 1; i <= 6; i++) {
+            ring.publish(new ParkingSpot("A" + i, 1, i, ParkingStatus.AVAILABLE, VehicleSize.COMPACT, List.of()));
+        }
+
+        // When & Then
+        List<SpotStatusChange> changes = new ArrayList<>();
+        assertThat(ring.capacity()).isEqualTo(4);
+        assertThat(ring.read(1, 10, changes::add)).isEqualTo(SpotChangeRing.LAGGED);
+        assertThat(ring.read(2, 10, changes::add)).isEqualTo(6);
+        assertThat(changes).extracting(SpotStatusChange::spotId).containsExactly("A3", "A4", "A5", "A6");
+    }
+
+    @Test
+    void publish_WhenPausedWithoutReaders_ShouldSkipTheRingAndMakeTheNextReaderResync() {
+        // Given - a reader saw sequence 0, then left and the ring was paused
+        SpotChangeRing ring = new SpotChangeRing(4);
+        ring.attach();
+        ring.publish(new ParkingSpot("A1", 1, 1, ParkingStatus.OCCUPIED, VehicleSize.COMPACT, List.of()));
+        ring.detach();
+        ring.pause();
+
+        // When
+        ring.publish(new ParkingSpot("A2", 1, 2, ParkingStatus.OCCUPIED, VehicleSize.COMPACT, List.of()));
+        long skippedHead = ring.head();
+        ring.attach();
+
+        // Then
+        assertThat(skippedHead).isEqualTo(1);
+        assertThat(ring.head() - 1).isGreaterThan(ring.capacity());
+        assertThat(ring.read(1, 10, change -> { })).isEqualTo(SpotChangeRing.LAGGED);
+        assertThat(ring.read(ring.head(), 10, change -> { })).isEqualTo(ring.head());
+    }
+}
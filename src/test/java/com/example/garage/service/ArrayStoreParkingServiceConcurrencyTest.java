@@ -0,0 +1,12 @@
+package com.example.garage.service;
+
+import com.example.garage.repository.ArrayParkingSpotRepository;
+import com.example.garage.repository.ParkingSpotRepository;
+
+class ArrayStoreParkingServiceConcurrencyTest extends ParkingServiceConcurrencyTest {
+
+    @Override
+    protected ParkingSpotRepository createRepository() {
+        return new ArrayParkingSpotRepository();
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.garage.service;
+
+import com.example.garage.config.MutableClock;
+import com.example.garage.events.ParkingEventPublisher;
+import com.example.garage.exception.GarageNotFoundException;
+import com.example.garage.metrics.GarageMetrics;
+import com.example.garage.model.ParkingStatus;
+import com.example.garage.model.VehicleSize;
+import com.example.garage.pricing.PricingEngine;
+import com.example.garage.pricing.Tariff;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class GarageShardsTest {
+
+    private static final String LAYOUT = """
+            id,level,number,size,features
+            N1,1,1,COMPACT,
+            N2,1,2,STANDARD,
+            """;
+
+    @TempDir
+    Path directory;
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2025-07-09T12:00:00Z"));
+    private GarageShards shards;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        Files.writeString(directory.resolve("north.csv"), LAYOUT);
+        Files.writeString(directory.resolve("south.csv"), LAYOUT);
+    }
+
+    @AfterEach
+    void tearDown() {
+        shards.destroy();
+    }
+
+    @Test
+    void service_ShouldLoadEachGarageOnFirstUseAsAnIsolatedShard() {
+        // Given
+        shards = shards(false);
+
+        // When
+        ParkingService north = shards.service("north");
+        north.checkIn("SITE-1", VehicleSize.COMPACT);
+
+        // Then - the same spot ids in another garage are untouched
+        assertThat(shards.service("north")).isSameAs(north);
+        assertThat(north.getOccupancy().total().occupied()).isEqualTo(1);
+        assertThat(shards.service("south").getOccupancy().total().occupied()).isZero();
+        assertThat(shards.service("south").checkIn("SITE-1", VehicleSize.COMPACT).assignedSpotId()).isEqualTo("N1");
+        assertThat(shards.loadedCount()).isEqualTo(2);
+        assertThatThrownBy(() -> shards.service("west"))
+                .isInstanceOf(GarageNotFoundException.class)
+                .hasMessage("Garage west not found");
+        assertThatThrownBy(() -> shards.service("../north"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void evictIdle_WithoutPersistence_ShouldOnlyDropShardsItCanRebuildFromTheirLayout() {
+        // Given - a car is parked in north, south is as its layout left it
+        shards = shards(false);
+        shards.service("north").checkIn("SITE-1", VehicleSize.COMPACT);
+        ParkingService south = shards.service("south");
+
+        // When
+        clock.advance(Duration.ofMinutes(29));
+        shards.evictIdle();
+        int loadedBeforeTimeout = shards.loadedCount();
+        clock.advance(Duration.ofMinutes(1));
+        shards.evictIdle();
+
+        // Then
+        assertThat(loadedBeforeTimeout).isEqualTo(2);
+        assertThat(shards.loadedCount()).isEqualTo(1);
+        assertThat(shards.service("north").findCarByLicensePlate("SITE-1").assignedSpotId()).isEqualTo("N1");
+        assertThat(shards.service("south")).isNotSameAs(south);
+    }
+
+    @Test
+    void evictIdle_WithoutPersistence_ShouldKeepAShardWhoseSpotStatusWasChanged() {
+        // Given - no spot counts as occupied, but one was freed by hand under a parked car
+        shards = shards(false);
+        ParkingService north = shards.service("north");
+        north.checkIn("SITE-1", VehicleSize.COMPACT);
+        north.updateSpotStatus("N1", ParkingStatus.AVAILABLE);
+
+        // When
+        clock.advance(Duration.ofHours(1));
+        shards.evictIdle();
+
+        // Then
+        assertThat(north.getOccupancy().total().occupied()).isZero();
+        assertThat(shards.service("north")).isSameAs(north);
+        assertThat(north.findCarByLicensePlate("SITE-1").assignedSpotId()).isEqualTo("N1");
+    }
+
+    @Test
+    void evictIdle_WithPersistence_ShouldReloadTheShardFromItsLog() {
+        // Given
+        shards = shards(true);
+        shards.service("north").checkIn("SITE-1", VehicleSize.COMPACT);
+
+        // When
+        clock.advance(Duration.ofHours(1));
+        shards.evictIdle();
+        int loadedAfterEviction = shards.loadedCount();
+
+        // Then
+        assertThat(loadedAfterEviction).isZero();
+        assertThat(shards.service("north").findCarByLicensePlate("SITE-1").assignedSpotId()).isEqualTo("N1");
+        assertThat(shards.service("north").getOccupancy().total().occupied()).isEqualTo(1);
+    }
+
+    @Test
+    void service_WithAnEmptyLogDirectoryAndNoLayout_ShouldReportNotFoundAndDropTheDirectory() throws IOException {
+        // Given - a log directory that never recorded anything, e.g. left by an interrupted load
+        shards = shards(true);
+        Path logDirectory = Files.createDirectories(directory.resolve("data").resolve("garages").resolve("west"));
+
+        // When & Then
+        assertThatThrownBy(() -> shards.service("west"))
+                .isInstanceOf(GarageNotFoundException.class)
+                .hasMessage("Garage west not found");
+        assertThat(logDirectory).doesNotExist();
+        assertThat(shards.heldIds()).doesNotContain("west");
+        assertThat(shards.isLoaded("west")).isFalse();
+    }
+
+    @Test
+    void callIfLoaded_ShouldNeitherLoadAGarageNorKeepItLoaded() {
+        // Given
+        shards = shards(false);
+        shards.service("south");
+
+        // When
+        boolean northRan = shards.callIfLoaded("north", service -> true).isPresent();
+        clock.advance(Duration.ofMinutes(30));
+        long southOccupied = shards.callIfLoaded("south", service -> service.getOccupancy().total().occupied()).orElseThrow();
+        shards.evictIdle();
+
+        // Then
+        assertThat(northRan).isFalse();
+        assertThat(southOccupied).isZero();
+        assertThat(shards.isLoaded("north")).isFalse();
+        assertThat(shards.isLoaded("south")).isFalse();
+    }
+
+    private GarageShards shards(boolean persistent) {
+        PricingEngine pricing = new PricingEngine(Tariff.flat(new BigDecimal("5.00"), new BigDecimal("7.50")), ZoneOffset.UTC);
+        return new GarageShards("map", directory, Duration.ofMinutes(30), persistent, directory.resolve("data"), DataSize.ofKilobytes(64),
+                Duration.ZERO, new SpotLayoutReader(new ObjectMapper()), new GarageMetrics(new SimpleMeterRegistry()), pricing, ParkingEventPublisher.NONE, clock);
+    }
+}
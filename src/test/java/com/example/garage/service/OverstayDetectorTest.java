@@ -0,0 +1,91 @@
+package com.example.garage.service;
+
+import com.example.garage.config.MutableClock;
+import com.example.garage.events.ParkingEventPublisher;
+import com.example.garage.metrics.GarageMetrics;
+import com.example.garage.model.OverstayAlert;
+import com.example.garage.model.VehicleSize;
+import com.example.garage.persistence.GarageJournal;
+import com.example.garage.pricing.PricingEngine;
+import com.example.garage.pricing.Tariff;
+import com.example.garage.repository.CarRepository;
+import com.example.garage.repository.DefaultGarageLayout;
+import com.example.garage.repository.MapParkingSpotRepository;
+import com.example.garage.repository.ParkingSpotRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.Mockito.mock;
+
+class OverstayDetectorTest {
+
+    private static final List<Duration> TIERS = List.of(Duration.ofHours(24), Duration.ofHours(48));
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2025-07-09T12:00:00Z"));
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private ParkingService parkingService;
+    private OverstayDetector detector;
+
+    @BeforeEach
+    void setUp() {
+        ParkingSpotRepository parkingSpotRepository = new MapParkingSpotRepository();
+        DefaultGarageLayout.spots().forEach(parkingSpotRepository::save);
+        PricingEngine pricing = new PricingEngine(Tariff.flat(new BigDecimal("5.00"), new BigDecimal("7.50")), ZoneOffset.UTC);
+        parkingService = new ParkingService(parkingSpotRepository, new CarRepository(parkingSpotRepository), GarageJournal.NONE,
+                ParkingEventPublisher.NONE, new GarageMetrics(registry), pricing, clock);
+        detector = new OverstayDetector(parkingService, mock(GarageShards.class), registry, TIERS, 100, clock);
+    }
+
+    @Test
+    void scan_ShouldFlagEachCarOnceAsItCrossesEachTier() {
+        // Given - one car stays on, one leaves before the maximum stay
+        parkingService.checkIn("STAYS-1", VehicleSize.COMPACT);
+        clock.advance(Duration.ofHours(1));
+        parkingService.checkIn("LEAVES-1", VehicleSize.COMPACT);
+        detector.scan();
+
+        // When
+        clock.advance(Duration.ofHours(23).plusMinutes(1));
+        detector.scan();
+        detector.scan();
+        parkingService.checkOut("LEAVES-1");
+        clock.advance(Duration.ofHours(24));
+        detector.scan();
+
+        // Then
+        List<OverstayAlert> alerts = detector.alertsAfter(null);
+        assertThat(alerts).extracting(OverstayAlert::licensePlate, OverstayAlert::tier)
+                .containsExactly(tuple("STAYS-1", 1), tuple("STAYS-1", 2));
+        assertThat(alerts.get(0).spotId()).isEqualTo("A1");
+        assertThat(alerts.get(0).garageId()).isNull();
+        assertThat(detector.alertsAfter(alerts.get(0).sequence())).containsExactly(alerts.get(1));
+        assertThat(registry.get("garage.overstay.alerts").tag("tier", "2").counter().count()).isEqualTo(1.0);
+    }
+
+    @Test
+    void scan_AfterALongGap_ShouldFlagACarOnlyAtTheHighestTierItReached() {
+        // Given
+        parkingService.checkIn("GONE-1", VehicleSize.COMPACT);
+        detector.scan();
+
+        // When
+        clock.advance(Duration.ofHours(50));
+        detector.scan();
+
+        // Then
+        assertThat(detector.alertsAfter(null)).extracting(OverstayAlert::tier).containsExactly(2);
+        assertThatThrownBy(() -> new OverstayDetector(parkingService, mock(GarageShards.class), registry,
+                List.of(Duration.ofHours(48), Duration.ofHours(24)), 100, clock))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,172 @@
+package com.example.garage.service;
+
+import com.example.garage.events.ParkingEventPublisher;
+import com.example.garage.exception.NoCompatibleSpotFoundException;
+import com.example.garage.model.Car;
+import com.example.garage.metrics.GarageMetrics;
+import com.example.garage.model.OccupancyCount;
+import com.example.garage.model.ParkingSpot;
+import com.example.garage.model.ParkingStatus;
+import com.example.garage.model.VehicleSize;
+import com.example.garage.persistence.GarageEvent;
+import com.example.garage.persistence.GarageJournal;
+import com.example.garage.persistence.GarageState;
+import com.example.garage.pricing.PricingEngine;
+import com.example.garage.pricing.Tariff;
+import com.example.garage.repository.CarRepository;
+import com.example.garage.repository.DefaultGarageLayout;
+import com.example.garage.repository.MapParkingSpotRepository;
+import com.example.garage.repository.ParkingSpotRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+
+class ParkingServiceConcurrencyTest {
+
+    private static final int THREADS = 16;
+
+    private ParkingSpotRepository parkingSpotRepository;
+    private ParkingService parkingService;
+
+    protected ParkingSpotRepository createRepository() {
+        return new MapParkingSpotRepository();
+    }
+
+    @BeforeEach
+    void setUp() {
+        parkingSpotRepository = createRepository();
+        DefaultGarageLayout.spots().forEach(parkingSpotRepository::save);
+        Clock clock = Clock.fixed(Instant.parse("2025-07-09T12:00:00Z"), ZoneOffset.UTC);
+        PricingEngine pricing = new PricingEngine(Tariff.flat(new BigDecimal("5.00"), new BigDecimal("7.50")), ZoneOffset.UTC);
+        parkingService = new ParkingService(parkingSpotRepository, new CarRepository(parkingSpotRepository), GarageJournal.NONE, ParkingEventPublisher.NONE, new GarageMetrics(new SimpleMeterRegistry()), pricing, clock);
+    }
+
+    @Test
+    void concurrentCheckIns_ShouldNeverAssignTheSameSpotTwice() throws Exception {
+        // Given - more cars than spots, all released at once
+        int cars = 40;
+        Set<String> assignedSpots = ConcurrentHashMap.newKeySet();
+        AtomicInteger rejected = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+
+        // When
+        for (int i = 0; i < cars; i++) {
+            String plate = "RUSH-" + i;
+            futures.add(executor.submit(() -> {
+                start.await();
+                try {
+                    Car car = parkingService.checkIn(plate, VehicleSize.COMPACT);
+                    assertThat(assignedSpots.add(car.assignedSpotId())).isTrue();
+                } catch (NoCompatibleSpotFoundException e) {
+                    rejected.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Then
+        assertThat(assignedSpots).hasSize(10);
+        assertThat(rejected.get()).isEqualTo(cars - 10);
+        assertThat(parkingSpotRepository.findAllAvailable()).isEmpty();
+        assertThat(parkingSpotRepository.occupancy()).isEqualTo(OccupancyCount.of(10, 0));
+    }
+
+    @Test
+    void concurrentCheckInsAndCheckOuts_ShouldLeaveEveryReleasedSpotAvailable() throws Exception {
+        // Given
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<?>> futures = new ArrayList<>();
+
+        // When - each task repeatedly parks and leaves
+        for (int t = 0; t < THREADS; t++) {
+            String plate = "CYCLE-" + t;
+            futures.add(executor.submit(() -> {
+                for (int i = 0; i < 200; i++) {
+                    try {
+                        parkingService.checkIn(plate, VehicleSize.COMPACT);
+                        parkingService.checkOut(plate);
+                    } catch (NoCompatibleSpotFoundException e) {
+                        // Garage momentarily full; try again
+                    }
+                }
+                return null;
+            }));
+        }
+        for (Future<?> future : futures) {
+            future.get(30, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Then
+        assertThat(parkingSpotRepository.findAll()).allMatch(spot -> spot.status() == ParkingStatus.AVAILABLE);
+        assertThat(parkingSpotRepository.findAllAvailable()).extracting(ParkingSpot::id).hasSize(10);
+        assertThat(parkingSpotRepository.occupancy()).isEqualTo(OccupancyCount.of(10, 10));
+    }
+
+    @Test
+    void updateSpotStatus_FreeingASpot_ShouldBeJournaledBeforeACheckInCanClaimIt() throws Exception {
+        // Given - every oversized spot is taken, C1 by hand; the journal tries to check in while C1 is being freed
+        GarageState replayed = new GarageState();
+        DefaultGarageLayout.spots().forEach(spot -> replayed.apply(new GarageEvent.SpotCreated(spot)));
+        CarRepository carRepository = new CarRepository(parkingSpotRepository);
+        ExecutorService racer = Executors.newSingleThreadExecutor();
+        ParkingService[] service = new ParkingService[1];
+        GarageJournal journal = event -> {
+            synchronized (replayed) {
+                replayed.apply(event);
+            }
+            if (event instanceof GarageEvent.SpotStatusChanged changed && changed.status() == ParkingStatus.AVAILABLE) {
+                Future<Car> checkIn = racer.submit(() -> service[0].checkIn("RACER", VehicleSize.OVERSIZED));
+                try {
+                    checkIn.get(5, TimeUnit.SECONDS);
+                } catch (Exception e) {
+                    // No free oversized spot yet
+                }
+            }
+        };
+        Clock clock = Clock.fixed(Instant.parse("2025-07-09T12:00:00Z"), ZoneOffset.UTC);
+        PricingEngine pricing = new PricingEngine(Tariff.flat(new BigDecimal("5.00"), new BigDecimal("7.50")), ZoneOffset.UTC);
+        service[0] = new ParkingService(parkingSpotRepository, carRepository, journal, ParkingEventPublisher.NONE,
+                new GarageMetrics(new SimpleMeterRegistry()), pricing, clock);
+        service[0].updateSpotStatus("C1", ParkingStatus.OCCUPIED);
+        service[0].checkIn("BIG-1", VehicleSize.OVERSIZED);
+
+        // When
+        service[0].updateSpotStatus("C1", ParkingStatus.AVAILABLE);
+        racer.shutdown();
+
+        // Then - replaying the journal rebuilds exactly what is in memory
+        assertThat(replayed.spots()).extracting(ParkingSpot::id, ParkingSpot::status)
+                .containsExactlyInAnyOrderElementsOf(parkingSpotRepository.findAll().stream()
+                        .map(spot -> tuple(spot.id(), spot.status())).toList());
+        assertThat(replayed.cars()).extracting(Car::licensePlate, Car::assignedSpotId)
+                .containsExactlyInAnyOrderElementsOf(carRepository.findAll().stream()
+                        .map(car -> tuple(car.licensePlate(), car.assignedSpotId())).toList());
+        assertThat(parkingSpotRepository.findById("C1").orElseThrow().status()).isEqualTo(ParkingStatus.AVAILABLE);
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.garage.service;
+
+import com.example.garage.config.MutableClock;
+import com.example.garage.events.ParkingEventPublisher;
+import com.example.garage.exception.PlateAlreadyReservedException;
+import com.example.garage.exception.ReservationNotFoundException;
+import com.example.garage.metrics.GarageMetrics;
+import com.example.garage.model.Car;
+import com.example.garage.model.ParkingStatus;
+import com.example.garage.model.Reservation;
+import com.example.garage.model.VehicleSize;
+import com.example.garage.persistence.GarageJournal;
+import com.example.garage.pricing.PricingEngine;
+import com.example.garage.pricing.Tariff;
+import com.example.garage.repository.CarRepository;
+import com.example.garage.repository.DefaultGarageLayout;
+import com.example.garage.repository.MapParkingSpotRepository;
+import com.example.garage.repository.ParkingSpotRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ParkingServiceReservationTest {
+
+    private final MutableClock clock = new MutableClock(Instant.parse("2025-07-09T12:00:00Z"));
+    private ParkingSpotRepository parkingSpotRepository;
+    private ParkingService parkingService;
+
+    @BeforeEach
+    void setUp() {
+        parkingSpotRepository = new MapParkingSpotRepository();
+        DefaultGarageLayout.spots().forEach(parkingSpotRepository::save);
+        PricingEngine pricing = new PricingEngine(Tariff.flat(new BigDecimal("5.00"), new BigDecimal("7.50")), ZoneOffset.UTC);
+        parkingService = new ParkingService(parkingSpotRepository, new CarRepository(parkingSpotRepository), GarageJournal.NONE, ParkingEventPublisher.NONE, new GarageMetrics(new SimpleMeterRegistry()), pricing, clock);
+    }
+
+    @Test
+    void checkInReservation_ShouldParkTheCarInTheHeldSpot() {
+        // Given
+        Reservation reservation = parkingService.reserve("EARLY-1", VehicleSize.COMPACT, null, Duration.ofMinutes(30));
+
+        // When - another car arrives first, then the reserved one
+        Car walkIn = parkingService.checkIn("WALK-IN", VehicleSize.COMPACT);
+        clock.advance(Duration.ofMinutes(20));
+        Car reserved = parkingService.checkInReservation(reservation.id());
+
+        // Then
+        assertThat(reservation.spotId()).isEqualTo("A1");
+        assertThat(reservation.expiresAt()).isEqualTo(Instant.parse("2025-07-09T12:30:00Z"));
+        assertThat(walkIn.assignedSpotId()).isEqualTo("A2");
+        assertThat(reserved.assignedSpotId()).isEqualTo("A1");
+        assertThat(reserved.checkInAt()).isEqualTo(Instant.parse("2025-07-09T12:20:00Z"));
+        assertThat(parkingSpotRepository.findById("A1").orElseThrow().status()).isEqualTo(ParkingStatus.OCCUPIED);
+        assertThatThrownBy(() -> parkingService.getReservation(reservation.id()))
+                .isInstanceOf(ReservationNotFoundException.class);
+    }
+
+    @Test
+    void expireReservations_ShouldReturnLapsedHoldsToTheFreePool() {
+        // Given
+        Reservation lapsing = parkingService.reserve("LATE-1", VehicleSize.OVERSIZED, List.of("EV_CHARGING"), Duration.ofMinutes(10));
+        Reservation lasting = parkingService.reserve("LATE-2", VehicleSize.OVERSIZED, null, Duration.ofHours(2));
+
+        // When
+        clock.advance(Duration.ofMinutes(10));
+        parkingService.expireReservations();
+
+        // Then - only the lapsed hold is released, and its plate is free to arrive without one
+        assertThat(parkingSpotRepository.findById(lapsing.spotId()).orElseThrow().status()).isEqualTo(ParkingStatus.AVAILABLE);
+        assertThat(parkingSpotRepository.findById(lasting.spotId()).orElseThrow().status()).isEqualTo(ParkingStatus.RESERVED);
+        assertThatThrownBy(() -> parkingService.checkInReservation(lapsing.id()))
+                .isInstanceOf(ReservationNotFoundException.class)
+                .hasMessage("Reservation " + lapsing.id() + " not found or expired");
+        assertThat(parkingService.checkIn("LATE-1", VehicleSize.OVERSIZED, List.of("EV_CHARGING")).assignedSpotId()).isEqualTo("C1");
+        assertThat(parkingService.getReservation(lasting.id())).isEqualTo(lasting);
+    }
+
+    @Test
+    void reserve_WhenPlateAlreadyHoldsAReservation_ShouldRefuseUntilItIsCancelled() {
+        // Given
+        Reservation reservation = parkingService.reserve("TWICE-1", VehicleSize.STANDARD, null, null);
+
+        // When & Then
+        assertThatThrownBy(() -> parkingService.reserve("TWICE-1", VehicleSize.STANDARD, null, null))
+                .isInstanceOf(PlateAlreadyReservedException.class);
+        assertThatThrownBy(() -> parkingService.checkIn("TWICE-1", VehicleSize.STANDARD))
+                .isInstanceOf(PlateAlreadyReservedException.class)
+                .hasMessage("Car with license plate TWICE-1 already holds reservation " + reservation.id());
+        assertThatThrownBy(() -> parkingService.updateSpotStatus(reservation.spotId(), ParkingStatus.AVAILABLE))
+                .isInstanceOf(IllegalArgumentException.class);
+
+        parkingService.cancelReservation(reservation.id());
+        assertThat(parkingSpotRepository.findById(reservation.spotId()).orElseThrow().status()).isEqualTo(ParkingStatus.AVAILABLE);
+        assertThat(parkingService.checkIn("TWICE-1", VehicleSize.STANDARD).assignedSpotId()).isEqualTo(reservation.spotId());
+    }
+
+    @Test
+    void reserve_WithHoldOutOfRange_ShouldBeRejected() {
+        assertThatThrownBy(() -> parkingService.reserve("HOLD-1", VehicleSize.COMPACT, null, Duration.ofHours(25)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Hold must be positive and at most 24 hours");
+        assertThatThrownBy(() -> parkingService.reserve("HOLD-1", VehicleSize.COMPACT, null, Duration.ZERO))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -1,7 +1,14 @@
 package com.example.garage.service;
 
+import com.example.garage.events.ParkingEvent;
+import com.example.garage.events.ParkingEventPublisher;
 import com.example.garage.exception.*;
+import com.example.garage.metrics.GarageMetrics;
 import com.example.garage.model.*;
+import com.example.garage.persistence.GarageEvent;
+import com.example.garage.persistence.GarageJournal;
+import com.example.garage.pricing.PricingEngine;
+import com.example.garage.pricing.Tariff;
 import com.example.garage.repository.CarRepository;
 import com.example.garage.repository.ParkingSpotRepository;
 import org.junit.jupiter.api.BeforeEach;
@@ -9,20 +16,27 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
-import org.springframework.test.util.ReflectionTestUtils;
 
+import java.math.BigDecimal;
 import java.time.*;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Stream;
 
 import static org.assertj.core.api.Assertions.assertThat;
 import static org.assertj.core.api.Assertions.assertThatThrownBy;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -35,9 +49,21 @@ class ParkingServiceTest {
     @Mock
     private CarRepository carRepository;
 
+    @Mock
+    private GarageJournal journal;
+
+    @Mock
+    private ParkingEventPublisher events;
+
+    @Mock
+    private GarageMetrics metrics;
+
     @Mock
     private Clock clock;
 
+    @Spy
+    private PricingEngine pricing = new PricingEngine(Tariff.flat(new BigDecimal("5.00"), new BigDecimal("7.50")), ZoneOffset.UTC);
+
     @InjectMocks
     private ParkingService parkingService;
 
@@ -47,6 +73,7 @@ class ParkingServiceTest {
     private ParkingSpot occupiedSpot;
     private Car testCar;
     private Instant fixedInstant;
+    private final SpotFeatures features = new SpotFeatures();
 
     @BeforeEach
     void setUp() {
@@ -63,8 +90,13 @@ class ParkingServiceTest {
 
         testCar = new Car("TEST-123", "A1", fixedInstant, VehicleSize.COMPACT);
 
-        ReflectionTestUtils.setField(parkingService, "hourlyRate", 5.00);
-        ReflectionTestUtils.setField(parkingService, "premiumRate", 7.50);
+        when(parkingSpotRepository.replace(any(ParkingSpot.class), any(ParkingSpot.class))).thenReturn(true);
+        when(parkingSpotRepository.replace(any(ParkingSpot.class), any(ParkingSpot.class), any(Runnable.class))).thenAnswer(invocation -> {
+            invocation.<Runnable>getArgument(2).run();
+            return true;
+        });
+        when(carRepository.delete(any(Car.class))).thenReturn(true);
+        when(parkingSpotRepository.features()).thenReturn(features);
     }
 
     @Test
@@ -97,12 +129,32 @@ class ParkingServiceTest {
         verify(parkingSpotRepository).findAllAvailable();
     }
 
+    @Test
+    void findSpots_WhenMoreSpotsMatchThanLimit_ShouldReturnCursorOfLastSpot() {
+        // Given
+        SpotFilter filter = new SpotFilter(1, null, null, null);
+        when(parkingSpotRepository.findAll(filter, "A0")).thenReturn(Stream.of(availableCompactSpot, occupiedSpot));
+
+        // When
+        SpotPage firstPage = parkingService.findSpots(filter, "A0", 1);
+
+        // Then
+        assertThat(firstPage.spots()).containsExactly(availableCompactSpot);
+        assertThat(firstPage.nextCursor()).isEqualTo("A1");
+    }
+
+    @Test
+    void findSpots_WithLimitAboveMaximum_ShouldThrowException() {
+        // When & Then
+        assertThatThrownBy(() -> parkingService.findSpots(SpotFilter.ALL, null, 1001))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Limit must be between 1 and 1000");
+    }
+
     @Test
     void updateSpotStatus_WithValidSpotId_ShouldUpdateAndReturnSpot() {
         // Given
         when(parkingSpotRepository.findById("A1")).thenReturn(Optional.of(availableCompactSpot));
-        ParkingSpot updatedSpot = new ParkingSpot("A1", 1, 1, ParkingStatus.OCCUPIED, VehicleSize.COMPACT, List.of());
-        when(parkingSpotRepository.save(any(ParkingSpot.class))).thenReturn(updatedSpot);
 
         // When
         ParkingSpot result = parkingService.updateSpotStatus("A1", ParkingStatus.OCCUPIED);
@@ -111,7 +163,8 @@ class ParkingServiceTest {
         assertThat(result.status()).isEqualTo(ParkingStatus.OCCUPIED);
         assertThat(result.id()).isEqualTo("A1");
         verify(parkingSpotRepository).findById("A1");
-        verify(parkingSpotRepository).save(any(ParkingSpot.class));
+        verify(parkingSpotRepository).replace(any(ParkingSpot.class), any(ParkingSpot.class), any(Runnable.class));
+        verify(journal).append(new GarageEvent.SpotStatusChanged("A1", ParkingStatus.OCCUPIED));
     }
 
     @Test
@@ -125,7 +178,7 @@ class ParkingServiceTest {
                 .hasMessage("Spot with id INVALID not found");
         
         verify(parkingSpotRepository).findById("INVALID");
-        verify(parkingSpotRepository, never()).save(any());
+        verify(parkingSpotRepository, never()).replace(any(), any());
     }
 
     @Test
@@ -161,11 +214,59 @@ class ParkingServiceTest {
         verify(parkingSpotRepository, never()).save(any());
     }
 
+    @Test
+    void importSpots_WithNewSpots_ShouldJournalAndSaveThemTogether() {
+        // Given
+        when(parkingSpotRepository.findExistingIds(any())).thenReturn(Set.of());
+        Stream<CreateSpotRequest> layout = Stream.of(
+                new CreateSpotRequest("E1", 5, 1, VehicleSize.STANDARD, List.of()),
+                new CreateSpotRequest("E2", 5, 2, VehicleSize.STANDARD, List.of("EV_CHARGING")));
+
+        // When
+        int imported = parkingService.importSpots(layout);
+
+        // Then
+        assertThat(imported).isEqualTo(2);
+        verify(parkingSpotRepository).findExistingIds(Set.of("E1", "E2"));
+        verify(journal).appendAll(argThat(events -> events.size() == 2));
+        verify(parkingSpotRepository).saveAll(argThat(spots -> spots.stream().allMatch(spot -> spot.status() == ParkingStatus.AVAILABLE)));
+        verify(parkingSpotRepository, never()).existsById(anyString());
+    }
+
+    @Test
+    void importSpots_WhenLayoutRepeatsAnId_ShouldRejectWholeLayout() {
+        // Given
+        Stream<CreateSpotRequest> layout = Stream.of(
+                new CreateSpotRequest("E1", 5, 1, VehicleSize.STANDARD, List.of()),
+                new CreateSpotRequest("E1", 5, 2, VehicleSize.STANDARD, List.of()));
+
+        // When & Then
+        assertThatThrownBy(() -> parkingService.importSpots(layout))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Layout lists spot ids more than once: E1");
+        verify(parkingSpotRepository, never()).saveAll(any());
+    }
+
+    @Test
+    void importSpots_WhenSpotsAlreadyExist_ShouldRejectWholeLayout() {
+        // Given
+        when(parkingSpotRepository.findExistingIds(any())).thenReturn(Set.of("A1"));
+        Stream<CreateSpotRequest> layout = Stream.of(
+                new CreateSpotRequest("A1", 1, 1, VehicleSize.COMPACT, List.of()),
+                new CreateSpotRequest("E1", 5, 1, VehicleSize.STANDARD, List.of()));
+
+        // When & Then
+        assertThatThrownBy(() -> parkingService.importSpots(layout))
+                .isInstanceOf(SpotAlreadyExistsException.class)
+                .hasMessage("Spots already exist: A1");
+        verify(journal, never()).appendAll(any());
+        verify(parkingSpotRepository, never()).saveAll(any());
+    }
+
     @Test
     void checkIn_WithAvailableCompactSpotForCompactCar_ShouldSucceed() {
         // Given
-        when(parkingSpotRepository.findAllAvailable()).thenReturn(List.of(availableCompactSpot));
-        when(parkingSpotRepository.save(any(ParkingSpot.class))).thenReturn(occupiedSpot);
+        when(parkingSpotRepository.findFirstAvailable(VehicleSize.COMPACT)).thenReturn(Optional.of(availableCompactSpot));
         when(carRepository.save(any(Car.class))).thenReturn(testCar);
 
         // When
@@ -174,10 +275,62 @@ class ParkingServiceTest {
         // Then
         assertThat(result.licensePlate()).isEqualTo("TEST-123");
         assertThat(result.assignedSpotId()).isEqualTo("A1");
-        verify(parkingSpotRepository).save(any(ParkingSpot.class));
+        verify(parkingSpotRepository).replace(any(ParkingSpot.class), any(ParkingSpot.class));
+        verify(journal).append(new GarageEvent.CarCheckedIn(new Car("TEST-123", "A1", fixedInstant, VehicleSize.COMPACT)));
+        verify(events).publish(new ParkingEvent.CarParked(testCar, availableCompactSpot.withStatus(ParkingStatus.OCCUPIED)));
         verify(carRepository).save(any(Car.class));
     }
 
+    @Test
+    void checkIn_WhenPlateIsAlreadyParked_ShouldFailWithoutClaimingASpot() {
+        // Given
+        when(carRepository.findByLicensePlate("TEST-123")).thenReturn(Optional.of(testCar));
+
+        // When & Then
+        assertThatThrownBy(() -> parkingService.checkIn("TEST-123", VehicleSize.COMPACT))
+                .isInstanceOf(CarAlreadyParkedException.class)
+                .hasMessage("Car with license plate TEST-123 is already parked");
+        verify(parkingSpotRepository, never()).findFirstAvailable(any());
+        verify(parkingSpotRepository, never()).replace(any(), any());
+    }
+
+    @Test
+    void checkIn_WithRequestedFeatures_ShouldSearchTheFeatureIndexes() {
+        // Given
+        long evCharging = features.register(List.of("EV_CHARGING"));
+        when(parkingSpotRepository.findFirstAvailable(VehicleSize.OVERSIZED, evCharging)).thenReturn(Optional.of(availableOversizedSpot));
+        when(carRepository.save(any(Car.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // When
+        Car result = parkingService.checkIn("EV-1", VehicleSize.COMPACT, List.of("EV_CHARGING"));
+
+        // Then
+        assertThat(result.assignedSpotId()).isEqualTo("C1");
+        verify(parkingSpotRepository, never()).findFirstAvailable(any(VehicleSize.class));
+    }
+
+    @Test
+    void checkIn_WithFeatureNoSpotHas_ShouldThrowNoCompatibleSpot() {
+        // When & Then
+        assertThatThrownBy(() -> parkingService.checkIn("TEST-123", VehicleSize.COMPACT, List.of("VALET")))
+                .isInstanceOf(NoCompatibleSpotFoundException.class)
+                .hasMessage("No compatible spot available for size COMPACT with features [VALET]");
+        verify(parkingSpotRepository, never()).replace(any(), any());
+    }
+
+    @Test
+    void checkIn_WhenJournalFails_ShouldReleaseSpotAndNotParkCar() {
+        // Given
+        when(parkingSpotRepository.findFirstAvailable(VehicleSize.COMPACT)).thenReturn(Optional.of(availableCompactSpot));
+        doThrow(new IllegalStateException("Write-ahead log is closed")).when(journal).append(any());
+
+        // When & Then
+        assertThatThrownBy(() -> parkingService.checkIn("TEST-123", VehicleSize.COMPACT))
+                .isInstanceOf(IllegalStateException.class);
+        verify(parkingSpotRepository).replace(any(ParkingSpot.class), eq(availableCompactSpot));
+        verify(carRepository, never()).save(any());
+    }
+
     @Test
     void checkIn_WithNullLicensePlate_ShouldThrowException() {
         // When & Then
@@ -185,8 +338,8 @@ class ParkingServiceTest {
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessage("License plate cannot be null or empty");
 
-        verify(parkingSpotRepository, never()).findAllAvailable();
-        verify(parkingSpotRepository, never()).save(any());
+        verify(parkingSpotRepository, never()).findFirstAvailable(any());
+        verify(parkingSpotRepository, never()).replace(any(), any());
         verify(carRepository, never()).save(any());
     }
 
@@ -197,8 +350,8 @@ class ParkingServiceTest {
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessage("License plate cannot be null or empty");
 
-        verify(parkingSpotRepository, never()).findAllAvailable();
-        verify(parkingSpotRepository, never()).save(any());
+        verify(parkingSpotRepository, never()).findFirstAvailable(any());
+        verify(parkingSpotRepository, never()).replace(any(), any());
         verify(carRepository, never()).save(any());
     }
 
@@ -209,8 +362,8 @@ class ParkingServiceTest {
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessage("License plate cannot be null or empty");
 
-        verify(parkingSpotRepository, never()).findAllAvailable();
-        verify(parkingSpotRepository, never()).save(any());
+        verify(parkingSpotRepository, never()).findFirstAvailable(any());
+        verify(parkingSpotRepository, never()).replace(any(), any());
         verify(carRepository, never()).save(any());
     }
 
@@ -221,31 +374,32 @@ class ParkingServiceTest {
                 .isInstanceOf(IllegalArgumentException.class)
                 .hasMessage("Vehicle size cannot be null");
 
-        verify(parkingSpotRepository, never()).findAllAvailable();
-        verify(parkingSpotRepository, never()).save(any());
+        verify(parkingSpotRepository, never()).findFirstAvailable(any());
+        verify(parkingSpotRepository, never()).replace(any(), any());
         verify(carRepository, never()).save(any());
     }
 
     @Test
     void checkIn_WithNoCompatibleSpot_ShouldThrowNoCompatibleSpotFoundException() {
         // Given
-        when(parkingSpotRepository.findAllAvailable()).thenReturn(List.of(availableCompactSpot));
+        when(parkingSpotRepository.findFirstAvailable(VehicleSize.COMPACT)).thenReturn(Optional.of(availableCompactSpot));
 
         // When & Then
         assertThatThrownBy(() -> parkingService.checkIn("TEST-456", VehicleSize.OVERSIZED))
                 .isInstanceOf(NoCompatibleSpotFoundException.class)
                 .hasMessage("No compatible spot available for size OVERSIZED");
 
-        verify(parkingSpotRepository, never()).save(any());
+        verify(parkingSpotRepository, never()).replace(any(), any());
         verify(carRepository, never()).save(any());
+        verify(metrics).noCompatibleSpot(VehicleSize.OVERSIZED);
+        verify(metrics).recordCheckIn(anyLong());
     }
 
     @Test
     void checkIn_CompactCarInStandardSpot_ShouldSucceed() {
         // Given
-        when(parkingSpotRepository.findAllAvailable()).thenReturn(List.of(availableStandardSpot));
+        when(parkingSpotRepository.findFirstAvailable(VehicleSize.STANDARD)).thenReturn(Optional.of(availableStandardSpot));
         ParkingSpot occupiedStandardSpot = new ParkingSpot("B1", 2, 1, ParkingStatus.OCCUPIED, VehicleSize.STANDARD, List.of());
-        when(parkingSpotRepository.save(any(ParkingSpot.class))).thenReturn(occupiedStandardSpot);
         Car compactCarInStandardSpot = new Car("COMPACT-123", "B1", fixedInstant, VehicleSize.COMPACT);
         when(carRepository.save(any(Car.class))).thenReturn(compactCarInStandardSpot);
 
@@ -261,9 +415,8 @@ class ParkingServiceTest {
     @Test
     void checkIn_CompactCarInOversizedSpot_ShouldSucceed() {
         // Given
-        when(parkingSpotRepository.findAllAvailable()).thenReturn(List.of(availableOversizedSpot));
+        when(parkingSpotRepository.findFirstAvailable(VehicleSize.OVERSIZED)).thenReturn(Optional.of(availableOversizedSpot));
         ParkingSpot occupiedOversizedSpot = new ParkingSpot("C1", 3, 1, ParkingStatus.OCCUPIED, VehicleSize.OVERSIZED, List.of("EV_CHARGING"));
-        when(parkingSpotRepository.save(any(ParkingSpot.class))).thenReturn(occupiedOversizedSpot);
         Car compactCarInOversizedSpot = new Car("COMPACT-456", "C1", fixedInstant, VehicleSize.COMPACT);
         when(carRepository.save(any(Car.class))).thenReturn(compactCarInOversizedSpot);
 
@@ -279,9 +432,8 @@ class ParkingServiceTest {
     @Test
     void checkIn_StandardCarInOversizedSpot_ShouldSucceed() {
         // Given
-        when(parkingSpotRepository.findAllAvailable()).thenReturn(List.of(availableOversizedSpot));
+        when(parkingSpotRepository.findFirstAvailable(VehicleSize.OVERSIZED)).thenReturn(Optional.of(availableOversizedSpot));
         ParkingSpot occupiedOversizedSpot = new ParkingSpot("C1", 3, 1, ParkingStatus.OCCUPIED, VehicleSize.OVERSIZED, List.of("EV_CHARGING"));
-        when(parkingSpotRepository.save(any(ParkingSpot.class))).thenReturn(occupiedOversizedSpot);
         Car standardCarInOversizedSpot = new Car("STANDARD-789", "C1", fixedInstant, VehicleSize.STANDARD);
         when(carRepository.save(any(Car.class))).thenReturn(standardCarInOversizedSpot);
 
@@ -294,10 +446,43 @@ class ParkingServiceTest {
         assertThat(result.size()).isEqualTo(VehicleSize.STANDARD);
     }
 
+    @Test
+    void checkIn_WhenSpotIsClaimedConcurrently_ShouldRetryFromARandomFreeSpot() {
+        // Given
+        ParkingSpot nextCompactSpot = new ParkingSpot("A3", 1, 3, ParkingStatus.AVAILABLE, VehicleSize.COMPACT, List.of());
+        when(parkingSpotRepository.findFirstAvailable(VehicleSize.COMPACT)).thenReturn(Optional.of(availableCompactSpot));
+        when(parkingSpotRepository.findAnyAvailable(VehicleSize.COMPACT)).thenReturn(Optional.of(nextCompactSpot));
+        when(parkingSpotRepository.replace(eq(availableCompactSpot), any(ParkingSpot.class))).thenReturn(false);
+        when(carRepository.save(any(Car.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // When
+        Car result = parkingService.checkIn("RETRY-1", VehicleSize.COMPACT);
+
+        // Then
+        assertThat(result.assignedSpotId()).isEqualTo("A3");
+        verify(parkingSpotRepository, times(2)).replace(any(ParkingSpot.class), any(ParkingSpot.class));
+        verify(parkingSpotRepository, times(1)).findFirstAvailable(VehicleSize.COMPACT);
+    }
+
+    @Test
+    void checkIn_CompactCar_ShouldPreferNarrowestCompatibleSpot() {
+        // Given
+        when(parkingSpotRepository.findFirstAvailable(VehicleSize.COMPACT)).thenReturn(Optional.of(availableCompactSpot));
+        when(parkingSpotRepository.findFirstAvailable(VehicleSize.OVERSIZED)).thenReturn(Optional.of(availableOversizedSpot));
+        when(carRepository.save(any(Car.class))).thenAnswer(invocation -> invocation.getArgument(0));
+
+        // When
+        Car result = parkingService.checkIn("NARROW-1", VehicleSize.COMPACT);
+
+        // Then
+        assertThat(result.assignedSpotId()).isEqualTo("A1");
+        verify(parkingSpotRepository, never()).findFirstAvailable(VehicleSize.OVERSIZED);
+    }
+
     @Test
     void checkIn_StandardCarCannotFitInCompactSpot_ShouldThrowException() {
         // Given
-        when(parkingSpotRepository.findAllAvailable()).thenReturn(List.of(availableCompactSpot));
+        when(parkingSpotRepository.findFirstAvailable(VehicleSize.COMPACT)).thenReturn(Optional.of(availableCompactSpot));
 
         // When & Then
         assertThatThrownBy(() -> parkingService.checkIn("STANDARD-FAIL", VehicleSize.STANDARD))
@@ -308,7 +493,7 @@ class ParkingServiceTest {
     @Test
     void checkIn_OversizedCarCannotFitInStandardSpot_ShouldThrowException() {
         // Given
-        when(parkingSpotRepository.findAllAvailable()).thenReturn(List.of(availableStandardSpot));
+        when(parkingSpotRepository.findFirstAvailable(VehicleSize.STANDARD)).thenReturn(Optional.of(availableStandardSpot));
 
         // When & Then
         assertThatThrownBy(() -> parkingService.checkIn("OVERSIZED-FAIL", VehicleSize.OVERSIZED))
@@ -323,7 +508,6 @@ class ParkingServiceTest {
         Car carToCheckOut = new Car("TEST-123", "A1", checkInTime, VehicleSize.COMPACT);
         when(carRepository.findByLicensePlate("TEST-123")).thenReturn(Optional.of(carToCheckOut));
         when(parkingSpotRepository.findById("A1")).thenReturn(Optional.of(occupiedSpot));
-        when(parkingSpotRepository.save(any(ParkingSpot.class))).thenReturn(availableCompactSpot);
 
         // When
         double fee = parkingService.checkOut("TEST-123");
@@ -332,8 +516,10 @@ class ParkingServiceTest {
         assertThat(fee).isEqualTo(10.00); // 2 hours * $5.00/hr
         verify(carRepository).findByLicensePlate("TEST-123");
         verify(parkingSpotRepository).findById("A1");
-        verify(parkingSpotRepository).save(any(ParkingSpot.class));
-        verify(carRepository).deleteByLicensePlate("TEST-123");
+        verify(parkingSpotRepository).replace(any(ParkingSpot.class), any(ParkingSpot.class));
+        verify(carRepository).delete(carToCheckOut);
+        verify(journal).append(new GarageEvent.CarCheckedOut("TEST-123", "A1"));
+        verify(events).publish(new ParkingEvent.CarLeft(carToCheckOut, occupiedSpot, fixedInstant, 1000));
     }
 
     @Test
@@ -343,7 +529,6 @@ class ParkingServiceTest {
         Car carToCheckOut = new Car("PARTIAL-123", "A1", checkInTime, VehicleSize.COMPACT);
         when(carRepository.findByLicensePlate("PARTIAL-123")).thenReturn(Optional.of(carToCheckOut));
         when(parkingSpotRepository.findById("A1")).thenReturn(Optional.of(occupiedSpot));
-        when(parkingSpotRepository.save(any(ParkingSpot.class))).thenReturn(availableCompactSpot);
 
         // When
         double fee = parkingService.checkOut("PARTIAL-123");
@@ -359,7 +544,6 @@ class ParkingServiceTest {
         Car carToCheckOut = new Car("SHORT-123", "A1", checkInTime, VehicleSize.COMPACT);
         when(carRepository.findByLicensePlate("SHORT-123")).thenReturn(Optional.of(carToCheckOut));
         when(parkingSpotRepository.findById("A1")).thenReturn(Optional.of(occupiedSpot));
-        when(parkingSpotRepository.save(any(ParkingSpot.class))).thenReturn(availableCompactSpot);
 
         // When
         double fee = parkingService.checkOut("SHORT-123");
@@ -374,7 +558,6 @@ class ParkingServiceTest {
         Car carToCheckOut = new Car("ZERO-123", "A1", fixedInstant, VehicleSize.COMPACT);
         when(carRepository.findByLicensePlate("ZERO-123")).thenReturn(Optional.of(carToCheckOut));
         when(parkingSpotRepository.findById("A1")).thenReturn(Optional.of(occupiedSpot));
-        when(parkingSpotRepository.save(any(ParkingSpot.class))).thenReturn(availableCompactSpot);
 
         // When
         double fee = parkingService.checkOut("ZERO-123");
@@ -391,7 +574,6 @@ class ParkingServiceTest {
         ParkingSpot premiumSpot = new ParkingSpot("C1", 3, 1, ParkingStatus.OCCUPIED, VehicleSize.OVERSIZED, List.of("EV_CHARGING"));
         when(carRepository.findByLicensePlate("PREMIUM-CAR")).thenReturn(Optional.of(carToCheckOut));
         when(parkingSpotRepository.findById("C1")).thenReturn(Optional.of(premiumSpot));
-        when(parkingSpotRepository.save(any(ParkingSpot.class))).thenReturn(availableOversizedSpot);
 
         // When
         double fee = parkingService.checkOut("PREMIUM-CAR");
@@ -409,7 +591,6 @@ class ParkingServiceTest {
                 List.of("EV_CHARGING", "COVERED", "SECURITY_CAMERA"));
         when(carRepository.findByLicensePlate("MULTI-FEATURE")).thenReturn(Optional.of(carToCheckOut));
         when(parkingSpotRepository.findById("C1")).thenReturn(Optional.of(multiFeatureSpot));
-        when(parkingSpotRepository.save(any(ParkingSpot.class))).thenReturn(availableOversizedSpot);
 
         // When
         double fee = parkingService.checkOut("MULTI-FEATURE");
@@ -429,7 +610,6 @@ class ParkingServiceTest {
         when(parkingSpotRepository.findById("C2")).thenReturn(Optional.of(nonPremiumSpot));
         ParkingSpot availableNonPremiumSpot = new ParkingSpot("C2", 3, 2, ParkingStatus.AVAILABLE, VehicleSize.OVERSIZED, 
                 List.of("COVERED", "SECURITY_CAMERA"));
-        when(parkingSpotRepository.save(any(ParkingSpot.class))).thenReturn(availableNonPremiumSpot);
 
         // When
         double fee = parkingService.checkOut("NO-EV");
@@ -449,9 +629,10 @@ class ParkingServiceTest {
                 .hasMessage("Car with license plate INVALID not found");
         
         verify(carRepository).findByLicensePlate("INVALID");
+        verify(metrics).carNotFound(null);
         verify(parkingSpotRepository, never()).findById(anyString());
-        verify(parkingSpotRepository, never()).save(any());
-        verify(carRepository, never()).deleteByLicensePlate(anyString());
+        verify(parkingSpotRepository, never()).replace(any(), any());
+        verify(carRepository, never()).delete(any());
     }
 
     @Test
@@ -474,6 +655,22 @@ class ParkingServiceTest {
         verify(carRepository, never()).findByLicensePlate(anyString());
     }
 
+    @Test
+    void checkOut_WhenCarIsCheckedOutConcurrently_ShouldThrowCarNotFoundException() {
+        // Given
+        Car carToCheckOut = new Car("RACE-123", "A1", fixedInstant, VehicleSize.COMPACT);
+        when(carRepository.findByLicensePlate("RACE-123")).thenReturn(Optional.of(carToCheckOut));
+        when(parkingSpotRepository.findById("A1")).thenReturn(Optional.of(occupiedSpot));
+        when(carRepository.delete(carToCheckOut)).thenReturn(false);
+
+        // When & Then
+        assertThatThrownBy(() -> parkingService.checkOut("RACE-123"))
+                .isInstanceOf(CarNotFoundException.class)
+                .hasMessage("Car with license plate RACE-123 not found");
+
+        verify(parkingSpotRepository, never()).replace(any(), any());
+    }
+
     @Test
     void checkOut_WithDataInconsistency_ShouldThrowIllegalStateException() {
         // Given
@@ -488,8 +685,62 @@ class ParkingServiceTest {
 
         verify(carRepository).findByLicensePlate("INCONSISTENT");
         verify(parkingSpotRepository).findById("NONEXISTENT");
-        verify(parkingSpotRepository, never()).save(any());
-        verify(carRepository, never()).deleteByLicensePlate(anyString());
+        verify(parkingSpotRepository, never()).replace(any(), any());
+        verify(carRepository, never()).delete(any());
+    }
+
+    @Test
+    void checkInBatch_ShouldAllocateLargestVehiclesFirstAndReportPerItemErrors() {
+        // Given - one oversized spot; the compact car must not take it ahead of the oversized car
+        when(parkingSpotRepository.availableSpots(VehicleSize.COMPACT)).thenReturn(Collections.emptyIterator());
+        when(parkingSpotRepository.availableSpots(VehicleSize.STANDARD)).thenReturn(Collections.emptyIterator());
+        when(parkingSpotRepository.availableSpots(VehicleSize.OVERSIZED))
+                .thenAnswer(invocation -> List.of(availableOversizedSpot).iterator());
+        when(parkingSpotRepository.replace(eq(availableOversizedSpot), any(ParkingSpot.class))).thenReturn(true, false);
+        when(carRepository.save(any(Car.class))).thenAnswer(invocation -> invocation.getArgument(0));
+        List<VehicleArrival> arrivals = List.of(
+                new VehicleArrival("BATCH-COMPACT", VehicleSize.COMPACT),
+                new VehicleArrival("", VehicleSize.COMPACT),
+                new VehicleArrival("BATCH-OVERSIZED", VehicleSize.OVERSIZED));
+
+        // When
+        List<BatchResult<Car>> results = parkingService.checkInBatch(arrivals);
+
+        // Then
+        assertThat(results).hasSize(3);
+        assertThat(results.get(0).error())
+                .isInstanceOf(NoCompatibleSpotFoundException.class)
+                .hasMessage("No compatible spot available for size COMPACT");
+        assertThat(results.get(1).error())
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("License plate cannot be null or empty");
+        assertThat(results.get(2).isSuccess()).isTrue();
+        assertThat(results.get(2).value().assignedSpotId()).isEqualTo("C1");
+        verify(carRepository, times(1)).save(any(Car.class));
+    }
+
+    @Test
+    void checkInBatch_WithEmptyBatch_ShouldThrowException() {
+        // When & Then
+        assertThatThrownBy(() -> parkingService.checkInBatch(List.of()))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessage("Batch cannot be null or empty");
+    }
+
+    @Test
+    void checkOutBatch_ShouldReturnFeeOrErrorPerLicensePlate() {
+        // Given
+        Car parkedCar = new Car("BATCH-OUT", "A1", fixedInstant.minus(Duration.ofHours(1)), VehicleSize.COMPACT);
+        when(carRepository.findByLicensePlate("BATCH-OUT")).thenReturn(Optional.of(parkedCar));
+        when(carRepository.findByLicensePlate("GHOST")).thenReturn(Optional.empty());
+        when(parkingSpotRepository.findById("A1")).thenReturn(Optional.of(occupiedSpot));
+
+        // When
+        List<BatchResult<Double>> results = parkingService.checkOutBatch(List.of("BATCH-OUT", "GHOST"));
+
+        // Then
+        assertThat(results.get(0).value()).isEqualTo(5.00);
+        assertThat(results.get(1).error()).isInstanceOf(CarNotFoundException.class);
     }
 
     @Test
@@ -540,10 +791,42 @@ class ParkingServiceTest {
         verify(carRepository, never()).findByLicensePlate(anyString());
     }
 
+    @Test
+    void findCarInSpot_ShouldTellAnEmptySpotFromAnUnknownOne() {
+        // Given
+        when(carRepository.findBySpotId("A1")).thenReturn(Optional.of(testCar));
+        when(carRepository.findBySpotId(argThat(id -> !"A1".equals(id)))).thenReturn(Optional.empty());
+        when(parkingSpotRepository.existsById("A2")).thenReturn(true);
+
+        // When & Then
+        assertThat(parkingService.findCarInSpot("A1")).isEqualTo(testCar);
+        assertThatThrownBy(() -> parkingService.findCarInSpot("A2"))
+                .isInstanceOf(CarNotFoundException.class)
+                .hasMessage("No car is parked in spot A2");
+        assertThatThrownBy(() -> parkingService.findCarInSpot("Z9"))
+                .isInstanceOf(SpotNotFoundException.class);
+    }
+
+    @Test
+    void findCars_ParkedLongerThan_ShouldReadTheCheckInIndexUpToTheCutoff() {
+        // Given
+        Car overstayed = new Car("OLD-1", "B1", fixedInstant.minus(Duration.ofHours(30)), VehicleSize.STANDARD);
+        when(carRepository.findCheckedInBefore(fixedInstant.minus(Duration.ofHours(24)))).thenReturn(List.of(overstayed));
+
+        // When
+        List<Car> cars = parkingService.findCars(null, Duration.ofHours(24), 10);
+
+        // Then
+        assertThat(cars).containsExactly(overstayed);
+        verify(carRepository, never()).findAll();
+        assertThatThrownBy(() -> parkingService.findCars(null, Duration.ofHours(-1), null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
     @Test
     void isCompatible_WithNullCarSize_ShouldReturnFalse() {
         // This tests the private method indirectly through checkIn
-        when(parkingSpotRepository.findAllAvailable()).thenReturn(List.of(availableCompactSpot));
+        when(parkingSpotRepository.findFirstAvailable(VehicleSize.COMPACT)).thenReturn(Optional.of(availableCompactSpot));
 
         // When & Then
         assertThatThrownBy(() -> parkingService.checkIn("TEST", null))
@@ -557,7 +840,6 @@ class ParkingServiceTest {
         Car carToCheckOut = new Car("LONG-STAY", "A1", checkInTime, VehicleSize.COMPACT);
         when(carRepository.findByLicensePlate("LONG-STAY")).thenReturn(Optional.of(carToCheckOut));
         when(parkingSpotRepository.findById("A1")).thenReturn(Optional.of(occupiedSpot));
-        when(parkingSpotRepository.save(any(ParkingSpot.class))).thenReturn(availableCompactSpot);
 
         // When
         double fee = parkingService.checkOut("LONG-STAY");
@@ -573,7 +855,6 @@ class ParkingServiceTest {
         Car carToCheckOut = new Car("ROUNDING-TEST", "A1", checkInTime, VehicleSize.COMPACT);
         when(carRepository.findByLicensePlate("ROUNDING-TEST")).thenReturn(Optional.of(carToCheckOut));
         when(parkingSpotRepository.findById("A1")).thenReturn(Optional.of(occupiedSpot));
-        when(parkingSpotRepository.save(any(ParkingSpot.class))).thenReturn(availableCompactSpot);
 
         // When
         double fee = parkingService.checkOut("ROUNDING-TEST");
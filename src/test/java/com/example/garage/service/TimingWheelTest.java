@@ -0,0 +1,91 @@
+package com.example.garage.service;
+
+import com.example.garage.config.MutableClock;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimingWheelTest {
+
+    private static final Instant NOON = Instant.parse("2025-07-09T12:00:00Z");
+
+    private final MutableClock clock = new MutableClock(NOON);
+    private final TimingWheel<Timer> wheel = new TimingWheel<>(clock, Duration.ofSeconds(1));
+    private final List<String> fired = new ArrayList<>();
+
+    @Test
+    void advance_ShouldFireEveryLevelOnItsDeadlineAndNeverBefore() {
+        // Given - one deadline on each level of the wheel, and one beyond all of them
+        schedule("seconds", Duration.ofSeconds(30));
+        schedule("hours", Duration.ofHours(2).plusMillis(500));
+        schedule("days", Duration.ofDays(3));
+        schedule("beyond", Duration.ofDays(200));
+
+        // When & Then
+        advanceTo(Duration.ofSeconds(29));
+        assertThat(fired).isEmpty();
+        advanceTo(Duration.ofSeconds(30));
+        assertThat(fired).containsExactly("seconds");
+
+        // Part-second deadlines round up to the next tick
+        advanceTo(Duration.ofHours(2));
+        assertThat(fired).containsExactly("seconds");
+        advanceTo(Duration.ofHours(2).plusSeconds(1));
+        assertThat(fired).containsExactly("seconds", "hours");
+
+        advanceTo(Duration.ofDays(3).minusSeconds(1));
+        assertThat(fired).hasSize(2);
+        advanceTo(Duration.ofDays(3));
+        assertThat(fired).containsExactly("seconds", "hours", "days");
+
+        advanceTo(Duration.ofDays(200).minusSeconds(1));
+        assertThat(fired).hasSize(3);
+        advanceTo(Duration.ofDays(200));
+        assertThat(fired).containsExactly("seconds", "hours", "days", "beyond");
+        assertThat(wheel.size()).isZero();
+    }
+
+    @Test
+    void cancel_ShouldUnlinkTheEntrySoItNeverFires() {
+        // Given
+        Timer kept = schedule("kept", Duration.ofMinutes(5));
+        Timer cancelled = schedule("cancelled", Duration.ofMinutes(5));
+        Timer past = schedule("past", Duration.ofSeconds(-10));
+
+        // When
+        boolean first = wheel.cancel(cancelled);
+        boolean second = wheel.cancel(cancelled);
+        advanceTo(Duration.ofMinutes(10));
+
+        // Then - a deadline already in the past fires on the next tick
+        assertThat(first).isTrue();
+        assertThat(second).isFalse();
+        assertThat(fired).containsExactly("past", "kept");
+        assertThat(wheel.cancel(kept)).isFalse();
+        assertThat(past.isScheduled()).isFalse();
+    }
+
+    private Timer schedule(String name, Duration delay) {
+        Timer timer = new Timer(name);
+        wheel.schedule(timer, NOON.plus(delay));
+        return timer;
+    }
+
+    private void advanceTo(Duration sinceStart) {
+        clock.advance(Duration.between(clock.instant(), NOON.plus(sinceStart)));
+        wheel.advance(timer -> fired.add(timer.name));
+    }
+
+    private static final class Timer extends TimingWheel.Entry {
+        final String name;
+
+        Timer(String name) {
+            this.name = name;
+        }
+    }
+}